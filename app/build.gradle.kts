@@ -2,6 +2,61 @@ plugins {
     alias(libs.plugins.android.application)
 }
 
+/**
+ * 为 src/main/assets 中的模型（*.ptl）生成 sha256sum 格式的校验清单 models.sha256，
+ * 由 ModelAssetExtractor 在解压模型时校验。模型不随仓库提交，没有任何模型时只给出警告并生成空清单，
+ * 应用在运行时报告模型加载失败（与不带清单时一致）。
+ * 清单是生成的资源，不要在 src/main/assets 中另外提交一份。
+ */
+abstract class GenerateModelManifestTask : DefaultTask() {
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NAME_ONLY)
+    abstract val models: ConfigurableFileCollection
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val files = models.files.filter { it.isFile }.sortedBy { it.name }
+        if (files.isEmpty()) {
+            logger.warn("src/main/assets 中没有模型文件 (*.ptl)，生成空的 models.sha256；运行时将无法加载模型")
+        }
+        val lines = files.joinToString(separator = "") { file ->
+            val digest = java.security.MessageDigest.getInstance("SHA-256")
+            file.inputStream().use { input ->
+                val buffer = ByteArray(64 * 1024)
+                while (true) {
+                    val n = input.read(buffer)
+                    if (n < 0) break
+                    digest.update(buffer, 0, n)
+                }
+            }
+            digest.digest().joinToString("") { "%02x".format(it) } + "  " + file.name + "\n"
+        }
+        val manifest = outputDir.get().file("models.sha256").asFile
+        manifest.parentFile.mkdirs()
+        manifest.writeText(lines)
+    }
+}
+
+val generateModelManifest = tasks.register<GenerateModelManifestTask>("generateModelManifest") {
+    models.from(fileTree("src/main/assets") { include("*.ptl") })
+    outputDir.set(layout.buildDirectory.dir("generated/assets/modelManifest"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(generateModelManifest, GenerateModelManifestTask::outputDir)
+    }
+}
+
+// benchmark 模块按文件清单编译本模块的部分源码。check 时一并编译基准，
+// 被收录的类新增了对清单外的类的依赖时在这里就会编译失败，而不是等到有人运行 jmh。
+tasks.named("check") {
+    dependsOn(":benchmark:jmhClasses")
+}
+
 android {
     namespace = "com.example.test922"
     compileSdk = 34
@@ -34,6 +89,11 @@ android {
         targetCompatibility = JavaVersion.VERSION_11
     }
 
+    androidResources {
+        // 模型不压缩存储，首次启动时可以用 FileChannel.transferTo 直接从 APK 复制
+        noCompress += "ptl"
+    }
+
     packaging {
         jniLibs {
             pickFirsts += listOf(
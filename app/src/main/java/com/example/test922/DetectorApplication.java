@@ -0,0 +1,24 @@
+package com.example.test922;
+
+import android.app.Application;
+
+import com.example.test922.audio.detector.ModelHolder;
+import com.example.test922.audio.detector.ModelSpec;
+
+/**
+ * 进程启动时即在后台加载并预热检测模型，Activity 只需等待 {@link ModelHolder#getReadiness()}。
+ */
+public class DetectorApplication extends Application {
+
+    /** 没有模型清单时使用的模型文件（assets 中的路径） */
+    public static final String MODEL_ASSET_PATH = ModelSpec.RAWNET2_ASSET_PATH;
+
+    /** 加载后的预热次数：首次前向推理最慢，之后两次用于确认已进入稳态 */
+    private static final int MODEL_WARMUP_PASSES = 3;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ModelHolder.get().start(this, MODEL_ASSET_PATH, MODEL_WARMUP_PASSES);
+    }
+}
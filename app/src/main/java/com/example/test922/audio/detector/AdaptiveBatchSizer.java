@@ -0,0 +1,70 @@
+package com.example.test922.audio.detector;
+
+/**
+ * 自适应批大小。
+ *
+ * 批大小以"单元"计：一个 clip，或设置了窗口选择时的一个文件（占多行）。
+ * 从 1 开始逐步翻倍，只要单个单元的平均推理耗时还在明显下降（>10%）就继续增大；
+ * 同一批大小连续两次没有收益时回退到最优值并固定下来（单次测量可能受 JIT/GC 干扰）。遇到 OOM 时减半并把上限压到当前值。
+ * 方法均已同步：批量流水线可能有多个推理线程共享同一个检测器。
+ */
+final class AdaptiveBatchSizer {
+
+    /** 认为"明显更快"的阈值：新的单 clip 耗时需低于最优值的 90% */
+    private static final double MIN_IMPROVEMENT = 0.9;
+
+    /** 同一批大小允许的无收益测量次数 */
+    private static final int MAX_MISSES = 2;
+
+    private int maxBatchSize;
+    private int current = 1;
+    private int bestSize = 1;
+    private long bestPerClipNanos = Long.MAX_VALUE;
+    private int misses;
+    private boolean settled;
+
+    AdaptiveBatchSizer(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.settled = this.maxBatchSize == 1;
+    }
+
+    /** 下一批应使用的批大小 */
+    synchronized int next() {
+        return current;
+    }
+
+    /**
+     * 记录一次前向推理的耗时。
+     *
+     * @param batchSize 这一批的单元数（不是张量行数）；小于当前批大小的尾批不参与调整（其单元耗时不具代表性）
+     */
+    synchronized void record(int batchSize, long elapsedNanos) {
+        if (settled || batchSize < current) return;
+        long perClip = elapsedNanos / batchSize;
+        if (perClip < bestPerClipNanos * MIN_IMPROVEMENT) {
+            bestPerClipNanos = perClip;
+            bestSize = current;
+            misses = 0;
+            if (current * 2 <= maxBatchSize) {
+                current *= 2;
+            } else {
+                settled = true;
+            }
+        } else if (++misses >= MAX_MISSES) {
+            current = bestSize;
+            settled = true;
+        }
+    }
+
+    /** 批量推理发生 OOM：减半并把上限固定为新值 */
+    synchronized void onOutOfMemory() {
+        maxBatchSize = Math.max(1, current / 2);
+        current = maxBatchSize;
+        bestSize = Math.min(bestSize, current);
+        settled = true;
+    }
+
+    synchronized boolean isSettled() {
+        return settled;
+    }
+}
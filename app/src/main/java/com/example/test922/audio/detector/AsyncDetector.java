@@ -0,0 +1,181 @@
+package com.example.test922.audio.detector;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * {@link DeepfakeDetector} 的异步封装：检测在给定的执行器上运行，结果以
+ * {@code CompletableFuture<DetectionResult>} 返回，调用方不再需要自己切线程或解读 -1。
+ *
+ * 取消与截止时间都通过“Future 已完成”来通知检测线程：
+ * - 调用方 {@code cancel()} 后 Future 以 CancellationException 结束；
+ * - 超过截止时间后 Future 以 {@link DetectionResult.Error#DEADLINE_EXCEEDED} 结束。
+ * 两种情况下尚未开始的任务直接跳过，正在执行的任务在下一个阶段检查点返回，
+ * 不会再为没人需要的结果做前向推理（已经开始的单次推理无法中断）。
+ */
+public final class AsyncDetector {
+
+    private static final String TAG = "AsyncDetector";
+
+    private final DeepfakeDetector mDetector;
+    private final Executor mExecutor;
+
+    /** 只负责到期时完成 Future，不执行检测 */
+    private final ScheduledExecutorService mTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "detect-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param detector 已加载模型的检测器
+     * @param executor 执行检测的线程；detector 为 {@link DetectorPool} 时任务只是等待池中的实例
+     */
+    public AsyncDetector(DeepfakeDetector detector, Executor executor) {
+        mDetector = detector;
+        mExecutor = executor;
+    }
+
+    /** 无截止时间的检测 */
+    public CompletableFuture<DetectionResult> detect(String audioFilePath) {
+        return detect(audioFilePath, 0);
+    }
+
+    /**
+     * 异步检测单个文件。
+     *
+     * @param audioFilePath WAV 文件的绝对路径（16kHz, 16-bit PCM, Mono）
+     * @param timeoutMillis 从调用时刻起的截止时间；小于等于 0 表示不设截止时间
+     * @return 检测结果；失败时为带错误类型的结果，不会以异常结束（取消除外）
+     */
+    public CompletableFuture<DetectionResult> detect(String audioFilePath, long timeoutMillis) {
+        CompletableFuture<DetectionResult> future = submit(audioFilePath);
+        scheduleDeadline(future, timeoutMillis);
+        return future;
+    }
+
+    /**
+     * 异步检测已解码的一个窗口（见 {@link DeepfakeDetector#detectPcm}）。
+     * 检测完成前调用方不得修改 pcm。
+     *
+     * @param timeoutMillis 从调用时刻起的截止时间；小于等于 0 表示不设截止时间
+     */
+    public CompletableFuture<DetectionResult> detectPcm(float[] pcm, int validLength, long timeoutMillis) {
+        CompletableFuture<DetectionResult> future =
+                submit(cancelled -> mDetector.detectPcm(pcm, validLength, cancelled));
+        scheduleDeadline(future, timeoutMillis);
+        return future;
+    }
+
+    /**
+     * 异步检测多个文件，每个文件一个任务。
+     *
+     * 取消返回的 Future 会取消所有未完成的文件；超过截止时间时未完成的文件结果为
+     * {@link DetectionResult.Error#DEADLINE_EXCEEDED}，已完成的结果保留。
+     *
+     * @param timeoutMillis 整批的截止时间；小于等于 0 表示不设截止时间
+     * @return 与输入一一对应的结果
+     */
+    public CompletableFuture<List<DetectionResult>> detectAll(List<String> audioFilePaths, long timeoutMillis) {
+        List<CompletableFuture<DetectionResult>> futures = new ArrayList<>(audioFilePaths.size());
+        for (String path : audioFilePaths) {
+            futures.add(submit(path));
+        }
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timer = schedule(() -> {
+                for (CompletableFuture<DetectionResult> future : futures) {
+                    future.complete(deadlineExceeded(timeoutMillis));
+                }
+            }, timeoutMillis);
+            if (timer != null) {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .whenComplete((ignored, error) -> timer.cancel(false));
+            }
+        }
+
+        CompletableFuture<List<DetectionResult>> all = CompletableFuture
+                .allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<DetectionResult> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<DetectionResult> future : futures) {
+                        results.add(future.join());
+                    }
+                    return results;
+                });
+        // allOf 派生的 Future 被取消时不会影响各文件的 Future，需要手动传递
+        all.whenComplete((results, error) -> {
+            if (all.isCancelled()) {
+                for (CompletableFuture<DetectionResult> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        });
+        return all;
+    }
+
+    /** 停止截止时间计时器；已提交的检测不受影响 */
+    public void shutdown() {
+        mTimer.shutdownNow();
+    }
+
+    private CompletableFuture<DetectionResult> submit(String audioFilePath) {
+        return submit(cancelled -> mDetector.detectDetailed(audioFilePath, cancelled));
+    }
+
+    /**
+     * @param task 以“Future 已完成”作为取消检查执行检测
+     */
+    private CompletableFuture<DetectionResult> submit(Function<BooleanSupplier, DetectionResult> task) {
+        CompletableFuture<DetectionResult> future = new CompletableFuture<>();
+        try {
+            mExecutor.execute(() -> {
+                if (future.isDone()) return; // 排队期间已被取消或超时
+                DetectionResult result;
+                try {
+                    result = task.apply(future::isDone);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "检测过程出错", e);
+                    result = DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, e.toString());
+                }
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "执行器已关闭");
+            future.complete(DetectionResult.failure(DetectionResult.Error.CANCELLED, "执行器已关闭"));
+        }
+        return future;
+    }
+
+    private void scheduleDeadline(CompletableFuture<DetectionResult> future, long timeoutMillis) {
+        if (timeoutMillis <= 0 || future.isDone()) return;
+        ScheduledFuture<?> timer = schedule(() -> future.complete(deadlineExceeded(timeoutMillis)), timeoutMillis);
+        if (timer != null) {
+            future.whenComplete((result, error) -> timer.cancel(false));
+        }
+    }
+
+    private ScheduledFuture<?> schedule(Runnable action, long delayMillis) {
+        try {
+            return mTimer.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "计时器已关闭，忽略截止时间");
+            return null;
+        }
+    }
+
+    private static DetectionResult deadlineExceeded(long timeoutMillis) {
+        return DetectionResult.failure(DetectionResult.Error.DEADLINE_EXCEEDED,
+                "超过截止时间 " + timeoutMillis + "ms");
+    }
+}
@@ -2,6 +2,12 @@ package com.example.test922.audio.detector;
 
 import android.content.Context;
 
+import com.example.test922.audio.processor.SpeechWindowSelector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
 /**
  * Deepfake 检测策略接口。
  * 定义了不同检测模型（如 RawNet2、AASIST）的统一接口。
@@ -25,6 +31,149 @@ public interface DeepfakeDetector {
      */
     float detect(String audioFilePath);
 
+    /**
+     * 执行检测并返回各阶段耗时与失败类型。
+     * 实现应在各阶段之间检查 cancelled，已取消时尽早返回 {@link DetectionResult.Error#CANCELLED}，
+     * 不再进行后续的推理。默认实现只在开始前检查一次，并把 {@link #detect(String)} 的整体耗时计为推理耗时。
+     *
+     * @param audioFilePath WAV 文件的绝对路径（16kHz, 16-bit PCM, Mono）
+     * @param cancelled     返回 true 表示结果已无人需要，可为 null
+     * @return 检测结果，不为 null
+     */
+    default DetectionResult detectDetailed(String audioFilePath, BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+        }
+        long t0 = System.nanoTime();
+        float realProbability = detect(audioFilePath);
+        if (realProbability < 0) {
+            return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, "检测失败: " + audioFilePath);
+        }
+        return DetectionResult.success(realProbability, 0, 0, System.nanoTime() - t0, 0);
+    }
+
+    /**
+     * 检测已解码的一个窗口（例如由 MediaCodec 流式解码直接写入、没有落盘的 PCM）。
+     * 与 {@link #detectDetailed} 的流程相同，只是省去 WAV 的映射与读取，结果中读取耗时为 0；
+     * 不做窗口选择，超出模型输入长度的部分被截掉。
+     * 默认实现交给 {@link #detectBatch(float[][])}，无法区分筛查未通过与推理失败。
+     *
+     * @param pcm         归一化到 [-1, 1] 的 16kHz 单声道音频
+     * @param validLength pcm 中的有效采样点数
+     * @param cancelled   返回 true 表示结果已无人需要，可为 null
+     * @return 检测结果，不为 null
+     */
+    default DetectionResult detectPcm(float[] pcm, int validLength, BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+        }
+        long t0 = System.nanoTime();
+        float realProbability = detectBatch(new float[][]{Arrays.copyOf(pcm, validLength)})[0];
+        if (realProbability < 0) {
+            return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, "检测失败");
+        }
+        return DetectionResult.success(realProbability, 0, 0, System.nanoTime() - t0, 0);
+    }
+
+    /**
+     * 批量检测：把多个 clip 打包为 [N, length] 张量，每次前向推理处理一批。
+     * 批大小由实现自适应决定。
+     *
+     * @param audioFilePaths WAV 文件的绝对路径列表（16kHz, 16-bit PCM, Mono）
+     * @return 与输入一一对应的 Real 概率；单个文件失败时对应位置为 -1
+     */
+    float[] detectBatch(List<String> audioFilePaths);
+
+    /**
+     * 与 {@link #detectBatch(List)} 相同的批量检测，逐个文件给出失败类型，
+     * 未通过筛查的文件为 {@link DetectionResult.Error#SCREENED_OUT} 并带有筛查原因。
+     * 批量推理不区分单个文件的耗时，结果中各阶段耗时为 0。
+     * 默认实现交给 {@link #detectBatch(List)}，无法区分筛查未通过与推理失败。
+     *
+     * @param audioFilePaths WAV 文件的绝对路径列表（16kHz, 16-bit PCM, Mono）
+     * @return 与输入一一对应的检测结果，元素不为 null
+     */
+    default DetectionResult[] detectBatchDetailed(List<String> audioFilePaths) {
+        float[] realProbabilities = detectBatch(audioFilePaths);
+        DetectionResult[] results = new DetectionResult[realProbabilities.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = realProbabilities[i] >= 0 ? DetectionResult.success(realProbabilities[i], 0, 0, 0, 0)
+                    : DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED,
+                    "检测失败: " + audioFilePaths.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * 批量检测已解码的音频。
+     *
+     * @param clips 归一化到 [-1, 1] 的 16kHz 单声道音频，长度任意（按 detect 的规则 Pad/Trim）
+     * @return 与输入一一对应的 Real 概率；失败时对应位置为 -1
+     */
+    float[] detectBatch(float[][] clips);
+
+    /**
+     * 流式滑窗检测：按 config 的窗口/步长遍历整段音频，逐段回调得分并汇总。
+     * 窗口超过模型输入长度时按 {@link StreamConfig#clampWindow(int)} 缩短窗口与步长。
+     * 内存占用与音频长度无关，只持有一个模型输入窗口。
+     *
+     * @param audioFilePath WAV 文件的绝对路径（16kHz, 16-bit PCM, Mono）
+     * @param config        窗口、步长与汇总方式；为 null 时使用 {@link StreamConfig#defaults()}
+     * @param listener      分段回调，可为 null
+     * @return 汇总结果；失败时返回 null
+     */
+    StreamResult detectStream(String audioFilePath, StreamConfig config, SegmentListener listener);
+
+    /**
+     * 预热：用全零的 [1, 64000] 输入执行若干次前向推理，让首个真实检测不再承担
+     * 算子初始化与内存分配的开销。应在 {@link #loadModel} 成功后、开始接受检测前调用。
+     * 默认实现不做任何事。
+     *
+     * @param passes 预热次数
+     * @return 每次预热前向推理的耗时（纳秒）；失败时返回 null
+     */
+    default long[] warmUp(int passes) {
+        return new long[0];
+    }
+
+    /**
+     * 设置诊断回调。为 null（默认）时不计算任何输入统计，也不输出逐条日志。
+     *
+     * @param diagnostics 诊断回调，可为 null
+     */
+    void setDiagnostics(DetectionDiagnostics diagnostics);
+
+    /**
+     * 设置推理前的筛查。设置后 {@link #detectDetailed} 对静音、削波、噪声等输入直接返回
+     * {@link DetectionResult.Error#SCREENED_OUT}，{@link #detectBatchDetailed} 的对应结果同样带有筛查原因，
+     * 只返回概率的批量检测对应位置为 -1，均不做前向推理；
+     * 流式检测不筛查。为 null（默认）时所有输入都交给模型。默认实现忽略该设置。
+     *
+     * @param preScreen 筛查器，可为 null
+     */
+    default void setPreScreen(PreScreen preScreen) {
+    }
+
+    /**
+     * 设置模型窗口的选择方式。设置后 {@link #detectDetailed} 与按路径的批量检测对选出的前 K 个
+     * 语音最密集的窗口一起推理并取平均，同一文件在两条路径上得分一致；流式检测与已解码 PCM 的检测不受影响。
+     * 为 null（默认）时截取开头 4 秒。默认实现忽略该设置。
+     *
+     * @param selector 窗口选择，可为 null
+     */
+    default void setWindowSelector(SpeechWindowSelector selector) {
+    }
+
+    /**
+     * 模型一次输入的采样点数（16kHz），调用方据此确定要解码或缓存多长的音频。
+     * 默认实现返回 RawNet2 的输入长度。
+     *
+     * @return 模型输入长度
+     */
+    default int getInputLength() {
+        return ModelSpec.RAWNET2_INPUT_LENGTH;
+    }
+
     /**
      * 获取策略名称
      *
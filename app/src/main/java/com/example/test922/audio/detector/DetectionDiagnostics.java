@@ -0,0 +1,32 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.AudioStatistics;
+
+/**
+ * 检测过程的诊断回调（可选）。
+ *
+ * 未设置时检测器不计算任何统计量；设置后统计量在读取/归一化循环中同一遍计算，
+ * 以结构化数据回调。回调在检测线程上执行，传入的对象会被复用，回调返回后不应再持有。
+ */
+public interface DetectionDiagnostics {
+
+    /**
+     * 模型输入窗口的统计信息（Pad 之前的有效音频）。
+     *
+     * @param audioFilePath 音频文件路径；批量检测已解码音频时为 null
+     * @param startFrame    窗口在原始音频中的起始帧
+     * @param totalFrames   原始音频总帧数
+     * @param stats         统计量
+     */
+    void onInputStatistics(String audioFilePath, long startFrame, long totalFrames, AudioStatistics stats);
+
+    /**
+     * 模型输出。
+     *
+     * @param scores          模型原始输出（批量时为 [N, numClasses] 展平）
+     * @param offset          本条结果在 scores 中的起始位置
+     * @param numClasses      每条结果的输出个数
+     * @param realProbability 解析后的 Real 概率
+     */
+    void onModelOutput(float[] scores, int offset, int numClasses, float realProbability);
+}
@@ -0,0 +1,145 @@
+package com.example.test922.audio.detector;
+
+import java.util.Locale;
+
+/**
+ * 单个文件的检测结果：Real/Fake 概率、各阶段耗时与失败原因。
+ *
+ * 失败时概率为 -1，{@link #getError()} 给出类型，不再需要调用方解读魔数。
+ */
+public final class DetectionResult {
+
+    /** 失败类型 */
+    public enum Error {
+        NONE,
+        /** 模型未加载 */
+        MODEL_NOT_LOADED,
+        /** 音频文件不存在、格式不支持或为空 */
+        READ_FAILED,
+        /** 前向推理出错或输出格式不正确 */
+        INFERENCE_FAILED,
+        /** 调用方已取消 */
+        CANCELLED,
+        /** 超过截止时间 */
+        DEADLINE_EXCEEDED,
+        /** 被 {@link PreScreen} 筛掉，未做推理；原因见 {@link #getScreenReason()} */
+        SCREENED_OUT
+    }
+
+    private final float realProbability;
+    private final Error error;
+    private final String message;
+    private final PreScreen.Reason screenReason;
+    private final long readNanos;
+    private final long preprocessNanos;
+    private final long forwardNanos;
+    private final long postprocessNanos;
+
+    private DetectionResult(float realProbability, Error error, String message, PreScreen.Reason screenReason,
+                            long readNanos, long preprocessNanos, long forwardNanos, long postprocessNanos) {
+        this.realProbability = realProbability;
+        this.error = error;
+        this.message = message;
+        this.screenReason = screenReason;
+        this.readNanos = readNanos;
+        this.preprocessNanos = preprocessNanos;
+        this.forwardNanos = forwardNanos;
+        this.postprocessNanos = postprocessNanos;
+    }
+
+    /**
+     * @param realProbability  Real 概率 (0.0 - 1.0)
+     * @param readNanos        读取/解码 WAV 的耗时
+     * @param preprocessNanos  Pad/Trim 的耗时
+     * @param forwardNanos     前向推理的耗时
+     * @param postprocessNanos 解析模型输出的耗时
+     */
+    public static DetectionResult success(float realProbability, long readNanos, long preprocessNanos,
+                                          long forwardNanos, long postprocessNanos) {
+        return new DetectionResult(realProbability, Error.NONE, null, null,
+                readNanos, preprocessNanos, forwardNanos, postprocessNanos);
+    }
+
+    public static DetectionResult failure(Error error, String message) {
+        return new DetectionResult(-1f, error, message, null, 0, 0, 0, 0);
+    }
+
+    /**
+     * 被前置筛查拦下的输入：没有概率，保留读取与筛查（计入预处理）的耗时。
+     */
+    public static DetectionResult screened(PreScreen.Reason reason, long readNanos, long preprocessNanos) {
+        return new DetectionResult(-1f, Error.SCREENED_OUT, reason.getDescription(), reason,
+                readNanos, preprocessNanos, 0, 0);
+    }
+
+    /**
+     * 取出每个结果的 Real 概率，供只关心概率的调用方使用；失败的位置为 -1。
+     */
+    public static float[] realProbabilities(DetectionResult[] results) {
+        float[] probabilities = new float[results.length];
+        for (int i = 0; i < results.length; i++) {
+            probabilities[i] = results[i] != null ? results[i].getRealProbability() : -1f;
+        }
+        return probabilities;
+    }
+
+    public boolean isSuccess() {
+        return error == Error.NONE;
+    }
+
+    /** Real 的概率 (0.0 - 1.0)；失败时返回 -1 */
+    public float getRealProbability() {
+        return realProbability;
+    }
+
+    /** Fake 的概率 (0.0 - 1.0)；失败时返回 -1 */
+    public float getFakeProbability() {
+        return isSuccess() ? 1f - realProbability : -1f;
+    }
+
+    public Error getError() {
+        return error;
+    }
+
+    /** 失败说明，成功时为 null */
+    public String getMessage() {
+        return message;
+    }
+
+    /** 筛查结论；仅 {@link Error#SCREENED_OUT} 时不为 null */
+    public PreScreen.Reason getScreenReason() {
+        return screenReason;
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public long getPreprocessNanos() {
+        return preprocessNanos;
+    }
+
+    public long getForwardNanos() {
+        return forwardNanos;
+    }
+
+    public long getPostprocessNanos() {
+        return postprocessNanos;
+    }
+
+    /** 各阶段耗时之和（不含排队等待） */
+    public long getTotalNanos() {
+        return readNanos + preprocessNanos + forwardNanos + postprocessNanos;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccess()) {
+            return (screenReason != null ? error + "(" + screenReason + ")" : error.toString())
+                    + (message != null ? ": " + message : "");
+        }
+        return String.format(Locale.US, "real=%.4f 读取=%.1fms 预处理=%.1fms 推理=%.1fms 后处理=%.1fms",
+                realProbability, readNanos / 1e6, preprocessNanos / 1e6, forwardNanos / 1e6,
+                postprocessNanos / 1e6);
+    }
+}
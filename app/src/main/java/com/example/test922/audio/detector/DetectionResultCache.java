@@ -0,0 +1,209 @@
+package com.example.test922.audio.detector;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 持久化的检测结果缓存（LRU）。
+ *
+ * 键为源文件内容哈希（见 {@link #hashSource(FileChannel)}），值为 Real 概率。
+ * 缓存文件头记录模型标识与检测器名称，二者任一变化时旧结果全部失效。
+ * 条目数超过上限时淘汰最久未使用的条目；{@link #put} 只更新内存，调用 {@link #flush()} 才写盘。
+ * {@link #get} 命中只更新内存中的访问顺序，不单独触发写盘，顺序随下一次有新结果的 flush 一并保存。
+ *
+ * 大文件的内容哈希是抽样的（见 {@link #hashSource(FileChannel)}）：大小不变、且只改动了未被抽到的区间的编辑
+ * 不会改变键，此时会返回编辑前的结果。
+ */
+public final class DetectionResultCache {
+
+    private static final String TAG = "DetectionResultCache";
+
+    private static final String FILE_NAME = "detection_results.tsv";
+    private static final String HEADER_PREFIX = "# v1\t";
+
+    /** 不超过该大小的源文件计算完整哈希 */
+    private static final long FULL_HASH_LIMIT = 16L * 1024 * 1024;
+
+    /** 大文件：首尾各取 HEAD_TAIL_BYTES，中间均匀取 SAMPLE_COUNT 块 SAMPLE_BYTES */
+    private static final int HEAD_TAIL_BYTES = 1024 * 1024;
+    private static final int SAMPLE_COUNT = 64;
+    private static final int SAMPLE_BYTES = 16 * 1024;
+
+    private final File file;
+    private final String header;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Float> entries;
+    private boolean dirty;
+
+    /**
+     * @param dir           缓存目录（通常为 getFilesDir() 下的子目录）
+     * @param modelIdentity 模型标识（资源名 + 版本），变化后旧结果失效
+     * @param detectorName  {@link DeepfakeDetector#getName()}
+     * @param maxEntries    最多保留的条目数
+     */
+    public DetectionResultCache(File dir, String modelIdentity, String detectorName, int maxEntries) {
+        this.file = new File(dir, FILE_NAME);
+        this.header = HEADER_PREFIX + sanitize(modelIdentity) + "\t" + sanitize(detectorName);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<String, Float>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+                return size() > DetectionResultCache.this.maxEntries;
+            }
+        };
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "无法创建缓存目录: " + dir);
+        }
+        load();
+    }
+
+    /**
+     * 查询缓存。
+     *
+     * @return Real 概率；未命中或 key 为 null 时返回 -1
+     */
+    public synchronized float get(String key) {
+        if (key == null) return -1f;
+        Float value = entries.get(key);
+        // 访问顺序的变化不标记为 dirty：只读命中不应让每次 flush 都重写整个文件
+        return value != null ? value : -1f;
+    }
+
+    /** 记录一次成功的检测结果（realProbability < 0 的失败结果不缓存） */
+    public synchronized void put(String key, float realProbability) {
+        if (key == null || realProbability < 0) return;
+        entries.put(key, realProbability);
+        dirty = true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** 把内存中的缓存写回磁盘（先写临时文件再原子替换） */
+    public synchronized void flush() {
+        if (!dirty) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            writer.write(header);
+            writer.newLine();
+            // LinkedHashMap 按访问顺序迭代：最久未使用的在前，加载时保持相同顺序
+            for (Map.Entry<String, Float> e : entries.entrySet()) {
+                writer.write(e.getKey());
+                writer.write('\t');
+                writer.write(Float.toString(e.getValue()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "写入缓存失败", e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "替换缓存文件失败: " + file);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        dirty = false;
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String first = reader.readLine();
+            if (!header.equals(first)) {
+                Log.i(TAG, "模型或检测器已变化，丢弃旧缓存");
+                dirty = true;
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                try {
+                    entries.put(line.substring(0, tab), Float.parseFloat(line.substring(tab + 1)));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            Log.d(TAG, "已加载缓存条目: " + entries.size());
+        } catch (IOException e) {
+            Log.e(TAG, "读取缓存失败", e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * 计算源文件内容哈希（SHA-256，十六进制）。
+     * 不超过 16MB 的文件哈希全部内容；更大的文件哈希长度、首尾各 1MB 以及中间均匀分布的 64 个 16KB 块，
+     * 读取量与文件大小无关。抽样覆盖不到的区间内的改动（且文件大小不变）不会改变哈希，
+     * 对重新编码、裁剪等会改变长度或容器头的编辑仍然有效。只使用定位读取，不改变 channel 的 position。
+     *
+     * @return 失败返回 null（此时不应使用缓存）
+     */
+    public static String hashSource(FileChannel channel) {
+        try {
+            long size = channel.size();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(8).putLong(0, size));
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            if (size <= FULL_HASH_LIMIT) {
+                digestRange(channel, 0, size, digest, buffer);
+            } else {
+                digestRange(channel, 0, HEAD_TAIL_BYTES, digest, buffer);
+                long middle = size - 2L * HEAD_TAIL_BYTES;
+                for (int i = 0; i < SAMPLE_COUNT; i++) {
+                    long offset = HEAD_TAIL_BYTES + middle * i / SAMPLE_COUNT;
+                    digestRange(channel, offset, SAMPLE_BYTES, digest, buffer);
+                }
+                digestRange(channel, size - HEAD_TAIL_BYTES, HEAD_TAIL_BYTES, digest, buffer);
+            }
+            byte[] hash = digest.digest();
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format(Locale.US, "%02x", b));
+            }
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            Log.e(TAG, "计算内容哈希失败", e);
+            return null;
+        }
+    }
+
+    private static void digestRange(FileChannel channel, long position, long length,
+                                    MessageDigest digest, ByteBuffer buffer) throws IOException {
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int n = channel.read(buffer, position);
+            if (n <= 0) break;
+            buffer.flip();
+            digest.update(buffer);
+            position += n;
+        }
+    }
+
+    private static String sanitize(String s) {
+        return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.test922.audio.processor.SpeechWindowSelector;
+
+import org.pytorch.PyTorchAndroid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 多实例检测器池：加载 N 个独立的检测器实例（各自持有一份模型），由 N 个工作线程从共享队列取任务执行，
+ * 让批量检测同时用上多个核心。
+ *
+ * 不在线程间共享同一个 PyTorch Lite Module：其 forward 没有线程安全保证，且实例内部的输入张量池、
+ * 自适应批大小都按实例维护。代价是模型权重占用 N 份内存，因此实例数有上限。
+ *
+ * PyTorch Lite 的 intra-op 线程数是进程级设置（{@link PyTorchAndroid#setNumThreads(int)}），无法按实例区分；
+ * 池在加载时统一设置为 intraOpThreads，使 实例数 × intraOpThreads 约等于核心数。
+ *
+ * 本类本身实现 {@link DeepfakeDetector}，可以直接替换单个检测器，且所有方法都可以被多个线程并发调用。
+ */
+public final class DetectorPool implements DeepfakeDetector {
+
+    private static final String TAG = "DetectorPool";
+
+    /** 自动确定实例数时的上限（每个实例一份模型权重） */
+    private static final int MAX_AUTO_INSTANCES = 4;
+
+    /** 自动确定实例数时每个实例的 intra-op 线程数 */
+    private static final int DEFAULT_INTRA_OP_THREADS = 2;
+
+    /** 创建单个检测器实例 */
+    interface Factory {
+        DeepfakeDetector create();
+    }
+
+    private final Factory mFactory;
+    private final int mSize;
+    private final int mIntraOpThreads;
+
+    /** 空闲实例；任务执行时取出，结束后放回 */
+    private final BlockingQueue<DeepfakeDetector> mIdle;
+    private final List<DeepfakeDetector> mInstances = new ArrayList<>();
+    private ExecutorService mExecutor;
+    private DetectionDiagnostics mDiagnostics;
+
+    /** 所有实例共享同一个筛查器，筛查计数因此是全池的汇总 */
+    private PreScreen mPreScreen;
+    private SpeechWindowSelector mWindowSelector;
+
+    /**
+     * @param size           实例数（也是工作线程数）
+     * @param intraOpThreads 每次前向推理使用的线程数
+     */
+    public DetectorPool(int size, int intraOpThreads) {
+        this(RawNet2Strategy::new, size, intraOpThreads);
+    }
+
+    DetectorPool(Factory factory, int size, int intraOpThreads) {
+        mFactory = factory;
+        mSize = Math.max(1, size);
+        mIntraOpThreads = Math.max(1, intraOpThreads);
+        mIdle = new ArrayBlockingQueue<>(mSize);
+    }
+
+    /**
+     * 按核心数确定实例数：每个实例 2 个 intra-op 线程，最多 4 个实例。
+     */
+    public static DetectorPool createDefault() {
+        return createDefault(RawNet2Strategy::new);
+    }
+
+    /**
+     * 同 {@link #createDefault()}，实例由 factory 创建（如 {@link ModelRegistry#createDetector()}）。
+     */
+    static DetectorPool createDefault(Factory factory) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int size = Math.max(1, Math.min(MAX_AUTO_INSTANCES, cores / DEFAULT_INTRA_OP_THREADS));
+        int intraOpThreads = Math.max(1, cores / size);
+        return new DetectorPool(factory, size, intraOpThreads);
+    }
+
+    public int getSize() {
+        return mSize;
+    }
+
+    public int getIntraOpThreads() {
+        return mIntraOpThreads;
+    }
+
+    /**
+     * 依次加载全部实例（顺序加载，避免多个实例同时把模型从 assets 复制到同一个文件）。
+     * 任一实例加载失败即视为失败。
+     */
+    @Override
+    public synchronized boolean loadModel(Context context, String assetPath) {
+        if (mExecutor != null) {
+            Log.w(TAG, "检测器池已加载");
+            return true;
+        }
+        applyIntraOpThreads(mIntraOpThreads);
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < mSize; i++) {
+            DeepfakeDetector detector = mFactory.create();
+            detector.setDiagnostics(mDiagnostics);
+            detector.setPreScreen(mPreScreen);
+            detector.setWindowSelector(mWindowSelector);
+            if (!detector.loadModel(context, assetPath)) {
+                Log.e(TAG, "第 " + i + " 个实例加载失败");
+                mInstances.clear();
+                mIdle.clear();
+                return false;
+            }
+            mInstances.add(detector);
+            mIdle.add(detector);
+        }
+        mExecutor = Executors.newFixedThreadPool(mSize);
+        Log.i(TAG, "检测器池加载完成: 实例=" + mSize + " intra-op 线程=" + mIntraOpThreads
+                + " 用时=" + (System.currentTimeMillis() - t0) + "ms");
+        return true;
+    }
+
+    @Override
+    public float detect(String audioFilePath) {
+        Float result = await(submit(detector -> detector.detect(audioFilePath)));
+        return result != null ? result : -1f;
+    }
+
+    @Override
+    public DetectionResult detectDetailed(String audioFilePath, BooleanSupplier cancelled) {
+        DetectionResult result = await(submit(detector -> detector.detectDetailed(audioFilePath, cancelled)));
+        return result != null ? result
+                : DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED, "检测器池未加载、已关闭或任务失败");
+    }
+
+    @Override
+    public DetectionResult detectPcm(float[] pcm, int validLength, BooleanSupplier cancelled) {
+        DetectionResult result = await(submit(detector -> detector.detectPcm(pcm, validLength, cancelled)));
+        return result != null ? result
+                : DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED, "检测器池未加载、已关闭或任务失败");
+    }
+
+    /**
+     * 把文件按实例数均分为连续的若干段，各段在不同实例上并行执行 detectBatch。
+     */
+    @Override
+    public float[] detectBatch(List<String> audioFilePaths) {
+        return DetectionResult.realProbabilities(detectBatchDetailed(audioFilePaths));
+    }
+
+    /**
+     * 与 {@link #detectBatch(List)} 相同的分段并行，某一段的任务失败时该段的结果记为模型未加载。
+     */
+    @Override
+    public DetectionResult[] detectBatchDetailed(List<String> audioFilePaths) {
+        int total = audioFilePaths.size();
+        DetectionResult[] results = new DetectionResult[total];
+        Arrays.fill(results, DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED,
+                "检测器池未加载、已关闭或任务失败"));
+        if (total == 0) return results;
+
+        int parts = Math.min(mSize, total);
+        List<Future<DetectionResult[]>> futures = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            List<String> part = audioFilePaths.subList(p * total / parts, (p + 1) * total / parts);
+            futures.add(submit(detector -> detector.detectBatchDetailed(part)));
+        }
+        for (int p = 0; p < parts; p++) {
+            DetectionResult[] partResults = await(futures.get(p));
+            if (partResults != null) {
+                System.arraycopy(partResults, 0, results, p * total / parts, partResults.length);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public float[] detectBatch(float[][] clips) {
+        int total = clips.length;
+        float[] results = new float[total];
+        Arrays.fill(results, -1f);
+        if (total == 0) return results;
+
+        int parts = Math.min(mSize, total);
+        List<Future<float[]>> futures = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            float[][] part = Arrays.copyOfRange(clips, p * total / parts, (p + 1) * total / parts);
+            futures.add(submit(detector -> detector.detectBatch(part)));
+        }
+        for (int p = 0; p < parts; p++) {
+            float[] partResults = await(futures.get(p));
+            if (partResults != null) {
+                System.arraycopy(partResults, 0, results, p * total / parts, partResults.length);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public StreamResult detectStream(String audioFilePath, StreamConfig config, SegmentListener listener) {
+        return await(submit(detector -> detector.detectStream(audioFilePath, config, listener)));
+    }
+
+    /**
+     * 在每个实例上各预热一次：各任务拿到实例后等待其余任务也拿到实例再返回，
+     * 保证 N 个任务恰好占用 N 个不同的实例，且预热发生在之后执行检测的工作线程上。
+     *
+     * @return 每轮取各实例中最慢的耗时；任一实例失败时返回 null
+     */
+    @Override
+    public long[] warmUp(int passes) {
+        CountDownLatch allBorrowed = new CountDownLatch(mSize);
+        List<Future<long[]>> futures = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            Future<long[]> future = submit(detector -> {
+                allBorrowed.countDown();
+                try {
+                    allBorrowed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                return detector.warmUp(passes);
+            });
+            if (future == null) return null;
+            futures.add(future);
+        }
+        long[] slowest = new long[Math.max(0, passes)];
+        boolean ok = true;
+        for (Future<long[]> future : futures) {
+            long[] nanos = await(future);
+            if (nanos == null) {
+                ok = false;
+                continue;
+            }
+            for (int p = 0; p < Math.min(nanos.length, slowest.length); p++) {
+                slowest[p] = Math.max(slowest[p], nanos[p]);
+            }
+        }
+        return ok ? slowest : null;
+    }
+
+    @Override
+    public synchronized void setDiagnostics(DetectionDiagnostics diagnostics) {
+        mDiagnostics = diagnostics;
+        for (DeepfakeDetector detector : mInstances) {
+            detector.setDiagnostics(diagnostics);
+        }
+    }
+
+    @Override
+    public synchronized void setPreScreen(PreScreen preScreen) {
+        mPreScreen = preScreen;
+        for (DeepfakeDetector detector : mInstances) {
+            detector.setPreScreen(preScreen);
+        }
+    }
+
+    @Override
+    public synchronized void setWindowSelector(SpeechWindowSelector selector) {
+        mWindowSelector = selector;
+        for (DeepfakeDetector detector : mInstances) {
+            detector.setWindowSelector(selector);
+        }
+    }
+
+    @Override
+    public synchronized int getInputLength() {
+        return mInstances.isEmpty() ? DeepfakeDetector.super.getInputLength() : mInstances.get(0).getInputLength();
+    }
+
+    @Override
+    public synchronized String getName() {
+        return mInstances.isEmpty() ? "DetectorPool" : mInstances.get(0).getName();
+    }
+
+    /** 停止工作线程，未开始的任务不再执行 */
+    public synchronized void shutdown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    private interface Task<V> {
+        V run(DeepfakeDetector detector);
+    }
+
+    /** 提交到共享队列；执行时从空闲实例中取一个（工作线程数与实例数相同，不会等待） */
+    private <V> Future<V> submit(Task<V> task) {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = mExecutor;
+        }
+        if (executor == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            return null;
+        }
+        Callable<V> callable = () -> {
+            DeepfakeDetector detector = mIdle.take();
+            try {
+                return task.run(detector);
+            } finally {
+                mIdle.put(detector);
+            }
+        };
+        try {
+            return executor.submit(callable);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "检测器池已关闭");
+            return null;
+        }
+    }
+
+    /** 等待任务结果，失败返回 null */
+    private static <V> V await(Future<V> future) {
+        if (future == null) return null;
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "检测任务失败", e.getCause());
+            return null;
+        }
+    }
+
+    private static void applyIntraOpThreads(int threads) {
+        try {
+            PyTorchAndroid.setNumThreads(threads);
+        } catch (Throwable t) {
+            // JVM 单元测试中没有 native 库
+            Log.w(TAG, "设置 intra-op 线程数失败: " + t);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.test922.audio.processor.SpeechWindowSelector;
+import com.example.test922.audio.processor.WavUtils;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 多模型集成检测：每个文件只映射、解码一次 WAV，解码得到的 PCM 缓冲区由所有模型共享，
+ * 各模型的 Real 概率按权重融合。
+ *
+ * 提前退出：第一个模型的置信度（max(p, 1 - p)）达到阈值时直接采用它的结果，不再运行其余模型。
+ * 清单中应把最快或最可靠的模型放在第一位。
+ *
+ * 与 {@link RawNet2Strategy} 一样，每个推理线程使用自己的 PCM 缓冲区与输入张量；
+ * 一个实例同一时间只应被一个线程使用（多线程请用 {@link DetectorPool}）。
+ */
+public final class EnsembleDetector implements DeepfakeDetector {
+
+    private static final String TAG = "EnsembleDetector";
+
+    private final List<RawNet2Strategy> mMembers;
+    private final float[] mWeights;
+    private final float mEarlyExitConfidence;
+    private final int mSampleRate;
+
+    /** 共享解码缓冲区长度：所有模型中最长的输入 */
+    private final int mMaxInputLength;
+
+    private final ThreadLocal<float[]> mPcm = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[mMaxInputLength];
+        }
+    };
+
+    private final AtomicLong mEarlyExits = new AtomicLong();
+
+    /** 在共享的解码结果上筛查一次，各模型本身不再筛查 */
+    private volatile PreScreen mPreScreen;
+
+    /** 在共享的解码上选一次窗口（前 K 个最密集的窗口分别融合后取平均，各模型看到同一组窗口） */
+    private volatile SpeechWindowSelector mWindowSelector;
+
+    /**
+     * @param specs               模型描述，按执行顺序排列，采样率必须一致
+     * @param earlyExitConfidence 第一个模型的置信度达到该值时提前退出；大于 1 表示不提前退出
+     */
+    public EnsembleDetector(List<ModelSpec> specs, float earlyExitConfidence) {
+        this(createMembers(specs), earlyExitConfidence);
+    }
+
+    /** 使用已创建的模型实例（测试中注入桩推理） */
+    static EnsembleDetector withMembers(List<RawNet2Strategy> members, float earlyExitConfidence) {
+        return new EnsembleDetector(members.toArray(new RawNet2Strategy[0]), earlyExitConfidence);
+    }
+
+    private EnsembleDetector(RawNet2Strategy[] members, float earlyExitConfidence) {
+        if (members.length == 0) throw new IllegalArgumentException("至少需要一个模型");
+        mMembers = Arrays.asList(members);
+        mWeights = new float[members.length];
+        mSampleRate = members[0].getSpec().getSampleRate();
+        int maxInputLength = 0;
+        for (int i = 0; i < members.length; i++) {
+            ModelSpec spec = members[i].getSpec();
+            if (spec.getSampleRate() != mSampleRate) {
+                throw new IllegalArgumentException("集成检测共享一次解码，采样率必须一致: " + spec);
+            }
+            mWeights[i] = spec.getWeight();
+            maxInputLength = Math.max(maxInputLength, spec.getInputLength());
+        }
+        mMaxInputLength = maxInputLength;
+        mEarlyExitConfidence = earlyExitConfidence;
+    }
+
+    private static RawNet2Strategy[] createMembers(List<ModelSpec> specs) {
+        RawNet2Strategy[] members = new RawNet2Strategy[specs.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new RawNet2Strategy(specs.get(i));
+        }
+        return members;
+    }
+
+    /**
+     * 依次加载各模型，assetPath 参数被忽略（各模型使用自己 {@link ModelSpec} 中的路径）。
+     */
+    @Override
+    public boolean loadModel(Context context, String assetPath) {
+        for (RawNet2Strategy member : mMembers) {
+            if (!member.loadModel(context, member.getSpec().getAssetPath())) {
+                Log.e(TAG, "模型加载失败: " + member.getSpec());
+                return false;
+            }
+        }
+        Log.i(TAG, "集成检测加载完成: " + getName());
+        return true;
+    }
+
+    @Override
+    public float detect(String audioFilePath) {
+        DetectionResult result = detectDetailed(audioFilePath, null);
+        return result.isSuccess() ? result.getRealProbability() : -1f;
+    }
+
+    @Override
+    public DetectionResult detectDetailed(String audioFilePath, BooleanSupplier cancelled) {
+        return RawNet2Strategy.recordMetrics(detectOnce(audioFilePath, cancelled));
+    }
+
+    private DetectionResult detectOnce(String audioFilePath, BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+        }
+        long t0 = System.nanoTime();
+        float[] pcm = mPcm.get();
+        long readNanos = 0;
+        long preprocessNanos = 0;
+        long forwardNanos = 0;
+        long postprocessNanos = 0;
+        double sum = 0;
+        int windows;
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(audioFilePath)) {
+            if (wav == null || wav.getFrameCount() == 0) {
+                Log.e(TAG, "读取音频文件失败或文件为空: " + audioFilePath);
+                return DetectionResult.failure(DetectionResult.Error.READ_FAILED, audioFilePath);
+            }
+            if (wav.getInfo().sampleRate != mSampleRate) {
+                Log.e(TAG, "采样率不匹配: " + wav.getInfo().sampleRate + " != " + mSampleRate);
+                return DetectionResult.failure(DetectionResult.Error.READ_FAILED,
+                        "采样率不匹配: " + wav.getInfo().sampleRate);
+            }
+            // 与 RawNet2Strategy 相同：对前 K 个语音最密集的窗口分别融合后取平均，只筛查第一个窗口
+            SpeechWindowSelector selector = mWindowSelector;
+            long[] starts = selector != null
+                    ? selector.select(wav, mMaxInputLength, selector.getTopK()) : new long[]{0};
+            windows = starts.length;
+            for (int w = 0; w < windows; w++) {
+                int validLength = wav.read(starts[w], pcm, 0, mMaxInputLength);
+                long t1 = System.nanoTime();
+                readNanos += t1 - t0;
+                PreScreen preScreen = mPreScreen;
+                if (w == 0 && preScreen != null) {
+                    PreScreen.Reason reason = preScreen.screen(FloatBuffer.wrap(pcm), 0, validLength);
+                    if (reason != PreScreen.Reason.PASS) {
+                        return DetectionResult.screened(reason, readNanos, System.nanoTime() - t1);
+                    }
+                }
+                DetectionResult result = fuse(pcm, validLength, wav.getFrameCount() - starts[w], 0, cancelled);
+                if (!result.isSuccess()) return result;
+                sum += result.getRealProbability();
+                preprocessNanos += result.getPreprocessNanos();
+                forwardNanos += result.getForwardNanos();
+                postprocessNanos += result.getPostprocessNanos();
+                t0 = System.nanoTime();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "读取音频文件失败: " + audioFilePath, e);
+            return DetectionResult.failure(DetectionResult.Error.READ_FAILED, e.toString());
+        }
+        return DetectionResult.success((float) (sum / windows), readNanos, preprocessNanos, forwardNanos,
+                postprocessNanos);
+    }
+
+    @Override
+    public DetectionResult detectPcm(float[] pcm, int validLength, BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return RawNet2Strategy.recordMetrics(DetectionResult.failure(DetectionResult.Error.CANCELLED, null));
+        }
+        int length = Math.min(validLength, mMaxInputLength);
+        PreScreen preScreen = mPreScreen;
+        if (preScreen != null) {
+            long t0 = System.nanoTime();
+            PreScreen.Reason reason = preScreen.screen(FloatBuffer.wrap(pcm), 0, length);
+            if (reason != PreScreen.Reason.PASS) {
+                return RawNet2Strategy.recordMetrics(DetectionResult.screened(reason, 0, System.nanoTime() - t0));
+            }
+        }
+        return RawNet2Strategy.recordMetrics(fuse(pcm, length, validLength, 0, cancelled));
+    }
+
+    /**
+     * 依次让各模型对同一份 PCM 打分并按权重融合。
+     */
+    private DetectionResult fuse(float[] pcm, int validLength, long totalFrames, long readNanos,
+                                 BooleanSupplier cancelled) {
+        double weighted = 0;
+        double weightSum = 0;
+        long preprocessNanos = 0;
+        long forwardNanos = 0;
+        long postprocessNanos = 0;
+        for (int i = 0; i < mMembers.size(); i++) {
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+            }
+            DetectionResult result = mMembers.get(i).scorePcm(pcm, validLength, totalFrames, cancelled);
+            if (!result.isSuccess()) return result;
+
+            float real = result.getRealProbability();
+            weighted += mWeights[i] * real;
+            weightSum += mWeights[i];
+            preprocessNanos += result.getPreprocessNanos();
+            forwardNanos += result.getForwardNanos();
+            postprocessNanos += result.getPostprocessNanos();
+
+            if (i == 0 && mMembers.size() > 1 && Math.max(real, 1f - real) >= mEarlyExitConfidence) {
+                mEarlyExits.incrementAndGet();
+                break;
+            }
+        }
+        float fused = (float) (weighted / weightSum);
+        return DetectionResult.success(fused, readNanos, preprocessNanos, forwardNanos, postprocessNanos);
+    }
+
+    @Override
+    public float[] detectBatch(List<String> audioFilePaths) {
+        return DetectionResult.realProbabilities(detectBatchDetailed(audioFilePaths));
+    }
+
+    @Override
+    public DetectionResult[] detectBatchDetailed(List<String> audioFilePaths) {
+        DetectionResult[] results = new DetectionResult[audioFilePaths.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = detectDetailed(audioFilePaths.get(i), null);
+        }
+        return results;
+    }
+
+    @Override
+    public float[] detectBatch(float[][] clips) {
+        float[] results = new float[clips.length];
+        Arrays.fill(results, -1f);
+        PreScreen preScreen = mPreScreen;
+        for (int i = 0; i < clips.length; i++) {
+            float[] clip = clips[i];
+            int length = clip == null ? 0 : clip.length;
+            if (preScreen != null && length > 0
+                    && preScreen.screen(FloatBuffer.wrap(clip), 0, length) != PreScreen.Reason.PASS) {
+                continue;
+            }
+            DetectionResult result = fuse(clip == null ? new float[0] : clip, length, length, 0, null);
+            if (result.isSuccess()) {
+                results[i] = result.getRealProbability();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 流式检测只使用第一个模型：逐窗口融合会让长音频的耗时成倍增加。
+     */
+    @Override
+    public StreamResult detectStream(String audioFilePath, StreamConfig config, SegmentListener listener) {
+        return mMembers.get(0).detectStream(audioFilePath, config, listener);
+    }
+
+    /** 各模型依次预热 */
+    @Override
+    public long[] warmUp(int passes) {
+        long[] total = new long[Math.max(0, passes)];
+        for (RawNet2Strategy member : mMembers) {
+            long[] nanos = member.warmUp(passes);
+            if (nanos == null) return null;
+            for (int p = 0; p < Math.min(nanos.length, total.length); p++) {
+                total[p] += nanos[p];
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void setDiagnostics(DetectionDiagnostics diagnostics) {
+        for (RawNet2Strategy member : mMembers) {
+            member.setDiagnostics(diagnostics);
+        }
+    }
+
+    @Override
+    public void setPreScreen(PreScreen preScreen) {
+        mPreScreen = preScreen;
+    }
+
+    @Override
+    public void setWindowSelector(SpeechWindowSelector selector) {
+        mWindowSelector = selector;
+    }
+
+    /** 成员中最长的输入长度，每个成员从同一段音频中取自己需要的部分 */
+    @Override
+    public int getInputLength() {
+        return mMaxInputLength;
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder sb = new StringBuilder("Ensemble(");
+        for (int i = 0; i < mMembers.size(); i++) {
+            if (i > 0) sb.append('+');
+            sb.append(mMembers.get(i).getName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /** 第一个模型足够确定、未运行其余模型的检测次数 */
+    public long getEarlyExitCount() {
+        return mEarlyExits.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.test922.audio.detector;
+
+import org.pytorch.Tensor;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 模型输入张量池。
+ *
+ * 持有一块由 {@link Tensor#allocateFloatBuffer(int)} 分配的直接内存，以及按 clip 数缓存的
+ * [clips, frameLength] 张量（共享这块内存的前 clips * frameLength 个元素）。
+ * 预热后每次推理都复用同一块内存和同一个 Tensor 对象，不再产生任何分配。
+ *
+ * 非线程安全：每个推理线程持有自己的实例（见 RawNet2Strategy 中的 ThreadLocal）。
+ */
+final class InputTensorPool {
+
+    private final int frameLength;
+    private FloatBuffer buffer;
+    private Tensor[] tensors = new Tensor[0];
+    private int capacityClips;
+
+    InputTensorPool(int frameLength) {
+        this.frameLength = frameLength;
+    }
+
+    /**
+     * 返回至少能容纳 clips 个窗口的缓冲区。只应使用绝对下标读写，内容未清零。
+     */
+    FloatBuffer buffer(int clips) {
+        ensureCapacity(clips);
+        return buffer;
+    }
+
+    /**
+     * 返回 Shape 为 [clips, frameLength] 的张量，数据即 {@link #buffer(int)} 的前 clips 个窗口。
+     */
+    Tensor tensor(int clips) {
+        ensureCapacity(clips);
+        Tensor tensor = tensors[clips];
+        if (tensor == null) {
+            // Tensor.fromBlob 要求 capacity 与 numel 严格一致，因此对共享内存做切片
+            FloatBuffer view = buffer.duplicate();
+            view.position(0);
+            view.limit(clips * frameLength);
+            tensor = Tensor.fromBlob(view.slice(), new long[]{clips, frameLength});
+            tensors[clips] = tensor;
+        }
+        return tensor;
+    }
+
+    private void ensureCapacity(int clips) {
+        if (clips <= capacityClips) return;
+        buffer = Tensor.allocateFloatBuffer(clips * frameLength);
+        tensors = new Tensor[clips + 1];
+        capacityClips = clips;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.test922.audio.detector;
+
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 录音期间的实时滚动检测。
+ *
+ * 独立的推理线程按固定步长（例如 500ms）从 {@link WindowSource} 取最近一个窗口（例如 4 秒）打分，
+ * 每次都只处理当前最新的音频：推理慢于步长时跳过错过的节拍（计入 {@link #getDroppedHops()}），
+ * 不会排队积压。伪造概率从阈值以下越过阈值时立即回调 {@link Listener#onAlert}。
+ *
+ * 回调在推理线程上执行。每个节拍的处理在 {@link #hop(long)} 中，测试可以用模拟时钟直接驱动。
+ */
+public final class LiveScorer {
+
+    private static final String TAG = "LiveScorer";
+
+    /** 最近音频的来源，例如 {@link com.example.test922.audio.processor.StreamingWavRecorder#readLatest} */
+    public interface WindowSource {
+        /**
+         * 把最近的至多 maxFrames 个采样（[-1, 1]）写入 dst[0, n)
+         *
+         * @return 实际写入的采样数 n
+         */
+        int readLatest(float[] dst, int maxFrames);
+    }
+
+    /** 实时检测回调 */
+    public interface Listener {
+        /**
+         * 一次打分完成
+         *
+         * @param fakeProbability 伪造概率 (0.0 - 1.0)
+         * @param windowFrames    参与打分的采样数（录音开始不足一个窗口时小于窗口长度）
+         */
+        void onScore(float fakeProbability, int windowFrames);
+
+        /** 伪造概率从阈值以下越过阈值 */
+        void onAlert(float fakeProbability);
+    }
+
+    private final DeepfakeDetector detector;
+    private final WindowSource source;
+    private final int windowFrames;
+    private final int minFrames;
+    private final long hopNanos;
+    private final float alertThreshold;
+    private final Listener listener;
+    /** 节拍计时用的时钟（纳秒） */
+    private final LongSupplier clock;
+
+    /** 预分配的窗口，推理线程独占 */
+    private final float[] window;
+    private final float[][] clips = new float[1][];
+
+    private volatile boolean running;
+    private Thread thread;
+    private volatile long scoredHops;
+    private volatile long droppedHops;
+    /** 上一次打分是否高于报警阈值，推理线程独占 */
+    private boolean above;
+
+    /**
+     * @param detector       已加载模型的检测器
+     * @param source         最近音频的来源
+     * @param windowFrames   每次打分的窗口长度（采样数）
+     * @param minFrames      开始打分前至少需要的采样数，不足一个窗口时按检测器规则循环填充
+     * @param hopMillis      打分步长
+     * @param alertThreshold 伪造概率报警阈值
+     */
+    public LiveScorer(DeepfakeDetector detector, WindowSource source, int windowFrames, int minFrames,
+                      long hopMillis, float alertThreshold, Listener listener) {
+        this(detector, source, windowFrames, minFrames, hopMillis, alertThreshold, listener, System::nanoTime);
+    }
+
+    /**
+     * @param clock 节拍计时用的时钟（纳秒），测试中可传入模拟时钟
+     */
+    LiveScorer(DeepfakeDetector detector, WindowSource source, int windowFrames, int minFrames,
+               long hopMillis, float alertThreshold, Listener listener, LongSupplier clock) {
+        this.detector = detector;
+        this.source = source;
+        this.windowFrames = windowFrames;
+        this.minFrames = Math.max(1, Math.min(minFrames, windowFrames));
+        this.hopNanos = TimeUnit.MILLISECONDS.toNanos(hopMillis);
+        this.alertThreshold = alertThreshold;
+        this.listener = listener;
+        this.clock = clock;
+        this.window = new float[windowFrames];
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(this::run, "live-scorer");
+        thread.start();
+    }
+
+    /** 停止并等待推理线程退出（正在进行的一次推理会先完成） */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+        }
+        if (t == null) return;
+        LockSupport.unpark(t);
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 已完成的打分次数 */
+    public long getScoredHops() {
+        return scoredHops;
+    }
+
+    /** 因推理跟不上而跳过的节拍数 */
+    public long getDroppedHops() {
+        return droppedHops;
+    }
+
+    private void run() {
+        long nextTick = clock.getAsLong() + hopNanos;
+        while (running) {
+            long wait = nextTick - clock.getAsLong();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            nextTick = hop(nextTick);
+        }
+    }
+
+    /**
+     * 处理计划在 tickNanos 的节拍：对最新窗口打分，并按处理结束时的时钟决定下一个节拍。
+     * 推理耗时超过步长时跳过错过的节拍，下一次直接处理最新的窗口。
+     *
+     * @return 下一个节拍的时间（纳秒）
+     */
+    long hop(long tickNanos) {
+        scoreLatest();
+        long nextTick = tickNanos + hopNanos;
+        long late = clock.getAsLong() - nextTick;
+        if (late > 0) {
+            long skipped = late / hopNanos + 1;
+            droppedHops += skipped;
+            nextTick += skipped * hopNanos;
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "推理跟不上步长，跳过 " + skipped + " 个节拍");
+            }
+        }
+        return nextTick;
+    }
+
+    private void scoreLatest() {
+        int frames = source.readLatest(window, windowFrames);
+        if (frames < minFrames) return;
+        // 不足一个窗口时只在录音开始阶段出现，按实际长度交给检测器循环填充
+        clips[0] = frames == windowFrames ? window : Arrays.copyOf(window, frames);
+        float realProbability = detector.detectBatch(clips)[0];
+        if (realProbability < 0) return;
+        float fakeProbability = 1f - realProbability;
+        scoredHops++;
+        listener.onScore(fakeProbability, frames);
+        boolean nowAbove = fakeProbability >= alertThreshold;
+        if (nowAbove && !above) {
+            listener.onAlert(fakeProbability);
+        }
+        above = nowAbove;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.test922.audio.detector;
+
+import android.util.Log;
+
+import com.example.test922.audio.processor.AudioStatistics;
+
+import java.util.Locale;
+
+/**
+ * 把诊断信息输出到 Logcat 的实现，用于开发调试。
+ * 通过 {@code adb shell setprop log.tag.DetectionDiagnostics DEBUG} 打开，见 {@link #isEnabled()}。
+ */
+public class LogcatDiagnostics implements DetectionDiagnostics {
+
+    private static final String TAG = "DetectionDiagnostics";
+
+    /** 是否打开了本 TAG 的 DEBUG 日志 */
+    public static boolean isEnabled() {
+        return Log.isLoggable(TAG, Log.DEBUG);
+    }
+
+    @Override
+    public void onInputStatistics(String audioFilePath, long startFrame, long totalFrames, AudioStatistics stats) {
+        Log.d(TAG, "输入: " + audioFilePath + " 起始帧=" + startFrame + " 原始长度=" + totalFrames
+                + String.format(Locale.US, " (%.2f 秒)", totalFrames / 16000.0));
+        Log.d(TAG, String.format(Locale.US, "音频统计: min=%.4f, max=%.4f, mean=%.6f, RMS=%.4f",
+                stats.getMin(), stats.getMax(), stats.getMean(), stats.getRms()));
+        Log.d(TAG, String.format(Locale.US, "静音比例: %.1f%% (|v|<%s 的采样点占比)",
+                stats.getSilenceRatio() * 100, AudioStatistics.SILENCE_THRESHOLD));
+
+        StringBuilder sb = new StringBuilder("前" + AudioStatistics.PREVIEW_LENGTH + "个采样点: ");
+        for (int i = 0; i < stats.getPreviewLength(); i++) {
+            sb.append(String.format(Locale.US, "%.4f ", stats.getPreview(i)));
+        }
+        Log.d(TAG, sb.toString());
+    }
+
+    @Override
+    public void onModelOutput(float[] scores, int offset, int numClasses, float realProbability) {
+        StringBuilder sb = new StringBuilder("模型输出:");
+        for (int i = 0; i < numClasses; i++) {
+            sb.append(" scores[").append(i).append("]=").append(scores[offset + i]);
+        }
+        Log.d(TAG, sb.toString());
+        Log.d(TAG, String.format(Locale.US, "检测完成 - Real: %.4f, Fake: %.4f", realProbability, 1 - realProbability));
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 把 assets 中的模型文件解压到私有目录，供 LiteModuleLoader 按绝对路径加载。
+ *
+ * - 按内容版本存放：{@code files/models/<sha256 前 16 位>/<assetName>}。新版 APK 带来新模型时目录不同，
+ *   不会继续使用旧文件；旧版本目录在新版本解压成功后删除。
+ * - 原子替换：先写同目录下的临时文件，校验 SHA-256 与清单一致、落盘后再 rename，
+ *   中途被杀或空间不足都不会留下被当作有效模型的截断文件。
+ * - 快速复制：模型在 APK 中不压缩存储时（见 build.gradle.kts 的 noCompress）用
+ *   {@link FileChannel#transferTo} 直接从 APK 复制，否则退回到流复制并在同一遍中计算校验和。
+ *
+ * 校验清单为 assets 中的 {@value #MANIFEST_ASSET}，格式与 sha256sum 输出相同（"&lt;hex&gt;  &lt;文件名&gt;"），
+ * 由构建时的 generateModelManifest 任务根据 assets 中的模型生成（见 app/build.gradle.kts）。
+ * 清单缺少某个模型（例如模型不是 .ptl 文件）时每次启动都要读一遍模型计算校验和，只有内容变化才重新复制。
+ */
+public final class ModelAssetExtractor {
+
+    private static final String TAG = "ModelAssetExtractor";
+
+    /** assets 中的校验清单 */
+    static final String MANIFEST_ASSET = "models.sha256";
+
+    /** 私有目录下存放各版本模型的子目录 */
+    static final String MODELS_DIR = "models";
+
+    /** 版本目录名取 SHA-256 的前 16 个十六进制字符 */
+    private static final int VERSION_LENGTH = 16;
+
+    /** 校验已写入文件时每次映射的长度 */
+    private static final long MAP_CHUNK = 8L * 1024 * 1024;
+
+    /** 本进程内已解压的模型，避免检测器池的每个实例都重复检查/计算校验和 */
+    private static final Map<String, File> sExtracted = new HashMap<>();
+
+    /** 本进程内已解压模型的 SHA-256，按资源名索引 */
+    private static final Map<String, String> sDigests = new HashMap<>();
+
+    /** 读取 assets 的抽象，便于在 JVM 测试中用普通文件代替 */
+    interface AssetSource {
+        InputStream open(String name) throws IOException;
+
+        /**
+         * 以文件区间的形式打开资源。
+         *
+         * @return 资源在 APK 中压缩存储、无法按区间访问时返回 null
+         */
+        AssetRegion openRegion(String name) throws IOException;
+    }
+
+    /** 资源在某个文件中的连续区间 */
+    static final class AssetRegion implements Closeable {
+        final FileChannel channel;
+        final long offset;
+        final long length;
+        private final Closeable owner;
+
+        AssetRegion(FileChannel channel, long offset, long length, Closeable owner) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            owner.close();
+        }
+    }
+
+    private ModelAssetExtractor() {
+    }
+
+    /**
+     * 确保 assets 中的模型已解压到私有目录并通过校验。
+     *
+     * @return 模型文件；复制或校验失败时返回 null
+     */
+    public static File extract(Context context, String assetName) {
+        return extract(new AndroidAssetSource(context.getAssets()), context.getFilesDir(), assetName);
+    }
+
+    static File extract(AssetSource source, File filesDir, String assetName) {
+        String cacheKey = filesDir.getAbsolutePath() + "/" + assetName;
+        synchronized (sExtracted) {
+            File cached = sExtracted.get(cacheKey);
+            if (cached != null && cached.isFile()) return cached;
+
+            File extracted = extractLocked(source, filesDir, assetName);
+            if (extracted != null) {
+                sExtracted.put(cacheKey, extracted);
+            }
+            return extracted;
+        }
+    }
+
+    /**
+     * 已解压模型内容的 SHA-256，可作为模型版本标识（例如结果缓存的失效依据）。
+     *
+     * @return 本进程内尚未成功解压该模型时返回 null
+     */
+    public static String getDigest(String assetName) {
+        synchronized (sExtracted) {
+            return sDigests.get(assetName);
+        }
+    }
+
+    /** 清空进程内的解压记录（用于 JVM 测试模拟进程重启） */
+    static void clearCache() {
+        synchronized (sExtracted) {
+            sExtracted.clear();
+            sDigests.clear();
+        }
+    }
+
+    private static File extractLocked(AssetSource source, File filesDir, String assetName) {
+        try {
+            String expected = readManifest(source).get(assetName);
+            if (expected == null) {
+                Log.w(TAG, "校验清单中没有 " + assetName + "，读取模型计算校验和");
+                try (InputStream in = source.open(assetName)) {
+                    expected = digest(in);
+                }
+            }
+
+            File modelsDir = new File(filesDir, MODELS_DIR);
+            File versionDir = new File(modelsDir, expected.substring(0, VERSION_LENGTH));
+            File target = new File(versionDir, assetName);
+            if (target.isFile() && target.length() > 0) {
+                Log.d(TAG, "模型已是当前版本，跳过复制: " + target.getAbsolutePath());
+                sDigests.put(assetName, expected);
+                return target;
+            }
+
+            if (!versionDir.isDirectory() && !versionDir.mkdirs()) {
+                Log.e(TAG, "创建模型目录失败: " + versionDir.getAbsolutePath());
+                return null;
+            }
+            File tmp = new File(versionDir, assetName + ".tmp");
+            long t0 = System.currentTimeMillis();
+            String actual = copy(source, assetName, tmp);
+            if (!expected.equals(actual)) {
+                Log.e(TAG, "模型校验失败: " + assetName + " 期望=" + expected + " 实际=" + actual);
+                deleteQuietly(tmp);
+                return null;
+            }
+            if (!tmp.renameTo(target)) {
+                Log.e(TAG, "重命名模型文件失败: " + target.getAbsolutePath());
+                deleteQuietly(tmp);
+                return null;
+            }
+            Log.i(TAG, "模型解压完成: " + target.getAbsolutePath() + " (" + (target.length() / 1024) + " KB, "
+                    + (System.currentTimeMillis() - t0) + "ms)");
+
+            removeOtherVersions(modelsDir, versionDir, assetName);
+            // 旧版本直接复制到 files/ 根目录的文件
+            deleteQuietly(new File(filesDir, assetName));
+            sDigests.put(assetName, expected);
+            return target;
+        } catch (IOException e) {
+            Log.e(TAG, "解压模型失败: " + assetName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取校验清单；没有清单时返回空表。
+     */
+    static Map<String, String> readManifest(AssetSource source) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        InputStream in;
+        try {
+            in = source.open(MANIFEST_ASSET);
+        } catch (FileNotFoundException e) {
+            return entries;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int space = line.indexOf(' ');
+                if (space != 64) {
+                    Log.w(TAG, "忽略格式不正确的清单行: " + line);
+                    continue;
+                }
+                String name = line.substring(space).trim();
+                if (name.startsWith("*")) name = name.substring(1); // sha256sum 的二进制模式标记
+                entries.put(name, line.substring(0, space).toLowerCase(Locale.US));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 把资源复制到 dst 并落盘。
+     *
+     * @return 写入内容的 SHA-256
+     */
+    private static String copy(AssetSource source, String assetName, File dst) throws IOException {
+        try (AssetRegion region = source.openRegion(assetName)) {
+            if (region != null) {
+                try (FileOutputStream fos = new FileOutputStream(dst);
+                     FileChannel out = fos.getChannel()) {
+                    long done = 0;
+                    while (done < region.length) {
+                        long n = region.channel.transferTo(region.offset + done, region.length - done, out);
+                        if (n <= 0) throw new IOException("transferTo 未能继续复制: " + done + "/" + region.length);
+                        done += n;
+                    }
+                    out.force(true);
+                }
+                // 校验落盘后的内容，而不是源数据
+                return digest(dst);
+            }
+        }
+
+        // 资源被压缩存储，只能流式读取；复制时同一遍计算校验和
+        MessageDigest digest = newDigest();
+        try (InputStream in = source.open(assetName);
+             FileOutputStream fos = new FileOutputStream(dst)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+                fos.write(buffer, 0, n);
+            }
+            fos.getFD().sync();
+        }
+        return toHex(digest.digest());
+    }
+
+    /** 以只读映射分块计算文件的 SHA-256 */
+    static String digest(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileInputStream fis = new FileInputStream(file);
+             FileChannel channel = fis.getChannel()) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_CHUNK) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_CHUNK, size - position));
+                digest.update(mapped);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static String digest(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Android/JVM 都提供 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format(Locale.US, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /** 删除其他版本目录中的同名模型，目录空了一并删除 */
+    private static void removeOtherVersions(File modelsDir, File currentDir, String assetName) {
+        File[] versions = modelsDir.listFiles();
+        if (versions == null) return;
+        for (File dir : versions) {
+            if (!dir.isDirectory() || dir.equals(currentDir)) continue;
+            deleteQuietly(new File(dir, assetName));
+            deleteQuietly(new File(dir, assetName + ".tmp"));
+            String[] remaining = dir.list();
+            if (remaining != null && remaining.length == 0) {
+                deleteQuietly(dir);
+            }
+            Log.i(TAG, "已删除旧版本模型: " + dir.getName() + "/" + assetName);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "删除失败: " + file.getAbsolutePath());
+        }
+    }
+
+    private static final class AndroidAssetSource implements AssetSource {
+        private final AssetManager assets;
+
+        AndroidAssetSource(AssetManager assets) {
+            this.assets = assets;
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            return assets.open(name);
+        }
+
+        @Override
+        public AssetRegion openRegion(String name) throws IOException {
+            AssetFileDescriptor afd;
+            try {
+                afd = assets.openFd(name);
+            } catch (FileNotFoundException e) {
+                // openFd 对压缩存储的资源抛出 FileNotFoundException
+                return null;
+            }
+            // createInputStream 持有 ParcelFileDescriptor，关闭通道即释放；afd.close() 可重复调用
+            FileInputStream fis = afd.createInputStream();
+            return new AssetRegion(fis.getChannel(), afd.getStartOffset(), afd.getLength(), afd);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 进程级的模型持有者：在应用启动时于后台线程加载并预热检测器，生命周期与进程相同，
+ * Activity 重建（如屏幕旋转）时不再重复加载。
+ *
+ * 通过 {@link #getReadiness()} 获取就绪状态：加载并预热完成后以检测器完成，失败时以 null 完成。
+ */
+public final class ModelHolder {
+
+    private static final String TAG = "ModelHolder";
+
+    private static final ModelHolder INSTANCE =
+            new ModelHolder(registry -> DetectorPool.createDefault(registry::createDetector));
+
+    /** 按模型清单创建未加载的检测器 */
+    interface Factory {
+        DeepfakeDetector create(ModelRegistry registry);
+    }
+
+    private final Factory mFactory;
+    private final CompletableFuture<DeepfakeDetector> mReadiness = new CompletableFuture<>();
+    private final ModelMetrics mMetrics = new ModelMetrics();
+    private String mAssetPath;
+    private long mStartNanos;
+    private volatile String mModelIdentity;
+
+    ModelHolder(Factory factory) {
+        mFactory = factory;
+    }
+
+    public static ModelHolder get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 开始在后台加载并预热模型；重复调用只有第一次生效。
+     *
+     * @param context      任意 Context（内部只保留 ApplicationContext）
+     * @param assetPath    没有模型清单（{@value ModelRegistry#MANIFEST_ASSET}）时使用的模型文件
+     * @param warmUpPasses 加载后执行的预热次数，0 表示不预热
+     * @return 就绪 Future，同 {@link #getReadiness()}
+     */
+    public synchronized CompletableFuture<DeepfakeDetector> start(Context context, String assetPath,
+                                                                  int warmUpPasses) {
+        if (mAssetPath != null) return mReadiness;
+        mAssetPath = assetPath;
+        mStartNanos = System.nanoTime();
+        Context appContext = context != null ? context.getApplicationContext() : null;
+
+        Thread loader = new Thread(() -> load(appContext, assetPath, warmUpPasses), "model-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return mReadiness;
+    }
+
+    /** 加载并预热完成后以检测器完成；加载失败时以 null 完成 */
+    public CompletableFuture<DeepfakeDetector> getReadiness() {
+        return mReadiness;
+    }
+
+    /** 尚未调用 {@link #start} 时返回 null */
+    public synchronized String getAssetPath() {
+        return mAssetPath;
+    }
+
+    /**
+     * 已加载模型的内容标识：各模型的资源名与 SHA-256（见 {@link ModelAssetExtractor#getDigest}），
+     * 模型内容不变时跨版本、跨安装保持不变。
+     *
+     * @return 模型尚未加载成功时返回 null
+     */
+    public String getModelIdentity() {
+        return mModelIdentity;
+    }
+
+    public ModelMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 记录一个成功的检测结果，用于统计冷启动到首个结果以及首次/稳态推理耗时。
+     */
+    public void recordResult(DetectionResult result) {
+        if (result == null || !result.isSuccess()) return;
+        long startNanos;
+        synchronized (this) {
+            startNanos = mStartNanos;
+        }
+        if (mMetrics.recordResult(result, System.nanoTime() - startNanos)) {
+            Log.i(TAG, "首个检测结果: " + mMetrics);
+        }
+    }
+
+    /** 未经 {@link ModelAssetExtractor} 加载的模型（测试中的桩）只用资源名 */
+    private static String identityOf(ModelRegistry registry) {
+        StringBuilder sb = new StringBuilder();
+        for (ModelSpec spec : registry.getSpecs()) {
+            if (sb.length() > 0) sb.append('+');
+            sb.append(spec.getAssetPath());
+            String digest = ModelAssetExtractor.getDigest(spec.getAssetPath());
+            if (digest != null) sb.append('@').append(digest);
+        }
+        return sb.toString();
+    }
+
+    private void load(Context context, String assetPath, int warmUpPasses) {
+        DeepfakeDetector detector = null;
+        try {
+            long t0 = System.nanoTime();
+            ModelRegistry registry = ModelRegistry.load(context, assetPath);
+            DeepfakeDetector created = mFactory.create(registry);
+            if (LogcatDiagnostics.isEnabled()) {
+                // adb shell setprop log.tag.DetectionDiagnostics DEBUG 后重启应用即可看到逐条统计
+                created.setDiagnostics(new LogcatDiagnostics());
+            }
+            if (!created.loadModel(context, registry.getPrimaryAssetPath())) {
+                Log.e(TAG, "模型加载失败: " + registry.getSpecs());
+                return;
+            }
+            long t1 = System.nanoTime();
+
+            long[] warmUpNanos = warmUpPasses > 0 ? created.warmUp(warmUpPasses) : new long[0];
+            if (warmUpNanos == null) {
+                // 预热失败不影响检测，只是首个检测会慢一些
+                Log.w(TAG, "模型预热失败");
+            }
+            mMetrics.recordLoad(t1 - t0, warmUpNanos);
+            mModelIdentity = identityOf(registry);
+            detector = created;
+            Log.i(TAG, "模型就绪: " + created.getName() + " " + mMetrics);
+        } catch (Throwable t) {
+            Log.e(TAG, "模型加载出错", t);
+        } finally {
+            mReadiness.complete(detector);
+        }
+    }
+}
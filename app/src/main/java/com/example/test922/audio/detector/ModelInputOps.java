@@ -0,0 +1,57 @@
+package com.example.test922.audio.detector;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 模型输入与输出的纯计算部分：窗口的循环填充，以及 Softmax / Sigmoid。
+ *
+ * 不依赖 Android 与 PyTorch，可在普通 JVM 上做基准测试（见 benchmark 模块）。
+ * 全部为原地或标量运算，不分配内存。
+ */
+public final class ModelInputOps {
+
+    private ModelInputOps() {
+    }
+
+    /**
+     * 把窗口 [offset, offset + length) 的有效长度补齐到 length（原地修改）。
+     *
+     * - validLength <= 0：整个窗口填 0（静音）
+     * - validLength < length：循环填充（Loop/Tile），不补零，例如 [1,2] 填充到 4 变成 [1,2,1,2]
+     * - validLength >= length：读取时已截断，无需处理
+     */
+    public static void loopPad(FloatBuffer buffer, int offset, int validLength, int length) {
+        if (validLength <= 0) {
+            for (int i = 0; i < length; i++) {
+                buffer.put(offset + i, 0f);
+            }
+            return;
+        }
+        for (int pos = validLength; pos < length; pos++) {
+            buffer.put(offset + pos, buffer.get(offset + pos % validLength));
+        }
+    }
+
+    /**
+     * 对 scores 中 [offset, offset + numClasses) 这一行执行 Softmax，返回第 index 个类别的概率。
+     * 使用数值稳定的实现（减去最大值），不分配中间数组。
+     */
+    public static float softmax(float[] scores, int offset, int numClasses, int index) {
+        // 找到最大值以保持数值稳定性
+        float maxLogit = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < numClasses; i++) {
+            if (scores[offset + i] > maxLogit) maxLogit = scores[offset + i];
+        }
+
+        // 计算 exp(logit - max) 之和并归一化
+        float sumExp = 0f;
+        for (int i = 0; i < numClasses; i++) {
+            sumExp += (float) Math.exp(scores[offset + i] - maxLogit);
+        }
+        return (float) Math.exp(scores[offset + index] - maxLogit) / sumExp;
+    }
+
+    public static float sigmoid(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.test922.audio.detector;
+
+import java.util.Locale;
+
+/**
+ * 模型冷启动指标：加载与预热耗时、从开始加载到第一个检测结果的耗时，
+ * 以及首次检测与之后稳态检测的前向推理耗时。所有方法都可以被多个线程调用。
+ */
+public final class ModelMetrics {
+
+    private long loadNanos = -1;
+    private long[] warmUpNanos = new long[0];
+    private long coldStartToFirstResultNanos = -1;
+    private long firstForwardNanos = -1;
+    private long steadyForwardNanosSum;
+    private int steadyCount;
+
+    synchronized void recordLoad(long loadNanos, long[] warmUpNanos) {
+        this.loadNanos = loadNanos;
+        this.warmUpNanos = warmUpNanos != null ? warmUpNanos.clone() : new long[0];
+    }
+
+    /**
+     * @param result          成功的检测结果
+     * @param sinceStartNanos 从开始加载模型到拿到该结果的耗时
+     * @return 是否为第一个结果
+     */
+    synchronized boolean recordResult(DetectionResult result, long sinceStartNanos) {
+        if (firstForwardNanos < 0) {
+            firstForwardNanos = result.getForwardNanos();
+            coldStartToFirstResultNanos = sinceStartNanos;
+            return true;
+        }
+        steadyForwardNanosSum += result.getForwardNanos();
+        steadyCount++;
+        return false;
+    }
+
+    /** 加载模型（含所有实例）的耗时；尚未加载完成时返回 -1 */
+    public synchronized long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /** 每轮预热的耗时 */
+    public synchronized long[] getWarmUpNanos() {
+        return warmUpNanos.clone();
+    }
+
+    /** 从开始加载模型到第一个检测结果的耗时；还没有结果时返回 -1 */
+    public synchronized long getColdStartToFirstResultNanos() {
+        return coldStartToFirstResultNanos;
+    }
+
+    /** 第一个检测的前向推理耗时；还没有结果时返回 -1 */
+    public synchronized long getFirstForwardNanos() {
+        return firstForwardNanos;
+    }
+
+    /** 之后各次检测前向推理耗时的平均值；不足两次检测时返回 -1 */
+    public synchronized long getSteadyForwardNanos() {
+        return steadyCount == 0 ? -1 : steadyForwardNanosSum / steadyCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder warmUp = new StringBuilder();
+        for (long nanos : warmUpNanos) {
+            if (warmUp.length() > 0) warmUp.append('/');
+            warmUp.append(String.format(Locale.US, "%.1f", nanos / 1e6));
+        }
+        return String.format(Locale.US,
+                "加载=%.1fms 预热=[%s]ms 冷启动到首个结果=%.1fms 首次推理=%.1fms 稳态推理=%.1fms (n=%d)",
+                loadNanos / 1e6, warmUp, coldStartToFirstResultNanos / 1e6,
+                firstForwardNanos / 1e6, getSteadyForwardNanos() / 1e6, steadyCount);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 由 assets 中的模型清单 {@value #MANIFEST_ASSET} 描述要加载的模型，并据此创建检测器：
+ * 一个模型时为 {@link RawNet2Strategy}，多个模型时为 {@link EnsembleDetector}。
+ *
+ * 清单格式：
+ * <pre>
+ * {
+ *   "earlyExitConfidence": 0.95,
+ *   "models": [
+ *     {"name": "RawNet2", "asset": "rawnet2_mobile.ptl", "inputLength": 64000, "sampleRate": 16000,
+ *      "labels": ["spoof", "bonafide"], "output": "probability", "weight": 1.0}
+ *   ]
+ * }
+ * </pre>
+ * labels 按模型输出的顺序给出类别名，"bonafide" 或 "real" 所在位置即 Real 类别下标；
+ * output 为 "probability"（已含 Softmax）或 "logits"。除 asset 外各字段都有与 RawNet2 一致的默认值。
+ *
+ * 没有清单时只使用内置的 RawNet2 模型。
+ */
+public final class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+
+    /** assets 中的模型清单 */
+    public static final String MANIFEST_ASSET = "models.json";
+
+    /** 默认不提前退出 */
+    private static final float DEFAULT_EARLY_EXIT_CONFIDENCE = 1.01f;
+
+    private final List<ModelSpec> mSpecs;
+    private final float mEarlyExitConfidence;
+
+    ModelRegistry(List<ModelSpec> specs, float earlyExitConfidence) {
+        if (specs.isEmpty()) throw new IllegalArgumentException("清单中没有模型");
+        for (ModelSpec spec : specs) {
+            if (spec.getSampleRate() != specs.get(0).getSampleRate()) {
+                throw new IllegalArgumentException("所有模型共享一次解码，采样率必须一致: " + spec);
+            }
+        }
+        mSpecs = Collections.unmodifiableList(new ArrayList<>(specs));
+        mEarlyExitConfidence = earlyExitConfidence;
+    }
+
+    /** 只包含一个 RawNet2 模型 */
+    public static ModelRegistry single(String assetPath) {
+        return new ModelRegistry(Collections.singletonList(ModelSpec.rawNet2(assetPath)),
+                DEFAULT_EARLY_EXIT_CONFIDENCE);
+    }
+
+    /**
+     * 读取 assets 中的清单；没有清单或清单无效时退回到只包含 defaultAssetPath 的 RawNet2。
+     *
+     * @param context 为 null 时（JVM 测试）直接使用默认模型
+     */
+    public static ModelRegistry load(Context context, String defaultAssetPath) {
+        if (context == null) return single(defaultAssetPath);
+        try (InputStream in = context.getAssets().open(MANIFEST_ASSET)) {
+            ModelRegistry registry = parse(readAll(in));
+            Log.i(TAG, "模型清单: " + registry.mSpecs);
+            return registry;
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "没有模型清单，使用 " + defaultAssetPath);
+        } catch (IOException | JSONException | IllegalArgumentException e) {
+            Log.e(TAG, "模型清单无效，使用 " + defaultAssetPath, e);
+        }
+        return single(defaultAssetPath);
+    }
+
+    static ModelRegistry parse(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        JSONArray models = root.getJSONArray("models");
+        List<ModelSpec> specs = new ArrayList<>(models.length());
+        for (int i = 0; i < models.length(); i++) {
+            specs.add(parseSpec(models.getJSONObject(i)));
+        }
+        float earlyExit = (float) root.optDouble("earlyExitConfidence", DEFAULT_EARLY_EXIT_CONFIDENCE);
+        return new ModelRegistry(specs, earlyExit);
+    }
+
+    private static ModelSpec parseSpec(JSONObject model) throws JSONException {
+        String asset = model.getString("asset");
+        String name = model.optString("name", asset);
+        int inputLength = model.optInt("inputLength", ModelSpec.RAWNET2_INPUT_LENGTH);
+        int sampleRate = model.optInt("sampleRate", ModelSpec.DEFAULT_SAMPLE_RATE);
+        float weight = (float) model.optDouble("weight", 1.0);
+
+        int realClassIndex = 1;
+        JSONArray labels = model.optJSONArray("labels");
+        if (labels != null) {
+            realClassIndex = -1;
+            for (int i = 0; i < labels.length(); i++) {
+                String label = labels.getString(i).toLowerCase(Locale.US);
+                if (label.equals("bonafide") || label.equals("real")) {
+                    realClassIndex = i;
+                }
+            }
+            if (realClassIndex < 0) {
+                throw new JSONException(name + " 的 labels 中没有 bonafide/real");
+            }
+        }
+
+        String output = model.optString("output", "probability").toLowerCase(Locale.US);
+        ModelSpec.OutputType outputType;
+        switch (output) {
+            case "probability":
+                outputType = ModelSpec.OutputType.PROBABILITY;
+                break;
+            case "logits":
+                outputType = ModelSpec.OutputType.LOGITS;
+                break;
+            default:
+                throw new JSONException(name + " 的 output 无效: " + output);
+        }
+        return new ModelSpec(name, asset, inputLength, sampleRate, realClassIndex, outputType, weight);
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public List<ModelSpec> getSpecs() {
+        return mSpecs;
+    }
+
+    public float getEarlyExitConfidence() {
+        return mEarlyExitConfidence;
+    }
+
+    /** 第一个模型的资源路径，单模型时即 loadModel 的参数 */
+    public String getPrimaryAssetPath() {
+        return mSpecs.get(0).getAssetPath();
+    }
+
+    /**
+     * 创建一个未加载的检测器实例（每次调用都是新实例，供 {@link DetectorPool} 使用）。
+     */
+    public DeepfakeDetector createDetector() {
+        if (mSpecs.size() == 1) {
+            return new RawNet2Strategy(mSpecs.get(0));
+        }
+        return new EnsembleDetector(mSpecs, mEarlyExitConfidence);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.test922.audio.detector;
+
+import org.pytorch.Tensor;
+
+/**
+ * 模型前向推理的最小抽象。
+ *
+ * 生产环境中由 PyTorch Lite {@code Module} 实现；JVM 单元测试/基准测试中可替换为桩实现，
+ * 不需要加载 native 库。
+ */
+interface ModelRunner {
+
+    /**
+     * @param input Shape 为 [N, length] 的输入
+     * @return 展平后的输出，长度为 N * 类别数
+     */
+    float[] forward(Tensor input);
+}
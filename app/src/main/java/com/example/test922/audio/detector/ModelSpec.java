@@ -0,0 +1,104 @@
+package com.example.test922.audio.detector;
+
+import java.util.Locale;
+
+/**
+ * 单个原始波形分类模型的描述：资源路径、输入长度、采样率、标签与输出类型。
+ * 由 {@link ModelRegistry} 从清单读取，交给 {@link RawNet2Strategy} 按描述执行预处理与输出解析。
+ */
+public final class ModelSpec {
+
+    /** 模型输出的含义 */
+    public enum OutputType {
+        /** 已经过 Softmax（或单输出的 Sigmoid），直接作为概率 */
+        PROBABILITY,
+        /** 原始 Logits，解析时执行 Softmax（单输出时执行 Sigmoid） */
+        LOGITS
+    }
+
+    /** 内置 RawNet2 模型在 assets 中的路径 */
+    public static final String RAWNET2_ASSET_PATH = "rawnet2_mobile.ptl";
+
+    /** RawNet2 的输入长度：4秒 * 16000Hz */
+    public static final int RAWNET2_INPUT_LENGTH = 64000;
+
+    /** 默认输入采样率，与应用统一转换后的 WAV 一致 */
+    public static final int DEFAULT_SAMPLE_RATE = 16000;
+
+    private final String name;
+    private final String assetPath;
+    private final int inputLength;
+    private final int sampleRate;
+    private final int realClassIndex;
+    private final OutputType outputType;
+    private final float weight;
+
+    /**
+     * @param name           模型名称，用于日志与结果缓存标识
+     * @param assetPath      模型文件在 assets 中的路径
+     * @param inputLength    模型输入的采样点数，不足时循环填充、超出时截断
+     * @param sampleRate     模型输入的采样率
+     * @param realClassIndex 输出中 Real/Bonafide 类别的下标
+     * @param outputType     输出是概率还是 Logits
+     * @param weight         集成检测时的融合权重
+     */
+    public ModelSpec(String name, String assetPath, int inputLength, int sampleRate, int realClassIndex,
+                     OutputType outputType, float weight) {
+        if (name == null || name.isEmpty()) throw new IllegalArgumentException("name 不能为空");
+        if (assetPath == null || assetPath.isEmpty()) throw new IllegalArgumentException("assetPath 不能为空");
+        if (inputLength <= 0) throw new IllegalArgumentException("inputLength 必须为正: " + inputLength);
+        if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate 必须为正: " + sampleRate);
+        if (realClassIndex < 0) throw new IllegalArgumentException("realClassIndex 不能为负: " + realClassIndex);
+        if (!(weight > 0f)) throw new IllegalArgumentException("weight 必须为正: " + weight);
+        this.name = name;
+        this.assetPath = assetPath;
+        this.inputLength = inputLength;
+        this.sampleRate = sampleRate;
+        this.realClassIndex = realClassIndex;
+        this.outputType = outputType != null ? outputType : OutputType.PROBABILITY;
+        this.weight = weight;
+    }
+
+    /**
+     * 与训练端一致的 RawNet2 配置：
+     * PC 端训练时 label 0 = Spoof/Fake，label 1 = Real/Bonafide；导出的模型已包含 Softmax。
+     */
+    public static ModelSpec rawNet2(String assetPath) {
+        return new ModelSpec("RawNet2", assetPath, RAWNET2_INPUT_LENGTH, DEFAULT_SAMPLE_RATE, 1,
+                OutputType.PROBABILITY, 1f);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAssetPath() {
+        return assetPath;
+    }
+
+    public int getInputLength() {
+        return inputLength;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getRealClassIndex() {
+        return realClassIndex;
+    }
+
+    public OutputType getOutputType() {
+        return outputType;
+    }
+
+    public float getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s(%s, %d@%dHz, real=%d, %s, w=%.2f)",
+                name, assetPath, inputLength, sampleRate, realClassIndex, outputType, weight);
+    }
+}
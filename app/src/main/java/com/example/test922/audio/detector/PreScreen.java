@@ -0,0 +1,256 @@
+package com.example.test922.audio.detector;
+
+import java.nio.FloatBuffer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 推理前的廉价特征筛查（纯 Java，不经过模型）：静音/有效语音比例、削波比例与频谱平坦度。
+ * 静音、严重削波、宽带噪声或纯音的输入直接给出原因，不再做前向推理；只有疑似语音才交给模型。
+ *
+ * 特征只在模型实际看到的窗口（Pad/Trim 之前的有效采样）上计算，帧长按 16kHz 输入设定。
+ * 本身无状态，只累计各原因的次数，可被多个推理线程共享；FFT 缓冲区每个线程一份。
+ */
+public final class PreScreen {
+
+    /** 筛查结论 */
+    public enum Reason {
+        /** 疑似语音，交给模型 */
+        PASS("疑似语音"),
+        /** 有效语音帧过少 */
+        SILENCE("音频几乎为静音"),
+        /** 满幅采样过多，波形已失真 */
+        CLIPPED("音频严重削波"),
+        /** 频谱接近白噪声，没有语音结构 */
+        NOISE("音频为宽带噪声"),
+        /** 频谱集中在个别频点（纯音、嗡声） */
+        TONAL("音频为单音或嗡声");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /** VAD 帧长：20ms @ 16kHz */
+    private static final int VAD_FRAME_LENGTH = 320;
+
+    /** 频谱平坦度的 FFT 长度：32ms @ 16kHz */
+    private static final int FFT_SIZE = 512;
+
+    /** 最多计算平坦度的帧数，均匀分布在窗口内 */
+    private static final int MAX_SPECTRAL_FRAMES = 8;
+
+    /** 视为削波的幅度 */
+    private static final float CLIP_LEVEL = 0.999f;
+
+    private static final double EPSILON = 1e-12;
+
+    private static final float[] HANN = new float[FFT_SIZE];
+
+    static {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            HANN[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
+        }
+    }
+
+    private final float mFrameEnergyThreshold;
+    private final float mMinVoicedRatio;
+    private final float mMaxClippedRatio;
+    private final float mMinFlatness;
+    private final float mMaxFlatness;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(Reason.values().length);
+
+    /** 每个线程一组 FFT 实部/虚部缓冲区 */
+    private final ThreadLocal<double[][]> mFft = new ThreadLocal<double[][]>() {
+        @Override
+        protected double[][] initialValue() {
+            return new double[][]{new double[FFT_SIZE], new double[FFT_SIZE]};
+        }
+    };
+
+    /**
+     * @param vadRms          帧 RMS 达到该值视为有效语音帧
+     * @param minVoicedRatio  有效语音帧占比低于该值判为 {@link Reason#SILENCE}
+     * @param maxClippedRatio 满幅采样占比超过该值判为 {@link Reason#CLIPPED}
+     * @param minFlatness     有效帧平均频谱平坦度低于该值判为 {@link Reason#TONAL}
+     * @param maxFlatness     有效帧平均频谱平坦度高于该值判为 {@link Reason#NOISE}
+     */
+    public PreScreen(float vadRms, float minVoicedRatio, float maxClippedRatio,
+                     float minFlatness, float maxFlatness) {
+        if (!(vadRms > 0f)) throw new IllegalArgumentException("vadRms 必须为正: " + vadRms);
+        if (minVoicedRatio < 0f || minVoicedRatio > 1f) {
+            throw new IllegalArgumentException("minVoicedRatio 必须在 [0, 1]: " + minVoicedRatio);
+        }
+        if (maxClippedRatio < 0f || maxClippedRatio > 1f) {
+            throw new IllegalArgumentException("maxClippedRatio 必须在 [0, 1]: " + maxClippedRatio);
+        }
+        if (minFlatness < 0f || maxFlatness > 1f || minFlatness >= maxFlatness) {
+            throw new IllegalArgumentException("平坦度阈值无效: " + minFlatness + ", " + maxFlatness);
+        }
+        mFrameEnergyThreshold = vadRms * vadRms;
+        mMinVoicedRatio = minVoicedRatio;
+        mMaxClippedRatio = maxClippedRatio;
+        mMinFlatness = minFlatness;
+        mMaxFlatness = maxFlatness;
+    }
+
+    /**
+     * 默认阈值：帧 RMS -40dBFS、至少 10% 有效帧、削波不超过 1%；
+     * 平坦度高于 0.45（白噪声约 0.56）为噪声，低于 1e-4（纯音）为单音，语音通常在 0.01 - 0.3 之间。
+     */
+    public static PreScreen defaults() {
+        return new PreScreen(0.01f, 0.1f, 0.01f, 1e-4f, 0.45f);
+    }
+
+    /**
+     * 筛查 buffer 中 [offset, offset + length) 的归一化音频，并累计结论次数。
+     * 不修改 buffer，不分配内存（FFT 缓冲区首次使用时按线程分配）。
+     */
+    public Reason screen(FloatBuffer buffer, int offset, int length) {
+        Reason reason = evaluate(buffer, offset, length);
+        mCounts.incrementAndGet(reason.ordinal());
+        return reason;
+    }
+
+    private Reason evaluate(FloatBuffer buffer, int offset, int length) {
+        if (length <= 0) return Reason.SILENCE;
+
+        // 1. 一遍完成分帧能量 VAD 与削波计数
+        int frames = 0;
+        int voiced = 0;
+        int clipped = 0;
+        for (int start = 0; start < length; start += VAD_FRAME_LENGTH) {
+            int end = Math.min(start + VAD_FRAME_LENGTH, length);
+            double energy = 0;
+            for (int i = start; i < end; i++) {
+                float v = buffer.get(offset + i);
+                energy += v * v;
+                if (v >= CLIP_LEVEL || v <= -CLIP_LEVEL) clipped++;
+            }
+            frames++;
+            if (energy / (end - start) >= mFrameEnergyThreshold) voiced++;
+        }
+        if (voiced < frames * mMinVoicedRatio || voiced == 0) return Reason.SILENCE;
+        if (clipped > length * mMaxClippedRatio) return Reason.CLIPPED;
+
+        // 2. 在均匀分布的有效帧上计算频谱平坦度，窗口短于一帧 FFT 时不判断
+        double flatness = meanFlatness(buffer, offset, length);
+        if (flatness < 0) return Reason.PASS;
+        if (flatness > mMaxFlatness) return Reason.NOISE;
+        if (flatness < mMinFlatness) return Reason.TONAL;
+        return Reason.PASS;
+    }
+
+    /**
+     * @return 有效帧的平均频谱平坦度（几何平均 / 算术平均）；没有可用帧时返回 -1
+     */
+    private double meanFlatness(FloatBuffer buffer, int offset, int length) {
+        if (length < FFT_SIZE) return -1;
+        int candidates = length / FFT_SIZE;
+        int step = Math.max(1, candidates / MAX_SPECTRAL_FRAMES);
+        double[][] fft = mFft.get();
+        double[] re = fft[0];
+        double[] im = fft[1];
+
+        double sum = 0;
+        int used = 0;
+        for (int f = 0; f < candidates && used < MAX_SPECTRAL_FRAMES; f += step) {
+            int start = offset + f * FFT_SIZE;
+            double energy = 0;
+            for (int i = 0; i < FFT_SIZE; i++) {
+                float v = buffer.get(start + i);
+                energy += v * v;
+                re[i] = v * HANN[i];
+                im[i] = 0;
+            }
+            if (energy / FFT_SIZE < mFrameEnergyThreshold) continue;
+
+            fft(re, im);
+            double logSum = 0;
+            double powerSum = 0;
+            int bins = FFT_SIZE / 2;
+            // 跳过直流分量
+            for (int k = 1; k <= bins; k++) {
+                double power = re[k] * re[k] + im[k] * im[k] + EPSILON;
+                logSum += Math.log(power);
+                powerSum += power;
+            }
+            sum += Math.exp(logSum / bins) / (powerSum / bins);
+            used++;
+        }
+        return used > 0 ? sum / used : -1;
+    }
+
+    /** 原地基 2 迭代 FFT，长度必须为 2 的幂 */
+    private static void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = -2 * Math.PI / len;
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                double curRe = 1;
+                double curIm = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k;
+                    int b = a + len / 2;
+                    double tRe = re[b] * curRe - im[b] * curIm;
+                    double tIm = re[b] * curIm + im[b] * curRe;
+                    re[b] = re[a] - tRe;
+                    im[b] = im[a] - tIm;
+                    re[a] += tRe;
+                    im[a] += tIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+
+    /** 某个结论累计出现的次数 */
+    public long getCount(Reason reason) {
+        return mCounts.get(reason.ordinal());
+    }
+
+    /** 被筛掉（未交给模型）的累计次数 */
+    public long getRejectedCount() {
+        long total = 0;
+        for (Reason reason : Reason.values()) {
+            if (reason != Reason.PASS) total += getCount(reason);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PreScreen(");
+        for (Reason reason : Reason.values()) {
+            if (reason.ordinal() > 0) sb.append(' ');
+            sb.append(String.format(Locale.US, "%s=%d", reason, getCount(reason)));
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -3,6 +3,9 @@ package com.example.test922.audio.detector;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.test922.audio.metrics.PipelineMetrics;
+import com.example.test922.audio.processor.AudioStatistics;
+import com.example.test922.audio.processor.SpeechWindowSelector;
 import com.example.test922.audio.processor.WavUtils;
 
 import org.pytorch.IValue;
@@ -11,9 +14,12 @@ import org.pytorch.Module;
 import org.pytorch.Tensor;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * RawNet2 模型的 Deepfake 检测策略实现。
@@ -21,37 +27,96 @@ import java.io.InputStream;
  * 该策略实现了与训练端一致的预处理逻辑：
  * 1. 读取 16kHz 16-bit PCM WAV 文件
  * 2. 归一化到 [-1, 1] 范围
- * 3. Pad/Trim 到固定长度 64000（4秒）
+ * 3. Pad/Trim 到固定长度（RawNet2 为 64000，即 4秒）；设置了 {@link SpeechWindowSelector} 时
+ *    改为取语音最密集的窗口，而不是开头
  * 4. 模型推理
+ *
+ * 输入长度、Real 类别下标与输出类型由 {@link ModelSpec} 给出，同样适用于其他以原始波形为输入的模型（如 AASIST）。
  */
 public class RawNet2Strategy implements DeepfakeDetector {
 
     private static final String TAG = "RawNet2Strategy";
 
-    /** 目标音频长度：4秒 * 16000Hz = 64000 采样点 */
-    private static final int TARGET_LENGTH = 64000;
+    /** 批量推理的最大行数（64 * 256KB = 16MB 输入） */
+    private static final int MAX_BATCH_SIZE = 64;
 
-    /**
-     * ⚠️ 重要配置：根据你的训练代码设置！
-     *
-     * PC端训练时标签定义为：
-     *   - label 0 = Spoof/Fake (伪造)
-     *   - label 1 = Real/Bonafide (真实)
-     * 所以 REAL_CLASS_INDEX = 1
-     */
-    private static final int REAL_CLASS_INDEX = 1;  // PC训练：真实=1, 伪造=0
+    /** 模型描述（名称、输入长度、标签、输出类型） */
+    private final ModelSpec mSpec;
 
-    /**
-     * ⚠️ 重要配置：模型输出是否已经经过 Softmax？
-     *
-     * 如果模型导出时最后一层是 LogSoftmax 或 Softmax，设为 true
-     * 如果模型输出是原始 Logits，设为 false
-     */
-    private static final boolean OUTPUT_IS_PROBABILITY = true;  // 模型已包含 Softmax，直接使用输出
+    /** 目标音频长度（RawNet2：4秒 * 16000Hz = 64000 采样点） */
+    private final int mInputLength;
+
+    /** Real/Bonafide 类别在模型输出中的下标（RawNet2 训练时：真实=1, 伪造=0） */
+    private final int mRealClassIndex;
+
+    /** 模型输出是否已经经过 Softmax；为 false 时对 Logits 执行 Softmax */
+    private final boolean mOutputIsProbability;
 
     /** PyTorch 模型 */
     private Module mModule;
 
+    /** 前向推理入口，loadModel 成功后指向 mModule */
+    private ModelRunner mRunner;
+
+    /** 批大小按单元计：文件批量时一个文件（占 topK 行）为一个单元，片段批量时一个片段为一个单元 */
+    private final AdaptiveBatchSizer mBatchSizer = new AdaptiveBatchSizer(MAX_BATCH_SIZE);
+
+    /** 批量推理计时用的时钟（纳秒），测试中可替换为确定的时钟 */
+    private volatile LongSupplier mNanoClock = System::nanoTime;
+
+    /** 每个推理线程独占一个输入张量池，稳定后推理路径不再分配输入内存 */
+    private final ThreadLocal<InputTensorPool> mInputPool = new ThreadLocal<InputTensorPool>() {
+        @Override
+        protected InputTensorPool initialValue() {
+            return new InputTensorPool(mInputLength);
+        }
+    };
+
+    /** 诊断回调，为 null 时不计算输入统计 */
+    private volatile DetectionDiagnostics mDiagnostics;
+
+    /** 推理前筛查，为 null 时所有输入都交给模型 */
+    private volatile PreScreen mPreScreen;
+
+    /** 语音窗口选择，为 null 时截取开头 */
+    private volatile SpeechWindowSelector mWindowSelector;
+
+    /** 每个推理线程复用一个统计对象，仅在设置了诊断回调时使用 */
+    private final ThreadLocal<AudioStatistics> mStatistics = new ThreadLocal<AudioStatistics>() {
+        @Override
+        protected AudioStatistics initialValue() {
+            return new AudioStatistics();
+        }
+    };
+
+    /** 使用与训练端一致的默认 RawNet2 配置 */
+    public RawNet2Strategy() {
+        this(ModelSpec.rawNet2(ModelSpec.RAWNET2_ASSET_PATH), null);
+    }
+
+    public RawNet2Strategy(ModelSpec spec) {
+        this(spec, null);
+    }
+
+    /**
+     * 使用给定的推理实现构造（用于 JVM 测试/基准，不经过 loadModel）。
+     */
+    RawNet2Strategy(ModelRunner runner) {
+        this(ModelSpec.rawNet2(ModelSpec.RAWNET2_ASSET_PATH), runner);
+    }
+
+    RawNet2Strategy(ModelSpec spec, ModelRunner runner) {
+        this.mSpec = spec;
+        this.mInputLength = spec.getInputLength();
+        this.mRealClassIndex = spec.getRealClassIndex();
+        this.mOutputIsProbability = spec.getOutputType() == ModelSpec.OutputType.PROBABILITY;
+        this.mRunner = runner;
+    }
+
+    public ModelSpec getSpec() {
+        return mSpec;
+    }
+
     @Override
     public boolean loadModel(Context context, String assetName) {
         try {
@@ -64,6 +129,8 @@ public class RawNet2Strategy implements DeepfakeDetector {
 
             // 加载 PyTorch Lite 模型
             mModule = LiteModuleLoader.load(modelPath);
+            final Module module = mModule;
+            mRunner = input -> module.forward(IValue.from(input)).toTensor().getDataAsFloatArray();
             Log.i(TAG, "RawNet2 模型加载成功: " + assetName);
             return true;
         } catch (Exception e) {
@@ -74,237 +141,637 @@ public class RawNet2Strategy implements DeepfakeDetector {
 
     @Override
     public float detect(String audioFilePath) {
-        if (mModule == null) {
+        DetectionResult result = detectDetailed(audioFilePath, null);
+        return result.isSuccess() ? result.getRealProbability() : -1f;
+    }
+
+    /**
+     * 与 {@link #detect(String)} 相同的流程，分别计时读取、Pad/Trim、推理与输出解析；
+     * 在读取前和推理前检查 cancelled（单次前向推理本身无法中断）。
+     */
+    @Override
+    public DetectionResult detectDetailed(String audioFilePath, BooleanSupplier cancelled) {
+        return recordMetrics(detectOnce(audioFilePath, cancelled));
+    }
+
+    /**
+     * 把一次检测的各阶段耗时与结论计入 {@link PipelineMetrics}。
+     * 读取耗时计为 WAV_READ；被筛查拦下的结果只有读取与预处理两段。
+     */
+    static DetectionResult recordMetrics(DetectionResult result) {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        if (result.isSuccess()) {
+            metrics.record(PipelineMetrics.Stage.WAV_READ, result.getReadNanos());
+            metrics.record(PipelineMetrics.Stage.PREPROCESS, result.getPreprocessNanos());
+            metrics.record(PipelineMetrics.Stage.FORWARD, result.getForwardNanos());
+            metrics.record(PipelineMetrics.Stage.POSTPROCESS, result.getPostprocessNanos());
+            metrics.increment(PipelineMetrics.Counter.DETECTIONS);
+        } else if (result.getError() == DetectionResult.Error.SCREENED_OUT) {
+            metrics.record(PipelineMetrics.Stage.WAV_READ, result.getReadNanos());
+            metrics.record(PipelineMetrics.Stage.PREPROCESS, result.getPreprocessNanos());
+            metrics.increment(PipelineMetrics.Counter.SCREENED_OUT);
+        } else {
+            metrics.increment(PipelineMetrics.Counter.DETECTION_FAILURES);
+        }
+        return result;
+    }
+
+    private DetectionResult detectOnce(String audioFilePath, BooleanSupplier cancelled) {
+        if (mRunner == null) {
             Log.e(TAG, "模型未加载，请先调用 loadModel()");
-            return -1f;
+            return DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED, "模型未加载");
         }
 
         try {
-            Log.d(TAG, "========== 开始检测 ==========");
-            Log.d(TAG, "音频文件路径: " + audioFilePath);
+            boolean debug = isDebugLoggable();
+            if (debug) {
+                Log.d(TAG, "========== 开始检测 ==========");
+                Log.d(TAG, "音频文件路径: " + audioFilePath);
+                Log.d(TAG, "文件大小: " + new File(audioFilePath).length() + " bytes");
+            }
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+            }
 
-            // 打印文件信息
-            java.io.File audioFile = new java.io.File(audioFilePath);
-            Log.d(TAG, "文件大小: " + audioFile.length() + " bytes");
+            // 1. 内存映射 WAV 文件，把选中窗口（未设置窗口选择时为开头）的采样点直接归一化到池化的输入缓冲区，
+            //    每个窗口占一行
+            long t0 = System.nanoTime();
+            InputTensorPool pool = mInputPool.get();
+            SpeechWindowSelector selector = mWindowSelector;
+            long[] starts = null;
+            int rows = 1;
+            FloatBuffer input;
+            int validLength;
+            long totalFrames;
+            try (WavUtils.MappedWav wav = WavUtils.mapWavFile(audioFilePath)) {
+                if (wav == null || wav.getFrameCount() == 0) {
+                    Log.e(TAG, "读取音频文件失败或文件为空: " + audioFilePath);
+                    return DetectionResult.failure(DetectionResult.Error.READ_FAILED, audioFilePath);
+                }
+                totalFrames = wav.getFrameCount();
+                if (selector != null) {
+                    starts = selector.select(wav, mInputLength, selector.getTopK());
+                    rows = starts.length;
+                }
+                input = pool.buffer(rows);
+                validLength = readWindow(wav, starts != null ? starts[0] : 0, input, 0, mInputLength, audioFilePath);
+                for (int r = 1; r < rows; r++) {
+                    readWindow(wav, starts[r], input, r * mInputLength, mInputLength, audioFilePath);
+                }
+            }
+            long t1 = System.nanoTime();
+
+            // 2. 静音、削波等输入不做推理（筛查耗时计入预处理）；选择了多个窗口时只筛查语音最密集的第一个
+            PreScreen preScreen = mPreScreen;
+            if (preScreen != null) {
+                PreScreen.Reason reason = preScreen.screen(input, 0, validLength);
+                if (reason != PreScreen.Reason.PASS) {
+                    if (debug) Log.d(TAG, "筛查未通过: " + reason);
+                    return DetectionResult.screened(reason, t1 - t0, System.nanoTime() - t1);
+                }
+            }
 
-            // 1. 读取 WAV 文件，得到归一化后的 float 数组
-            float[] rawAudio = WavUtils.readWavFile(audioFilePath);
-            if (rawAudio == null || rawAudio.length == 0) {
-                Log.e(TAG, "读取音频文件失败或文件为空: " + audioFilePath);
-                return -1f;
+            // 3. 不足 mInputLength 时循环填充（超出部分在读取时已被截掉）
+            padOrTrim(input, 0, validLength, totalFrames);
+            for (int r = 1; r < rows; r++) {
+                // 选中的窗口都完整落在音频内
+                padOrTrim(input, r * mInputLength, mInputLength, totalFrames - starts[r]);
+            }
+            long t2 = System.nanoTime();
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
             }
-            Log.d(TAG, "读取音频成功，原始长度: " + rawAudio.length + " 采样点 (" +
-                    String.format("%.2f", rawAudio.length / 16000.0) + " 秒)");
-
-            // 调试：打印音频统计信息
-            float min = Float.MAX_VALUE, max = Float.MIN_VALUE, sum = 0;
-            float sumSquare = 0;
-            int zeroCount = 0;
-            for (float v : rawAudio) {
-                if (v < min) min = v;
-                if (v > max) max = v;
-                sum += v;
-                sumSquare += v * v;
-                if (Math.abs(v) < 0.001f) zeroCount++;
+
+            // 4. 模型推理
+            float[] scores = mRunner.forward(pool.tensor(rows));
+            long t3 = System.nanoTime();
+
+            // 5. 解析输出，多个窗口时取平均
+            float realProbability = rows == 1 ? parseWindowOutput(scores) : parseMeanOutput(scores, rows);
+            long t4 = System.nanoTime();
+            if (debug) Log.d(TAG, "========== 检测结束 ==========");
+            if (realProbability < 0) {
+                return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED,
+                        "模型输出格式不正确，scores 长度: " + scores.length);
             }
-            float mean = sum / rawAudio.length;
-            float rms = (float) Math.sqrt(sumSquare / rawAudio.length);
-            float zeroRatio = zeroCount * 100.0f / rawAudio.length;
+            return DetectionResult.success(realProbability, t1 - t0, t2 - t1, t3 - t2, t4 - t3);
 
-            Log.d(TAG, String.format("音频统计: min=%.4f, max=%.4f, mean=%.6f, RMS=%.4f", min, max, mean, rms));
-            Log.d(TAG, String.format("静音比例: %.1f%% (|v|<0.001 的采样点占比)", zeroRatio));
+        } catch (IOException e) {
+            Log.e(TAG, "读取音频文件失败: " + audioFilePath, e);
+            return DetectionResult.failure(DetectionResult.Error.READ_FAILED, e.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "检测过程出错", e);
+            return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, e.toString());
+        }
+    }
 
-            // 打印前20个采样点
-            StringBuilder sb = new StringBuilder("前20个采样点: ");
-            for (int i = 0; i < Math.min(20, rawAudio.length); i++) {
-                sb.append(String.format("%.4f ", rawAudio[i]));
+    /**
+     * 与 {@link #detectDetailed} 相同的筛查与推理，输入为已解码的 PCM（不映射文件，读取耗时为 0）。
+     */
+    @Override
+    public DetectionResult detectPcm(float[] pcm, int validLength, BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return recordMetrics(DetectionResult.failure(DetectionResult.Error.CANCELLED, null));
+        }
+        PreScreen preScreen = mPreScreen;
+        if (preScreen != null && mRunner != null) {
+            long t0 = System.nanoTime();
+            PreScreen.Reason reason = preScreen.screen(FloatBuffer.wrap(pcm), 0, Math.min(validLength, mInputLength));
+            if (reason != PreScreen.Reason.PASS) {
+                return recordMetrics(DetectionResult.screened(reason, 0, System.nanoTime() - t0));
             }
-            Log.d(TAG, sb.toString());
+        }
+        return recordMetrics(scorePcm(pcm, validLength, validLength, cancelled));
+    }
 
-            // 2. Pad 或 Trim 到目标长度
-            float[] processedAudio = padOrTrim(rawAudio);
-            Log.d(TAG, "Pad/Trim 后长度: " + processedAudio.length);
+    /**
+     * 对已解码的 PCM 打分：把前 min(validLength, 输入长度) 个采样复制到本线程的输入张量，Pad/Trim 后推理。
+     * 供集成检测在多个模型之间共享一次 WAV 解码；结果中读取耗时为 0。
+     *
+     * @param pcm         归一化到 [-1, 1] 的单声道音频
+     * @param validLength pcm 中的有效采样点数
+     * @param totalFrames 原始音频总长度（仅用于日志）
+     * @param cancelled   推理前检查，可为 null
+     */
+    DetectionResult scorePcm(float[] pcm, int validLength, long totalFrames, BooleanSupplier cancelled) {
+        if (mRunner == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            return DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED, mSpec.getName() + " 未加载");
+        }
+        try {
+            long t0 = System.nanoTime();
+            InputTensorPool pool = mInputPool.get();
+            FloatBuffer input = pool.buffer(1);
+            int length = Math.min(validLength, mInputLength);
+            for (int i = 0; i < length; i++) {
+                input.put(i, pcm[i]);
+            }
+            padOrTrim(input, 0, length, totalFrames);
+            long t1 = System.nanoTime();
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                return DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+            }
 
-            // 3. 转换为 PyTorch Tensor，Shape: [1, 64000]
-            long[] shape = new long[]{1, TARGET_LENGTH};
-            Tensor inputTensor = Tensor.fromBlob(processedAudio, shape);
+            float[] scores = mRunner.forward(pool.tensor(1));
+            long t2 = System.nanoTime();
+            float realProbability = parseWindowOutput(scores);
+            long t3 = System.nanoTime();
+            if (realProbability < 0) {
+                return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED,
+                        mSpec.getName() + " 输出格式不正确，scores 长度: " + scores.length);
+            }
+            return DetectionResult.success(realProbability, 0, t1 - t0, t2 - t1, t3 - t2);
+        } catch (Exception e) {
+            Log.e(TAG, mSpec.getName() + " 推理出错", e);
+            return DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, e.toString());
+        }
+    }
 
-            // 4. 模型推理
-            IValue output = mModule.forward(IValue.from(inputTensor));
-            Tensor outputTensor = output.toTensor();
-            float[] scores = outputTensor.getDataAsFloatArray();
+    @Override
+    public StreamResult detectStream(String audioFilePath, StreamConfig config, SegmentListener listener) {
+        if (mRunner == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            return null;
+        }
+        // 窗口超过模型输入长度时按输入长度切分，步长随之缩短，长窗口中的每个采样点都参与打分
+        StreamConfig cfg = (config != null ? config : StreamConfig.defaults()).clampWindow(mInputLength);
+        int windowLength = cfg.getWindowLength();
 
-            Log.d(TAG, "模型输出长度: " + scores.length);
-            for (int i = 0; i < scores.length; i++) {
-                Log.d(TAG, "scores[" + i + "] = " + scores[i]);
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(audioFilePath)) {
+            if (wav == null || wav.getFrameCount() == 0) {
+                Log.e(TAG, "读取音频文件失败或文件为空: " + audioFilePath);
+                return null;
+            }
+            long totalFrames = wav.getFrameCount();
+            long segments = cfg.segmentCount(totalFrames);
+            if (segments > Integer.MAX_VALUE) {
+                Log.e(TAG, "分段数过多: " + segments);
+                return null;
             }
+            Log.d(TAG, "流式检测: 总长度=" + totalFrames + " 窗口=" + cfg.getWindowLength()
+                    + " 步长=" + cfg.getHopLength() + " 分段数=" + segments);
+
+            // 整个过程只复用池中的这一个窗口
+            InputTensorPool pool = mInputPool.get();
+            FloatBuffer window = pool.buffer(1);
+            Tensor tensor = pool.tensor(1);
+            float[] realScores = new float[(int) segments];
+            for (int i = 0; i < segments; i++) {
+                long start = cfg.segmentStart(i, totalFrames);
+                int validLength = readWindow(wav, start, window, 0, windowLength, audioFilePath);
+                padOrTrim(window, 0, validLength, totalFrames - start);
+
+                float realProbability = forwardWindow(tensor);
+                if (realProbability < 0) {
+                    Log.e(TAG, "流式检测第 " + i + " 段失败");
+                    return null;
+                }
+                realScores[i] = realProbability;
+                if (listener != null) {
+                    listener.onSegment(new SegmentScore(i, start, start + validLength, realProbability));
+                }
+            }
+
+            StreamResult result = new StreamResult(realScores, (int) segments, cfg);
+            Log.d(TAG, String.format("流式检测完成 - 分段=%d mean=%.4f maxFake=%.4f trimmed=%.4f",
+                    result.getSegmentCount(), result.getMeanReal(),
+                    result.getMaxFakeReal(), result.getTrimmedMeanReal()));
+            return result;
+        } catch (Exception e) {
+            Log.e(TAG, "流式检测过程出错", e);
+            return null;
+        }
+    }
 
-            // 5. 解析输出
-            if (scores.length >= 2) {
-                float[] probs;
-                if (OUTPUT_IS_PROBABILITY) {
-                    probs = scores;
-                    Log.d(TAG, "使用模型原始输出作为概率");
-                } else {
-                    probs = softmax(scores);
-                    Log.d(TAG, "对 Logits 执行 Softmax");
+    @Override
+    public float[] detectBatch(List<String> audioFilePaths) {
+        return DetectionResult.realProbabilities(detectBatchDetailed(audioFilePaths));
+    }
+
+    @Override
+    public DetectionResult[] detectBatchDetailed(List<String> audioFilePaths) {
+        DetectionResult[] results = new DetectionResult[audioFilePaths.size()];
+        if (mRunner == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            Arrays.fill(results, DetectionResult.failure(DetectionResult.Error.MODEL_NOT_LOADED, "模型未加载"));
+            return results;
+        }
+
+        float[] scores = new float[results.length];
+        Arrays.fill(scores, -1f);
+        InputTensorPool pool = mInputPool.get();
+        int[] slots = new int[0];
+        int next = 0;
+        while (next < audioFilePaths.size()) {
+            // 与 detectDetailed 相同：设置了窗口选择时每个文件取前 K 个语音最密集的窗口，各占一行，
+            // 结果取平均；批大小按文件数计，行数为文件数乘以 K，且不超过 MAX_BATCH_SIZE 行
+            SpeechWindowSelector selector = mWindowSelector;
+            int maxRows = selector != null ? selector.getTopK() : 1;
+            int batchFiles = Math.min(mBatchSizer.next(), Math.max(1, MAX_BATCH_SIZE / maxRows));
+            int batchRows = batchFiles * maxRows;
+            FloatBuffer batch = pool.buffer(batchRows);
+            if (slots.length < batchRows) slots = new int[batchRows];
+
+            // 直接把选中窗口（未设置窗口选择时为开头）的采样点读入批缓冲区对应行，读取失败或未通过筛查的文件跳过
+            PreScreen preScreen = mPreScreen;
+            int count = 0;
+            int files = 0;
+            int start = next;
+            while (files < batchFiles && next < audioFilePaths.size()) {
+                int index = next++;
+                String path = audioFilePaths.get(index);
+                try (WavUtils.MappedWav wav = WavUtils.mapWavFile(path)) {
+                    if (wav == null || wav.getFrameCount() == 0) {
+                        Log.e(TAG, "读取音频文件失败或文件为空: " + path);
+                        results[index] = DetectionResult.failure(DetectionResult.Error.READ_FAILED,
+                                "读取音频文件失败或文件为空: " + path);
+                        continue;
+                    }
+                    long[] starts = selector != null ? selector.select(wav, mInputLength, maxRows) : new long[]{0};
+                    int offset = count * mInputLength;
+                    int validLength = readWindow(wav, starts[0], batch, offset, mInputLength, path);
+                    // 只筛查语音最密集的第一个窗口
+                    PreScreen.Reason reason = preScreen != null
+                            ? preScreen.screen(batch, offset, validLength) : PreScreen.Reason.PASS;
+                    if (reason != PreScreen.Reason.PASS) {
+                        results[index] = DetectionResult.screened(reason, 0, 0);
+                        continue;
+                    }
+                    padOrTrim(batch, offset, validLength, wav.getFrameCount() - starts[0]);
+                    slots[count++] = index;
+                    files++;
+                    for (int r = 1; r < starts.length; r++) {
+                        offset = count * mInputLength;
+                        readWindow(wav, starts[r], batch, offset, mInputLength, path);
+                        padOrTrim(batch, offset, mInputLength, wav.getFrameCount() - starts[r]);
+                        slots[count++] = index;
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "读取音频文件失败: " + path, e);
+                    results[index] = DetectionResult.failure(DetectionResult.Error.READ_FAILED,
+                            "读取音频文件失败: " + path);
                 }
+            }
 
-                float realProbability = probs[REAL_CLASS_INDEX];
-                int fakeIndex = 1 - REAL_CLASS_INDEX;
-
-                Log.d(TAG, String.format("检测完成 - Real[%d]: %.4f, Fake[%d]: %.4f",
-                        REAL_CLASS_INDEX, probs[REAL_CLASS_INDEX],
-                        fakeIndex, probs[fakeIndex]));
-                Log.d(TAG, "========== 检测结束 ==========");
-                return realProbability;
-            } else if (scores.length == 1) {
-                float realProbability = OUTPUT_IS_PROBABILITY ? scores[0] : sigmoid(scores[0]);
-                Log.d(TAG, "检测完成 - Real 概率: " + String.format("%.4f", realProbability));
-                Log.d(TAG, "========== 检测结束 ==========");
-                return realProbability;
-            } else {
-                Log.e(TAG, "模型输出格式不正确，scores 长度: " + scores.length);
-                return -1f;
+            if (count > 0 && !forwardBatch(pool, count, files, slots, scores)) {
+                // OOM 后批大小已减半，重新处理这一批
+                next = start;
             }
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            results[i] = scores[i] >= 0 ? DetectionResult.success(scores[i], 0, 0, 0, 0)
+                    : DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, "推理失败: " + audioFilePaths.get(i));
+        }
+        return results;
+    }
+
+    @Override
+    public float[] detectBatch(float[][] clips) {
+        float[] results = new float[clips.length];
+        Arrays.fill(results, -1f);
+        if (mRunner == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            return results;
+        }
+
+        InputTensorPool pool = mInputPool.get();
+        int[] slots = new int[0];
+        int next = 0;
+        while (next < clips.length) {
+            int batchSize = mBatchSizer.next();
+            FloatBuffer batch = pool.buffer(batchSize);
+            if (slots.length < batchSize) slots = new int[batchSize];
+
+            PreScreen preScreen = mPreScreen;
+            int count = 0;
+            int start = next;
+            while (count < batchSize && next < clips.length) {
+                int index = next++;
+                float[] clip = clips[index];
+                int offset = count * mInputLength;
+                int validLength = clip == null ? 0 : Math.min(clip.length, mInputLength);
+                for (int i = 0; i < validLength; i++) {
+                    batch.put(offset + i, clip[i]);
+                }
+                if (preScreen != null && preScreen.screen(batch, offset, validLength) != PreScreen.Reason.PASS) {
+                    continue;
+                }
+                padOrTrim(batch, offset, validLength, clip == null ? 0 : clip.length);
+                slots[count++] = index;
+            }
+
+            if (count > 0 && !forwardBatch(pool, count, count, slots, results)) {
+                next = start;
+            }
+        }
+        return results;
+    }
 
+    /**
+     * 对池中前 count 个窗口执行一次 [count, mInputLength] 前向推理，把 Real 概率写入 results[slots[i]]，
+     * 并把耗时按 units 个单元反馈给自适应批大小。同一文件的多个窗口占相邻的行（slots 中相邻且相同），结果取平均。
+     *
+     * @param units 这一批包含的单元数（文件数或片段数），与 {@link AdaptiveBatchSizer#next()} 同一口径
+     * @return false 表示发生 OOM 且批大小已减半，调用方需要重试这一批；
+     *         只有一个单元时不再重试，该单元的结果保持为失败
+     */
+    private boolean forwardBatch(InputTensorPool pool, int count, int units, int[] slots, float[] results) {
+        try {
+            LongSupplier clock = mNanoClock;
+            long t0 = clock.getAsLong();
+            float[] scores = mRunner.forward(pool.tensor(count));
+            long nanos = clock.getAsLong() - t0;
+            mBatchSizer.record(units, nanos);
+            PipelineMetrics.get().record(PipelineMetrics.Stage.BATCH_FORWARD, nanos);
+            PipelineMetrics.get().add(PipelineMetrics.Counter.BATCH_CLIPS, count);
+
+            if (scores.length == 0 || scores.length % count != 0) {
+                Log.e(TAG, "批量输出格式不正确，scores 长度: " + scores.length + " batch=" + count);
+                return true;
+            }
+            int numClasses = scores.length / count;
+            DetectionDiagnostics diagnostics = mDiagnostics;
+            for (int i = 0; i < count; ) {
+                int slot = slots[i];
+                int rows = 0;
+                float sum = 0f;
+                boolean valid = true;
+                for (; i < count && slots[i] == slot; i++, rows++) {
+                    float realProbability = toRealProbability(scores, i * numClasses, numClasses);
+                    if (diagnostics != null) {
+                        diagnostics.onModelOutput(scores, i * numClasses, numClasses, realProbability);
+                    }
+                    valid &= realProbability >= 0;
+                    sum += realProbability;
+                }
+                results[slot] = valid ? sum / rows : -1f;
+            }
+            if (isDebugLoggable()) {
+                Log.d(TAG, "批量推理完成: batch=" + count + " 下一批大小=" + mBatchSizer.next());
+            }
+            return true;
+        } catch (OutOfMemoryError e) {
+            if (units == 1) {
+                // 批大小已降到一个单元，再重试只会得到同样的 OOM
+                Log.e(TAG, "单个" + (count > 1 ? "文件（" + count + " 个窗口）" : "窗口") + "推理 OOM", e);
+                return true;
+            }
+            mBatchSizer.onOutOfMemory();
+            Log.w(TAG, "批量推理 OOM，批大小降为 " + mBatchSizer.next());
+            return false;
         } catch (Exception e) {
-            Log.e(TAG, "检测过程出错", e);
-            return -1f;
+            Log.e(TAG, "批量推理出错", e);
+            return true;
+        }
+    }
+
+    /**
+     * 在调用线程的输入张量池上执行预热，之后该线程上的检测不再分配输入缓冲区。
+     */
+    @Override
+    public long[] warmUp(int passes) {
+        if (mRunner == null) {
+            Log.e(TAG, "模型未加载，请先调用 loadModel()");
+            return null;
+        }
+        long[] nanos = new long[Math.max(0, passes)];
+        try {
+            InputTensorPool pool = mInputPool.get();
+            FloatBuffer input = pool.buffer(1);
+            for (int i = 0; i < mInputLength; i++) {
+                input.put(i, 0f);
+            }
+            Tensor tensor = pool.tensor(1);
+            for (int p = 0; p < nanos.length; p++) {
+                long t0 = System.nanoTime();
+                mRunner.forward(tensor);
+                nanos[p] = System.nanoTime() - t0;
+            }
+            return nanos;
+        } catch (Exception e) {
+            Log.e(TAG, "预热失败", e);
+            return null;
         }
     }
 
+    @Override
+    public void setDiagnostics(DetectionDiagnostics diagnostics) {
+        mDiagnostics = diagnostics;
+    }
+
+    @Override
+    public void setPreScreen(PreScreen preScreen) {
+        mPreScreen = preScreen;
+    }
+
+    @Override
+    public void setWindowSelector(SpeechWindowSelector selector) {
+        mWindowSelector = selector;
+    }
+
+    /** 替换批量推理计时用的时钟（用于测试，使自适应批大小的调整不依赖实际耗时） */
+    void setNanoClock(LongSupplier nanoClock) {
+        mNanoClock = nanoClock;
+    }
+
+    @Override
+    public int getInputLength() {
+        return mInputLength;
+    }
+
     @Override
     public String getName() {
-        return "RawNet2";
+        return mSpec.getName();
     }
 
     /**
-     * 对音频数据进行 Pad 或 Trim 处理，使其长度等于 TARGET_LENGTH。
+     * 对 Shape 为 [1, mInputLength] 的池化张量执行推理，返回 Real 概率。
      *
-     * - 如果长度 < TARGET_LENGTH：执行循环填充（Loop/Tile），不补零
-     * - 如果长度 > TARGET_LENGTH：截取前 TARGET_LENGTH 个采样点
-     * - 如果长度 == TARGET_LENGTH：直接返回副本
+     * @param inputTensor 已完成 Pad/Trim 的输入
+     * @return Real 的概率 (0.0 - 1.0)；输出格式不正确时返回 -1
+     */
+    private float forwardWindow(Tensor inputTensor) {
+        // 4. 模型推理
+        float[] scores = mRunner.forward(inputTensor);
+
+        // 5. 解析输出
+        return parseWindowOutput(scores);
+    }
+
+    /**
+     * 解析单个窗口的模型输出并回调诊断。
      *
-     * @param rawAudio 原始音频数据
-     * @return 处理后长度为 TARGET_LENGTH 的音频数据
+     * @return Real 的概率 (0.0 - 1.0)；输出格式不正确时返回 -1
      */
-    private float[] padOrTrim(float[] rawAudio) {
-        if (rawAudio == null || rawAudio.length == 0) {
-            // 边界情况：返回静音数据
-            Log.w(TAG, "padOrTrim: 输入为空，返回静音数据");
-            return new float[TARGET_LENGTH];
+    private float parseWindowOutput(float[] scores) {
+        if (scores.length == 0) {
+            Log.e(TAG, "模型输出格式不正确，scores 长度: " + scores.length);
+            return -1f;
         }
+        float realProbability = toRealProbability(scores, 0, scores.length);
+        DetectionDiagnostics diagnostics = mDiagnostics;
+        if (diagnostics != null) {
+            diagnostics.onModelOutput(scores, 0, scores.length, realProbability);
+        }
+        return realProbability;
+    }
 
-        int originalLength = rawAudio.length;
+    /**
+     * 解析 [rows, numClasses] 的模型输出，逐行回调诊断并返回 Real 概率的平均值。
+     *
+     * @return 平均 Real 概率；输出格式不正确时返回 -1
+     */
+    private float parseMeanOutput(float[] scores, int rows) {
+        if (scores.length == 0 || scores.length % rows != 0) {
+            Log.e(TAG, "模型输出格式不正确，scores 长度: " + scores.length + " 窗口数=" + rows);
+            return -1f;
+        }
+        int numClasses = scores.length / rows;
+        DetectionDiagnostics diagnostics = mDiagnostics;
+        float sum = 0f;
+        for (int r = 0; r < rows; r++) {
+            float realProbability = toRealProbability(scores, r * numClasses, numClasses);
+            if (realProbability < 0) return -1f;
+            if (diagnostics != null) {
+                diagnostics.onModelOutput(scores, r * numClasses, numClasses, realProbability);
+            }
+            sum += realProbability;
+        }
+        return sum / rows;
+    }
 
-        if (originalLength == TARGET_LENGTH) {
-            // 长度刚好，直接返回副本
-            float[] result = new float[TARGET_LENGTH];
-            System.arraycopy(rawAudio, 0, result, 0, TARGET_LENGTH);
-            return result;
-        } else if (originalLength > TARGET_LENGTH) {
-            // 长度超过目标，截取前 TARGET_LENGTH 个点
-            float[] result = new float[TARGET_LENGTH];
-            System.arraycopy(rawAudio, 0, result, 0, TARGET_LENGTH);
-            Log.d(TAG, "Trim: " + originalLength + " -> " + TARGET_LENGTH);
-            return result;
-        } else {
-            // 长度不足，循环填充（Loop/Tile）
-            // 例如 [1,2] 填充到 4 变成 [1,2,1,2]
-            float[] result = new float[TARGET_LENGTH];
-            int pos = 0;
-            while (pos < TARGET_LENGTH) {
-                int copyLen = Math.min(originalLength, TARGET_LENGTH - pos);
-                System.arraycopy(rawAudio, 0, result, pos, copyLen);
-                pos += copyLen;
+    /**
+     * 将一行模型输出解析为 Real 概率。
+     *
+     * @param scores     模型输出（批量时为 [N, numClasses] 展平）
+     * @param offset     该行起始位置
+     * @param numClasses 每行的输出个数
+     */
+    private float toRealProbability(float[] scores, int offset, int numClasses) {
+        if (numClasses >= 2) {
+            if (mRealClassIndex >= numClasses) {
+                Log.e(TAG, mSpec.getName() + " 的 Real 类别下标超出输出个数: " + mRealClassIndex + "/" + numClasses);
+                return -1f;
             }
-            Log.d(TAG, "Pad (Loop): " + originalLength + " -> " + TARGET_LENGTH);
-            return result;
+            if (mOutputIsProbability) {
+                // 使用模型原始输出作为概率
+                return scores[offset + mRealClassIndex];
+            }
+            // 对 Logits 执行 Softmax
+            return ModelInputOps.softmax(scores, offset, numClasses, mRealClassIndex);
         }
+        return mOutputIsProbability ? scores[offset] : ModelInputOps.sigmoid(scores[offset]);
     }
 
     /**
-     * Softmax 函数，将 logits 转换为概率
-     * 使用数值稳定的实现（减去最大值）
+     * 对窗口进行 Pad 或 Trim 处理，使其有效长度等于 mInputLength（原地修改，不分配内存）。
+     *
+     * - 如果长度 < mInputLength：执行循环填充（Loop/Tile），不补零
+     * - 如果长度 >= mInputLength：读取时已只取前 mInputLength 个采样点，无需处理
+     *
+     * @param buffer      包含窗口的缓冲区，窗口占据 [offset, offset + mInputLength)
+     * @param offset      窗口在 buffer 中的起始位置（批量推理时为 clip 下标 * mInputLength）
+     * @param validLength 窗口开头的有效采样点数
+     * @param totalFrames 原始音频总长度（仅用于日志）
      */
-    private float[] softmax(float[] logits) {
-        // 找到最大值以保持数值稳定性
-        float maxLogit = Float.NEGATIVE_INFINITY;
-        for (float logit : logits) {
-            if (logit > maxLogit) maxLogit = logit;
+    private void padOrTrim(FloatBuffer buffer, int offset, int validLength, long totalFrames) {
+        if (validLength <= 0) {
+            // 边界情况：返回静音数据
+            Log.w(TAG, "padOrTrim: 输入为空，返回静音数据");
+            ModelInputOps.loopPad(buffer, offset, 0, mInputLength);
+            return;
         }
 
-        // 计算 exp(logit - max) 并求和
-        float sumExp = 0f;
-        float[] expValues = new float[logits.length];
-        for (int i = 0; i < logits.length; i++) {
-            expValues[i] = (float) Math.exp(logits[i] - maxLogit);
-            sumExp += expValues[i];
+        if (validLength >= mInputLength) {
+            if (totalFrames > mInputLength && isDebugLoggable()) {
+                Log.d(TAG, "Trim: " + totalFrames + " -> " + mInputLength);
+            }
+            return;
+        }
+
+        // 长度不足，循环填充（Loop/Tile）
+        ModelInputOps.loopPad(buffer, offset, validLength, mInputLength);
+        if (isDebugLoggable()) {
+            Log.d(TAG, "Pad (Loop): " + validLength + " -> " + mInputLength);
         }
+    }
 
-        // 归一化得到概率
-        float[] probs = new float[logits.length];
-        for (int i = 0; i < logits.length; i++) {
-            probs[i] = expValues[i] / sumExp;
+    /**
+     * 从映射的 WAV 读取一个窗口。设置了诊断回调时在同一遍循环中累计统计量并回调，
+     * 否则走无统计的读取路径。
+     */
+    private int readWindow(WavUtils.MappedWav wav, long startFrame, FloatBuffer dst, int offset,
+                           int maxFrames, String audioFilePath) {
+        DetectionDiagnostics diagnostics = mDiagnostics;
+        if (diagnostics == null) {
+            return wav.read(startFrame, dst, offset, maxFrames);
         }
-        return probs;
+        AudioStatistics stats = mStatistics.get();
+        stats.reset();
+        int validLength = wav.read(startFrame, dst, offset, maxFrames, stats);
+        diagnostics.onInputStatistics(audioFilePath, startFrame, wav.getFrameCount(), stats);
+        return validLength;
     }
 
     /**
-     * Sigmoid 函数
+     * 逐条检测的调试日志会格式化字符串并产生分配，仅在 {@code adb shell setprop log.tag.RawNet2Strategy DEBUG}
+     * 打开时输出，保证默认情况下推理路径不分配内存。
      */
-    private float sigmoid(float x) {
-        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    private static boolean isDebugLoggable() {
+        return Log.isLoggable(TAG, Log.DEBUG);
     }
 
     /**
-     * 将 assets 中的文件复制到 App 私有目录，并返回绝对路径。
+     * 将 assets 中的模型解压到 App 私有目录（按内容版本存放并校验），返回绝对路径。
      * PyTorch 的 LiteModuleLoader.load() 需要绝对文件路径，不能直接读 assets。
      *
      * @param context   Android Context
      * @param assetName assets 中的文件名
-     * @return 复制后的文件绝对路径，失败时返回 null
+     * @return 解压后的文件绝对路径，失败时返回 null
      */
     private String assetFilePath(Context context, String assetName) {
-        // 使用 getFilesDir() 获取持久化的私有目录
-        File file = new File(context.getFilesDir(), assetName);
-
-        // 如果文件已存在且大小大于 0，直接返回路径（避免重复复制）
-        if (file.exists() && file.length() > 0) {
-            Log.d(TAG, "模型文件已存在，跳过复制: " + file.getAbsolutePath());
-            return file.getAbsolutePath();
-        }
-
-        // 确保父目录存在
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            boolean created = parentDir.mkdirs();
-            if (!created) {
-                Log.w(TAG, "创建父目录失败: " + parentDir.getAbsolutePath());
-            }
-        }
-
-        // 从 assets 复制到私有目录
-        try (InputStream is = context.getAssets().open(assetName);
-             FileOutputStream fos = new FileOutputStream(file)) {
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            long totalBytes = 0;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                fos.write(buffer, 0, bytesRead);
-                totalBytes += bytesRead;
-            }
-            fos.flush();
-
-            Log.i(TAG, "模型文件复制成功: " + file.getAbsolutePath()
-                    + " (" + (totalBytes / 1024) + " KB)");
-            return file.getAbsolutePath();
-
-        } catch (IOException e) {
-            Log.e(TAG, "复制 asset 文件失败: " + assetName, e);
-            return null;
-        }
+        File file = ModelAssetExtractor.extract(context, assetName);
+        return file != null ? file.getAbsolutePath() : null;
     }
 }
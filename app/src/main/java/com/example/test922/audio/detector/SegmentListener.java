@@ -0,0 +1,8 @@
+package com.example.test922.audio.detector;
+
+/**
+ * 流式检测的分段回调，在检测线程上按顺序调用。
+ */
+public interface SegmentListener {
+    void onSegment(SegmentScore score);
+}
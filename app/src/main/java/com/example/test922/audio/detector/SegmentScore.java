@@ -0,0 +1,47 @@
+package com.example.test922.audio.detector;
+
+import java.util.Locale;
+
+/**
+ * 单个分段的检测得分。
+ */
+public final class SegmentScore {
+    private final int index;
+    private final long startFrame;
+    private final long endFrame;
+    private final float realProbability;
+
+    public SegmentScore(int index, long startFrame, long endFrame, float realProbability) {
+        this.index = index;
+        this.startFrame = startFrame;
+        this.endFrame = endFrame;
+        this.realProbability = realProbability;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /** 分段起始采样点（含） */
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    /** 分段结束采样点（不含） */
+    public long getEndFrame() {
+        return endFrame;
+    }
+
+    public float getRealProbability() {
+        return realProbability;
+    }
+
+    public float getFakeProbability() {
+        return 1f - realProbability;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "#%d [%d, %d) real=%.4f", index, startFrame, endFrame, realProbability);
+    }
+}
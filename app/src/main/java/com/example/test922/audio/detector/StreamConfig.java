@@ -0,0 +1,100 @@
+package com.example.test922.audio.detector;
+
+/**
+ * 流式滑窗检测参数。
+ *
+ * 长音频按 windowLength / hopLength 切分为若干段逐段推理，
+ * 最终按 {@link Aggregation} 汇总为一个结论。长度单位均为采样点（16kHz）。
+ */
+public final class StreamConfig {
+
+    /** 分段得分的汇总方式 */
+    public enum Aggregation {
+        /** 所有分段 Real 概率的平均值 */
+        MEAN,
+        /** 取最可疑的分段：Real 概率 = 1 - 最大 Fake 概率 */
+        MAX_FAKE,
+        /** 去掉两端 trimRatio 比例后的平均值，抑制个别异常分段 */
+        TRIMMED_MEAN
+    }
+
+    /** 默认窗口：4秒 * 16000Hz，与模型输入一致 */
+    public static final int DEFAULT_WINDOW_LENGTH = 64000;
+
+    /** 默认步长：2秒（50% 重叠） */
+    public static final int DEFAULT_HOP_LENGTH = 32000;
+
+    /** 默认截尾比例 */
+    public static final float DEFAULT_TRIM_RATIO = 0.1f;
+
+    private final int windowLength;
+    private final int hopLength;
+    private final Aggregation aggregation;
+    private final float trimRatio;
+
+    public StreamConfig(int windowLength, int hopLength, Aggregation aggregation, float trimRatio) {
+        if (windowLength <= 0) throw new IllegalArgumentException("windowLength 必须为正: " + windowLength);
+        if (hopLength <= 0) throw new IllegalArgumentException("hopLength 必须为正: " + hopLength);
+        if (trimRatio < 0f || trimRatio >= 0.5f) throw new IllegalArgumentException("trimRatio 需在 [0, 0.5) 内: " + trimRatio);
+        this.windowLength = windowLength;
+        this.hopLength = hopLength;
+        this.aggregation = aggregation != null ? aggregation : Aggregation.MEAN;
+        this.trimRatio = trimRatio;
+    }
+
+    public StreamConfig(int windowLength, int hopLength, Aggregation aggregation) {
+        this(windowLength, hopLength, aggregation, DEFAULT_TRIM_RATIO);
+    }
+
+    /** 4 秒窗口、2 秒步长、平均值汇总 */
+    public static StreamConfig defaults() {
+        return new StreamConfig(DEFAULT_WINDOW_LENGTH, DEFAULT_HOP_LENGTH, Aggregation.MEAN);
+    }
+
+    public int getWindowLength() {
+        return windowLength;
+    }
+
+    public int getHopLength() {
+        return hopLength;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    public float getTrimRatio() {
+        return trimRatio;
+    }
+
+    /**
+     * 把窗口限制在 maxWindowLength（模型输入长度）以内。窗口被截短时步长也不超过新窗口，
+     * 原来每个窗口覆盖的采样点仍然都落在某一段内，而不是只对每个窗口的开头打分。
+     *
+     * @return 窗口不超过上限时返回自身
+     */
+    public StreamConfig clampWindow(int maxWindowLength) {
+        if (windowLength <= maxWindowLength) return this;
+        return new StreamConfig(maxWindowLength, Math.min(hopLength, maxWindowLength), aggregation, trimRatio);
+    }
+
+    /**
+     * 计算长度为 totalFrames 的音频需要的分段数。
+     * 不足一个窗口时为 1 段（循环填充）；最后不满一个步长的尾部额外补一段贴齐末尾的窗口。
+     */
+    public long segmentCount(long totalFrames) {
+        if (totalFrames <= windowLength) return totalFrames > 0 ? 1 : 0;
+        long full = (totalFrames - windowLength) / hopLength + 1;
+        long lastEnd = (full - 1) * hopLength + windowLength;
+        return lastEnd < totalFrames ? full + 1 : full;
+    }
+
+    /** 第 index 段的起始帧，与 {@link #segmentCount(long)} 对应 */
+    public long segmentStart(long index, long totalFrames) {
+        long start = index * hopLength;
+        if (start + windowLength > totalFrames) {
+            start = Math.max(0, totalFrames - windowLength);
+        }
+        return start;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.test922.audio.detector;
+
+import java.util.Arrays;
+
+/**
+ * 流式检测的汇总结果。
+ *
+ * 只保存每段的 Real 概率（每段 4 字节），不保存任何音频数据。
+ */
+public final class StreamResult {
+    private final int segmentCount;
+    private final float meanReal;
+    private final float minReal;
+    private final float trimmedMeanReal;
+    private final StreamConfig.Aggregation aggregation;
+
+    /**
+     * @param realScores 各分段 Real 概率，前 count 个有效（会被原地排序）
+     * @param count      分段数
+     * @param config     检测参数（汇总方式、截尾比例）
+     */
+    StreamResult(float[] realScores, int count, StreamConfig config) {
+        this.segmentCount = count;
+        this.aggregation = config.getAggregation();
+        if (count == 0) {
+            meanReal = minReal = trimmedMeanReal = -1f;
+            return;
+        }
+
+        Arrays.sort(realScores, 0, count);
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += realScores[i];
+        meanReal = (float) (sum / count);
+        minReal = realScores[0];
+
+        int trim = (int) Math.floor(count * config.getTrimRatio());
+        double trimmedSum = 0;
+        for (int i = trim; i < count - trim; i++) trimmedSum += realScores[i];
+        trimmedMeanReal = (float) (trimmedSum / (count - 2 * trim));
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /** 各分段 Real 概率的平均值 */
+    public float getMeanReal() {
+        return meanReal;
+    }
+
+    /** 最可疑分段的 Real 概率，即 1 - 最大 Fake 概率 */
+    public float getMaxFakeReal() {
+        return minReal;
+    }
+
+    /** 截尾平均后的 Real 概率 */
+    public float getTrimmedMeanReal() {
+        return trimmedMeanReal;
+    }
+
+    public StreamConfig.Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * 按配置的汇总方式给出最终 Real 概率。
+     *
+     * @return Real 的概率 (0.0 - 1.0)；没有分段时返回 -1
+     */
+    public float getRealProbability() {
+        switch (aggregation) {
+            case MAX_FAKE:
+                return minReal;
+            case TRIMMED_MEAN:
+                return trimmedMeanReal;
+            case MEAN:
+            default:
+                return meanReal;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.test922.audio.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HDR 风格的延迟直方图（纳秒）：每个 2 的幂区间再线性分为 {@value #SUB_BUCKETS} 个桶，
+ * 相对误差不超过 1/{@value #SUB_BUCKETS}（约 3%），范围 0 ~ 2^{@value #MAX_EXPONENT} ns（约 2.4 小时），
+ * 超出范围的值计入最后一个桶。
+ *
+ * 记录只做几次原子加，不加锁、不分配内存，可在推理热路径上由多个线程同时调用。
+ * 读取（分位数、均值）与写入并发时得到的是近似的快照。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 43;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMin = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong mMax = new AtomicLong();
+
+    /** 记录一次耗时；负值（时钟异常）按 0 计 */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        mBuckets.incrementAndGet(bucketIndex(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long min;
+        while (value < (min = mMin.get()) && !mMin.compareAndSet(min, value)) {
+            // 重试
+        }
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // 重试
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKET_COUNT - 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** 桶的下界 */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /** 桶内所有值都等价时代表该桶的值：下界与上界的中点 */
+    private static long bucketMidpoint(int index) {
+        if (index < SUB_BUCKETS) return index;
+        long lower = bucketLowerBound(index);
+        long width = 1L << (index / SUB_BUCKETS - 1);
+        return lower + width / 2;
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMin() {
+        return getCount() > 0 ? mMin.get() : 0;
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public long getMean() {
+        long count = getCount();
+        return count > 0 ? mSum.get() / count : 0;
+    }
+
+    /**
+     * 分位数（纳秒），误差在桶宽以内，且不超出实际记录的最小/最大值。
+     *
+     * @param percentile 0 - 100
+     * @return 没有记录时返回 0
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets.get(i);
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(getMax(), bucketMidpoint(i)));
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMin.set(Long.MAX_VALUE);
+        mMax.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                getCount(), getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6,
+                getMax() / 1e6);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.test922.audio.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内的流水线指标：各阶段的 {@link System#nanoTime()} 耗时直方图与事件计数。
+ *
+ * 各阶段在自己的代码里记录（{@code long t0 = System.nanoTime(); ... record(Stage.X, System.nanoTime() - t0)}），
+ * 记录本身只有几次原子操作、不分配内存，因此始终开启。通过 {@link #get()} 在应用内读取，
+ * 或用 {@link #toJson(Map)} / {@link #writeJson(File, Map)} 导出，在不同设备与版本之间对比 p50/p99。
+ *
+ * 不依赖 Android，可以编译进 benchmark 模块。
+ */
+public final class PipelineMetrics {
+
+    /** 计时的阶段 */
+    public enum Stage {
+        /** content Uri 无法直接读取时复制到缓存 */
+        SAF_COPY("saf_copy"),
+        /** FFprobe 读取音轨信息 */
+        FFMPEG_PROBE("ffmpeg_probe"),
+        /** FFmpeg 转码为 16kHz 单声道 WAV */
+        FFMPEG_TRANSCODE("ffmpeg_transcode"),
+        /** MediaCodec 解码并重采样（FFmpeg 失败时的回退路径） */
+        MEDIACODEC_DECODE("mediacodec_decode"),
+        /** 解析 WAV 头 */
+        WAV_PARSE("wav_parse"),
+        /** 映射 WAV 并把模型窗口读入输入缓冲区 */
+        WAV_READ("wav_read"),
+        /** Pad/Trim 与前置筛查 */
+        PREPROCESS("preprocess"),
+        /** 单条检测的一次前向推理 */
+        FORWARD("forward"),
+        /** 批量检测的一次前向推理（整批） */
+        BATCH_FORWARD("batch_forward"),
+        /** 解析模型输出 */
+        POSTPROCESS("postprocess");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /** 计数的事件 */
+    public enum Counter {
+        /** 直接读取 content Uri 的描述符，未复制 */
+        SAF_DIRECT("saf_direct"),
+        /** content Uri 复制到缓存 */
+        SAF_COPIED("saf_copied"),
+        /** FFmpeg 转码失败 */
+        FFMPEG_FAILURES("ffmpeg_failures"),
+        /** 回退到 MediaCodec 解码 */
+        MEDIACODEC_FALLBACKS("mediacodec_fallbacks"),
+        /** 检测成功 */
+        DETECTIONS("detections"),
+        /** 检测失败（读取失败、推理失败、取消、超时） */
+        DETECTION_FAILURES("detection_failures"),
+        /** 被前置筛查拦下 */
+        SCREENED_OUT("screened_out"),
+        /** 批量检测中推理过的文件/片段数 */
+        BATCH_CLIPS("batch_clips");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray mCounters = new AtomicLongArray(Counter.values().length);
+
+    PipelineMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /** 进程内唯一的实例 */
+    public static PipelineMetrics get() {
+        return INSTANCE;
+    }
+
+    public void record(Stage stage, long nanos) {
+        mHistograms[stage.ordinal()].record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        mCounters.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        mCounters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return mHistograms[stage.ordinal()];
+    }
+
+    public long getCount(Counter counter) {
+        return mCounters.get(counter.ordinal());
+    }
+
+    /** 清空全部直方图与计数（例如在对比测试开始前） */
+    public void reset() {
+        for (LatencyHistogram histogram : mHistograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < mCounters.length(); i++) {
+            mCounters.set(i, 0);
+        }
+    }
+
+    /**
+     * 导出为 JSON：
+     * <pre>
+     * {"meta": {...}, "stages": {"forward": {"count": 12, "min_ms": .., "mean_ms": .., "p50_ms": .., "p90_ms": ..,
+     *  "p99_ms": .., "max_ms": ..}, ...}, "counters": {"detections": 12, ...}}
+     * </pre>
+     * 没有记录的阶段也会输出（count 为 0），便于按固定字段对比。
+     *
+     * @param meta 附加信息（设备型号、系统版本、应用版本等），可为 null
+     */
+    public String toJson(Map<String, String> meta) {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("{\n  \"meta\": {");
+        if (meta != null) {
+            boolean first = true;
+            for (Map.Entry<String, String> entry : meta.entrySet()) {
+                sb.append(first ? "\n    " : ",\n    ");
+                appendString(sb, entry.getKey());
+                sb.append(": ");
+                appendString(sb, entry.getValue());
+                first = false;
+            }
+            if (!first) sb.append("\n  ");
+        }
+        sb.append("},\n  \"stages\": {");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram h = getHistogram(stages[i]);
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendString(sb, stages[i].getKey());
+            sb.append(String.format(Locale.US,
+                    ": {\"count\": %d, \"min_ms\": %.3f, \"mean_ms\": %.3f, \"p50_ms\": %.3f, "
+                            + "\"p90_ms\": %.3f, \"p99_ms\": %.3f, \"max_ms\": %.3f}",
+                    h.getCount(), h.getMin() / 1e6, h.getMean() / 1e6, h.getPercentile(50) / 1e6,
+                    h.getPercentile(90) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+        }
+        sb.append("\n  },\n  \"counters\": {");
+        Counter[] counters = Counter.values();
+        for (int i = 0; i < counters.length; i++) {
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendString(sb, counters[i].getKey());
+            sb.append(": ").append(getCount(counters[i]));
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * 把 {@link #toJson(Map)} 写入文件（先写临时文件再重命名，读取方不会看到写了一半的内容）。
+     *
+     * @return 写入成功返回 true
+     */
+    public boolean writeJson(File file, Map<String, String> meta) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            writer.write(toJson(meta));
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return false;
+        }
+        return tmp.renameTo(file);
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PipelineMetrics:");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = getHistogram(stage);
+            if (h.getCount() > 0) {
+                sb.append("\n  ").append(stage.getKey()).append(": ").append(h);
+            }
+        }
+        for (Counter counter : Counter.values()) {
+            long count = getCount(counter);
+            if (count > 0) {
+                sb.append("\n  ").append(counter.getKey()).append('=').append(count);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.test922.audio.pipeline;
+
+import android.util.Log;
+
+import com.example.test922.audio.detector.DeepfakeDetector;
+import com.example.test922.audio.detector.DetectionResult;
+import com.example.test922.audio.detector.DetectionResultCache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量检测流水线：拷贝/解码 -> 转码/重采样 -> 模型推理。
+ *
+ * 三个阶段各有独立的工作线程，阶段之间用有界队列连接：下游跟不上时上游在 put 处阻塞（背压），
+ * 从而让 I/O、FFmpeg 转码与推理相互重叠，而中间文件数量不会无限增长。
+ * 推理阶段每次取出一个任务后，把队列中已就绪的任务一起交给 {@link DeepfakeDetector#detectBatchDetailed(List)}，
+ * 因此既能尽早出第一个结果，又能在转码快于推理时自动凑成大批。
+ *
+ * 结果按完成顺序回调，回调在推理线程上执行。拷贝或转码失败记为 {@link DetectionResult.Error#READ_FAILED}，
+ * 推理失败与未通过筛查沿用检测器给出的失败类型；任一阶段抛出的运行时异常只让对应文件失败，
+ * 转码产生的模型输入文件在推理完成、回调返回后删除。
+ * 配置了 {@link DetectionResultCache} 时，阶段一先计算输入的内容键并查询缓存，命中的文件直接回调结果，
+ * 不再拷贝、转码与推理；新的推理结果写入缓存，全部完成后落盘。
+ *
+ * @param <S> 输入源类型（例如 SAF 文档 Uri）
+ * @param <T> 阶段一的产物（例如本地副本或 {@link com.example.test922.audio.processor.FFmpegInput}），
+ *            阶段二处理完后释放：{@link Closeable} 会被关闭，与阶段二输出不同的 {@link File} 会被删除
+ */
+public final class BatchPipeline<S, T> {
+
+    private static final String TAG = "BatchPipeline";
+
+    /** 提交方在阶段一队列满时每次等待的时长，超时后检查是否已取消 */
+    private static final long ENQUEUE_POLL_MILLIS = 100;
+
+    /** 尚未完成的文件的占位结果，只在取消后才可能留在结果中 */
+    private static final DetectionResult PENDING = DetectionResult.failure(DetectionResult.Error.CANCELLED, null);
+
+    /** 单个阶段的处理逻辑，返回 null 或抛出异常视为该文件失败 */
+    public interface Stage<I, O> {
+        O process(I input, String name) throws Exception;
+    }
+
+    /** 计算输入源的缓存键（内容哈希），返回 null 表示该输入不使用缓存 */
+    public interface SourceKey<S> {
+        String keyOf(S source, String name) throws Exception;
+    }
+
+    /** 流水线回调 */
+    public interface Listener {
+        /**
+         * 单个文件完成（推理成功或在任一阶段失败）。
+         *
+         * @param index           提交顺序中的下标
+         * @param name            提交时给出的显示名
+         * @param audioFile       转码后的模型输入文件，回调返回后即被删除；失败或命中缓存时为 null
+         * @param result          检测结果；命中缓存时各阶段耗时为 0
+         */
+        void onResult(int index, String name, File audioFile, DetectionResult result);
+
+        /**
+         * 全部完成。
+         *
+         * @param results 与提交顺序一一对应的检测结果
+         */
+        void onComplete(DetectionResult[] results);
+    }
+
+    /** 流水线配置 */
+    public static final class Config {
+        private int copyWorkers = 2;
+        private int convertWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int inferenceWorkers = 1;
+        private int queueCapacity = 8;
+        private int maxInferenceBatch = 16;
+
+        public static Config defaults() {
+            return new Config();
+        }
+
+        public Config setCopyWorkers(int copyWorkers) {
+            this.copyWorkers = Math.max(1, copyWorkers);
+            return this;
+        }
+
+        public Config setConvertWorkers(int convertWorkers) {
+            this.convertWorkers = Math.max(1, convertWorkers);
+            return this;
+        }
+
+        /** 推理线程数；大于 1 时要求检测器支持并发调用 */
+        public Config setInferenceWorkers(int inferenceWorkers) {
+            this.inferenceWorkers = Math.max(1, inferenceWorkers);
+            return this;
+        }
+
+        /** 每个阶段之间队列的容量，决定了背压前最多积压多少个中间文件 */
+        public Config setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = Math.max(1, queueCapacity);
+            return this;
+        }
+
+        /** 推理阶段一次最多合并的文件数 */
+        public Config setMaxInferenceBatch(int maxInferenceBatch) {
+            this.maxInferenceBatch = Math.max(1, maxInferenceBatch);
+            return this;
+        }
+
+        public int getCopyWorkers() {
+            return copyWorkers;
+        }
+
+        public int getConvertWorkers() {
+            return convertWorkers;
+        }
+
+        public int getInferenceWorkers() {
+            return inferenceWorkers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public int getMaxInferenceBatch() {
+            return maxInferenceBatch;
+        }
+    }
+
+    /** 在阶段间流转的任务 */
+    private static final class Job<S, T> {
+        final int index;
+        final String name;
+        final S source;
+        T staged;
+        File file;
+        String cacheKey;
+
+        Job(int index, String name, S source) {
+            this.index = index;
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    /** 队列结束标记 */
+    private final Job<S, T> mPoison = new Job<>(-1, null, null);
+
+    private final Stage<S, T> mCopyStage;
+    private final Stage<T, File> mConvertStage;
+    private final DeepfakeDetector mDetector;
+    private final Config mConfig;
+    private final Listener mListener;
+    private final SourceKey<S> mSourceKey;
+    private final DetectionResultCache mResultCache;
+
+    private final BlockingQueue<Job<S, T>> mCopyQueue;
+    private final BlockingQueue<Job<S, T>> mConvertQueue;
+    private final BlockingQueue<Job<S, T>> mInferenceQueue;
+
+    private final ExecutorService mCopyExecutor;
+    private final ExecutorService mConvertExecutor;
+    private final ExecutorService mInferenceExecutor;
+
+    private final AtomicInteger mCopyRunning;
+    private final AtomicInteger mConvertRunning;
+    private final AtomicInteger mInferenceRunning;
+
+    /** 已提交的结果，按下标写入；仅在 onComplete 之前由工作线程写 */
+    private final List<DetectionResult> mResults = new ArrayList<>();
+    private int mSubmitted;
+    private volatile boolean mClosed;
+    private volatile boolean mCancelled;
+
+    /**
+     * @param copyStage    阶段一：打开/拷贝输入源，得到阶段二可读取的输入
+     * @param convertStage 阶段二：转码为模型输入格式（16kHz 单声道 16-bit WAV）
+     * @param detector     阶段三：已加载模型的检测器
+     */
+    public BatchPipeline(Stage<S, T> copyStage, Stage<T, File> convertStage, DeepfakeDetector detector,
+                         Config config, Listener listener) {
+        this(copyStage, convertStage, detector, config, listener, null, null);
+    }
+
+    /**
+     * @param sourceKey   计算输入源的缓存键；为 null 时不使用缓存
+     * @param resultCache 检测结果缓存；为 null 时不使用缓存
+     */
+    public BatchPipeline(Stage<S, T> copyStage, Stage<T, File> convertStage, DeepfakeDetector detector,
+                         Config config, Listener listener, SourceKey<S> sourceKey,
+                         DetectionResultCache resultCache) {
+        mCopyStage = copyStage;
+        mConvertStage = convertStage;
+        mDetector = detector;
+        mConfig = config != null ? config : Config.defaults();
+        mListener = listener;
+        mSourceKey = sourceKey;
+        mResultCache = sourceKey != null ? resultCache : null;
+
+        // 阶段一的输入队列同样有界：提交方（例如遍历 SAF 目录的线程）也会被背压
+        mCopyQueue = new ArrayBlockingQueue<>(mConfig.queueCapacity);
+        mConvertQueue = new ArrayBlockingQueue<>(mConfig.queueCapacity);
+        mInferenceQueue = new ArrayBlockingQueue<>(Math.max(mConfig.queueCapacity, mConfig.maxInferenceBatch));
+
+        mCopyRunning = new AtomicInteger(mConfig.copyWorkers);
+        mConvertRunning = new AtomicInteger(mConfig.convertWorkers);
+        mInferenceRunning = new AtomicInteger(mConfig.inferenceWorkers);
+
+        mCopyExecutor = Executors.newFixedThreadPool(mConfig.copyWorkers);
+        mConvertExecutor = Executors.newFixedThreadPool(mConfig.convertWorkers);
+        mInferenceExecutor = Executors.newFixedThreadPool(mConfig.inferenceWorkers);
+
+        for (int i = 0; i < mConfig.copyWorkers; i++) {
+            mCopyExecutor.execute(this::runCopyWorker);
+        }
+        for (int i = 0; i < mConfig.convertWorkers; i++) {
+            mConvertExecutor.execute(this::runConvertWorker);
+        }
+        for (int i = 0; i < mConfig.inferenceWorkers; i++) {
+            mInferenceExecutor.execute(this::runInferenceWorker);
+        }
+        // 工作线程已全部提交，执行完（收到结束标记）后线程池自动退出
+        mCopyExecutor.shutdown();
+        mConvertExecutor.shutdown();
+        mInferenceExecutor.shutdown();
+    }
+
+    /**
+     * 提交一个输入。队列已满时阻塞，直到阶段一腾出位置或流水线被取消。
+     *
+     * @return 该输入的下标；流水线已关闭或已取消（包括阻塞期间被取消）时返回 -1
+     */
+    public int submit(S source, String name) throws InterruptedException {
+        if (mClosed || mCancelled) return -1;
+        int index;
+        synchronized (mResults) {
+            index = mSubmitted++;
+            mResults.add(PENDING);
+        }
+        return enqueue(new Job<>(index, name, source)) ? index : -1;
+    }
+
+    /**
+     * 声明不会再有新的输入。所有已提交的文件处理完后回调 {@link Listener#onComplete(DetectionResult[])}。
+     */
+    public void close() throws InterruptedException {
+        if (mClosed) return;
+        mClosed = true;
+        for (int i = 0; i < mConfig.copyWorkers; i++) {
+            if (!enqueue(mPoison)) return;
+        }
+    }
+
+    /**
+     * 放入阶段一队列。队列满时分段等待并检查取消：取消后阶段一不再消费，一直 put 会让提交线程永远阻塞。
+     *
+     * @return false 表示流水线已取消，任务没有（或不再会）被处理
+     */
+    private boolean enqueue(Job<S, T> job) throws InterruptedException {
+        while (!mCancelled) {
+            if (mCopyQueue.offer(job, ENQUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // 放入后才取消的，由 cancel() 的清空或不再运行的工作线程丢弃
+                return !mCancelled;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 取消流水线：中断所有工作线程，未完成的文件不再回调，也不会回调 onComplete。
+     * 阻塞在 {@link #submit} 中的提交方随之返回 -1。
+     */
+    public void cancel() {
+        mCancelled = true;
+        mClosed = true;
+        mCopyExecutor.shutdownNow();
+        mConvertExecutor.shutdownNow();
+        mInferenceExecutor.shutdownNow();
+        // 清空阶段一队列，阻塞在 submit/close 中的提交方立即得到空位并看到取消标记
+        mCopyQueue.clear();
+        // 已打开但尚未转码的输入不会再被处理，在此释放
+        List<Job<S, T>> pending = new ArrayList<>();
+        mConvertQueue.drainTo(pending);
+        for (Job<S, T> job : pending) {
+            if (job != mPoison) release(job);
+        }
+    }
+
+    /** 等待所有阶段结束（测试用） */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return mCopyExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                && mConvertExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                && mInferenceExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void runCopyWorker() {
+        try {
+            while (true) {
+                Job<S, T> job = mCopyQueue.take();
+                if (job == mPoison) break;
+                try {
+                    copy(job);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "拷贝阶段异常: " + job.name, e);
+                    release(job);
+                    fail(job, "拷贝失败: " + job.name);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 即使本线程因 Error 退出，也要让下游收到结束标记，否则 onComplete 永远不会回调
+            finishStage(mCopyRunning, mConvertQueue, mConfig.convertWorkers);
+        }
+    }
+
+    private void copy(Job<S, T> job) throws InterruptedException {
+        if (completeFromCache(job)) {
+            return;
+        }
+        try {
+            job.staged = mCopyStage.process(job.source, job.name);
+        } catch (Exception e) {
+            Log.e(TAG, "拷贝失败: " + job.name, e);
+            job.staged = null;
+            // 阶段内的阻塞被 cancel() 中断：恢复中断标记，工作线程随后在 take 处退出
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        }
+        if (job.staged == null) {
+            fail(job, "拷贝失败: " + job.name);
+            return;
+        }
+        mConvertQueue.put(job);
+    }
+
+    private void runConvertWorker() {
+        try {
+            while (true) {
+                Job<S, T> job = mConvertQueue.take();
+                if (job == mPoison) break;
+                try {
+                    convert(job);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "转码阶段异常: " + job.name, e);
+                    release(job);
+                    deleteConverted(job);
+                    fail(job, "转码失败: " + job.name);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finishStage(mConvertRunning, mInferenceQueue, mConfig.inferenceWorkers);
+        }
+    }
+
+    private void convert(Job<S, T> job) throws InterruptedException {
+        try {
+            job.file = mConvertStage.process(job.staged, job.name);
+        } catch (Exception e) {
+            Log.e(TAG, "转码失败: " + job.name, e);
+            job.file = null;
+            // 阶段内的阻塞被 cancel() 中断：恢复中断标记，工作线程随后在 take 处退出
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        }
+        release(job);
+        if (job.file == null) {
+            fail(job, "转码失败: " + job.name);
+            return;
+        }
+        mInferenceQueue.put(job);
+    }
+
+    private void runInferenceWorker() {
+        List<Job<S, T>> batch = new ArrayList<>(mConfig.maxInferenceBatch);
+        List<String> paths = new ArrayList<>(mConfig.maxInferenceBatch);
+        boolean done = false;
+        try {
+            while (!done) {
+                batch.clear();
+                Job<S, T> first = mInferenceQueue.take();
+                if (first == mPoison) break;
+                batch.add(first);
+                // 不等待：只合并此刻已经就绪的文件
+                mInferenceQueue.drainTo(batch, mConfig.maxInferenceBatch - 1);
+                int poisonAt = batch.indexOf(mPoison);
+                if (poisonAt >= 0) {
+                    // 结束标记之后只可能是其他推理线程的结束标记，自己留一个，其余放回
+                    for (int i = poisonAt + 1; i < batch.size(); i++) {
+                        mInferenceQueue.put(mPoison);
+                    }
+                    batch.subList(poisonAt, batch.size()).clear();
+                    done = true;
+                }
+
+                paths.clear();
+                for (Job<S, T> job : batch) {
+                    paths.add(job.file.getAbsolutePath());
+                }
+                DetectionResult[] results;
+                try {
+                    results = mDetector.detectBatchDetailed(paths);
+                } catch (RuntimeException e) {
+                    // 例如 PyTorch 的原生错误：整批记为失败，继续处理后续文件
+                    Log.e(TAG, "推理失败，本批 " + batch.size() + " 个文件记为失败", e);
+                    results = null;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    Job<S, T> job = batch.get(i);
+                    DetectionResult result = results != null ? results[i]
+                            : DetectionResult.failure(DetectionResult.Error.INFERENCE_FAILED, "推理失败: " + job.name);
+                    if (mResultCache != null && result.isSuccess()) {
+                        mResultCache.put(job.cacheKey, result.getRealProbability());
+                    }
+                    complete(job, result);
+                    deleteConverted(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 还没交给 complete 的文件（本线程因 Error 退出时）同样删除转码产物
+            for (Job<S, T> job : batch) {
+                deleteConverted(job);
+            }
+            if (mInferenceRunning.decrementAndGet() == 0 && !mCancelled) {
+                if (mResultCache != null) {
+                    mResultCache.flush();
+                }
+                mListener.onComplete(snapshotResults());
+            }
+        }
+    }
+
+    /**
+     * 查询结果缓存，命中时直接完成该任务。
+     *
+     * @return 是否命中
+     */
+    private boolean completeFromCache(Job<S, T> job) {
+        if (mResultCache == null) return false;
+        try {
+            job.cacheKey = mSourceKey.keyOf(job.source, job.name);
+        } catch (Exception e) {
+            Log.w(TAG, "计算缓存键失败: " + job.name, e);
+            job.cacheKey = null;
+        }
+        float cached = mResultCache.get(job.cacheKey);
+        if (cached < 0) return false;
+        Log.d(TAG, "命中结果缓存: " + job.name);
+        complete(job, DetectionResult.success(cached, 0, 0, 0, 0));
+        return true;
+    }
+
+    /** 阶段最后一个退出的工作线程负责通知下游阶段结束；已取消时下游同样被中断，不再通知 */
+    private void finishStage(AtomicInteger running, BlockingQueue<Job<S, T>> downstream, int downstreamWorkers) {
+        if (running.decrementAndGet() != 0 || mCancelled) return;
+        try {
+            for (int i = 0; i < downstreamWorkers; i++) {
+                downstream.put(mPoison);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 释放阶段一的产物 */
+    private void release(Job<S, T> job) {
+        T staged = job.staged;
+        job.staged = null;
+        if (staged instanceof Closeable) {
+            try {
+                ((Closeable) staged).close();
+            } catch (IOException e) {
+                Log.w(TAG, "释放中间产物失败: " + job.name, e);
+            }
+        } else if (staged instanceof File && !staged.equals(job.file) && ((File) staged).exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            ((File) staged).delete();
+        }
+    }
+
+    /** 推理完成后删除转码产生的模型输入文件 */
+    private void deleteConverted(Job<S, T> job) {
+        File file = job.file;
+        job.file = null;
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w(TAG, "删除转码文件失败: " + file);
+        }
+    }
+
+    /** 拷贝或转码失败：输入无法变成模型可读的音频 */
+    private void fail(Job<S, T> job, String message) {
+        complete(job, DetectionResult.failure(DetectionResult.Error.READ_FAILED, message));
+    }
+
+    private void complete(Job<S, T> job, DetectionResult result) {
+        if (mCancelled) return;
+        synchronized (mResults) {
+            mResults.set(job.index, result);
+        }
+        mListener.onResult(job.index, job.name, job.file, result);
+    }
+
+    private DetectionResult[] snapshotResults() {
+        synchronized (mResults) {
+            return mResults.toArray(new DetectionResult[0]);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.test922.audio.processor;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 基于 {@link MediaCodec#setCallback} 的异步解码：解码器回调在专用的 HandlerThread 上送入输入、
+ * 取出输出，输出复制进 {@link PcmChunkQueue} 后立即归还解码器；调用线程作为写线程从队列取出数据
+ * 交给 {@link PcmChunkQueue.Consumer}（重采样、写盘）。解码与磁盘 I/O 并行，两个线程都没有
+ * dequeue 超时轮询。
+ */
+public final class AsyncPcmDecoder {
+
+    private static final String TAG = "AsyncPcmDecoder";
+
+    /** 队列中最多缓存的输出缓冲区个数（AAC 立体声每个约 4KB） */
+    private static final int QUEUE_CAPACITY = 32;
+
+    /** 每块的初始容量：1024 帧立体声 */
+    private static final int CHUNK_SAMPLES = 2048;
+
+    private AsyncPcmDecoder() {
+    }
+
+    /**
+     * 解码 extractor 已选中的音轨，在调用线程上把输出交给 consumer，直到输出结束、出错或 stop 为 true。
+     * 结束后释放 codec（extractor 由调用方释放）。
+     *
+     * @param codec  已创建、尚未 configure 的解码器
+     * @param format 选中音轨的格式
+     * @param stop   每次送入输入前检查，返回 true 时按输入结束处理（已送入的数据仍会输出），可为 null
+     * @return 正常结束（包括提前停止）返回 true
+     * @throws IOException consumer 写入失败
+     */
+    public static boolean decode(MediaExtractor extractor, MediaCodec codec, MediaFormat format,
+                                 PcmChunkQueue.Consumer consumer, BooleanSupplier stop)
+            throws IOException {
+        PcmChunkQueue queue = new PcmChunkQueue(QUEUE_CAPACITY, CHUNK_SAMPLES);
+        HandlerThread thread = new HandlerThread("pcm-decode");
+        thread.start();
+        long t0 = System.nanoTime();
+        try {
+            codec.setCallback(new Callback(extractor, format, queue, stop), new Handler(thread.getLooper()));
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "配置解码器失败: " + e.getMessage());
+            thread.quitSafely();
+            try { codec.release(); } catch (Exception ignore) {}
+            return false;
+        }
+        try {
+            boolean ok = queue.drainTo(consumer);
+            if (!ok) Log.e(TAG, "解码失败: " + queue.getError());
+            Log.d(TAG, "解码结束 用时=" + (System.nanoTime() - t0) / 1_000_000L + "ms 背压等待="
+                    + queue.getProducerWaits());
+            return ok;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.close();
+            return false;
+        } finally {
+            try { codec.stop(); } catch (Exception ignore) {}
+            try { codec.release(); } catch (Exception ignore) {}
+            thread.quitSafely();
+        }
+    }
+
+    /** 在解码线程上运行的回调 */
+    private static final class Callback extends MediaCodec.Callback {
+        private final MediaExtractor extractor;
+        private final PcmChunkQueue queue;
+        private final BooleanSupplier stop;
+        private int sampleRate;
+        private int channels;
+        private boolean inputDone;
+        private boolean outputDone;
+
+        Callback(MediaExtractor extractor, MediaFormat format, PcmChunkQueue queue, BooleanSupplier stop) {
+            this.extractor = extractor;
+            this.queue = queue;
+            this.stop = stop;
+            sampleRate = format.containsKey(MediaFormat.KEY_SAMPLE_RATE) ? format.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 44100;
+            channels = format.containsKey(MediaFormat.KEY_CHANNEL_COUNT) ? format.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 2;
+        }
+
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            if (inputDone) return;
+            try {
+                ByteBuffer buffer = codec.getInputBuffer(index);
+                boolean stopped = queue.isClosed() || (stop != null && stop.getAsBoolean());
+                int size = buffer == null || stopped ? -1 : extractor.readSampleData(buffer, 0);
+                if (size < 0) {
+                    codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    inputDone = true;
+                } else {
+                    codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+                    extractor.advance();
+                }
+            } catch (RuntimeException e) {
+                // 写线程已结束并停止了解码器（IllegalStateException），或 extractor 读取出错：
+                // 都要让写线程收到结束标记，否则它会一直阻塞在队列上
+                fail("送入输入失败: " + e);
+            }
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (outputDone) return;
+            try {
+                if (info.size > 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(index);
+                    if (buffer != null) {
+                        buffer.position(info.offset);
+                        buffer.limit(info.offset + info.size);
+                        // 解码器输出为本机字节序的交错 16-bit PCM
+                        if (!queue.put(buffer, sampleRate, channels)) {
+                            outputDone = true;
+                        }
+                    }
+                }
+                codec.releaseOutputBuffer(index, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0 && !outputDone) {
+                    outputDone = true;
+                    queue.finish();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("解码线程被中断");
+            } catch (RuntimeException e) {
+                fail("取出输出失败: " + e);
+            }
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            if (format.containsKey(MediaFormat.KEY_SAMPLE_RATE)) sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            if (format.containsKey(MediaFormat.KEY_CHANNEL_COUNT)) channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            fail("解码器错误: " + e.getDiagnosticInfo());
+        }
+
+        /** 停止送入输入并通知写线程失败；写线程已经结束时结束标记无人读取，不影响 */
+        private void fail(String message) {
+            inputDone = true;
+            if (outputDone) return;
+            outputDone = true;
+            queue.fail(message);
+        }
+    }
+
+    /**
+     * 把解码输出送入 {@link ProperResamplerProcessor} 下混并重采样的 consumer；输出格式中途变化时
+     * 结束当前重采样器，按新格式重新建立。解码结束后需调用 {@link ResamplingConsumer#flush()}。
+     */
+    public static final class ResamplingConsumer implements PcmChunkQueue.Consumer {
+        private final int targetSampleRate;
+        private final ProperResamplerProcessor.PcmSink sink;
+        private ProperResamplerProcessor resampler;
+
+        public ResamplingConsumer(int targetSampleRate, ProperResamplerProcessor.PcmSink sink) {
+            this.targetSampleRate = targetSampleRate;
+            this.sink = sink;
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channels) throws IOException {
+            if (resampler != null) resampler.flush();
+            resampler = new ProperResamplerProcessor(sampleRate, channels, targetSampleRate, sink);
+        }
+
+        @Override
+        public void onPcm(short[] samples, int count) throws IOException {
+            resampler.process(samples, 0, count);
+        }
+
+        public void flush() throws IOException {
+            if (resampler != null) resampler.flush();
+        }
+    }
+}
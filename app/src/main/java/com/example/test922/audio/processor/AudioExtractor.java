@@ -14,17 +14,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale; // 新增
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 
 import com.arthenica.ffmpegkit.FFmpegKit;
+import com.arthenica.ffmpegkit.FFprobeKit;
+import com.arthenica.ffmpegkit.MediaInformation;
+import com.arthenica.ffmpegkit.MediaInformationSession;
 import com.arthenica.ffmpegkit.ReturnCode;
 import com.arthenica.ffmpegkit.FFmpegSession;
 import com.arthenica.ffmpegkit.Session;
+import com.arthenica.ffmpegkit.StreamInformation;
+import com.example.test922.audio.metrics.PipelineMetrics;
+
+import org.json.JSONObject;
 
 public class AudioExtractor {
 
@@ -37,57 +44,24 @@ public class AudioExtractor {
     public static final int TARGET_CHANNELS = 1;
 
     // 使用 FFmpegKit 解封装音频到 PCM16 WAV（多轨优先匹配中文/主音轨，失败回退）
-    // 修改：添加重采样到 16kHz 单声道
+    // 先用 FFprobe 读取一次轨道元数据并打分选出音轨，再只做一次转码（重采样到 16kHz 单声道）
     private boolean extractWithFFmpeg(String inputPath, File outFile) {
         if (inputPath == null) return false;
 
-        // 第一步：确定使用哪个音轨映射（只测试映射是否有效，不关心滤镜）
-        String[] selectors = new String[]{
-                "0:a:m:language:chi",
-                "0:a:m:language:zho",
-                "0:a:m:language:zh",
-                "0:a:m:language:cmn",
-                "0:a:m:language:yue",
-                "0:a:m:title:main",
-                "0:a:m:handler_name:main",
-                "0:a:m:title:中文",
-                "0:a:m:title:国语",
-                "0:a:m:title:普通话",
-                "0:a:m:handler_name:中文",
-                "0:a:m:handler_name:main",
-                "0:a:0", // 回退首轨
-                null     // 最终回退：不指定 -map
-        };
-
-        String workingMap = null;
-
-        // 快速测试哪个映射有效（使用简单命令）
-        for (String map : selectors) {
-            safeDelete(outFile);
-            String mapPart = (map != null) ? " -map " + map : "";
-            String testCmd = "-y -hide_banner -nostdin -loglevel error -i " + escapePath(inputPath)
-                    + " -vn" + mapPart
-                    + " -ar " + TARGET_SAMPLE_RATE + " -ac " + TARGET_CHANNELS
-                    + " -acodec pcm_s16le -f wav " + escapePath(outFile.getAbsolutePath());
-
-            FFmpegSession s = FFmpegKit.execute(testCmd);
-            if (ReturnCode.isSuccess(s.getReturnCode()) && outFile.exists() && outFile.length() > 100) {
-                workingMap = map;
-                Log.d(TAG, "找到有效的音轨映射: " + (map != null ? map : "(默认)"));
-                break;
-            }
-        }
-
-        if (workingMap == null && (outFile == null || !outFile.exists() || outFile.length() <= 100)) {
-            Log.e(TAG, "无法找到有效的音轨映射");
+        // 第一步：探测音轨（只读容器头，不解码）
+        long t0 = System.nanoTime();
+        String map = probeBestAudioMap(inputPath);
+        if (NO_AUDIO_STREAM.equals(map)) {
+            Log.e(TAG, "FFprobe 未找到音频轨道，探测用时=" + elapsedMillis(t0) + "ms");
             return false;
         }
+        long probeMs = elapsedMillis(t0);
+        PipelineMetrics.get().record(PipelineMetrics.Stage.FFMPEG_PROBE, System.nanoTime() - t0);
 
-        // 第二步：使用确定的映射进行最终转换
+        // 第二步：使用选定的映射进行唯一一次转换
         // 注意：暂时不使用 loudnorm，因为实时录音也没有用，保持一致性
-        // 如果需要 loudnorm，可以取消下面的注释
         safeDelete(outFile);
-        String mapPart = (workingMap != null) ? " -map " + workingMap : "";
+        String mapPart = (map != null) ? " -map " + map : "";
 
         // 不使用滤镜的版本（与实时录音保持一致）
         String cmd = "-y -hide_banner -nostdin -loglevel info -i " + escapePath(inputPath)
@@ -96,22 +70,222 @@ public class AudioExtractor {
                 + " -acodec pcm_s16le -f wav " + escapePath(outFile.getAbsolutePath());
 
         Log.d(TAG, "FFmpeg 提取命令（无滤镜，与实时录音一致）: " + cmd);
+        long t1 = System.nanoTime();
         FFmpegSession s = FFmpegKit.execute(cmd);
+        long transcodeMs = elapsedMillis(t1);
+        PipelineMetrics.get().record(PipelineMetrics.Stage.FFMPEG_TRANSCODE, System.nanoTime() - t1);
 
         if (ReturnCode.isSuccess(s.getReturnCode()) && outFile.exists()
                 && WavUtils.verifyRiffWave(outFile) && outFile.length() > 100) {
-            Log.d(TAG, "FFmpeg 提取成功");
+            Log.i(TAG, "FFmpeg 提取成功 - 探测=" + probeMs + "ms 转码=" + transcodeMs + "ms 音轨="
+                    + (map != null ? map : "(默认)"));
             return true;
         }
 
-        Log.e(TAG, "FFmpeg 提取失败 rc=" + s.getReturnCode() + " 日志:\n" + tail(safeLogs(s)));
+        PipelineMetrics.get().increment(PipelineMetrics.Counter.FFMPEG_FAILURES);
+        Log.e(TAG, "FFmpeg 提取失败 rc=" + s.getReturnCode() + " 探测=" + probeMs + "ms 转码=" + transcodeMs
+                + "ms 日志:\n" + tail(safeLogs(s)));
         if (outFile.exists()) safeDelete(outFile);
         return false;
     }
 
-    // MediaCodec 解码为 PCM16 WAV（保留输出格式采样率与声道），仅负责解码不重采样
-    // 注意：此方法输出的 WAV 可能不是 16kHz 单声道，需要后续用 FFmpeg 转换
+    /** {@link #probeBestAudioMap} 的返回值：探测成功但文件中没有音频流 */
+    static final String NO_AUDIO_STREAM = "";
+
+    /** 参与打分的音轨元数据，来自 FFprobe 的流信息或 MediaExtractor 的轨道格式 */
+    static final class AudioTrack {
+        final long index;
+        final String language;
+        final String title;
+        final String handler;
+        final int channels;
+        final int sampleRate;
+        final int bitrate;
+
+        AudioTrack(long index, String language, String title, String handler,
+                   int channels, int sampleRate, int bitrate) {
+            this.index = index;
+            this.language = language;
+            this.title = title;
+            this.handler = handler;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.bitrate = bitrate;
+        }
+
+        /**
+         * 从 FFprobe 输出的单个流（streams 数组中的一项）读取音轨信息
+         *
+         * @return 不是音频流或缺少 index 时返回 null
+         */
+        static AudioTrack fromProbe(JSONObject stream) {
+            if (stream == null || !"audio".equals(stream.optString("codec_type"))
+                    || !stream.has("index")) {
+                return null;
+            }
+            JSONObject tags = stream.optJSONObject("tags");
+            return new AudioTrack(stream.optLong("index"),
+                    tags != null ? tags.optString("language", null) : null,
+                    tags != null ? tags.optString("title", null) : null,
+                    tags != null ? tags.optString("handler_name", null) : null,
+                    stream.optInt("channels", -1),
+                    parseIntOrDefault(stream.optString("sample_rate", null), -1),
+                    parseIntOrDefault(stream.optString("bit_rate", null), -1));
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + "(" + language + "," + title + "," + handler + ","
+                    + channels + "ch," + sampleRate + "Hz," + bitrate + "bps)";
+        }
+    }
+
+    /** 音轨得分：语言/标题/handler 关键字与声道、采样率、码率之和，越高越优先 */
+    static int scoreTrack(AudioTrack track) {
+        return scoreByKeywords(track.language, track.title, track.handler)
+                + scoreByFormat(track.channels, track.sampleRate, track.bitrate);
+    }
+
+    /**
+     * 选出得分最高的音轨，同分时取靠前的一条
+     *
+     * @return 没有候选时返回 null
+     */
+    static AudioTrack selectBestTrack(List<AudioTrack> tracks) {
+        AudioTrack best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (AudioTrack track : tracks) {
+            int score = scoreTrack(track);
+            Log.d(TAG, "音轨候选 " + track + " score=" + score);
+            if (best == null || score > bestScore) {
+                best = track;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 用 FFprobe 读取所有音频流的 language/title/handler 与格式信息，
+     * 按 {@link #scoreTrack} 打分，返回最佳流的 -map 参数（如 "0:2"）。
+     *
+     * @return 探测失败时返回 null（由 FFmpeg 自行选择默认音轨）；
+     *         探测成功但文件中没有音频流时返回 {@link #NO_AUDIO_STREAM}
+     */
+    private String probeBestAudioMap(String inputPath) {
+        MediaInformationSession session = FFprobeKit.getMediaInformation(inputPath);
+        MediaInformation info = session.getMediaInformation();
+        if (!ReturnCode.isSuccess(session.getReturnCode()) || info == null || info.getStreams() == null) {
+            Log.w(TAG, "FFprobe 探测失败，使用默认音轨 rc=" + session.getReturnCode());
+            return null;
+        }
+
+        List<AudioTrack> tracks = new ArrayList<>();
+        for (StreamInformation stream : info.getStreams()) {
+            AudioTrack track = AudioTrack.fromProbe(stream.getAllProperties());
+            if (track != null) tracks.add(track);
+        }
+        AudioTrack best = selectBestTrack(tracks);
+        if (best == null) {
+            return NO_AUDIO_STREAM;
+        }
+        if (tracks.size() > 1) {
+            Log.w(TAG, "检测到 " + tracks.size() + " 条音轨，选择 stream=" + best.index + " score=" + scoreTrack(best));
+        }
+        return "0:" + best.index;
+    }
+
+    private static int parseIntOrDefault(String s, int def) {
+        if (s == null) return def;
+        try { return Integer.parseInt(s.trim()); } catch (NumberFormatException e) { return def; }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    // MediaCodec 解码，输出缓冲区直接送入 ProperResamplerProcessor 下混并重采样，一遍写出 16kHz 单声道 PCM16 WAV
     private boolean decodeWithMediaCodecInternal(Context context, Uri videoUri, File outFile) {
+        return decodeWithMediaCodecInternal(context, videoUri, outFile, null);
+    }
+
+    /**
+     * @param tap 在写入 WAV 之前先收到每一块重采样输出，可为 null
+     */
+    private boolean decodeWithMediaCodecInternal(Context context, Uri videoUri, File outFile,
+                                                 ProperResamplerProcessor.PcmSink tap) {
+        try (RandomAccessFile raf = new RandomAccessFile(outFile, "rw")) {
+            FileChannel channel = raf.getChannel();
+            WavChannelSink wavSink = new WavChannelSink(channel, TARGET_SAMPLE_RATE);
+            ProperResamplerProcessor.PcmSink sink = tap == null ? wavSink : (samples, offset, count) -> {
+                tap.write(samples, offset, count);
+                wavSink.write(samples, offset, count);
+            };
+            if (!decodeToSink(context, videoUri, sink, null)) {
+                return false;
+            }
+            Log.d(TAG, "WAV 写入完成: " + wavSink.getFrames() + " 帧");
+            wavSink.finish();
+            try { channel.force(false); } catch (IOException ignore) {}
+            if (!WavUtils.verifyRiffWave(outFile)) {
+                Log.w(TAG, "写入WAV头后校验失败");
+            } else {
+                Log.d(TAG, "WAV头校验通过 head=" + getFileHeadHex(outFile, 12));
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "写入WAV失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 流式解码到模型输入窗口：MediaExtractor/MediaCodec 的输出经重采样直接写入 window，
+     * 不经过中间 WAV，也不再从磁盘读回。window 写满即完成 {@link PcmWindowSink#getWindowReady()}，
+     * 检测可以在解码其余部分的同时开始。在新线程中执行，本方法立即返回。
+     *
+     * @param window        接收 16kHz 单声道 PCM 的窗口
+     * @param wavSideOutput 同时写出的完整 WAV（用于播放、音频信息等）；为 null 时不写文件，窗口写满后即停止解码
+     * @return 解码线程结束时完成：true 表示解码成功（有 WAV 副输出时已写好头），false 表示失败
+     */
+    public CompletableFuture<Boolean> decodeToWindow(Context context, Uri uri, PcmWindowSink window,
+                                                     File wavSideOutput) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        new Thread(() -> {
+            long t0 = System.nanoTime();
+            boolean ok = false;
+            try {
+                if (wavSideOutput != null) {
+                    ok = decodeWithMediaCodecInternal(context, uri, wavSideOutput, window);
+                } else {
+                    ok = decodeToSink(context, uri, window, window::isWindowFull);
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "流式解码失败: " + e.getMessage(), e);
+                ok = false;
+            } finally {
+                // 无论成功与否都要结束窗口并完成 future，否则等待窗口或解码结果的一方会一直等下去
+                if (!ok && wavSideOutput != null) safeDelete(wavSideOutput);
+                window.finish();
+                PipelineMetrics.get().record(PipelineMetrics.Stage.MEDIACODEC_DECODE, System.nanoTime() - t0);
+                Log.i(TAG, "流式解码结束 成功=" + ok + " 帧数=" + window.getTotalFrames()
+                        + " WAV=" + (wavSideOutput != null) + " 用时=" + elapsedMillis(t0) + "ms");
+                done.complete(ok);
+            }
+        }, "stream-decode").start();
+        return done;
+    }
+
+    /**
+     * 解码：选出最佳音轨，由 {@link AsyncPcmDecoder} 以回调模式解码，输出在当前线程上送入
+     * {@link ProperResamplerProcessor} 下混并重采样为 16kHz 单声道，结果交给 sink。
+     *
+     * @param stop 每次送入输入前检查，返回 true 时不再解码剩余数据（已解码的部分仍会送达 sink），可为 null
+     * @return 打开或配置解码器失败时返回 false；提前停止也算成功
+     * @throws IOException sink 写入失败
+     */
+    private boolean decodeToSink(Context context, Uri videoUri, ProperResamplerProcessor.PcmSink sink,
+                                 BooleanSupplier stop) throws IOException {
         MediaExtractor extractor = new MediaExtractor();
         try {
             extractor.setDataSource(context, videoUri, null);
@@ -145,106 +319,23 @@ public class AudioExtractor {
         }
         MediaCodec codec;
         try { codec = MediaCodec.createDecoderByType(mime); } catch (IOException e) { extractor.release(); Log.e(TAG, "创建解码器失败: " + e.getMessage()); return false; }
-        int sampleRate = audioFormat.containsKey(MediaFormat.KEY_SAMPLE_RATE) ? audioFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 44100;
-        int channelCount = audioFormat.containsKey(MediaFormat.KEY_CHANNEL_COUNT) ? audioFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 2;
-        try { codec.configure(audioFormat, null, null, 0); codec.start(); } catch (Exception e) { codec.release(); extractor.release(); Log.e(TAG, "配置解码器失败: " + e.getMessage()); return false; }
-        try (RandomAccessFile raf = new RandomAccessFile(outFile, "rw")) {
-            raf.setLength(0);
-            raf.write(new byte[44]);
-            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
-            boolean inputEOS = false, outputEOS = false;
-            long totalPcmBytes = 0;
-            while (!outputEOS) {
-                if (!inputEOS) {
-                    int inIndex = codec.dequeueInputBuffer(10000);
-                    if (inIndex >= 0) {
-                        ByteBuffer inBuf = codec.getInputBuffer(inIndex);
-                        if (inBuf != null) {
-                            int size = extractor.readSampleData(inBuf, 0);
-                            if (size < 0) {
-                                codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                                inputEOS = true;
-                            } else {
-                                long pts = extractor.getSampleTime();
-                                codec.queueInputBuffer(inIndex, 0, size, pts, 0);
-                                extractor.advance();
-                            }
-                        }
-                    }
-                }
-                int outIndex = codec.dequeueOutputBuffer(info, 10000);
-                if (outIndex >= 0) {
-                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputEOS = true;
-                    if (info.size > 0) {
-                        ByteBuffer outBuf = codec.getOutputBuffer(outIndex);
-                        if (outBuf != null) {
-                            byte[] chunk = ensureLittleEndian(outBuf, info.size);
-                            raf.write(chunk);
-                            totalPcmBytes += chunk.length;
-                        }
-                    }
-                    codec.releaseOutputBuffer(outIndex, false);
-                } else if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                    MediaFormat newFmt = codec.getOutputFormat();
-                    if (newFmt.containsKey(MediaFormat.KEY_SAMPLE_RATE)) sampleRate = newFmt.getInteger(MediaFormat.KEY_SAMPLE_RATE);
-                    if (newFmt.containsKey(MediaFormat.KEY_CHANNEL_COUNT)) channelCount = newFmt.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
-                }
-            }
-            byte[] header = WavUtils.buildHeader((int) totalPcmBytes, sampleRate, channelCount, 16);
-            raf.seek(0); raf.write(header);
-            try { raf.getFD().sync(); } catch (IOException ignore) {}
-            if (!WavUtils.verifyRiffWave(outFile)) {
-                Log.w(TAG, "写入WAV头后校验失败");
-            } else {
-                Log.d(TAG, "WAV头校验通过 head=" + getFileHeadHex(outFile, 12));
-            }
-            return true;
-        } catch (IOException e) {
-            Log.e(TAG, "写入WAV失败: " + e.getMessage());
-            return false;
+        try {
+            // 解码器回调在专用线程上运行，当前线程只负责重采样与写入 sink，两者并行
+            AsyncPcmDecoder.ResamplingConsumer consumer = new AsyncPcmDecoder.ResamplingConsumer(TARGET_SAMPLE_RATE, sink);
+            boolean ok = AsyncPcmDecoder.decode(extractor, codec, audioFormat, consumer, stop);
+            consumer.flush();
+            Log.d(TAG, "MediaCodec 解码" + (ok ? "完成" : "失败") + ": 源格式 "
+                    + audioFormat.getString(MediaFormat.KEY_MIME) + " -> " + TARGET_SAMPLE_RATE + "Hz 单声道"
+                    + (stop != null && stop.getAsBoolean() ? "（提前停止）" : ""));
+            return ok;
         } finally {
-            try { codec.stop(); } catch (Exception ignore) {}
-            try { codec.release(); } catch (Exception ignore) {}
             try { extractor.release(); } catch (Exception ignore) {}
         }
     }
 
-    private byte[] ensureLittleEndian(ByteBuffer buffer, int size) {
-        ByteBuffer data = buffer.duplicate();
-        data.limit(data.position() + size);
-        ShortBuffer sb = data.order(ByteOrder.nativeOrder()).asShortBuffer();
-        short[] shorts = new short[sb.remaining()];
-        sb.get(shorts);
-        ByteBuffer out = ByteBuffer.allocate(shorts.length * 2).order(ByteOrder.LITTLE_ENDIAN);
-        out.asShortBuffer().put(shorts);
-        return out.array();
-    }
-
     private String safeLogs(Session session) { try { return session.getAllLogsAsString(); } catch (Throwable t) { return ""; } }
     private String tail(String s) { if (s==null) return ""; return s.length()>4000? s.substring(s.length()-4000): s; }
 
-    private String getPathFromUri(Context context, Uri uri) {
-        if (uri == null) return null;
-        if ("file".equalsIgnoreCase(uri.getScheme())) return uri.getPath();
-        if ("content".equalsIgnoreCase(uri.getScheme())) {
-            File tempFile = null;
-            try {
-                tempFile = File.createTempFile("ffmpeg_input", ".tmp", context.getCacheDir());
-                tempFile.deleteOnExit();
-                try (InputStream in = context.getContentResolver().openInputStream(uri); OutputStream out = new FileOutputStream(tempFile)) {
-                    if (in == null) return null;
-                    byte[] buf = new byte[8192]; int r; while ((r = in.read(buf)) != -1) out.write(buf,0,r);
-                }
-                return tempFile.getAbsolutePath();
-            } catch (IOException e) {
-                Log.e(TAG, "复制 content URI 失败", e);
-                if (tempFile != null) tempFile.delete();
-                return null;
-            }
-        }
-        return null;
-    }
-
     private boolean copyFile(File src, File dst) {
         try (InputStream in = new FileInputStream(src); OutputStream out = new FileOutputStream(dst)) {
             byte[] buf = new byte[8192]; int r; while ((r=in.read(buf))!=-1) out.write(buf,0,r); out.flush(); return true;
@@ -265,8 +356,7 @@ public class AudioExtractor {
 
     // 依据 language/title/handler 关键字为多音轨打分并返回最佳轨道索引
     private int pickBestAudioTrackIndex(MediaExtractor extractor, List<Integer> audioTracks) {
-        int bestIndex = audioTracks.get(0);
-        int bestScore = Integer.MIN_VALUE;
+        List<AudioTrack> tracks = new ArrayList<>(audioTracks.size());
         for (int idx : audioTracks) {
             MediaFormat f = extractor.getTrackFormat(idx);
             String lang = getStringOrNull(f, MediaFormat.KEY_LANGUAGE);
@@ -278,12 +368,9 @@ public class AudioExtractor {
             int ch = f.containsKey(MediaFormat.KEY_CHANNEL_COUNT) ? f.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : -1;
             int sr = f.containsKey(MediaFormat.KEY_SAMPLE_RATE) ? f.getInteger(MediaFormat.KEY_SAMPLE_RATE) : -1;
             int br = f.containsKey(MediaFormat.KEY_BIT_RATE) ? f.getInteger(MediaFormat.KEY_BIT_RATE) : -1;
-
-            int score = scoreByKeywords(lang, title, handler) + scoreByFormat(ch, sr, br);
-            Log.d(TAG, "音轨候选 index=" + idx + " lang=" + lang + " title=" + title + " handler=" + handler + " ch=" + ch + " sr=" + sr + " br=" + br + " score=" + score);
-            if (score > bestScore) { bestScore = score; bestIndex = idx; }
+            tracks.add(new AudioTrack(idx, lang, title, handler, ch, sr, br));
         }
-        return bestIndex;
+        return (int) selectBestTrack(tracks).index;
     }
 
     // 多音轨概要日志
@@ -306,7 +393,7 @@ public class AudioExtractor {
         return sb.toString();
     }
 
-    private int scoreByKeywords(String lang, String title, String handler) {
+    private static int scoreByKeywords(String lang, String title, String handler) {
         int score = 0;
         String l = safeLower(lang);
         String t = safeLower(title);
@@ -322,7 +409,7 @@ public class AudioExtractor {
         return score;
     }
 
-    private int scoreByFormat(int ch, int sr, int br) {
+    private static int scoreByFormat(int ch, int sr, int br) {
         int score = 0;
         if (ch > 0 && ch <= 2) score += 10; else if (ch > 2) score -= 5;
         if (sr == 16000) score += 15; else if (sr == 44100 || sr == 48000) score += 8;
@@ -334,7 +421,7 @@ public class AudioExtractor {
         try { return f != null && f.containsKey(key) ? f.getString(key) : null; } catch (Throwable ignore) { return null; }
     }
 
-    private String safeLower(String s) { return s == null ? "" : s.toLowerCase(Locale.US); }
+    private static String safeLower(String s) { return s == null ? "" : s.toLowerCase(Locale.US); }
 
     /**
      * 将任意音频文件转换为 16kHz 单声道 16-bit PCM WAV 格式。
@@ -348,14 +435,16 @@ public class AudioExtractor {
     public void convertTo16kHzMono(Context context, Uri inputUri, File outputFile, AudioExtractionListener listener) {
         listener.onExtractionStarted();
 
-        String inputPath = getPathFromUri(context, inputUri);
-        if (inputPath == null) {
+        FFmpegInput input = FFmpegInput.open(context, inputUri);
+        if (input == null) {
             listener.onExtractionFailure("无法获取输入音频文件路径");
             return;
         }
+        String inputPath = input.getPath();
 
         File parent = outputFile.getParentFile();
         if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            input.close();
             listener.onExtractionFailure("无法创建输出目录: " + parent.getAbsolutePath());
             return;
         }
@@ -369,6 +458,7 @@ public class AudioExtractor {
             Log.d(TAG, "开始音频格式转换: " + inputPath + " -> 16kHz 单声道 WAV");
 
             boolean success = convertWithFFmpeg(inputPath, outputFile);
+            input.close();
             long dt = System.currentTimeMillis() - t0;
 
             if (success) {
@@ -399,7 +489,9 @@ public class AudioExtractor {
                 + " -acodec pcm_s16le -f wav " + escapePath(outputFile.getAbsolutePath());
 
         Log.d(TAG, "FFmpeg 音频转换命令: " + cmd);
+        long t0 = System.nanoTime();
         FFmpegSession session = FFmpegKit.execute(cmd);
+        PipelineMetrics.get().record(PipelineMetrics.Stage.FFMPEG_TRANSCODE, System.nanoTime() - t0);
 
         if (ReturnCode.isSuccess(session.getReturnCode()) && outputFile.exists()
                 && WavUtils.verifyRiffWave(outputFile) && outputFile.length() > 100) {
@@ -412,6 +504,7 @@ public class AudioExtractor {
             return true;
         }
 
+        PipelineMetrics.get().increment(PipelineMetrics.Counter.FFMPEG_FAILURES);
         Log.e(TAG, "FFmpeg 音频转换失败 rc=" + session.getReturnCode()
                 + " 日志:\n" + tail(safeLogs(session)));
         if (outputFile.exists()) safeDelete(outputFile);
@@ -445,13 +538,15 @@ public class AudioExtractor {
 
     public void extractAudio(Context context, Uri videoUri, File extractedAudioFile, AudioExtractionListener listener) {
         listener.onExtractionStarted();
-        String inputFilePath = getPathFromUri(context, videoUri);
-        if (inputFilePath == null) {
+        FFmpegInput input = FFmpegInput.open(context, videoUri);
+        if (input == null) {
             listener.onExtractionFailure("无法获取输入视频文件路径");
             return;
         }
+        String inputFilePath = input.getPath();
         File parent = extractedAudioFile.getParentFile();
         if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            input.close();
             listener.onExtractionFailure("无法创建输出目录: " + parent.getAbsolutePath());
             return;
         }
@@ -463,6 +558,8 @@ public class AudioExtractor {
             long t0 = System.currentTimeMillis();
             Log.d(TAG, "开始 FFmpeg 音频抽取（重采样到 16kHz 单声道）");
             boolean ffOk = extractWithFFmpeg(inputFilePath, extractedAudioFile);
+            // MediaCodec 回退路径直接读取 Uri，不再需要 FFmpeg 输入
+            input.close();
             long dt = System.currentTimeMillis() - t0;
             if (ffOk) {
                 Log.d(TAG, "FFmpeg 抽取成功, 用时=" + dt + "ms 大小=" + extractedAudioFile.length() + " 头=" + getFileHeadHex(extractedAudioFile,12));
@@ -471,22 +568,17 @@ public class AudioExtractor {
                 listener.onExtractionSuccess(extractedAudioFile);
             } else {
                 Log.w(TAG, "FFmpeg 抽取失败, 回退 MediaCodec 解码路径");
-                // MediaCodec 解码得到的可能不是 16kHz，需要再用 FFmpeg 转换
-                File tempWav = new File(extractedAudioFile.getParent(), "temp_mediacodec_" + System.currentTimeMillis() + ".wav");
-                boolean decodeOk = decodeWithMediaCodecInternal(context, videoUri, tempWav);
-                if (decodeOk && tempWav.exists()) {
-                    // 用 FFmpeg 转换为 16kHz 单声道
-                    Log.d(TAG, "MediaCodec 解码成功，开始 FFmpeg 重采样到 16kHz 单声道");
-                    boolean convertOk = convertWithFFmpeg(tempWav.getAbsolutePath(), extractedAudioFile);
-                    safeDelete(tempWav);
-                    if (convertOk) {
-                        logWavInfo(extractedAudioFile);
-                        listener.onExtractionSuccess(extractedAudioFile);
-                    } else {
-                        listener.onExtractionFailure("音频重采样失败");
-                    }
+                // MediaCodec 解码的同时在进程内重采样到 16kHz 单声道，不再经过 FFmpeg 二次转换
+                PipelineMetrics.get().increment(PipelineMetrics.Counter.MEDIACODEC_FALLBACKS);
+                long t1 = System.nanoTime();
+                boolean decodeOk = decodeWithMediaCodecInternal(context, videoUri, extractedAudioFile);
+                PipelineMetrics.get().record(PipelineMetrics.Stage.MEDIACODEC_DECODE, System.nanoTime() - t1);
+                Log.i(TAG, "回退路径用时 - FFmpeg 尝试=" + dt + "ms MediaCodec 解码+重采样=" + elapsedMillis(t1) + "ms");
+                if (decodeOk && extractedAudioFile.exists()) {
+                    logWavInfo(extractedAudioFile);
+                    listener.onExtractionSuccess(extractedAudioFile);
                 } else {
-                    safeDelete(tempWav);
+                    safeDelete(extractedAudioFile);
                     listener.onExtractionFailure("MediaCodec 解码失败");
                 }
             }
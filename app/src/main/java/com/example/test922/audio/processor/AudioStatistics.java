@@ -0,0 +1,89 @@
+package com.example.test922.audio.processor;
+
+import java.util.Locale;
+
+/**
+ * 音频窗口的统计量（min/max/mean/RMS/静音比例 + 前若干个采样点）。
+ *
+ * 可变且可复用：在读取/归一化循环中逐点调用 {@link #accept(float)}，同一遍完成统计，
+ * 不产生任何分配。非线程安全，每个线程复用自己的实例。
+ */
+public final class AudioStatistics {
+
+    /** 判定为静音的幅度阈值 */
+    public static final float SILENCE_THRESHOLD = 0.001f;
+
+    /** 保留的前若干个采样点数 */
+    public static final int PREVIEW_LENGTH = 20;
+
+    private final float[] preview = new float[PREVIEW_LENGTH];
+    private int count;
+    private float min;
+    private float max;
+    private double sum;
+    private double sumSquare;
+    private int silentCount;
+
+    public AudioStatistics() {
+        reset();
+    }
+
+    public void reset() {
+        count = 0;
+        min = Float.MAX_VALUE;
+        max = -Float.MAX_VALUE;
+        sum = 0;
+        sumSquare = 0;
+        silentCount = 0;
+    }
+
+    public void accept(float v) {
+        if (count < PREVIEW_LENGTH) preview[count] = v;
+        count++;
+        if (v < min) min = v;
+        if (v > max) max = v;
+        sum += v;
+        sumSquare += v * v;
+        if (Math.abs(v) < SILENCE_THRESHOLD) silentCount++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getMin() {
+        return count > 0 ? min : 0f;
+    }
+
+    public float getMax() {
+        return count > 0 ? max : 0f;
+    }
+
+    public float getMean() {
+        return count > 0 ? (float) (sum / count) : 0f;
+    }
+
+    public float getRms() {
+        return count > 0 ? (float) Math.sqrt(sumSquare / count) : 0f;
+    }
+
+    /** 静音采样点（|v| < {@link #SILENCE_THRESHOLD}）占比，范围 [0, 1] */
+    public float getSilenceRatio() {
+        return count > 0 ? (float) silentCount / count : 0f;
+    }
+
+    /** 实际保留的前若干个采样点数，不超过 {@link #PREVIEW_LENGTH} */
+    public int getPreviewLength() {
+        return Math.min(count, PREVIEW_LENGTH);
+    }
+
+    public float getPreview(int index) {
+        return preview[index];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "count=%d min=%.4f max=%.4f mean=%.6f RMS=%.4f silence=%.1f%%",
+                count, getMin(), getMax(), getMean(), getRms(), getSilenceRatio() * 100);
+    }
+}
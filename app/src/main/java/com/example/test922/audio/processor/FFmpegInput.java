@@ -0,0 +1,161 @@
+package com.example.test922.audio.processor;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.example.test922.audio.metrics.PipelineMetrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 交给 FFmpeg 的输入路径。
+ *
+ * content:// Uri 优先通过 {@link ParcelFileDescriptor} 以 /proc/self/fd/N 的形式直接交给 FFmpeg，
+ * 不再把整个文件复制一份到缓存目录；只有描述符不是可 seek 的普通文件（管道、云端流等）时，
+ * 才回退为一次 {@link FileChannel#transferFrom} 复制。
+ *
+ * 不使用 FFmpegKit 的 saf: 参数：它在一次会话结束后即关闭描述符，而 {@link AudioExtractor}
+ * 在挑选音轨时会对同一输入多次执行 FFmpeg。/proc/self/fd/N 在 {@link #close()} 之前一直有效。
+ */
+public final class FFmpegInput implements Closeable {
+
+    private static final String TAG = "FFmpegInput";
+
+    private final String path;
+    private final ParcelFileDescriptor descriptor;
+    private final File copy;
+
+    private FFmpegInput(String path, ParcelFileDescriptor descriptor, File copy) {
+        this.path = path;
+        this.descriptor = descriptor;
+        this.copy = copy;
+    }
+
+    /**
+     * 打开 Uri 作为 FFmpeg 输入。
+     *
+     * @return 失败返回 null
+     */
+    public static FFmpegInput open(Context context, Uri uri) {
+        if (uri == null) return null;
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            return new FFmpegInput(uri.getPath(), null, null);
+        }
+        if (!"content".equalsIgnoreCase(uri.getScheme())) {
+            Log.e(TAG, "不支持的 Uri: " + uri);
+            return null;
+        }
+
+        ParcelFileDescriptor pfd = null;
+        try {
+            pfd = context.getContentResolver().openFileDescriptor(uri, "r");
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "openFileDescriptor 失败，回退为复制: " + uri, e);
+        }
+        if (pfd != null) {
+            FFmpegInput input = fromDescriptor(pfd, context.getCacheDir(), true);
+            if (input != null) return input;
+        }
+
+        // 没有可用的描述符：从输入流复制
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) {
+                Log.e(TAG, "无法打开输入流: " + uri);
+                return null;
+            }
+            return copyToCache(Channels.newChannel(in), context.getCacheDir());
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "复制 content URI 失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 由已打开的描述符构造输入。成功时描述符归返回的对象所有，失败时已关闭。
+     *
+     * @param allowFdPath 为 false 时总是复制（用于测试回退路径）
+     */
+    static FFmpegInput fromDescriptor(ParcelFileDescriptor pfd, File cacheDir, boolean allowFdPath) {
+        if (allowFdPath && pfd.getStatSize() >= 0) {
+            // getStatSize() 仅对普通文件返回长度，此时 FFmpeg 可以自行 open/seek
+            File fdPath = new File("/proc/self/fd/" + pfd.getFd());
+            if (fdPath.canRead()) {
+                Log.d(TAG, "直接读取描述符: " + fdPath + " 大小=" + pfd.getStatSize());
+                PipelineMetrics.get().increment(PipelineMetrics.Counter.SAF_DIRECT);
+                return new FFmpegInput(fdPath.getPath(), pfd, null);
+            }
+        }
+
+        try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+            return copyToCache(in.getChannel(), cacheDir);
+        } catch (IOException e) {
+            Log.e(TAG, "复制描述符失败", e);
+            return null;
+        } finally {
+            closeQuietly(pfd);
+        }
+    }
+
+    /**
+     * 把源通道复制到缓存目录的临时文件（内核态复制，不经过 Java 堆上的缓冲区）。
+     */
+    private static FFmpegInput copyToCache(ReadableByteChannel source, File cacheDir) throws IOException {
+        long t0 = System.nanoTime();
+        File tempFile = File.createTempFile("ffmpeg_input", ".tmp", cacheDir);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            FileChannel target = out.getChannel();
+            long position = 0;
+            long n;
+            // 对管道一次 transferFrom 可能只返回部分数据，读到 0 表示结束
+            while ((n = target.transferFrom(source, position, 1 << 20)) > 0) {
+                position += n;
+            }
+            Log.d(TAG, "已复制到缓存: " + tempFile.getName() + " 大小=" + position);
+            PipelineMetrics.get().record(PipelineMetrics.Stage.SAF_COPY, System.nanoTime() - t0);
+            PipelineMetrics.get().increment(PipelineMetrics.Counter.SAF_COPIED);
+            return new FFmpegInput(tempFile.getAbsolutePath(), null, tempFile);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw e;
+        }
+    }
+
+    /** 传给 FFmpeg -i 的路径 */
+    public String getPath() {
+        return path;
+    }
+
+    /** 是否回退为复制到缓存 */
+    public boolean isCopy() {
+        return copy != null;
+    }
+
+    /** 关闭描述符并删除复制出的临时文件 */
+    @Override
+    public void close() {
+        closeQuietly(descriptor);
+        if (copy != null && copy.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            copy.delete();
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor pfd) {
+        if (pfd == null) return;
+        try {
+            pfd.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
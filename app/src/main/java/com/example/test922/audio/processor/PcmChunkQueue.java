@@ -0,0 +1,162 @@
+package com.example.test922.audio.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解码线程与写线程之间的有界 PCM 队列。
+ *
+ * 解码线程（MediaCodec 回调）把输出缓冲区复制进池化的块后立即归还给解码器，写线程取出后交给
+ * {@link Consumer}（重采样、写盘），两边并行。块的总数固定为容量，池中没有空闲块时解码线程阻塞，
+ * 写盘跟不上时自然对解码形成背压，内存占用有上限；两边都只在队列上阻塞等待，不轮询。
+ *
+ * 单生产者、单消费者。
+ */
+public final class PcmChunkQueue {
+
+    /** 写线程上接收解码输出 */
+    public interface Consumer {
+        /** 第一块数据之前、以及输出格式变化时调用 */
+        void onFormat(int sampleRate, int channels) throws IOException;
+
+        /** 交错 16-bit PCM；返回后 samples 会被复用 */
+        void onPcm(short[] samples, int count) throws IOException;
+    }
+
+    private static final class Chunk {
+        short[] samples;
+        int count;
+        int sampleRate;
+        int channels;
+        /** 结束标记：error 为 null 表示正常结束 */
+        boolean end;
+        String error;
+
+        Chunk(int capacity) {
+            samples = new short[capacity];
+        }
+    }
+
+    private final BlockingQueue<Chunk> mFree;
+    private final BlockingQueue<Chunk> mReady = new LinkedBlockingQueue<>();
+    private volatile boolean mClosed;
+    private final AtomicLong mProducerWaits = new AtomicLong();
+    private String mError;
+
+    /**
+     * @param capacity     块数，即最多缓存的解码输出缓冲区个数
+     * @param chunkSamples 每块的初始容量（采样点）；遇到更大的输出缓冲区时该块会扩容
+     */
+    public PcmChunkQueue(int capacity, int chunkSamples) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity 必须为正: " + capacity);
+        if (chunkSamples <= 0) throw new IllegalArgumentException("chunkSamples 必须为正: " + chunkSamples);
+        mFree = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mFree.add(new Chunk(chunkSamples));
+        }
+    }
+
+    /**
+     * 解码线程调用：把 pcm 剩余部分中的交错 16-bit 采样（本机字节序，与 MediaCodec 输出一致）
+     * 逐个读入池化的块后入队，并把 pcm 的 position 移到 limit。不创建 ShortBuffer 视图。
+     * 没有空闲块时阻塞，直到写线程归还或队列被关闭。
+     *
+     * @return 队列已关闭（写线程失败）时返回 false，解码应尽快结束
+     */
+    public boolean put(ByteBuffer pcm, int sampleRate, int channels) throws InterruptedException {
+        if (mClosed) return false;
+        Chunk chunk = mFree.poll();
+        if (chunk == null) {
+            mProducerWaits.incrementAndGet();
+            chunk = mFree.take();
+        }
+        if (mClosed) return false;
+        pcm.order(ByteOrder.nativeOrder());
+        int position = pcm.position();
+        int count = pcm.remaining() / 2;
+        if (chunk.samples.length < count) chunk.samples = new short[count];
+        short[] samples = chunk.samples;
+        for (int i = 0; i < count; i++) {
+            samples[i] = pcm.getShort(position + 2 * i);
+        }
+        pcm.position(pcm.limit());
+        chunk.count = count;
+        chunk.sampleRate = sampleRate;
+        chunk.channels = channels;
+        mReady.add(chunk);
+        return true;
+    }
+
+    /** 解码线程调用：输出结束 */
+    public void finish() {
+        end(null);
+    }
+
+    /** 解码线程调用：解码出错，写线程的 {@link #drainTo} 返回 false */
+    public void fail(String message) {
+        end(message != null ? message : "解码失败");
+    }
+
+    private void end(String error) {
+        Chunk marker = new Chunk(0);
+        marker.end = true;
+        marker.error = error;
+        mReady.add(marker);
+    }
+
+    /**
+     * 写线程调用：依次把块交给 consumer，直到结束标记。
+     * consumer 抛出异常时关闭队列（解码线程的 {@link #put} 随即返回 false）后重新抛出。
+     *
+     * @return 正常结束返回 true；解码线程报告失败返回 false，原因见 {@link #getError()}
+     */
+    public boolean drainTo(Consumer consumer) throws IOException, InterruptedException {
+        int sampleRate = -1;
+        int channels = -1;
+        try {
+            while (true) {
+                Chunk chunk = mReady.take();
+                if (chunk.end) {
+                    mError = chunk.error;
+                    return chunk.error == null;
+                }
+                if (chunk.sampleRate != sampleRate || chunk.channels != channels) {
+                    sampleRate = chunk.sampleRate;
+                    channels = chunk.channels;
+                    consumer.onFormat(sampleRate, channels);
+                }
+                consumer.onPcm(chunk.samples, chunk.count);
+                mFree.add(chunk);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** 写线程放弃：解码线程不再阻塞，后续 {@link #put} 返回 false */
+    public void close() {
+        mClosed = true;
+        // 唤醒可能正在等待空闲块的解码线程；池满时说明它没有在等待
+        mFree.offer(new Chunk(0));
+    }
+
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    /** 解码线程因没有空闲块而等待的次数：越大说明写线程越慢 */
+    public long getProducerWaits() {
+        return mProducerWaits.get();
+    }
+
+    /** 解码线程报告的失败原因，{@link #drainTo} 返回后有效 */
+    public String getError() {
+        return mError;
+    }
+}
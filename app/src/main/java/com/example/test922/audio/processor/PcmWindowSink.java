@@ -0,0 +1,70 @@
+package com.example.test922.audio.processor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 把重采样后的 16kHz 单声道 PCM 直接归一化写入模型输入窗口，代替“先写 WAV、再从磁盘读回”的做法。
+ *
+ * 窗口写满（或解码提前结束）时完成 {@link #getWindowReady()}，检测可以在解码其余部分的同时开始；
+ * 窗口写满后的采样只计入总帧数，不再复制。窗口只由解码线程写入，Future 完成之后不再修改，
+ * 检测线程在 Future 完成后读取即可，无需额外同步。
+ */
+public final class PcmWindowSink implements ProperResamplerProcessor.PcmSink {
+
+    private final float[] mWindow;
+    private int mValidLength;
+    private volatile long mTotalFrames;
+    private final CompletableFuture<PcmWindowSink> mWindowReady = new CompletableFuture<>();
+
+    /**
+     * @param windowLength 窗口长度（采样点），通常为模型输入长度
+     */
+    public PcmWindowSink(int windowLength) {
+        if (windowLength <= 0) throw new IllegalArgumentException("windowLength 必须为正: " + windowLength);
+        mWindow = new float[windowLength];
+    }
+
+    @Override
+    public void write(short[] samples, int offset, int count) {
+        int copy = Math.min(count, mWindow.length - mValidLength);
+        for (int i = 0; i < copy; i++) {
+            mWindow[mValidLength + i] = samples[offset + i] / 32768.0f;
+        }
+        mValidLength += copy;
+        mTotalFrames += count;
+        if (copy > 0 && mValidLength == mWindow.length) {
+            mWindowReady.complete(this);
+        }
+    }
+
+    /**
+     * 解码结束（成功、失败或提前停止）时调用：窗口未写满时以已有的采样完成 {@link #getWindowReady()}。
+     * 可重复调用。
+     */
+    public void finish() {
+        mWindowReady.complete(this);
+    }
+
+    public boolean isWindowFull() {
+        return mValidLength == mWindow.length;
+    }
+
+    /** 窗口写满或解码结束时完成；{@link #getValidLength()} 为 0 表示没有解码出任何采样 */
+    public CompletableFuture<PcmWindowSink> getWindowReady() {
+        return mWindowReady;
+    }
+
+    /** 窗口缓冲区，前 {@link #getValidLength()} 个采样有效 */
+    public float[] getWindow() {
+        return mWindow;
+    }
+
+    public int getValidLength() {
+        return mValidLength;
+    }
+
+    /** 到目前为止解码出的总帧数（包括窗口之后未复制的部分） */
+    public long getTotalFrames() {
+        return mTotalFrames;
+    }
+}
@@ -1,6 +1,285 @@
 package com.example.test922.audio.processor;
 
-// 已弃用：原类依赖 Tarsos。保留同名空壳以避免潜在引用，但不再包含任何第三方依赖。
+import java.io.IOException;
+import java.nio.ShortBuffer;
+
+/**
+ * 纯 Java 的流式重采样与下混（多相 + Kaiser 窗 sinc 低通）。
+ *
+ * 输入为任意采样率、任意声道数的交错 16-bit PCM（例如 MediaCodec 的输出缓冲区），
+ * 各声道取平均下混为单声道后按 L/M 有理比重采样，结果以 16-bit PCM 分块写入 {@link PcmSink}。
+ * 只保留滤波器所需的少量历史采样，内存占用与输入长度无关；输入与输出采样率相同时只做下混。
+ *
+ * 非线程安全，一个实例对应一路解码流。
+ */
 public final class ProperResamplerProcessor {
-    private ProperResamplerProcessor() {}
+
+    /** 重采样输出 */
+    public interface PcmSink {
+        void write(short[] samples, int offset, int count) throws IOException;
+    }
+
+    /** 低通截止频率相对于目标 Nyquist 的比例，留出过渡带 */
+    private static final double ROLLOFF = 0.95;
+
+    /** 每侧的 sinc 过零点数，决定过渡带宽度与计算量 */
+    private static final int ZERO_CROSSINGS = 16;
+
+    /** Kaiser 窗参数，阻带衰减约 90dB */
+    private static final double KAISER_BETA = 9.0;
+
+    /** 输出缓冲区大小（采样点），攒满后写入 sink */
+    private static final int OUTPUT_CHUNK = 4096;
+
+    private final int inputChannels;
+    private final int outputSampleRate;
+    private final PcmSink sink;
+
+    /** 插值倍数 L 与抽取倍数 M（已约分） */
+    private final int upFactor;
+    private final int downFactor;
+
+    /** 每个相位的单侧抽头数；总抽头数为 2 * halfTaps */
+    private final int halfTaps;
+
+    /** 多相滤波器表：phase * (2 * halfTaps) + k */
+    private final float[] phaseTable;
+
+    /** 下混后的输入历史；history[0] 对应输入下标 historyStart */
+    private float[] history;
+    private int historyLength;
+    private long historyStart;
+
+    /** 下一个输出对应的输入位置：center + phase / L */
+    private long center;
+    private int phase;
+
+    private final short[] output = new short[OUTPUT_CHUNK];
+    /** 没有底层数组的 ShortBuffer 输入先复制到这里，首次使用时分配 */
+    private short[] scratch;
+    private int outputLength;
+    private long outputFrames;
+    private boolean flushed;
+
+    public ProperResamplerProcessor(int inputSampleRate, int inputChannels, int outputSampleRate, PcmSink sink) {
+        if (inputSampleRate <= 0 || inputChannels <= 0 || outputSampleRate <= 0) {
+            throw new IllegalArgumentException("无效的采样格式: " + inputSampleRate + "Hz " + inputChannels + "ch -> "
+                    + outputSampleRate + "Hz");
+        }
+        this.inputChannels = inputChannels;
+        this.outputSampleRate = outputSampleRate;
+        this.sink = sink;
+
+        int g = gcd(inputSampleRate, outputSampleRate);
+        this.upFactor = outputSampleRate / g;
+        this.downFactor = inputSampleRate / g;
+
+        if (upFactor == downFactor) {
+            halfTaps = 0;
+            phaseTable = null;
+            history = new float[0];
+        } else {
+            // 降采样时截止频率随目标采样率降低，滤波器在输入采样点上相应变宽
+            double cutoff = Math.min(1.0, (double) upFactor / downFactor) * ROLLOFF;
+            halfTaps = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+            phaseTable = buildPhaseTable(upFactor, halfTaps, cutoff);
+            // 输入开始之前视为静音：预置 halfTaps - 1 个零，使第 0 个输出对齐输入时刻 0
+            history = new float[Math.max(OUTPUT_CHUNK, 4 * halfTaps)];
+            historyLength = halfTaps - 1;
+            historyStart = -(halfTaps - 1);
+        }
+    }
+
+    /**
+     * 计算各相位的抽头。相位 p 的第 k 个抽头作用于输入 center - halfTaps + 1 + k，
+     * 与目标时刻 center + p / L 的距离为 d = k - halfTaps + 1 - p / L。
+     * 每个相位单独归一化，保证直流增益为 1。
+     */
+    private static float[] buildPhaseTable(int phases, int halfTaps, double cutoff) {
+        int taps = 2 * halfTaps;
+        float[] table = new float[phases * taps];
+        double i0Beta = besselI0(KAISER_BETA);
+        for (int p = 0; p < phases; p++) {
+            double sum = 0;
+            double[] row = new double[taps];
+            for (int k = 0; k < taps; k++) {
+                double d = k - halfTaps + 1 - (double) p / phases;
+                double x = d / halfTaps;
+                if (Math.abs(x) >= 1.0) continue;
+                double window = besselI0(KAISER_BETA * Math.sqrt(1 - x * x)) / i0Beta;
+                row[k] = cutoff * sinc(cutoff * d) * window;
+                sum += row[k];
+            }
+            for (int k = 0; k < taps; k++) {
+                table[p * taps + k] = (float) (row[k] / sum);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 处理一段交错 PCM，消耗 input 的全部剩余数据（position 前移）。
+     * 长度不是声道数整数倍时，多出的采样点被丢弃。
+     * 与数组版本共用同一套下混：有底层数组时直接读数组，否则分块批量复制到暂存数组后处理。
+     */
+    public void process(ShortBuffer input) throws IOException {
+        if (input.hasArray()) {
+            process(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        } else {
+            if (scratch == null) scratch = new short[Math.max(1, OUTPUT_CHUNK / inputChannels) * inputChannels];
+            while (input.remaining() >= inputChannels) {
+                int length = Math.min(input.remaining(), scratch.length) / inputChannels * inputChannels;
+                input.get(scratch, 0, length);
+                process(scratch, 0, length);
+            }
+        }
+        input.position(input.limit());
+    }
+
+    /** 处理 interleaved[offset, offset + length) 中的交错 PCM；直接读数组，不创建缓冲区视图 */
+    public void process(short[] interleaved, int offset, int length) throws IOException {
+        int frames = length / inputChannels;
+        ensureHistoryCapacity(frames);
+        int pos = offset;
+        for (int f = 0; f < frames; f++) {
+            history[historyLength++] = readFrame(interleaved, pos);
+            pos += inputChannels;
+        }
+        drain(false);
+    }
+
+    /**
+     * 输入结束：用静音补齐滤波器尾部，输出剩余采样并写入 sink。之后不应再调用 process。
+     */
+    public void flush() throws IOException {
+        if (flushed) return;
+        flushed = true;
+        if (phaseTable != null) {
+            ensureHistoryCapacity(halfTaps);
+            for (int i = 0; i < halfTaps; i++) {
+                history[historyLength++] = 0f;
+            }
+        }
+        drain(true);
+        if (outputLength > 0) {
+            sink.write(output, 0, outputLength);
+            outputFrames += outputLength;
+            outputLength = 0;
+        }
+    }
+
+    /** 已输出的采样点数（单声道） */
+    public long getOutputFrames() {
+        return outputFrames + outputLength;
+    }
+
+    public int getOutputSampleRate() {
+        return outputSampleRate;
+    }
+
+    private float readFrame(short[] input, int index) {
+        if (inputChannels == 1) {
+            return input[index] / 32768.0f;
+        }
+        int sum = 0;
+        for (int ch = 0; ch < inputChannels; ch++) {
+            sum += input[index + ch];
+        }
+        return sum / (32768.0f * inputChannels);
+    }
+
+    /**
+     * 生成所有输入已经足够的输出采样，并丢弃之后不再需要的历史。
+     *
+     * @param end 输入已结束：只输出目标时刻不超过最后一个真实输入的采样
+     */
+    private void drain(boolean end) throws IOException {
+        if (phaseTable == null) {
+            // 采样率相同：直接输出下混结果
+            for (int i = 0; i < historyLength; i++) {
+                emit(history[i]);
+            }
+            historyStart += historyLength;
+            historyLength = 0;
+            return;
+        }
+
+        int taps = 2 * halfTaps;
+        long available = historyStart + historyLength;
+        // 结束时只输出目标时刻早于最后一个真实输入的采样（以 1/L 个输入采样为单位），
+        // 输出总数为 ceil(输入帧数 * L / M)
+        long endTime = end ? (available - halfTaps) * upFactor : Long.MAX_VALUE;
+        while (center + halfTaps < available && center * upFactor + phase < endTime) {
+            int first = (int) (center - halfTaps + 1 - historyStart);
+            int row = phase * taps;
+            float acc = 0f;
+            for (int k = 0; k < taps; k++) {
+                acc += phaseTable[row + k] * history[first + k];
+            }
+            emit(acc);
+
+            phase += downFactor;
+            while (phase >= upFactor) {
+                phase -= upFactor;
+                center++;
+            }
+        }
+
+        // 只保留下一个输出需要的历史
+        long keepFrom = center - halfTaps + 1;
+        int drop = (int) Math.min(historyLength, Math.max(0, keepFrom - historyStart));
+        if (drop > 0) {
+            System.arraycopy(history, drop, history, 0, historyLength - drop);
+            historyLength -= drop;
+            historyStart += drop;
+        }
+    }
+
+    private void emit(float v) throws IOException {
+        int s = Math.round(v * 32768f);
+        if (s > Short.MAX_VALUE) s = Short.MAX_VALUE;
+        else if (s < Short.MIN_VALUE) s = Short.MIN_VALUE;
+        output[outputLength++] = (short) s;
+        if (outputLength == OUTPUT_CHUNK) {
+            sink.write(output, 0, outputLength);
+            outputFrames += outputLength;
+            outputLength = 0;
+        }
+    }
+
+    private void ensureHistoryCapacity(int extra) {
+        if (historyLength + extra > history.length) {
+            float[] grown = new float[Math.max(historyLength + extra, history.length * 2)];
+            System.arraycopy(history, 0, grown, 0, historyLength);
+            history = grown;
+        }
+    }
+
+    private static double sinc(double x) {
+        if (Math.abs(x) < 1e-12) return 1.0;
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    /** 第一类零阶修正 Bessel 函数（级数展开） */
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) break;
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
 }
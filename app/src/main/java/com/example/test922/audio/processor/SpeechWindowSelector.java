@@ -0,0 +1,143 @@
+package com.example.test922.audio.processor;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 在整段音频中挑选语音最密集的若干个模型窗口，代替固定截取开头的做法
+ * （片头音乐、开场静音时开头并不是要检测的语音）。
+ *
+ * 直接在 {@link WavUtils.MappedWav} 的映射数据上流式扫描，不生成 float[] 副本：
+ * 按 20ms 帧计算能量与过零率，能量达到阈值且过零率不高（排除宽带噪声）的帧计为语音帧，
+ * 按步长分块累计语音采样数，再以块为粒度滑动窗口取得分最高且互不重叠的前 K 个窗口。
+ * 扫描只持有每个步长一个 int 的计数，内存与音频长度成正比但很小（1 小时约 28KB）。
+ *
+ * 无状态，可被多个线程共享。
+ */
+public final class SpeechWindowSelector {
+
+    /** VAD 帧长：20ms @ 16kHz */
+    public static final int FRAME_LENGTH = 320;
+
+    private final int mTopK;
+    private final int mHopLength;
+    private final double mFrameEnergyThreshold;
+    private final float mMaxZeroCrossingRate;
+
+    /**
+     * @param topK                 最多选出的窗口数
+     * @param hopLength            候选窗口起点的间隔（采样点），必须是 {@link #FRAME_LENGTH} 的整数倍
+     * @param vadRms               帧 RMS（归一化到 [-1, 1]）达到该值才可能是语音
+     * @param maxZeroCrossingRate  过零率（每个采样点）超过该值视为噪声而非语音
+     */
+    public SpeechWindowSelector(int topK, int hopLength, float vadRms, float maxZeroCrossingRate) {
+        if (topK <= 0) throw new IllegalArgumentException("topK 必须为正: " + topK);
+        if (hopLength <= 0 || hopLength % FRAME_LENGTH != 0) {
+            throw new IllegalArgumentException("hopLength 必须是 " + FRAME_LENGTH + " 的正整数倍: " + hopLength);
+        }
+        if (!(vadRms > 0f)) throw new IllegalArgumentException("vadRms 必须为正: " + vadRms);
+        if (!(maxZeroCrossingRate > 0f) || maxZeroCrossingRate > 1f) {
+            throw new IllegalArgumentException("maxZeroCrossingRate 必须在 (0, 1]: " + maxZeroCrossingRate);
+        }
+        mTopK = topK;
+        mHopLength = hopLength;
+        // 与整数平方和比较，扫描循环中不做除法
+        mFrameEnergyThreshold = (double) vadRms * vadRms * 32768.0 * 32768.0;
+        mMaxZeroCrossingRate = maxZeroCrossingRate;
+    }
+
+    /**
+     * 默认：最多 3 个窗口，起点间隔 0.5 秒，帧 RMS -40dBFS，过零率不超过 0.35（白噪声约 0.5）。
+     */
+    public static SpeechWindowSelector defaults() {
+        return new SpeechWindowSelector(3, 8000, 0.01f, 0.35f);
+    }
+
+    public int getTopK() {
+        return mTopK;
+    }
+
+    /**
+     * 选出语音最密集的窗口起点（帧）。音频不长于一个窗口、或没有检测到任何语音时返回 {0}，
+     * 与截取开头的行为一致。
+     *
+     * @param wav          已映射的 WAV
+     * @param windowLength 窗口长度（帧），即模型输入长度
+     * @param maxWindows   最多返回的窗口数，不超过构造时的 topK
+     * @return 窗口起点，按语音密度从高到低排列，互不重叠
+     */
+    public long[] select(WavUtils.MappedWav wav, int windowLength, int maxWindows) {
+        long frameCount = wav.getFrameCount();
+        int k = Math.min(mTopK, maxWindows);
+        if (frameCount <= windowLength || k <= 0) return new long[]{0};
+
+        int[] speech = scanSpeech(wav.getSamples(), wav.getChannels(), frameCount);
+        int windowBlocks = (windowLength + mHopLength - 1) / mHopLength;
+        // 只考虑完整落在音频内的窗口
+        int starts = (int) ((frameCount - windowLength) / mHopLength) + 1;
+
+        // 滑动求和得到每个起点的窗口得分
+        int[] scores = new int[starts];
+        int sum = 0;
+        for (int b = 0; b < Math.min(windowBlocks, speech.length); b++) {
+            sum += speech[b];
+        }
+        for (int s = 0; s < starts; s++) {
+            scores[s] = sum;
+            sum -= speech[s];
+            if (s + windowBlocks < speech.length) sum += speech[s + windowBlocks];
+        }
+
+        // 贪心选取得分最高、与已选窗口不重叠的起点；并列时取较早的
+        long[] selected = new long[k];
+        int count = 0;
+        while (count < k) {
+            int best = -1;
+            for (int s = 0; s < starts; s++) {
+                if (scores[s] > 0 && (best < 0 || scores[s] > scores[best])) best = s;
+            }
+            if (best < 0) break;
+            selected[count++] = (long) best * mHopLength;
+            int from = Math.max(0, best - windowBlocks + 1);
+            int to = Math.min(starts, best + windowBlocks);
+            Arrays.fill(scores, from, to, 0);
+        }
+        return count == 0 ? new long[]{0} : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 一遍扫描映射的采样，返回每个步长块内语音帧的采样点数。多声道取平均。
+     */
+    private int[] scanSpeech(ShortBuffer samples, int channels, long frameCount) {
+        int[] speech = new int[(int) ((frameCount + mHopLength - 1) / mHopLength)];
+        int framesPerHop = mHopLength / FRAME_LENGTH;
+        int vadFrame = 0;
+        int prev = 0;
+        for (long start = 0; start < frameCount; start += FRAME_LENGTH, vadFrame++) {
+            int length = (int) Math.min(FRAME_LENGTH, frameCount - start);
+            long energy = 0;
+            int crossings = 0;
+            int src = (int) (start * channels);
+            for (int i = 0; i < length; i++) {
+                int v;
+                if (channels == 1) {
+                    v = samples.get(src + i);
+                } else {
+                    int sampleSum = 0;
+                    for (int ch = 0; ch < channels; ch++) {
+                        sampleSum += samples.get(src++);
+                    }
+                    v = sampleSum / channels;
+                }
+                energy += (long) v * v;
+                if ((v >= 0) != (prev >= 0)) crossings++;
+                prev = v;
+            }
+            if (energy >= mFrameEnergyThreshold * length
+                    && crossings <= mMaxZeroCrossingRate * length) {
+                speech[vadFrame / framesPerHop] += length;
+            }
+        }
+        return speech;
+    }
+}
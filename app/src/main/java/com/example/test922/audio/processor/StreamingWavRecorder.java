@@ -0,0 +1,225 @@
+package com.example.test922.audio.processor;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 边录边写的 16-bit 单声道 WAV 录音器。
+ *
+ * 采集线程把 {@link PcmSource}（通常是 AudioRecord）读到的数据直接写入预分配的环形缓冲区，
+ * 写盘线程把缓冲区中的数据顺序追加到文件，停止时回填 WAV 头中的长度。
+ * 内存占用固定为环形缓冲区大小，与录音时长无关；写盘暂时落后时采集线程等待而不是丢数据。
+ *
+ * {@link #stop()} 返回的 future 在文件完整写入并关闭后完成，调用方无需再猜测等待时间。
+ * 录音期间可用 {@link #readLatest(float[], int)} 取最近的一段音频做实时检测。
+ */
+public final class StreamingWavRecorder {
+
+    private static final String TAG = "StreamingWavRecorder";
+
+    /** PCM 数据来源，语义与 AudioRecord#read(byte[], int, int) 一致：返回读到的字节数，负数表示错误 */
+    public interface PcmSource {
+        int read(byte[] buffer, int offset, int length);
+    }
+
+    private static final int HEADER_SIZE = 44;
+
+    private final File outputFile;
+    private final int sampleRate;
+    private final int readChunkBytes;
+    private final byte[] ring;
+
+    private final Object lock = new Object();
+    /** 采集线程累计写入环形缓冲区的字节数 */
+    private long captured;
+    /** 写盘线程累计写入文件的字节数 */
+    private long written;
+    private boolean stopRequested;
+    private boolean captureDone;
+
+    private final CompletableFuture<File> completion = new CompletableFuture<>();
+    private Thread captureThread;
+    private Thread writerThread;
+
+    /**
+     * @param outputFile     输出 WAV 文件
+     * @param sampleRate     采样率
+     * @param readChunkBytes 每次从 PcmSource 读取的最大字节数（通常为 AudioRecord 的最小缓冲区）
+     * @param ringBytes      环形缓冲区大小，至少为 readChunkBytes
+     */
+    public StreamingWavRecorder(File outputFile, int sampleRate, int readChunkBytes, int ringBytes) {
+        if (readChunkBytes <= 0 || ringBytes < readChunkBytes) {
+            throw new IllegalArgumentException("无效的缓冲区大小: chunk=" + readChunkBytes + " ring=" + ringBytes);
+        }
+        this.outputFile = outputFile;
+        this.sampleRate = sampleRate;
+        // 保持 16-bit 采样对齐
+        this.readChunkBytes = readChunkBytes & ~1;
+        this.ring = new byte[ringBytes & ~1];
+    }
+
+    /**
+     * 开始录音：创建输出文件并写入占位的 WAV 头，然后启动采集与写盘线程。
+     */
+    public void start(PcmSource source) throws IOException {
+        if (captureThread != null) {
+            throw new IllegalStateException("录音器只能启动一次");
+        }
+        RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(WavUtils.buildHeader(0, sampleRate, 1, 16));
+        } catch (IOException e) {
+            closeQuietly(raf);
+            throw e;
+        }
+        captureThread = new Thread(() -> runCapture(source), "wav-capture");
+        writerThread = new Thread(() -> runWriter(raf), "wav-writer");
+        writerThread.start();
+        captureThread.start();
+    }
+
+    /**
+     * 请求停止。调用方应同时停止 PcmSource（例如 AudioRecord#stop），使阻塞中的 read 返回。
+     *
+     * @return 文件写完并回填头部后完成；写盘失败时以异常完成
+     */
+    public CompletableFuture<File> stop() {
+        synchronized (lock) {
+            stopRequested = true;
+            lock.notifyAll();
+        }
+        return completion;
+    }
+
+    /** 录音完成的 future，与 {@link #stop()} 返回的相同 */
+    public CompletableFuture<File> getCompletion() {
+        return completion;
+    }
+
+    /** 已采集的 PCM 字节数 */
+    public long getCapturedBytes() {
+        synchronized (lock) {
+            return captured;
+        }
+    }
+
+    public int getRingBufferBytes() {
+        return ring.length;
+    }
+
+    /**
+     * 复制最近录到的至多 maxFrames 个采样，归一化到 [-1, 1] 写入 dst[0, n)，不影响写盘。
+     * 可用长度不超过环形缓冲区减去一次读取的大小（采集线程正在写入的区域）。
+     *
+     * @return 实际复制的采样数 n
+     */
+    public int readLatest(float[] dst, int maxFrames) {
+        int capacity = ring.length;
+        synchronized (lock) {
+            long end = captured & ~1L;
+            long available = Math.min(end, capacity - readChunkBytes) / 2;
+            int frames = (int) Math.min(Math.min(maxFrames, dst.length), available);
+            // 持锁期间 captured 不会前进，[end - 2 * frames, end) 不会被覆盖
+            long start = end - 2L * frames;
+            for (int i = 0; i < frames; i++) {
+                int pos = (int) ((start + 2L * i) % capacity);
+                dst[i] = (short) ((ring[pos] & 0xff) | (ring[pos + 1] << 8)) / 32768.0f;
+            }
+            return frames;
+        }
+    }
+
+    private void runCapture(PcmSource source) {
+        int capacity = ring.length;
+        try {
+            while (true) {
+                int offset;
+                int length;
+                synchronized (lock) {
+                    while (!stopRequested && captured - written == capacity) {
+                        // 写盘落后一整圈：等待写盘线程腾出空间
+                        lock.wait();
+                    }
+                    if (stopRequested) break;
+                    offset = (int) (captured % capacity);
+                    int free = (int) (capacity - (captured - written));
+                    length = Math.min(readChunkBytes, Math.min(free, capacity - offset));
+                }
+                // [offset, offset + length) 是空闲区域，写盘线程不会访问，读取时无需持锁
+                int n = source.read(ring, offset, length);
+                if (n < 0) {
+                    synchronized (lock) {
+                        // 停止请求之后 PcmSource 被关闭，read 返回错误码属于正常结束
+                        if (!stopRequested) Log.e(TAG, "读取录音数据失败: " + n);
+                    }
+                    break;
+                }
+                if (n > 0) {
+                    synchronized (lock) {
+                        captured += n;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                captureDone = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void runWriter(RandomAccessFile raf) {
+        int capacity = ring.length;
+        try {
+            while (true) {
+                int offset;
+                int length;
+                synchronized (lock) {
+                    while (captured == written && !captureDone) {
+                        lock.wait();
+                    }
+                    if (captured == written) break;
+                    offset = (int) (written % capacity);
+                    length = (int) Math.min(captured - written, capacity - offset);
+                }
+                raf.write(ring, offset, length);
+                synchronized (lock) {
+                    written += length;
+                    lock.notifyAll();
+                }
+            }
+            // 奇数字节（不完整的采样）不计入数据长度
+            long dataBytes = written & ~1L;
+            raf.setLength(HEADER_SIZE + dataBytes);
+            raf.seek(0);
+            raf.write(WavUtils.buildHeader((int) dataBytes, sampleRate, 1, 16));
+            raf.close();
+            Log.i(TAG, "录音保存成功: " + outputFile.getAbsolutePath() + " (" + dataBytes + " bytes)");
+            completion.complete(outputFile);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Log.e(TAG, "保存录音失败", e);
+            synchronized (lock) {
+                // 让采集线程尽快退出
+                stopRequested = true;
+                lock.notifyAll();
+            }
+            closeQuietly(raf);
+            completion.completeExceptionally(e);
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        try {
+            raf.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.test922.audio.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 把 16-bit PCM 以 WAV 格式顺序写入 {@link FileChannel}：先占位 44 字节的头，{@link #finish()} 时按实际长度补写。
+ *
+ * 采样经一个预先分配的小端直接缓冲区写出，稳态下不分配内存：本机为小端（ARM、x86）时
+ * {@link ShortBuffer#put(short[], int, int)} 是一次内存复制，大端时由同一个缓冲区完成字节交换。
+ * 非线程安全。
+ */
+public final class WavChannelSink implements ProperResamplerProcessor.PcmSink {
+
+    private static final int HEADER_SIZE = 44;
+
+    /** 暂存区大小（采样点），更长的写入分多次 */
+    private static final int SCRATCH_SAMPLES = 8192;
+
+    private final FileChannel mChannel;
+    private final int mSampleRate;
+    private final ByteBuffer mScratch =
+            ByteBuffer.allocateDirect(SCRATCH_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+    /** mScratch 的 short 视图，只创建一次 */
+    private final ShortBuffer mScratchShorts = mScratch.asShortBuffer();
+    private long mFrames;
+
+    /**
+     * 清空 channel 并写入占位头，之后的写入从数据区开始。
+     *
+     * @param sampleRate 单声道采样率
+     */
+    public WavChannelSink(FileChannel channel, int sampleRate) throws IOException {
+        mChannel = channel;
+        mSampleRate = sampleRate;
+        channel.truncate(0);
+        channel.position(0);
+        writeFully(ByteBuffer.allocate(HEADER_SIZE), -1);
+    }
+
+    @Override
+    public void write(short[] samples, int offset, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, SCRATCH_SAMPLES);
+            mScratchShorts.clear();
+            mScratchShorts.put(samples, offset + done, n);
+            mScratch.clear();
+            mScratch.limit(n * 2);
+            writeFully(mScratch, -1);
+            done += n;
+        }
+        mFrames += count;
+    }
+
+    /** 按已写入的帧数补写 WAV 头（不改变写入位置），可重复调用 */
+    public void finish() throws IOException {
+        writeFully(ByteBuffer.wrap(WavUtils.buildHeader((int) (mFrames * 2), mSampleRate, 1, 16)), 0);
+    }
+
+    public long getFrames() {
+        return mFrames;
+    }
+
+    /** @param position 小于 0 时在当前位置写入 */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                mChannel.write(buffer);
+            } else {
+                position += mChannel.write(buffer, position);
+            }
+        }
+    }
+}
@@ -2,10 +2,19 @@ package com.example.test922.audio.processor;
 
 import android.util.Log;
 
+import com.example.test922.audio.metrics.PipelineMetrics;
+
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -15,6 +24,12 @@ public final class WavUtils {
     private static final String TAG = "WavUtils";
     private WavUtils() {}
 
+    /** 按大端读出的 Chunk ID */
+    private static final int CHUNK_RIFF = 0x52494646;
+    private static final int CHUNK_WAVE = 0x57415645;
+    private static final int CHUNK_FMT = 0x666d7420;
+    private static final int CHUNK_DATA = 0x64617461;
+
     public static final class WavInfo {
         public boolean valid;
         public int sampleRate;
@@ -25,83 +40,220 @@ public final class WavUtils {
     }
 
     /**
-     * 读取 16-bit PCM WAV 文件，返回归一化后的 float 数组。
+     * 内存映射的 16-bit PCM WAV 数据块。
      *
-     * 功能极其纯粹：
-     * 1. 读取 16-bit PCM WAV 文件
-     * 2. 将 short 类型数据转换为 float
-     * 3. 执行归一化：floatVal = shortVal / 32768.0f
-     *
-     * 不做任何其他处理（不做预加重，不做切片）。
-     *
-     * @param filePath WAV 文件的绝对路径
-     * @return 归一化后的音频数据，范围 [-1.0, 1.0)；失败时返回 null
+     * data 块（由 {@link #parse(File)} 定位）以 little-endian {@link ShortBuffer} 视图暴露，
+     * 不经过任何中间拷贝；调用方通过 {@link #read(long, float[], int, int)} 把任意一段
+     * 采样按需转换到自己提供的 float 窗口中，无需把整个文件解码到堆上。
      */
-    public static float[] readWavFile(String filePath) {
-        if (filePath == null || filePath.isEmpty()) {
-            Log.e(TAG, "readWavFile: 文件路径为空");
-            return null;
+    public static final class MappedWav implements Closeable {
+        private final WavInfo info;
+        private final FileChannel channel;
+        private final ShortBuffer samples;
+        private final int channels;
+        private final long frameCount;
+
+        private MappedWav(WavInfo info, FileChannel channel, ShortBuffer samples) {
+            this.info = info;
+            this.channel = channel;
+            this.samples = samples;
+            this.channels = Math.max(1, info.channels);
+            this.frameCount = samples.capacity() / this.channels;
         }
 
-        File file = new File(filePath);
-        if (!file.exists() || !file.isFile()) {
-            Log.e(TAG, "readWavFile: 文件不存在: " + filePath);
-            return null;
+        public WavInfo getInfo() {
+            return info;
         }
 
-        // 解析 WAV 头
-        WavInfo info = parse(file);
-        if (!info.valid) {
-            Log.e(TAG, "readWavFile: WAV 头解析失败: " + filePath);
-            return null;
+        /** 声道数（至少为 1） */
+        public int getChannels() {
+            return channels;
         }
 
-        // 目前只支持 16-bit PCM
-        if (info.bitsPerSample != 16) {
-            Log.e(TAG, "readWavFile: 不支持的位深度: " + info.bitsPerSample + "，仅支持 16-bit");
-            return null;
+        /** 帧数（每帧包含 channels 个采样点） */
+        public long getFrameCount() {
+            return frameCount;
         }
 
-        int bytesPerSample = 2; // 16-bit = 2 bytes
-        int channels = Math.max(1, info.channels);
-        int frameSize = bytesPerSample * channels;
-        long totalFrames = info.dataSize / frameSize;
-
-        if (totalFrames <= 0 || totalFrames > Integer.MAX_VALUE) {
-            Log.e(TAG, "readWavFile: 无效的帧数: " + totalFrames);
-            return null;
+        /**
+         * @return data 块的只读 little-endian 视图（交织排列的原始 short 采样，零拷贝）
+         */
+        public ShortBuffer getSamples() {
+            return samples.asReadOnlyBuffer();
         }
 
-        float[] audioData = new float[(int) totalFrames];
-
-        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            raf.seek(info.dataOffset);
-
-            byte[] buffer = new byte[4096];
-            int audioIndex = 0;
+        /**
+         * 从 startFrame 开始读取最多 maxFrames 帧，归一化后写入调用方提供的窗口。
+         * 多声道取所有声道平均值，与 {@link #readWavFile(String)} 的行为一致。
+         *
+         * 只使用绝对位置读取，不修改共享 buffer 的状态。
+         *
+         * @param startFrame 起始帧
+         * @param dst        目标窗口
+         * @param dstOffset  写入 dst 的起始位置
+         * @param maxFrames  最多读取的帧数
+         * @return 实际写入的帧数；startFrame 超出范围时返回 0
+         */
+        public int read(long startFrame, float[] dst, int dstOffset, int maxFrames) {
+            if (startFrame < 0 || startFrame >= frameCount || maxFrames <= 0) return 0;
+            int frames = (int) Math.min(Math.min(maxFrames, dst.length - dstOffset), frameCount - startFrame);
+            int src = (int) (startFrame * channels);
+            if (channels == 1) {
+                for (int i = 0; i < frames; i++) {
+                    dst[dstOffset + i] = samples.get(src + i) / 32768.0f;
+                }
+            } else {
+                for (int i = 0; i < frames; i++) {
+                    float sampleSum = 0f;
+                    for (int ch = 0; ch < channels; ch++) {
+                        sampleSum += samples.get(src++) / 32768.0f;
+                    }
+                    dst[dstOffset + i] = sampleSum / channels;
+                }
+            }
+            return frames;
+        }
 
-            while (audioIndex < audioData.length) {
-                int bytesToRead = (int) Math.min(buffer.length, (long)(audioData.length - audioIndex) * frameSize);
-                int bytesRead = raf.read(buffer, 0, bytesToRead);
-                if (bytesRead <= 0) break;
+        /**
+         * 与 {@link #read(long, float[], int, int)} 相同，但直接写入（直接内存）FloatBuffer，
+         * 只使用绝对位置写入，不修改 dst 的 position/limit，也不分配任何对象。
+         *
+         * @param dstOffset 写入 dst 的起始下标
+         * @return 实际写入的帧数
+         */
+        public int read(long startFrame, FloatBuffer dst, int dstOffset, int maxFrames) {
+            return read(startFrame, dst, dstOffset, maxFrames, null);
+        }
 
-                // 处理读取的字节
-                for (int offset = 0; offset + frameSize <= bytesRead && audioIndex < audioData.length; offset += frameSize) {
-                    // 如果是多声道，取所有声道的平均值
+        /**
+         * 读取并在同一遍归一化循环中累加统计量。
+         *
+         * @param stats 统计累加器（调用方负责 reset）；为 null 时不做任何统计，与不带 stats 的重载开销相同
+         * @return 实际写入的帧数
+         */
+        public int read(long startFrame, FloatBuffer dst, int dstOffset, int maxFrames, AudioStatistics stats) {
+            if (startFrame < 0 || startFrame >= frameCount || maxFrames <= 0) return 0;
+            int frames = (int) Math.min(Math.min(maxFrames, dst.capacity() - dstOffset), frameCount - startFrame);
+            int src = (int) (startFrame * channels);
+            if (channels == 1) {
+                if (stats == null) {
+                    for (int i = 0; i < frames; i++) {
+                        dst.put(dstOffset + i, samples.get(src + i) / 32768.0f);
+                    }
+                } else {
+                    for (int i = 0; i < frames; i++) {
+                        float v = samples.get(src + i) / 32768.0f;
+                        dst.put(dstOffset + i, v);
+                        stats.accept(v);
+                    }
+                }
+            } else {
+                for (int i = 0; i < frames; i++) {
                     float sampleSum = 0f;
                     for (int ch = 0; ch < channels; ch++) {
-                        int sampleOffset = offset + ch * bytesPerSample;
-                        // 读取 16-bit little-endian 采样
-                        int lo = buffer[sampleOffset] & 0xFF;
-                        int hi = buffer[sampleOffset + 1];
-                        short sampleValue = (short) ((hi << 8) | lo);
-                        // 归一化到 [-1.0, 1.0)
-                        sampleSum += sampleValue / 32768.0f;
+                        sampleSum += samples.get(src++) / 32768.0f;
                     }
-                    audioData[audioIndex++] = sampleSum / channels;
+                    float v = sampleSum / channels;
+                    dst.put(dstOffset + i, v);
+                    if (stats != null) stats.accept(v);
                 }
             }
+            return frames;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 映射在 channel 关闭后依旧有效，由 GC 回收
+            channel.close();
+        }
+    }
+
+    /**
+     * 以内存映射方式打开 16-bit PCM WAV 文件。
+     *
+     * 只映射 data 块；若头中声明的 data 大小超出实际文件（写入中断/流式写入），按实际长度截断。
+     *
+     * @param filePath WAV 文件的绝对路径
+     * @return 映射结果，使用完毕后需 close()；失败时返回 null
+     */
+    public static MappedWav mapWavFile(String filePath) {
+        if (filePath == null || filePath.isEmpty()) {
+            Log.e(TAG, "mapWavFile: 文件路径为空");
+            return null;
+        }
+
+        // 头部解析与映射共用同一个文件句柄，每次检测只打开一次文件
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(filePath, "r");
+        } catch (FileNotFoundException e) {
+            Log.e(TAG, "mapWavFile: 文件不存在: " + filePath);
+            return null;
+        }
+        FileChannel channel = raf.getChannel();
+        boolean mapped = false;
+        try {
+            WavInfo info = parseTimed(raf, filePath);
+            if (!info.valid) {
+                Log.e(TAG, "mapWavFile: WAV 头解析失败: " + filePath);
+                return null;
+            }
+
+            if (info.bitsPerSample != 16) {
+                Log.e(TAG, "mapWavFile: 不支持的位深度: " + info.bitsPerSample + "，仅支持 16-bit");
+                return null;
+            }
 
+            long available = Math.max(0, raf.length() - info.dataOffset);
+            long dataSize = Math.min(info.dataSize, available) & ~1L;
+            if (dataSize > Integer.MAX_VALUE) {
+                Log.e(TAG, "mapWavFile: data 块过大，无法映射: " + dataSize);
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, info.dataOffset, dataSize);
+            ShortBuffer samples = buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            mapped = true;
+            return new MappedWav(info, channel, samples);
+        } catch (IOException e) {
+            Log.e(TAG, "mapWavFile: 映射失败", e);
+            return null;
+        } finally {
+            if (!mapped) {
+                try { channel.close(); } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    /**
+     * 读取 16-bit PCM WAV 文件，返回归一化后的 float 数组。
+     *
+     * 功能极其纯粹：
+     * 1. 读取 16-bit PCM WAV 文件
+     * 2. 将 short 类型数据转换为 float
+     * 3. 执行归一化：floatVal = shortVal / 32768.0f
+     *
+     * 不做任何其他处理（不做预加重，不做切片）。
+     * 需要整段数据时才使用本方法；只需要一个窗口时使用 {@link #mapWavFile(String)}。
+     *
+     * @param filePath WAV 文件的绝对路径
+     * @return 归一化后的音频数据，范围 [-1.0, 1.0)；失败时返回 null
+     */
+    public static float[] readWavFile(String filePath) {
+        try (MappedWav wav = mapWavFile(filePath)) {
+            if (wav == null) {
+                Log.e(TAG, "readWavFile: 无法读取: " + filePath);
+                return null;
+            }
+
+            long totalFrames = wav.getFrameCount();
+            if (totalFrames <= 0 || totalFrames > Integer.MAX_VALUE) {
+                Log.e(TAG, "readWavFile: 无效的帧数: " + totalFrames);
+                return null;
+            }
+
+            float[] audioData = new float[(int) totalFrames];
+            wav.read(0, audioData, 0, audioData.length);
             return audioData;
 
         } catch (IOException e) {
@@ -111,39 +263,64 @@ public final class WavUtils {
     }
 
     public static WavInfo parse(File f) {
-        WavInfo info = new WavInfo();
-        if (f == null || !f.exists() || f.length() < 44) return info;
+        if (f == null || !f.exists()) return new WavInfo();
         try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
-            byte[] id = new byte[4];
-            raf.readFully(id);
-            String riffStr = new String(id, StandardCharsets.US_ASCII);
-            if (!"RIFF".equals(riffStr)) {
-                Log.e(TAG, "parse: 不是 RIFF 文件, 头部=" + riffStr);
+            return parseTimed(raf, f.getName());
+        } catch (IOException e) {
+            Log.w(TAG, "parse IO失败", e);
+            return new WavInfo();
+        }
+    }
+
+    /** 解析已打开文件的头部并计入 {@link PipelineMetrics.Stage#WAV_PARSE} */
+    private static WavInfo parseTimed(RandomAccessFile raf, String name) {
+        long t0 = System.nanoTime();
+        WavInfo info = parseHeader(raf, name);
+        PipelineMetrics.get().record(PipelineMetrics.Stage.WAV_PARSE, System.nanoTime() - t0);
+        return info;
+    }
+
+    /**
+     * 从文件开头解析 RIFF/WAVE 头，定位 fmt 与 data 块。
+     * Chunk ID 按大端 int 比较，只在出错或调试日志中才转换为字符串，检测热路径上不产生临时对象。
+     */
+    private static WavInfo parseHeader(RandomAccessFile raf, String name) {
+        WavInfo info = new WavInfo();
+        boolean debug = Log.isLoggable(TAG, Log.DEBUG);
+        try {
+            long length = raf.length();
+            if (length < 44) return info;
+            raf.seek(0);
+            int riff = raf.readInt();
+            if (riff != CHUNK_RIFF) {
+                Log.e(TAG, "parse: 不是 RIFF 文件, 头部=" + chunkName(riff));
                 return info;
             }
 
             int fileSize = Integer.reverseBytes(raf.readInt());
-            raf.readFully(id);
-            String waveStr = new String(id, StandardCharsets.US_ASCII);
-            if (!"WAVE".equals(waveStr)) {
-                Log.e(TAG, "parse: 不是 WAVE 格式, 格式=" + waveStr);
+            int wave = raf.readInt();
+            if (wave != CHUNK_WAVE) {
+                Log.e(TAG, "parse: 不是 WAVE 格式, 格式=" + chunkName(wave));
                 return info;
             }
 
-            Log.d(TAG, "parse: 文件=" + f.getName() + " 实际大小=" + f.length() + " RIFF声明大小=" + (fileSize + 8));
+            if (debug) {
+                Log.d(TAG, "parse: 文件=" + name + " 实际大小=" + length + " RIFF声明大小=" + (fileSize + 8));
+            }
 
-            while (raf.getFilePointer() + 8 <= raf.length()) {
+            while (raf.getFilePointer() + 8 <= length) {
                 long chunkStartPos = raf.getFilePointer();
-                raf.readFully(id);
+                int cid = raf.readInt();
                 int chunkSize = Integer.reverseBytes(raf.readInt());
-                String cid = new String(id, StandardCharsets.US_ASCII);
 
                 // 根据 RIFF 标准，Chunk 必须 word-aligned（偶数字节对齐）
                 int paddedChunkSize = (chunkSize % 2 == 1) ? chunkSize + 1 : chunkSize;
 
-                Log.d(TAG, "parse: 发现 Chunk '" + cid + "' 位置=" + chunkStartPos + " 大小=" + chunkSize + " (padded=" + paddedChunkSize + ")");
+                if (debug) {
+                    Log.d(TAG, "parse: 发现 Chunk '" + chunkName(cid) + "' 位置=" + chunkStartPos + " 大小=" + chunkSize + " (padded=" + paddedChunkSize + ")");
+                }
 
-                if ("fmt ".equals(cid)) {
+                if (cid == CHUNK_FMT) {
                     long fmtStart = raf.getFilePointer();
                     short formatTag = Short.reverseBytes(raf.readShort());
                     int channels = Short.toUnsignedInt(Short.reverseBytes(raf.readShort()));
@@ -152,25 +329,31 @@ public final class WavUtils {
                     short blockAlign = Short.reverseBytes(raf.readShort());
                     int bitsPerSample = Short.toUnsignedInt(Short.reverseBytes(raf.readShort()));
 
-                    Log.d(TAG, "parse: fmt 信息 - formatTag=" + formatTag + " channels=" + channels +
-                            " sampleRate=" + sampleRate + " byteRate=" + byteRate +
-                            " blockAlign=" + blockAlign + " bitsPerSample=" + bitsPerSample);
+                    if (debug) {
+                        Log.d(TAG, "parse: fmt 信息 - formatTag=" + formatTag + " channels=" + channels +
+                                " sampleRate=" + sampleRate + " byteRate=" + byteRate +
+                                " blockAlign=" + blockAlign + " bitsPerSample=" + bitsPerSample);
+                    }
 
                     long toSkip = paddedChunkSize - (raf.getFilePointer() - fmtStart);
                     if (toSkip > 0) raf.skipBytes((int) toSkip);
                     info.channels = channels;
                     info.sampleRate = sampleRate;
                     info.bitsPerSample = bitsPerSample;
-                } else if ("data".equals(cid)) {
+                } else if (cid == CHUNK_DATA) {
                     info.dataOffset = raf.getFilePointer();
                     info.dataSize = Integer.toUnsignedLong(chunkSize);
                     info.valid = info.sampleRate > 0 && info.channels > 0 && info.bitsPerSample > 0;
 
-                    Log.d(TAG, "parse: data 块 - offset=" + info.dataOffset + " size=" + info.dataSize +
-                            " 预计采样点=" + (info.dataSize / (info.bitsPerSample / 8) / info.channels));
+                    if (debug) {
+                        Log.d(TAG, "parse: data 块 - offset=" + info.dataOffset + " size=" + info.dataSize +
+                                " 预计采样点=" + (info.dataSize / (info.bitsPerSample / 8) / info.channels));
+                    }
                     break;
                 } else {
-                    Log.d(TAG, "parse: 跳过未知 Chunk '" + cid + "'");
+                    if (debug) {
+                        Log.d(TAG, "parse: 跳过未知 Chunk '" + chunkName(cid) + "'");
+                    }
                     raf.skipBytes(paddedChunkSize);
                 }
             }
@@ -180,6 +363,11 @@ public final class WavUtils {
         return info;
     }
 
+    private static String chunkName(int id) {
+        byte[] bytes = {(byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id};
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
     public static boolean verifyRiffWave(File f) {
         if (f == null || !f.exists() || f.length() < 12) return false;
         try (FileInputStream in = new FileInputStream(f)) {
@@ -0,0 +1,158 @@
+package com.example.test922.audio.processor;
+
+/**
+ * 流式波形峰值提取：把解码输出按时间分桶，每桶只保留最小/最大采样值，存放在预先分配的两个
+ * float 数组里，内存与音频长度无关。
+ *
+ * 每桶帧数按容器声明的时长（KEY_DURATION）估算；实际长度超出估算（或时长未知）时相邻两桶合并、
+ * 每桶帧数加倍，桶数始终不超过容量。解码线程写入的同时，UI 线程可随时 {@link #copyTo} 取快照
+ * 逐步绘制。
+ */
+public final class WaveformPeaks implements PcmChunkQueue.Consumer {
+
+    /** 最多保留的桶数 */
+    public static final int MAX_BUCKETS = 4096;
+
+    /** 短音频的最少桶数 */
+    private static final int MIN_BUCKETS = 64;
+
+    /** 每桶的目标时长（微秒）：短音频不必分出多于此精度的桶 */
+    private static final long BUCKET_US = 5_000;
+
+    /** 时长未知时的初始每桶帧数 */
+    private static final int DEFAULT_FRAMES_PER_BUCKET = 256;
+
+    private final float[] mMin;
+    private final float[] mMax;
+    private final long mDurationUs;
+
+    private int mSampleRate;
+    private int mChannels;
+    private long mFramesPerBucket;
+    /** 按声明时长折算的总帧数（首个输出格式的采样率），未知为 0 */
+    private long mExpectedFrames;
+
+    /** 已完成的桶数 */
+    private int mFilled;
+    /** 当前未完成桶的帧数与极值 */
+    private long mFramesInBucket;
+    private int mCurMin = Integer.MAX_VALUE;
+    private int mCurMax = Integer.MIN_VALUE;
+
+    /**
+     * 按时长选择桶数：每桶约 5ms，限制在 [64, 4096] 且为偶数；时长未知时取上限
+     */
+    public static int bucketCountFor(long durationUs) {
+        if (durationUs <= 0) return MAX_BUCKETS;
+        long buckets = Math.max(MIN_BUCKETS, Math.min(MAX_BUCKETS, durationUs / BUCKET_US));
+        return (int) (buckets & ~1L);
+    }
+
+    /**
+     * @param bucketCount 桶数，必须为不小于 2 的偶数（合并时两两成对）
+     * @param durationUs  容器声明的时长，未知时传 0 或负数
+     */
+    public WaveformPeaks(int bucketCount, long durationUs) {
+        if (bucketCount < 2 || (bucketCount & 1) != 0) {
+            throw new IllegalArgumentException("bucketCount 必须为不小于 2 的偶数: " + bucketCount);
+        }
+        mMin = new float[bucketCount];
+        mMax = new float[bucketCount];
+        mDurationUs = durationUs;
+    }
+
+    @Override
+    public synchronized void onFormat(int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("无效的 PCM 格式: " + sampleRate + "Hz/" + channels);
+        }
+        if (mSampleRate == 0) {
+            mExpectedFrames = mDurationUs > 0 ? mDurationUs * sampleRate / 1_000_000L : 0;
+            mFramesPerBucket = mExpectedFrames > 0
+                    ? Math.max(1, (mExpectedFrames + mMin.length - 1) / mMin.length)
+                    : DEFAULT_FRAMES_PER_BUCKET;
+        } else if (sampleRate != mSampleRate) {
+            // 中途变换采样率：保持每桶时长不变
+            mFramesPerBucket = Math.max(1, mFramesPerBucket * sampleRate / mSampleRate);
+            mExpectedFrames = mExpectedFrames * sampleRate / mSampleRate;
+        }
+        mSampleRate = sampleRate;
+        mChannels = channels;
+    }
+
+    /** 交错 16-bit PCM：每帧取所有声道中的极值，不下混 */
+    @Override
+    public synchronized void onPcm(short[] samples, int count) {
+        if (mSampleRate == 0) throw new IllegalStateException("onPcm 之前必须调用 onFormat");
+        int channels = mChannels;
+        int end = count - count % channels;
+        int curMin = mCurMin;
+        int curMax = mCurMax;
+        long inBucket = mFramesInBucket;
+        for (int i = 0; i < end; i += channels) {
+            for (int ch = 0; ch < channels; ch++) {
+                int s = samples[i + ch];
+                if (s < curMin) curMin = s;
+                if (s > curMax) curMax = s;
+            }
+            if (++inBucket == mFramesPerBucket) {
+                if (mFilled == mMin.length) {
+                    // 超出估计：合并后当前桶的长度加倍，刚满的这部分是它的前一半，极值继续累积
+                    merge();
+                } else {
+                    mMin[mFilled] = curMin / 32768f;
+                    mMax[mFilled] = curMax / 32768f;
+                    mFilled++;
+                    curMin = Integer.MAX_VALUE;
+                    curMax = Integer.MIN_VALUE;
+                    inBucket = 0;
+                }
+            }
+        }
+        mCurMin = curMin;
+        mCurMax = curMax;
+        mFramesInBucket = inBucket;
+    }
+
+    /** 相邻两桶合并，每桶帧数加倍 */
+    private void merge() {
+        int half = mMin.length / 2;
+        for (int i = 0; i < half; i++) {
+            mMin[i] = Math.min(mMin[2 * i], mMin[2 * i + 1]);
+            mMax[i] = Math.max(mMax[2 * i], mMax[2 * i + 1]);
+        }
+        mFilled = half;
+        mFramesPerBucket *= 2;
+    }
+
+    /**
+     * 复制当前的峰值快照（容量未满时含未完成的桶），供绘制线程使用。
+     *
+     * @param min 长度不小于 {@link #getBucketCount()}
+     * @param max 长度不小于 {@link #getBucketCount()}
+     * @return 有效的桶数
+     */
+    public synchronized int copyTo(float[] min, float[] max) {
+        System.arraycopy(mMin, 0, min, 0, mFilled);
+        System.arraycopy(mMax, 0, max, 0, mFilled);
+        if (mFramesInBucket == 0 || mFilled == mMin.length) return mFilled;
+        min[mFilled] = mCurMin / 32768f;
+        max[mFilled] = mCurMax / 32768f;
+        return mFilled + 1;
+    }
+
+    /**
+     * 按当前分辨率，整段音频预计占用的桶数，绘制时据此确定横轴比例；
+     * 时长未知或实际更长时等于已有的桶数。
+     */
+    public synchronized int getSpan() {
+        int filled = mFramesInBucket > 0 && mFilled < mMin.length ? mFilled + 1 : mFilled;
+        if (mExpectedFrames <= 0) return filled;
+        long expected = (mExpectedFrames + mFramesPerBucket - 1) / mFramesPerBucket;
+        return (int) Math.max(filled, Math.min(mMin.length, expected));
+    }
+
+    public int getBucketCount() {
+        return mMin.length;
+    }
+}
@@ -12,14 +12,12 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.test922.R;
+import com.example.test922.audio.processor.AsyncPcmDecoder;
+import com.example.test922.audio.processor.PcmChunkQueue;
+import com.example.test922.audio.processor.WaveformPeaks;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -28,6 +26,9 @@ public class AudioInfoActivity extends AppCompatActivity {
     private static final String TAG = "AudioInfoActivity";
     public static final String EXTRA_AUDIO_FILE_PATH = "audio_file_path";
 
+    // Minimum interval between progressive waveform redraws while decoding
+    private static final long REDRAW_INTERVAL_MS = 100;
+
     private TextView audioHeaderInfoTextView;
     private WaveformView waveformView;
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
@@ -96,67 +97,38 @@ public class AudioInfoActivity extends AppCompatActivity {
                 runOnUiThread(() -> audioHeaderInfoTextView.setText(headerInfo));
 
 
-                // 2. MediaCodec to decode audio to PCM
+                // 2. Stream the decoded PCM straight into a fixed-size min/max envelope,
+                //    sized from the declared duration, and redraw it as decoding progresses
+                WaveformPeaks peaks = new WaveformPeaks(WaveformPeaks.bucketCountFor(durationUs), durationUs);
+                long durationMs = durationUs / 1000;
+                runOnUiThread(() -> waveformView.setPeaks(peaks, durationMs));
+
                 MediaCodec codec = MediaCodec.createDecoderByType(mime);
-                codec.configure(format, null, null, 0);
-                codec.start();
-
-                MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-                boolean isEOS = false;
-                List<Short> pcmData = new ArrayList<>();
-
-                while (!isEOS) {
-                    int inputBufIndex = codec.dequeueInputBuffer(10000);
-                    if (inputBufIndex >= 0) {
-                        ByteBuffer inputBuffer = codec.getInputBuffer(inputBufIndex);
-                        int sampleSize = extractor.readSampleData(inputBuffer, 0);
-
-                        if (sampleSize < 0) {
-                            codec.queueInputBuffer(inputBufIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                            isEOS = true;
-                        } else {
-                            codec.queueInputBuffer(inputBufIndex, 0, sampleSize, extractor.getSampleTime(), 0);
-                            extractor.advance();
-                        }
-                    }
+                boolean decoded = AsyncPcmDecoder.decode(extractor, codec, format, new PcmChunkQueue.Consumer() {
+                    private long lastRedrawMs;
 
-                    int outputBufIndex = codec.dequeueOutputBuffer(bufferInfo, 10000);
-                    if (outputBufIndex >= 0) {
-                        ByteBuffer outputBuffer = codec.getOutputBuffer(outputBufIndex);
-                        if (outputBuffer != null && bufferInfo.size > 0) {
-                            ShortBuffer shortBuffer = outputBuffer.order(ByteOrder.nativeOrder()).asShortBuffer();
-                            while (shortBuffer.hasRemaining()) {
-                                pcmData.add(shortBuffer.get());
-                            }
-                        }
-                        codec.releaseOutputBuffer(outputBufIndex, false);
+                    @Override
+                    public void onFormat(int outputSampleRate, int outputChannels) {
+                        peaks.onFormat(outputSampleRate, outputChannels);
+                    }
 
-                        if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                            break;
+                    @Override
+                    public void onPcm(short[] samples, int count) {
+                        peaks.onPcm(samples, count);
+                        long now = System.currentTimeMillis();
+                        if (now - lastRedrawMs >= REDRAW_INTERVAL_MS) {
+                            lastRedrawMs = now;
+                            waveformView.postInvalidate();
                         }
                     }
-                }
-
-                codec.stop();
-                codec.release();
+                }, null);
                 extractor.release();
-
-                // 3. Convert PCM data to float array for WaveformView
-                int downsampleSize = 4096;
-                if (pcmData.isEmpty()) {
-                    Log.w(TAG, "PCM data is empty.");
-                    return;
-                }
-                float[] waveform = new float[Math.min(pcmData.size(), downsampleSize)];
-                int step = Math.max(1, pcmData.size() / downsampleSize);
-
-                for (int i = 0; i < waveform.length; i++) {
-                    waveform[i] = (float) pcmData.get(i * step) / (float) Short.MAX_VALUE;
+                if (!decoded) {
+                    Log.w(TAG, "Decoding failed, showing partial waveform.");
                 }
 
-                // 4. Update UI on the main thread
-                long finalDurationMs = durationUs / 1000;
-                runOnUiThread(() -> waveformView.setWaveform(waveform, finalDurationMs));
+                // 3. Final redraw with the complete envelope
+                waveformView.postInvalidate();
 
             } catch (IOException e) {
                 Log.e(TAG, "Error processing audio file", e);
@@ -0,0 +1,103 @@
+package com.example.test922.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 实时检测的伪造概率滚动曲线：最新的点在最右侧，虚线为报警阈值。
+ */
+public class LiveScoreView extends View {
+
+    /** 保留的点数，500ms 步长下约 30 秒 */
+    private static final int MAX_POINTS = 60;
+
+    private final float[] scores = new float[MAX_POINTS];
+    private int count;
+    private int head; // 下一个写入位置
+    private float threshold = 0.5f;
+
+    private Paint tracePaint;
+    private Paint alertPaint;
+    private Paint thresholdPaint;
+
+    public LiveScoreView(Context context) {
+        super(context);
+        init();
+    }
+
+    public LiveScoreView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public LiveScoreView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        tracePaint = new Paint();
+        tracePaint.setColor(Color.parseColor("#4CAF50"));
+        tracePaint.setStrokeWidth(4f);
+        tracePaint.setAntiAlias(true);
+
+        alertPaint = new Paint(tracePaint);
+        alertPaint.setColor(Color.parseColor("#F44336"));
+
+        thresholdPaint = new Paint();
+        thresholdPaint.setColor(Color.GRAY);
+        thresholdPaint.setStrokeWidth(2f);
+    }
+
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+        invalidate();
+    }
+
+    /** 追加一个伪造概率（需在主线程调用） */
+    public void addScore(float fakeProbability) {
+        scores[head] = fakeProbability;
+        head = (head + 1) % MAX_POINTS;
+        if (count < MAX_POINTS) count++;
+        invalidate();
+    }
+
+    public void clear() {
+        count = 0;
+        head = 0;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+
+        // 阈值线（虚线效果用短线段绘制）
+        float thresholdY = top + (1f - threshold) * height;
+        for (float x = left; x < left + width; x += 16f) {
+            canvas.drawLine(x, thresholdY, Math.min(x + 8f, left + width), thresholdY, thresholdPaint);
+        }
+
+        if (count < 2) return;
+        float step = width / (MAX_POINTS - 1);
+        int first = (head - count + MAX_POINTS) % MAX_POINTS;
+        float startX = left + (MAX_POINTS - count) * step;
+        for (int i = 0; i < count - 1; i++) {
+            float a = scores[(first + i) % MAX_POINTS];
+            float b = scores[(first + i + 1) % MAX_POINTS];
+            Paint paint = b >= threshold ? alertPaint : tracePaint;
+            canvas.drawLine(startX + i * step, top + (1f - a) * height,
+                    startX + (i + 1) * step, top + (1f - b) * height, paint);
+        }
+    }
+}
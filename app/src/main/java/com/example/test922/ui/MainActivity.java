@@ -9,7 +9,9 @@ import android.media.AudioRecord;
 import android.media.MediaPlayer;
 import android.media.MediaRecorder;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.provider.DocumentsContract;
 import android.provider.OpenableColumns;
 import android.util.Log;
@@ -30,30 +32,53 @@ import androidx.core.content.ContextCompat;
 import com.arthenica.ffmpegkit.FFmpegKit;
 import com.arthenica.ffmpegkit.FFmpegSession;
 import com.arthenica.ffmpegkit.ReturnCode;
+import com.example.test922.DetectorApplication;
 import com.example.test922.R;
+import com.example.test922.audio.detector.AsyncDetector;
 import com.example.test922.audio.detector.DeepfakeDetector;
-import com.example.test922.audio.detector.RawNet2Strategy;
+import com.example.test922.audio.detector.DetectionResult;
+import com.example.test922.audio.detector.DetectionResultCache;
+import com.example.test922.audio.detector.LiveScorer;
+import com.example.test922.audio.detector.ModelHolder;
+import com.example.test922.audio.detector.PreScreen;
+import com.example.test922.audio.metrics.PipelineMetrics;
+import com.example.test922.audio.pipeline.BatchPipeline;
 import com.example.test922.audio.processor.AudioExtractionListener;
 import com.example.test922.audio.processor.AudioExtractor;
+import com.example.test922.audio.processor.FFmpegInput;
+import com.example.test922.audio.processor.PcmWindowSink;
+import com.example.test922.audio.processor.SpeechWindowSelector;
+import com.example.test922.audio.processor.StreamingWavRecorder;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainActivity extends AppCompatActivity implements AudioExtractionListener {
 
     private static final String TAG = "MainActivity";
-    private static final String MODEL_ASSET_PATH = "rawnet2_mobile.ptl";
     private static final int REQUEST_RECORD_AUDIO_PERMISSION = 200;
     private static final int SAMPLE_RATE = 16000;
+    private static final String RESULT_CACHE_DIR = "detection_cache";
+    private static final int RESULT_CACHE_MAX_ENTRIES = 2000;
+    private static final String METRICS_FILE = "metrics.json";
+    private static final long DETECTION_TIMEOUT_MILLIS = 30_000;
+    private static final int RECORDING_RING_SECONDS = 6; // 录音环形缓冲区时长，需大于实时检测窗口
+    private static final int LIVE_WINDOW_FRAMES = 4 * SAMPLE_RATE; // 实时检测窗口：最近 4 秒
+    private static final int LIVE_MIN_FRAMES = SAMPLE_RATE; // 录满 1 秒后开始实时打分
+    private static final long LIVE_HOP_MILLIS = 500; // 实时打分步长
+    private static final float LIVE_ALERT_THRESHOLD = 0.5f; // 实时伪造概率报警阈值
 
     // 支持的音频格式
     private static final String[] SUPPORTED_AUDIO_EXTENSIONS = {".wav", ".mp3", ".flac", ".m4a", ".aac", ".ogg"};
@@ -66,8 +91,7 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     private Button audioInfoButton;
 
     private Button batchFolderButton;
-    private final List<File> convertedBatchFiles = new ArrayList<>();
-    private final List<String> originalBatchNames = new ArrayList<>(); // 对应每个批量文件的原始文件名
+    private volatile BatchPipeline<Uri, FFmpegInput> batchPipeline; // 正在运行的批量流水线
     private Button recordDetectionButton;
     private TextView statusTextView;
     private ProgressBar progressBar;
@@ -77,6 +101,9 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     // 录音相关
     private AudioRecord audioRecord;
     private boolean isRecording = false;
+    private StreamingWavRecorder wavRecorder;
+    private LiveScorer liveScorer;
+    private LiveScoreView liveScoreView;
     private File recordedAudioFile;
 
     private Uri videoUri;
@@ -93,6 +120,10 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     private MediaPlayer mediaPlayer;
     private final AudioExtractor audioExtractor = new AudioExtractor();
     private DeepfakeDetector deepfakeDetector;
+    private volatile AsyncDetector asyncDetector; // 模型加载成功后创建
+    private CompletableFuture<DetectionResult> pendingDetection; // 仅在主线程读写
+    private volatile DetectionResultCache resultCache; // 模型加载成功后创建
+    private volatile String currentSourceKey; // 当前单个输入的内容哈希，用于查询/写入结果缓存
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
 
     // 视频选择回调
@@ -106,6 +137,7 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                         audioUri = null;
                         selectedAudioFile = null;
                         extractedAudioFile = null;
+                        currentSourceKey = null;
 
                         String fileName = getFileName(videoUri);
                         statusTextView.setText(getString(R.string.video_selected, fileName));
@@ -132,6 +164,7 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                         currentInputType = InputType.AUDIO;
                         videoUri = null;
                         extractedAudioFile = null;
+                        currentSourceKey = null;
 
                         // 将音频 Uri 复制到本地文件
                         copyAudioToLocalFile(audioUri, fileName);
@@ -170,6 +203,8 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
         progressBar = findViewById(R.id.progress_bar);
         waveformContainer = findViewById(R.id.waveform_container);
         recordingHint = findViewById(R.id.recording_hint);
+        liveScoreView = findViewById(R.id.waveform_view);
+        liveScoreView.setThreshold(LIVE_ALERT_THRESHOLD);
 
         // 初始状态
         updateButtonStates();
@@ -215,8 +250,17 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                 String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
                 String outputFileName = "extracted_audio_" + timestamp + ".wav";
                 File outputFile = new File(getExternalFilesDir(null), outputFileName);
+                Uri sourceUri = videoUri;
                 showProgress(true);
-                executor.execute(() -> audioExtractor.extractAudio(MainActivity.this, videoUri, outputFile, this));
+                executor.execute(() -> {
+                    // 同一视频已检测过时直接给出结果，不再提取音频
+                    if (showCachedResult(sourceUri)) return;
+                    if (asyncDetector != null) {
+                        streamExtractAndDetect(sourceUri, outputFile);
+                    } else {
+                        audioExtractor.extractAudio(MainActivity.this, sourceUri, outputFile, this);
+                    }
+                });
             }
         });
 
@@ -268,22 +312,41 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     }
 
     /**
-     * 初始化 Deepfake 检测器
+     * 初始化 Deepfake 检测器：模型由 {@link DetectorApplication} 在进程启动时加载并预热，
+     * 这里只等待就绪；Activity 重建时模型已就绪，不再重复加载
      */
     private void initializeDetector() {
-        statusTextView.setText("正在加载检测模型...");
-        showProgress(true);
+        ModelHolder holder = ModelHolder.get();
+        // 正常情况下 Application 已经开始加载，这里保证未经 Application 启动时也能加载
+        CompletableFuture<DeepfakeDetector> readiness =
+                holder.start(this, DetectorApplication.MODEL_ASSET_PATH, 0);
+        boolean wasReady = readiness.isDone();
+        if (!wasReady) {
+            statusTextView.setText("正在加载检测模型...");
+            showProgress(true);
+        }
 
-        executor.execute(() -> {
-            deepfakeDetector = new RawNet2Strategy();
-            boolean loaded = deepfakeDetector.loadModel(this, MODEL_ASSET_PATH);
+        readiness.thenAcceptAsync(detector -> {
+            boolean loaded = detector != null;
+            if (loaded) {
+                // 静音、削波、噪声等输入不做推理，直接提示原因
+                detector.setPreScreen(PreScreen.defaults());
+                // 片头音乐或开场静音时开头 4 秒不是语音，改为检测语音最密集的窗口
+                detector.setWindowSelector(SpeechWindowSelector.defaults());
+                deepfakeDetector = detector;
+                asyncDetector = new AsyncDetector(detector, executor);
+                resultCache = new DetectionResultCache(new File(getFilesDir(), RESULT_CACHE_DIR),
+                        getModelIdentity(), detector.getName(), RESULT_CACHE_MAX_ENTRIES);
+            }
             runOnUiThread(() -> {
                 showProgress(false);
                 isModelLoaded = loaded;
                 if (loaded) {
-                    Log.i(TAG, "检测器初始化成功: " + deepfakeDetector.getName());
-                    statusTextView.setText("模型加载成功，请选择视频或音频文件");
-                    Toast.makeText(this, "模型加载成功", Toast.LENGTH_SHORT).show();
+                    Log.i(TAG, "检测器初始化成功: " + detector.getName() + " " + holder.getMetrics());
+                    if (!wasReady) {
+                        statusTextView.setText("模型加载成功，请选择视频或音频文件");
+                        Toast.makeText(this, "模型加载成功", Toast.LENGTH_SHORT).show();
+                    }
                 } else {
                     Log.e(TAG, "检测器加载失败");
                     statusTextView.setText("⚠️ 模型加载失败\n请确保 assets 中有 rawnet2_mobile.ptl 文件");
@@ -291,7 +354,55 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                 }
                 updateButtonStates();
             });
+        }, executor);
+    }
+
+    /**
+     * 模型标识：各模型的资源名与内容 SHA-256，模型内容变化时旧结果失效，应用更新但模型不变时缓存保留
+     */
+    private String getModelIdentity() {
+        String identity = ModelHolder.get().getModelIdentity();
+        return identity != null ? identity : DetectorApplication.MODEL_ASSET_PATH;
+    }
+
+    /**
+     * 计算输入源的内容哈希，作为结果缓存的键
+     *
+     * @return 不是可定位读取的普通文件或读取失败时返回 null（不使用缓存）
+     */
+    private String computeSourceKey(Uri uri) {
+        if (uri == null || resultCache == null) return null;
+        try (ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "r")) {
+            if (pfd == null || pfd.getStatSize() < 0) return null;
+            try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+                return DetectionResultCache.hashSource(in.getChannel());
+            }
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "计算内容哈希失败: " + uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在后台线程调用：计算输入源的内容哈希并查询结果缓存，命中时直接显示结果
+     *
+     * @return 是否命中
+     */
+    private boolean showCachedResult(Uri uri) {
+        long startTime = System.currentTimeMillis();
+        String key = computeSourceKey(uri);
+        currentSourceKey = key;
+        DetectionResultCache cache = resultCache;
+        float cached = cache != null ? cache.get(key) : -1f;
+        if (cached < 0) return false;
+        long elapsed = System.currentTimeMillis() - startTime;
+        Log.i(TAG, "命中结果缓存: " + uri + " 用时=" + elapsed + "ms");
+        runOnUiThread(() -> {
+            showProgress(false);
+            showDetectionResult(cached, elapsed, true);
+            updateButtonStates();
         });
+        return true;
     }
 
     /**
@@ -325,108 +436,207 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
         statusTextView.setText("正在检测中，请稍候...");
         startDetectionButton.setEnabled(false);
 
-        executor.execute(() -> performDeepfakeDetection(finalAudioFile));
+        final String sourceKey = currentSourceKey;
+        DetectionResultCache cache = resultCache;
+        float cached = cache != null ? cache.get(sourceKey) : -1f;
+        if (cached >= 0) {
+            showProgress(false);
+            startDetectionButton.setEnabled(true);
+            showDetectionResult(cached, 0, true);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<DetectionResult> future =
+                asyncDetector.detect(finalAudioFile.getAbsolutePath(), DETECTION_TIMEOUT_MILLIS);
+        pendingDetection = future;
+        future.whenComplete((result, error) -> {
+            // 页面销毁时已取消，结果无人显示
+            if (result != null) {
+                onDetectionFinished(future, result, sourceKey, System.currentTimeMillis() - startTime);
+            }
+        });
     }
 
     /**
-     * 执行 Deepfake 检测
+     * 视频的流式检测：MediaCodec 解码出的 PCM 经重采样直接写入模型输入窗口，窗口写满即开始检测，
+     * 不再等待整段音频写成 WAV 后再读回；完整 WAV 作为副输出在后台继续写出，供播放与音频信息使用。
+     * 流式解码完全失败（没有解码出任何采样）时回退为 FFmpeg 提取，由用户再点击检测。
+     * 窗口长度取自已加载模型的输入长度。这里只检测解码出的开头一个窗口、不做语音窗口选择，
+     * 结果与对完整 WAV 的检测不同，因此不写入结果缓存；缓存只保存完整检测的结果。
      */
-    private void performDeepfakeDetection(File audioFile) {
+    private void streamExtractAndDetect(Uri sourceUri, File outputFile) {
+        onExtractionStarted();
         long startTime = System.currentTimeMillis();
+        PcmWindowSink window = new PcmWindowSink(deepfakeDetector.getInputLength());
+        CompletableFuture<Boolean> decoded = audioExtractor.decodeToWindow(this, sourceUri, window, outputFile);
 
-        // detect() 返回的是 Real（真实）的概率
-        float realProbability = deepfakeDetector.detect(audioFile.getAbsolutePath());
+        window.getWindowReady().thenAccept(ready -> {
+            if (ready.getValidLength() == 0) return; // 解码失败，由 decoded 回退
+            runOnUiThread(() -> {
+                AsyncDetector detector = asyncDetector;
+                if (detector == null) return;
+                statusTextView.setText("正在检测中（音频仍在提取）...");
+                startDetectionButton.setEnabled(false);
+                CompletableFuture<DetectionResult> future =
+                        detector.detectPcm(ready.getWindow(), ready.getValidLength(), DETECTION_TIMEOUT_MILLIS);
+                pendingDetection = future;
+                future.whenComplete((result, error) -> {
+                    if (result != null) {
+                        onDetectionFinished(future, result, null, System.currentTimeMillis() - startTime);
+                    }
+                });
+            });
+        });
 
-        long elapsed = System.currentTimeMillis() - startTime;
+        decoded.thenAccept(ok -> {
+            if (ok) {
+                // 检测结果可能已经显示，这里只更新可播放的音频，不覆盖状态文字
+                runOnUiThread(() -> {
+                    extractedAudioFile = outputFile;
+                    updateButtonStates();
+                });
+            } else if (window.getValidLength() == 0) {
+                Log.w(TAG, "流式解码失败，回退 FFmpeg 提取");
+                audioExtractor.extractAudio(this, sourceUri, outputFile, this);
+            } else {
+                Log.w(TAG, "流式解码中途失败，已用已解码部分检测，未生成 WAV");
+            }
+        });
+    }
+
+    /**
+     * 在检测线程（或截止时间计时器线程）调用：写入结果缓存并显示结果
+     *
+     * @param sourceKey 输入源的内容哈希；检测成功且非 null 时写入结果缓存
+     */
+    private void onDetectionFinished(CompletableFuture<DetectionResult> future, DetectionResult result,
+                                     String sourceKey, long elapsed) {
+        Log.i(TAG, "检测完成: " + result);
+        ModelHolder.get().recordResult(result);
+        dumpMetrics();
+        DetectionResultCache cache = resultCache;
+        if (cache != null && result.isSuccess()) {
+            cache.put(sourceKey, result.getRealProbability());
+            cache.flush();
+        }
 
         runOnUiThread(() -> {
+            if (pendingDetection != future) return;
+            pendingDetection = null;
             showProgress(false);
             startDetectionButton.setEnabled(true);
 
-            if (realProbability < 0) {
+            if (result.isSuccess()) {
+                // Real（真实）的概率
+                showDetectionResult(result.getRealProbability(), elapsed, false);
+            } else if (result.getError() == DetectionResult.Error.SCREENED_OUT) {
+                statusTextView.setText("⚠️ 未进行检测\n" + result.getMessage() + "，请提供清晰的语音");
+                Toast.makeText(this, result.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (result.getError() == DetectionResult.Error.DEADLINE_EXCEEDED) {
+                statusTextView.setText("❌ 检测超时\n设备繁忙，请稍后重试");
+                Toast.makeText(this, "检测超时", Toast.LENGTH_SHORT).show();
+            } else {
                 statusTextView.setText("❌ 检测失败\n请确保音频格式正确（需要 16kHz 单声道 WAV）");
                 Toast.makeText(this, "检测失败", Toast.LENGTH_SHORT).show();
-            } else {
-                float realPercent = realProbability * 100;
-                float fakePercent = (1 - realProbability) * 100;
+            }
+        });
+    }
 
-                String conclusion;
-                String emoji;
-                float confidence;
+    /**
+     * 把流水线各阶段耗时分布与计数写入 files/metrics.json（附带设备与版本），
+     * 便于在不同设备、不同构建之间对比 p50/p99
+     */
+    private void dumpMetrics() {
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        meta.put("sdk", String.valueOf(Build.VERSION.SDK_INT));
+        meta.put("abi", Build.SUPPORTED_ABIS.length > 0 ? Build.SUPPORTED_ABIS[0] : "");
+        try {
+            meta.put("version", getPackageManager().getPackageInfo(getPackageName(), 0).versionName);
+        } catch (PackageManager.NameNotFoundException e) {
+            meta.put("version", "");
+        }
+        DeepfakeDetector detector = deepfakeDetector;
+        meta.put("model", detector != null ? detector.getName() : "");
+        File file = new File(getFilesDir(), METRICS_FILE);
+        if (!PipelineMetrics.get().writeJson(file, meta)) {
+            Log.w(TAG, "写入指标失败: " + file);
+        } else if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, PipelineMetrics.get().toString());
+        }
+    }
 
-                if (realProbability > 0.5) {
-                    conclusion = "真实语音";
-                    emoji = "✅";
-                    confidence = realPercent;
-                } else {
-                    conclusion = "合成语音";
-                    emoji = "⚠️";
-                    confidence = fakePercent;
-                }
+    /**
+     * 显示单个文件的检测结果
+     *
+     * @param fromCache 结果是否来自缓存
+     */
+    private void showDetectionResult(float realProbability, long elapsed, boolean fromCache) {
+        float realPercent = realProbability * 100;
+        float fakePercent = (1 - realProbability) * 100;
+
+        String conclusion;
+        String emoji;
+        float confidence;
+
+        if (realProbability > 0.5) {
+            conclusion = "真实语音";
+            emoji = "✅";
+            confidence = realPercent;
+        } else {
+            conclusion = "合成语音";
+            emoji = "⚠️";
+            confidence = fakePercent;
+        }
 
-                String resultText = String.format(Locale.US,
-                        "%s 检测结果：%s\n\n" +
-                        "置信度: %.1f%%\n\n" +
-                        "━━━━━━━━━━━━━━━\n" +
-                        "真实概率: %.2f%%\n" +
-                        "伪造概率: %.2f%%\n" +
-                        "━━━━━━━━━━━━━━━\n\n" +
-                        "模型: %s\n" +
-                        "耗时: %d ms",
-                        emoji, conclusion,
-                        confidence,
-                        realPercent, fakePercent,
-                        deepfakeDetector.getName(),
-                        elapsed);
-
-                statusTextView.setText(resultText);
-                Toast.makeText(this,
-                        String.format("检测结果：%s，置信度 %.0f%%", conclusion, confidence),
-                        Toast.LENGTH_LONG).show();
-            }
-        });
+        String resultText = String.format(Locale.US,
+                "%s 检测结果：%s\n\n" +
+                "置信度: %.1f%%\n\n" +
+                "━━━━━━━━━━━━━━━\n" +
+                "真实概率: %.2f%%\n" +
+                "伪造概率: %.2f%%\n" +
+                "━━━━━━━━━━━━━━━\n\n" +
+                "模型: %s\n" +
+                "耗时: %d ms%s",
+                emoji, conclusion,
+                confidence,
+                realPercent, fakePercent,
+                deepfakeDetector.getName(),
+                elapsed,
+                fromCache ? "（缓存结果）" : "");
+
+        statusTextView.setText(resultText);
+        Toast.makeText(this,
+                String.format("检测结果：%s，置信度 %.0f%%", conclusion, confidence),
+                Toast.LENGTH_LONG).show();
     }
 
     /**
-     * 将选中的音频 Uri 复制到本地文件，并转换为 16kHz 单声道 WAV
+     * 将选中的音频 Uri 转换为 16kHz 单声道 WAV 本地文件
      */
     private void copyAudioToLocalFile(Uri uri, String originalFileName) {
         showProgress(true);
         statusTextView.setText("正在处理音频文件...");
 
         executor.execute(() -> {
+            // 同一文件已检测过时直接给出结果，跳过格式转换
+            if (showCachedResult(uri)) return;
             try {
-                // 生成本地文件名
                 String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
-                String extension = getFileExtension(originalFileName);
-                String tempFileName = "temp_" + timestamp + extension;
-                File tempFile = new File(getExternalFilesDir(null), tempFileName);
-
-                // 先复制原始文件到临时位置
-                try (InputStream is = getContentResolver().openInputStream(uri);
-                     FileOutputStream fos = new FileOutputStream(tempFile)) {
-                    if (is == null) {
-                        throw new IOException("无法打开输入流");
-                    }
-                    byte[] buffer = new byte[8192];
-                    int bytesRead;
-                    while ((bytesRead = is.read(buffer)) != -1) {
-                        fos.write(buffer, 0, bytesRead);
-                    }
-                }
 
-                // 转换为 16kHz 单声道 WAV
+                // 转换为 16kHz 单声道 WAV（FFmpeg 直接读取 Uri 的文件描述符，无需先复制）
                 String convertedFileName = "converted_" + timestamp + ".wav";
                 File convertedFile = new File(getExternalFilesDir(null), convertedFileName);
 
                 runOnUiThread(() -> statusTextView.setText("正在转换音频格式...\n(16kHz 单声道 WAV)"));
 
-                boolean converted = convertToModelFormat(tempFile, convertedFile);
-
-                // 删除临时文件
-                if (tempFile.exists()) {
-                    //noinspection ResultOfMethodCallIgnored
-                    tempFile.delete();
+                boolean converted;
+                try (FFmpegInput input = FFmpegInput.open(this, uri)) {
+                    if (input == null) {
+                        throw new IOException("无法打开输入流");
+                    }
+                    converted = convertToModelFormat(input.getPath(), convertedFile);
                 }
 
                 if (converted && convertedFile.exists() && convertedFile.length() > 44) {
@@ -460,12 +670,12 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     /**
      * 使用 FFmpeg 将音频转换为模型所需格式：16kHz 单声道 16-bit PCM WAV
      *
-     * @param inputFile  输入音频文件（任意格式）
+     * @param inputPath  输入音频路径（任意格式，可以是 {@link FFmpegInput#getPath()} 给出的描述符路径）
      * @param outputFile 输出 WAV 文件
      * @return 转换成功返回 true
      */
-    private boolean convertToModelFormat(File inputFile, File outputFile) {
-        if (inputFile == null || !inputFile.exists()) {
+    private boolean convertToModelFormat(String inputPath, File outputFile) {
+        if (inputPath == null || !new File(inputPath).canRead()) {
             Log.e(TAG, "convertToModelFormat: 输入文件不存在");
             return false;
         }
@@ -485,7 +695,7 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
         // -f wav: 输出格式 WAV
         String command = String.format(Locale.US,
                 "-y -i \"%s\" -ar %d -ac 1 -acodec pcm_s16le -f wav \"%s\"",
-                inputFile.getAbsolutePath(),
+                inputPath,
                 SAMPLE_RATE,
                 outputFile.getAbsolutePath());
 
@@ -525,14 +735,58 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
         statusTextView.setText("已选择文件夹，正在扫描音频文件...");
         showProgress(true);
 
-        executor.execute(() -> prepareBatchFilesFromFolder(treeUri));
+        if (!isModelLoaded || deepfakeDetector == null) {
+            showProgress(false);
+            Toast.makeText(this, "模型未加载", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        executor.execute(() -> runBatchPipeline(treeUri));
     }
+
     /**
-     * 遍历选中文件夹，收集并转换其中的音频文件
+     * 遍历选中文件夹，把音频文件提交给三阶段流水线（拷贝 -> 转码 -> 推理）。
+     * 扫描、拷贝、转码与推理同时进行，每个文件完成后立即更新进度。
      */
-    private void prepareBatchFilesFromFolder(Uri treeUri) {
-        convertedBatchFiles.clear();
-        originalBatchNames.clear();
+    private void runBatchPipeline(Uri treeUri) {
+        final List<String> batchNames = new ArrayList<>();
+        final AtomicInteger completed = new AtomicInteger();
+
+        // 阶段一只打开文件描述符（必要时才复制），阶段二由 FFmpeg 直接读取
+        BatchPipeline.Stage<Uri, FFmpegInput> openStage = (fileUri, name) -> FFmpegInput.open(this, fileUri);
+        BatchPipeline.Stage<FFmpegInput, File> convertStage = (input, name) -> {
+            File convertedFile = File.createTempFile("batch_converted_", ".wav", getExternalFilesDir(null));
+            boolean converted = convertToModelFormat(input.getPath(), convertedFile);
+            return converted && convertedFile.exists() && convertedFile.length() > 44 ? convertedFile : null;
+        };
+
+        // 推理阶段只用一个线程：检测器池的批量检测已把每批分给池中各实例并行推理，
+        // 再按实例数开推理线程会让两层并行争抢同一组实例
+        BatchPipeline.Config config = BatchPipeline.Config.defaults().setInferenceWorkers(1);
+
+        // 阶段一打开文件前先按内容哈希查询结果缓存，命中的文件不再转码与推理
+        BatchPipeline.SourceKey<Uri> sourceKey = (fileUri, name) -> computeSourceKey(fileUri);
+
+        BatchPipeline<Uri, FFmpegInput> pipeline = new BatchPipeline<>(openStage, convertStage, deepfakeDetector,
+                config, new BatchPipeline.Listener() {
+            @Override
+            public void onResult(int index, String name, File audioFile, DetectionResult result) {
+                int done = completed.incrementAndGet();
+                runOnUiThread(() -> statusTextView.setText("批量检测进行中... 已完成 " + done + " 个: " + name));
+            }
+
+            @Override
+            public void onComplete(DetectionResult[] results) {
+                String resultText = formatBatchResults(batchNames, results);
+                dumpMetrics();
+                runOnUiThread(() -> {
+                    batchPipeline = null;
+                    showProgress(false);
+                    statusTextView.setText(resultText);
+                });
+            }
+        }, sourceKey, resultCache);
+        batchPipeline = pipeline;
 
         Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
                 treeUri,
@@ -568,93 +822,45 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                     }
 
                     Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(treeUri, docId);
-
-                    runOnUiThread(() -> statusTextView.setText("正在处理: " + name));
-
-                    try {
-                        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.US)
-                                .format(new Date());
-                        String extension = getFileExtension(name);
-                        File tempFile = new File(
-                                getExternalFilesDir(null),
-                                "batch_temp_" + timestamp + extension
-                        );
-
-                        try (InputStream is = getContentResolver().openInputStream(fileUri);
-                             FileOutputStream fos = new FileOutputStream(tempFile)) {
-                            if (is != null) {
-                                byte[] buffer = new byte[8192];
-                                int bytesRead;
-                                while ((bytesRead = is.read(buffer)) != -1) {
-                                    fos.write(buffer, 0, bytesRead);
-                                }
-                            }
-                        }
-
-                        File convertedFile = new File(
-                                getExternalFilesDir(null),
-                                "batch_converted_" + timestamp + ".wav"
-                        );
-
-                        boolean converted = convertToModelFormat(tempFile, convertedFile);
-                        if (tempFile.exists()) {
-                            //noinspection ResultOfMethodCallIgnored
-                            tempFile.delete();
-                        }
-
-                        if (converted && convertedFile.exists() && convertedFile.length() > 44) {
-                            convertedBatchFiles.add(convertedFile);
-                            originalBatchNames.add(name); // 记录原始文件名
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "批量处理单个文件失败: " + name, e);
+                    synchronized (batchNames) {
+                        batchNames.add(name); // 记录原始文件名，下标与提交顺序一致
+                    }
+                    // 队列满时在此阻塞，等待下游阶段腾出位置
+                    if (pipeline.submit(fileUri, name) < 0) {
+                        return;
                     }
                 }
             }
+            pipeline.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipeline.cancel();
         } catch (Exception e) {
             Log.e(TAG, "扫描文件夹失败", e);
-        }
-
-        runOnUiThread(() -> {
-            showProgress(false);
-            if (convertedBatchFiles.isEmpty()) {
-                statusTextView.setText("选中的文件夹中没有可用的音频文件");
-            } else {
-                statusTextView.setText("已准备 " + convertedBatchFiles.size()
-                        + " 个文件，开始批量检测...");
-                startBatchDetection();
+            try {
+                pipeline.close();
+            } catch (InterruptedException ignored) {
+                pipeline.cancel();
             }
-        });
+        }
     }
+
     /**
-     * 执行批量检测，对文件夹中准备好的所有音频进行检测
+     * 生成批量检测结果文本
      */
-    private void startBatchDetection() {
-        if (!isModelLoaded || deepfakeDetector == null) {
-            Toast.makeText(this, "模型未加载", Toast.LENGTH_SHORT).show();
-            return;
+    private String formatBatchResults(List<String> batchNames, DetectionResult[] results) {
+        if (results.length == 0) {
+            return "选中的文件夹中没有可用的音频文件";
         }
-        if (convertedBatchFiles.isEmpty()) {
-            Toast.makeText(this, "没有待检测的文件", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        showProgress(true);
-        statusTextView.setText("批量检测进行中...");
-
-        executor.execute(() -> {
-            StringBuilder sb = new StringBuilder();
-            sb.append("批量检测结果:\n\n");
-
-            for (int i = 0; i < convertedBatchFiles.size(); i++) {
-                File audioFile = convertedBatchFiles.get(i);
-                String displayName = (i < originalBatchNames.size())
-                        ? originalBatchNames.get(i)
-                        : audioFile.getName(); // 兜底
-
-                float realProbability = deepfakeDetector.detect(audioFile.getAbsolutePath());
-
-                if (realProbability >= 0) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("批量检测结果:\n\n");
+        synchronized (batchNames) {
+            for (int i = 0; i < results.length; i++) {
+                String displayName = batchNames.get(i);
+                DetectionResult result = results[i];
+
+                if (result.isSuccess()) {
+                    float realProbability = result.getRealProbability();
                     float realPercent = realProbability * 100;
                     float fakePercent = (1 - realProbability) * 100;
                     String conclusion = realProbability > 0.5f ? "真实" : "伪造";
@@ -662,18 +868,17 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                     sb.append(String.format(Locale.US,
                             "%d. %s -> %s, 置信度 %.1f%% (Real: %.1f%% / Fake: %.1f%%)\n",
                             i + 1, displayName, conclusion, confidence, realPercent, fakePercent));
+                } else if (result.getError() == DetectionResult.Error.SCREENED_OUT) {
+                    sb.append(String.format(Locale.US,
+                            "%d. %s -> 未进行检测（%s）\n", i + 1, displayName, result.getMessage()));
                 } else {
                     sb.append(String.format(Locale.US,
-                            "%d. %s -> 检测失败\n", i + 1, displayName));
+                            "%d. %s -> 检测失败（%s）\n", i + 1, displayName,
+                            result.getError() == DetectionResult.Error.READ_FAILED ? "无法读取或转码" : "推理出错"));
                 }
             }
-
-            String resultText = sb.toString();
-            runOnUiThread(() -> {
-                showProgress(false);
-                statusTextView.setText(resultText);
-            });
-        });
+        }
+        return sb.toString();
     }
 
     /**
@@ -707,145 +912,118 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
                 return;
             }
 
-            isRecording = true;
-            waveformContainer.setVisibility(View.VISIBLE);
-            recordingHint.setText("🎙️ 录音中... 点击停止");
-            recordDetectionButton.setText("停止录音");
-            recordDetectionButton.setBackgroundTintList(
-                    ContextCompat.getColorStateList(this, android.R.color.holo_red_dark));
-
             // 准备录音文件
             String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
             recordedAudioFile = new File(getExternalFilesDir(null), "recorded_" + timestamp + ".wav");
 
             audioRecord.startRecording();
+            isRecording = true;
+
+            // 边录边写：采集线程读入环形缓冲区，写盘线程追加到文件，内存占用与录音时长无关
+            AudioRecord record = audioRecord;
+            wavRecorder = new StreamingWavRecorder(recordedAudioFile, SAMPLE_RATE, bufferSize,
+                    SAMPLE_RATE * 2 * RECORDING_RING_SECONDS);
+            wavRecorder.start(record::read);
+
+            // 实时检测：独立线程每 500ms 对环形缓冲区中最近 4 秒打分，推理跟不上时丢弃节拍
+            liveScoreView.clear();
+            liveScorer = new LiveScorer(deepfakeDetector, wavRecorder::readLatest, LIVE_WINDOW_FRAMES,
+                    LIVE_MIN_FRAMES, LIVE_HOP_MILLIS, LIVE_ALERT_THRESHOLD, new LiveScorer.Listener() {
+                @Override
+                public void onScore(float fakeProbability, int windowFrames) {
+                    runOnUiThread(() -> {
+                        liveScoreView.addScore(fakeProbability);
+                        recordingHint.setText(String.format(Locale.US,
+                                "🎙️ 录音中 · 实时伪造概率 %.0f%%", fakeProbability * 100));
+                    });
+                }
+
+                @Override
+                public void onAlert(float fakeProbability) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                            String.format(Locale.US, "⚠️ 实时检测：疑似合成语音 (%.0f%%)", fakeProbability * 100),
+                            Toast.LENGTH_SHORT).show());
+                }
+            });
+            liveScorer.start();
 
-            // 在后台线程写入数据
-            executor.execute(this::writeAudioDataToFile);
+            waveformContainer.setVisibility(View.VISIBLE);
+            recordingHint.setText("🎙️ 录音中... 点击停止");
+            recordDetectionButton.setText("停止录音");
+            recordDetectionButton.setBackgroundTintList(
+                    ContextCompat.getColorStateList(this, android.R.color.holo_red_dark));
 
             Toast.makeText(this, "开始录音，说完后点击停止", Toast.LENGTH_SHORT).show();
 
         } catch (SecurityException e) {
             Log.e(TAG, "录音权限被拒绝", e);
             Toast.makeText(this, "需要录音权限", Toast.LENGTH_SHORT).show();
+        } catch (IOException e) {
+            Log.e(TAG, "创建录音文件失败", e);
+            wavRecorder = null;
+            stopRecorder();
+            Toast.makeText(this, "无法创建录音文件", Toast.LENGTH_SHORT).show();
         }
     }
 
     /**
-     * 将录音数据写入 WAV 文件
+     * 停止采集并等待录音文件写完。AudioRecord 在采集线程退出后才释放，避免与阻塞中的 read 竞争。
+     *
+     * @return 录音文件写完（WAV 头已回填）后完成；未在录音时立即以 null 完成
      */
-    private void writeAudioDataToFile() {
-        int bufferSize = AudioRecord.getMinBufferSize(SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
-        byte[] buffer = new byte[bufferSize];
-        List<byte[]> audioChunks = new ArrayList<>();
-
-        while (isRecording && audioRecord != null) {
-            int bytesRead = audioRecord.read(buffer, 0, buffer.length);
-            if (bytesRead > 0) {
-                byte[] chunk = new byte[bytesRead];
-                System.arraycopy(buffer, 0, chunk, 0, bytesRead);
-                audioChunks.add(chunk);
+    private CompletableFuture<File> stopRecorder() {
+        isRecording = false;
+        AudioRecord record = audioRecord;
+        StreamingWavRecorder recorder = wavRecorder;
+        LiveScorer scorer = liveScorer;
+        audioRecord = null;
+        wavRecorder = null;
+        liveScorer = null;
+
+        // 先让录音器进入停止状态，再停止 AudioRecord：read 因停止而返回的错误码不会被当作采集失败
+        CompletableFuture<File> completion = recorder != null ? recorder.stop() : null;
+        if (record != null) {
+            try {
+                record.stop(); // 使采集线程阻塞中的 read 立即返回
+            } catch (Exception e) {
+                Log.e(TAG, "停止录音时出错", e);
             }
         }
-
-        // 写入 WAV 文件
-        try {
-            int totalDataSize = 0;
-            for (byte[] chunk : audioChunks) {
-                totalDataSize += chunk.length;
-            }
-
-            try (FileOutputStream fos = new FileOutputStream(recordedAudioFile)) {
-                // 写入 WAV 头
-                writeWavHeader(fos, totalDataSize, SAMPLE_RATE, 1, 16);
-                // 写入音频数据
-                for (byte[] chunk : audioChunks) {
-                    fos.write(chunk);
-                }
-            }
-
-            Log.i(TAG, "录音保存成功: " + recordedAudioFile.getAbsolutePath());
-        } catch (IOException e) {
-            Log.e(TAG, "保存录音失败", e);
+        if (completion == null) {
+            if (record != null) record.release();
+            return CompletableFuture.completedFuture(null);
         }
-    }
-
-    /**
-     * 写入 WAV 文件头
-     */
-    private void writeWavHeader(FileOutputStream out, int totalAudioLen,
-                                 int sampleRate, int channels, int bitsPerSample) throws IOException {
-        int totalDataLen = totalAudioLen + 36;
-        int byteRate = sampleRate * channels * bitsPerSample / 8;
-        int blockAlign = channels * bitsPerSample / 8;
-
-        byte[] header = new byte[44];
-
-        // RIFF chunk
-        header[0] = 'R'; header[1] = 'I'; header[2] = 'F'; header[3] = 'F';
-        header[4] = (byte) (totalDataLen & 0xff);
-        header[5] = (byte) ((totalDataLen >> 8) & 0xff);
-        header[6] = (byte) ((totalDataLen >> 16) & 0xff);
-        header[7] = (byte) ((totalDataLen >> 24) & 0xff);
-        header[8] = 'W'; header[9] = 'A'; header[10] = 'V'; header[11] = 'E';
-
-        // fmt chunk
-        header[12] = 'f'; header[13] = 'm'; header[14] = 't'; header[15] = ' ';
-        header[16] = 16; header[17] = 0; header[18] = 0; header[19] = 0; // chunk size
-        header[20] = 1; header[21] = 0; // audio format (PCM)
-        header[22] = (byte) channels; header[23] = 0;
-        header[24] = (byte) (sampleRate & 0xff);
-        header[25] = (byte) ((sampleRate >> 8) & 0xff);
-        header[26] = (byte) ((sampleRate >> 16) & 0xff);
-        header[27] = (byte) ((sampleRate >> 24) & 0xff);
-        header[28] = (byte) (byteRate & 0xff);
-        header[29] = (byte) ((byteRate >> 8) & 0xff);
-        header[30] = (byte) ((byteRate >> 16) & 0xff);
-        header[31] = (byte) ((byteRate >> 24) & 0xff);
-        header[32] = (byte) blockAlign; header[33] = 0;
-        header[34] = (byte) bitsPerSample; header[35] = 0;
-
-        // data chunk
-        header[36] = 'd'; header[37] = 'a'; header[38] = 't'; header[39] = 'a';
-        header[40] = (byte) (totalAudioLen & 0xff);
-        header[41] = (byte) ((totalAudioLen >> 8) & 0xff);
-        header[42] = (byte) ((totalAudioLen >> 16) & 0xff);
-        header[43] = (byte) ((totalAudioLen >> 24) & 0xff);
-
-        out.write(header, 0, 44);
+        return completion.whenComplete((file, error) -> {
+            // 在写盘线程上等待实时打分结束，避免与随后的整段检测同时推理
+            if (scorer != null) {
+                scorer.stop();
+                Log.i(TAG, "实时检测: 打分 " + scorer.getScoredHops() + " 次, 跳过 " + scorer.getDroppedHops() + " 个节拍");
+            }
+            record.release();
+        });
     }
 
     /**
      * 停止录音并开始检测
      */
     private void stopRecordingAndDetect() {
-        isRecording = false;
-
-        if (audioRecord != null) {
-            try {
-                audioRecord.stop();
-                audioRecord.release();
-            } catch (Exception e) {
-                Log.e(TAG, "停止录音时出错", e);
-            }
-            audioRecord = null;
-        }
+        long stopTime = System.currentTimeMillis();
+        CompletableFuture<File> recording = stopRecorder();
 
         waveformContainer.setVisibility(View.GONE);
         recordDetectionButton.setText("实时检测");
         recordDetectionButton.setBackgroundTintList(
                 ContextCompat.getColorStateList(this, android.R.color.holo_orange_dark));
 
-        // 等待文件写入完成后检测
-        executor.execute(() -> {
-            try {
-                Thread.sleep(500); // 等待文件写入完成
-            } catch (InterruptedException ignored) {}
-
-            if (recordedAudioFile != null && recordedAudioFile.exists() && recordedAudioFile.length() > 44) {
+        // 文件写完（头部已回填）后立即检测，回调在写盘线程上执行
+        recording.whenComplete((file, error) -> {
+            Log.d(TAG, "停止录音到文件就绪用时: " + (System.currentTimeMillis() - stopTime) + "ms");
+            if (error == null && file != null && file.length() > 44) {
+                // 录音文件本身作为缓存键，对同一段录音重复检测时直接复用结果
+                String recordingKey = computeSourceKey(Uri.fromFile(file));
                 runOnUiThread(() -> {
-                    selectedAudioFile = recordedAudioFile;
+                    selectedAudioFile = file;
+                    currentSourceKey = recordingKey;
                     currentInputType = InputType.AUDIO;
                     statusTextView.setText("录音完成，正在检测...");
                     startDetection();
@@ -944,18 +1122,6 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
         return result != null ? result : "unknown";
     }
 
-    /**
-     * 获取文件扩展名
-     */
-    private String getFileExtension(String fileName) {
-        if (fileName == null) return ".wav";
-        int dotIndex = fileName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            return fileName.substring(dotIndex).toLowerCase(Locale.US);
-        }
-        return ".wav";
-    }
-
     /**
      * 检查是否是支持的音频格式
      */
@@ -1015,16 +1181,25 @@ public class MainActivity extends AppCompatActivity implements AudioExtractionLi
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (batchPipeline != null) {
+            batchPipeline.cancel();
+            batchPipeline = null;
+        }
+        if (pendingDetection != null) {
+            // 屏幕旋转或退出后不再为无人显示的结果做推理
+            pendingDetection.cancel(false);
+            pendingDetection = null;
+        }
         executor.shutdown();
+        if (asyncDetector != null) {
+            asyncDetector.shutdown();
+        }
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
         }
         if (audioRecord != null) {
-            try {
-                audioRecord.release();
-            } catch (Exception ignored) {}
-            audioRecord = null;
+            stopRecorder();
         }
     }
 }
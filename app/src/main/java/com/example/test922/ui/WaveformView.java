@@ -10,6 +10,8 @@ import android.view.View;
 
 import androidx.annotation.Nullable;
 
+import com.example.test922.audio.processor.WaveformPeaks;
+
 public class WaveformView extends View {
 
     private Paint axisPaint;
@@ -18,6 +20,11 @@ public class WaveformView extends View {
     private float[] waveform;
     private long durationMs; // Total duration of the original audio in milliseconds
 
+    // Min/max envelope filled progressively by a decoder thread; snapshot into reused arrays on draw
+    private WaveformPeaks peaks;
+    private float[] peakMin;
+    private float[] peakMax;
+
     private int paddingLeft = 100;
     private int paddingTop = 50;
     private int paddingRight = 50;
@@ -58,10 +65,26 @@ public class WaveformView extends View {
 
     public void setWaveform(float[] waveform, long durationMs) {
         this.waveform = waveform;
+        this.peaks = null;
         this.durationMs = durationMs;
         invalidate(); // Request a redraw
     }
 
+    /**
+     * Draws the min/max envelope of {@code peaks}. The peaks may still be filling on another thread;
+     * call {@link #postInvalidate()} to redraw with the latest snapshot.
+     */
+    public void setPeaks(WaveformPeaks peaks, long durationMs) {
+        this.peaks = peaks;
+        this.waveform = null;
+        this.durationMs = durationMs;
+        if (peakMin == null || peakMin.length < peaks.getBucketCount()) {
+            peakMin = new float[peaks.getBucketCount()];
+            peakMax = new float[peaks.getBucketCount()];
+        }
+        invalidate();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
@@ -97,6 +120,11 @@ public class WaveformView extends View {
             }
         }
 
+        if (peaks != null) {
+            drawPeaks(canvas, graphWidth, graphHeight);
+            return;
+        }
+
         if (waveform == null) {
             return;
         }
@@ -113,4 +141,24 @@ public class WaveformView extends View {
             canvas.drawLine(startX, startY, stopX, stopY, wavePaint);
         }
     }
+
+    private void drawPeaks(Canvas canvas, int graphWidth, int graphHeight) {
+        int count = peaks.copyTo(peakMin, peakMax);
+        if (count == 0) {
+            return;
+        }
+        // The decoder may merge buckets between the two calls; never draw past the right edge
+        int span = Math.max(count, peaks.getSpan());
+
+        // One vertical line per bucket, from its min to its max; undecoded time stays blank
+        float xScale = (float) graphWidth / span;
+        float graphCenterY = paddingTop + (float) graphHeight / 2;
+        float halfHeight = graphHeight / 2f;
+
+        for (int i = 0; i < count; i++) {
+            float x = paddingLeft + (i + 0.5f) * xScale;
+            canvas.drawLine(x, graphCenterY - peakMax[i] * halfHeight,
+                    x, graphCenterY - peakMin[i] * halfHeight, wavePaint);
+        }
+    }
 }
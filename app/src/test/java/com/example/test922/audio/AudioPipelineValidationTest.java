@@ -1,5 +1,6 @@
 package com.example.test922.audio;
 
+import com.example.test922.audio.processor.AudioStatistics;
 import com.example.test922.audio.processor.WavUtils;
 
 import org.junit.Assert;
@@ -15,7 +16,7 @@ import java.nio.ByteOrder;
 
 /**
  * 音频处理管道验证测试
- * 测试 WavUtils.readWavFile 的正确性
+ * 测试 WavUtils.readWavFile / mapWavFile 的正确性
  */
 @RunWith(RobolectricTestRunner.class)
 public class AudioPipelineValidationTest {
@@ -142,6 +143,102 @@ public class AudioPipelineValidationTest {
         Assert.assertNull("空路径应返回 null", result);
     }
 
+    /**
+     * 测试内存映射读取与 readWavFile 结果一致，并且可以只读取一个窗口
+     */
+    @Test
+    public void testMapWavFile_windowMatchesFullRead() throws Exception {
+        int sr = 16000;
+        int total = 5000;
+        short[] pcm = new short[total];
+        for (int i = 0; i < total; i++) {
+            pcm[i] = (short) ((i * 37) % 65536 - 32768);
+        }
+
+        File wavFile = File.createTempFile("test_mmap", ".wav");
+        wavFile.deleteOnExit();
+        writeWavMono16(wavFile, sr, pcm);
+
+        float[] full = WavUtils.readWavFile(wavFile.getAbsolutePath());
+        Assert.assertNotNull(full);
+
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(wavFile.getAbsolutePath())) {
+            Assert.assertNotNull("mapWavFile 返回 null", wav);
+            Assert.assertEquals("帧数不正确", total, wav.getFrameCount());
+            Assert.assertEquals("ShortBuffer 视图长度不正确", total, wav.getSamples().remaining());
+            Assert.assertEquals("ShortBuffer 视图应为原始采样", pcm[123], wav.getSamples().get(123));
+
+            // 读取中间的一个窗口
+            float[] window = new float[1000];
+            int read = wav.read(2000, window, 0, window.length);
+            Assert.assertEquals(1000, read);
+            for (int i = 0; i < read; i++) {
+                Assert.assertEquals("窗口数据不一致 @" + i, full[2000 + i], window[i], 0f);
+            }
+
+            // 跨越文件末尾的窗口只返回剩余部分
+            read = wav.read(total - 10, window, 0, window.length);
+            Assert.assertEquals("末尾窗口长度不正确", 10, read);
+
+            // 超出范围返回 0
+            Assert.assertEquals(0, wav.read(total, window, 0, window.length));
+        }
+    }
+
+    /**
+     * 测试内存映射读取对立体声取平均值
+     */
+    @Test
+    public void testMapWavFile_stereoDownmix() throws Exception {
+        short[] interleaved = new short[]{16384, 0, -16384, -16384, 32767, -32768};
+        File wavFile = File.createTempFile("test_mmap_stereo", ".wav");
+        wavFile.deleteOnExit();
+        writeWavMono16(wavFile, 16000, interleaved);
+        // 将头部改为双声道
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(wavFile, "rw")) {
+            raf.seek(22);
+            raf.writeShort(Short.reverseBytes((short) 2));
+            raf.seek(32);
+            raf.writeShort(Short.reverseBytes((short) 4));
+        }
+
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(wavFile.getAbsolutePath())) {
+            Assert.assertNotNull(wav);
+            Assert.assertEquals(2, wav.getChannels());
+            Assert.assertEquals(3, wav.getFrameCount());
+
+            float[] window = new float[3];
+            Assert.assertEquals(3, wav.read(0, window, 0, 3));
+            Assert.assertEquals(0.25f, window[0], 0.0001f);
+            Assert.assertEquals(-0.5f, window[1], 0.0001f);
+            Assert.assertEquals(0.0f, window[2], 0.0001f);
+        }
+    }
+
+    @Test
+    public void testMapWavFile_fusedStatistics() throws Exception {
+        short[] samples = new short[]{16384, -16384, 0, 8192};
+        File wavFile = File.createTempFile("test_mmap_stats", ".wav");
+        wavFile.deleteOnExit();
+        writeWavMono16(wavFile, 16000, samples);
+
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(wavFile.getAbsolutePath())) {
+            Assert.assertNotNull(wav);
+            java.nio.FloatBuffer window = java.nio.FloatBuffer.allocate(4);
+            AudioStatistics stats = new AudioStatistics();
+            Assert.assertEquals(4, wav.read(0, window, 0, 4, stats));
+
+            Assert.assertEquals("统计点数应等于读取帧数", 4, stats.getCount());
+            Assert.assertEquals(-0.5f, stats.getMin(), 0.0001f);
+            Assert.assertEquals(0.5f, stats.getMax(), 0.0001f);
+            Assert.assertEquals(0.0625f, stats.getMean(), 0.0001f);
+            Assert.assertEquals((float) Math.sqrt((0.25 + 0.25 + 0.0625) / 4), stats.getRms(), 0.0001f);
+            Assert.assertEquals("一个零值采样点", 0.25f, stats.getSilenceRatio(), 0.0001f);
+            Assert.assertEquals(4, stats.getPreviewLength());
+            Assert.assertEquals(window.get(3), stats.getPreview(3), 0f);
+        }
+    }
+
     /**
      * 测试 padOrTrim 逻辑 - 通过反射测试 RawNet2Strategy 的私有方法
      * 这里我们直接测试逻辑的正确性
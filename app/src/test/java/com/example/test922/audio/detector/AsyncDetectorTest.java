@@ -0,0 +1,163 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncDetector 测试：结果携带分阶段耗时与错误类型，取消/超时后不再执行推理
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AsyncDetectorTest {
+
+    /** 固定输出 Real=0.7 的桩推理；可阻塞到放行，用于占住检测线程 */
+    static final class GatedRunner implements ModelRunner {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+
+        @Override
+        public float[] forward(Tensor input) {
+            calls.incrementAndGet();
+            started.countDown();
+            CountDownLatch g = gate;
+            if (g != null) {
+                try {
+                    g.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new float[]{0.3f, 0.7f};
+        }
+    }
+
+    private static String writeClip() throws Exception {
+        short[] pcm = new short[32000];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) ((i * 131) % 20000 - 10000);
+        }
+        File f = File.createTempFile("async_clip", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, pcm, 16000, 1, 16));
+        return f.getAbsolutePath();
+    }
+
+    @Test
+    public void detect_returnsProbabilitiesAndStageTimings() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncDetector detector = new AsyncDetector(new RawNet2Strategy(new GatedRunner()), executor);
+
+        DetectionResult result = detector.detect(writeClip()).get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(result.toString(), result.isSuccess());
+        Assert.assertEquals(0.7f, result.getRealProbability(), 1e-6f);
+        Assert.assertEquals(0.3f, result.getFakeProbability(), 1e-6f);
+        Assert.assertTrue("读取耗时应被记录", result.getReadNanos() > 0);
+        Assert.assertTrue("推理耗时应被记录", result.getForwardNanos() > 0);
+        Assert.assertEquals(result.getReadNanos() + result.getPreprocessNanos() + result.getForwardNanos()
+                + result.getPostprocessNanos(), result.getTotalNanos());
+
+        detector.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void failures_haveTypedErrors() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncDetector loaded = new AsyncDetector(new RawNet2Strategy(new GatedRunner()), executor);
+        DetectionResult missing = loaded.detect("/non/existent.wav").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(DetectionResult.Error.READ_FAILED, missing.getError());
+        Assert.assertEquals(-1f, missing.getRealProbability(), 0f);
+        Assert.assertEquals(-1f, missing.getFakeProbability(), 0f);
+
+        AsyncDetector notLoaded = new AsyncDetector(new RawNet2Strategy(), executor);
+        Assert.assertEquals(DetectionResult.Error.MODEL_NOT_LOADED,
+                notLoaded.detect(writeClip()).get(5, TimeUnit.SECONDS).getError());
+
+        executor.shutdown();
+        DetectionResult rejected = loaded.detect(writeClip()).get(5, TimeUnit.SECONDS);
+        Assert.assertFalse("执行器关闭后应返回失败而不是抛异常", rejected.isSuccess());
+        loaded.shutdown();
+        notLoaded.shutdown();
+    }
+
+    @Test
+    public void cancelledWhileQueued_neverRunsInference() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        runner.gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncDetector detector = new AsyncDetector(new RawNet2Strategy(runner), executor);
+        String clip = writeClip();
+
+        CompletableFuture<DetectionResult> first = detector.detect(clip);
+        Assert.assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<DetectionResult> second = detector.detect(clip);
+        second.cancel(false);
+        runner.gate.countDown();
+
+        Assert.assertTrue(first.get(5, TimeUnit.SECONDS).isSuccess());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue(second.isCancelled());
+        Assert.assertEquals("取消的任务不应再做推理", 1, runner.calls.get());
+        detector.shutdown();
+    }
+
+    @Test
+    public void deadline_completesEarlyAndSkipsRemainingWork() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        runner.gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncDetector detector = new AsyncDetector(new RawNet2Strategy(runner), executor);
+        String clip = writeClip();
+
+        long t0 = System.nanoTime();
+        CompletableFuture<List<DetectionResult>> batch = detector.detectAll(Arrays.asList(clip, clip, clip), 100);
+        List<DetectionResult> results = batch.get(5, TimeUnit.SECONDS);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+        runner.gate.countDown();
+
+        Assert.assertTrue("应在截止时间附近返回: " + waitedMillis + "ms", waitedMillis < 1000);
+        Assert.assertEquals(3, results.size());
+        for (DetectionResult result : results) {
+            Assert.assertEquals(DetectionResult.Error.DEADLINE_EXCEEDED, result.getError());
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals("超时后排队中的文件不应再做推理", 1, runner.calls.get());
+        detector.shutdown();
+    }
+
+    @Test
+    public void cancellingBatch_cancelsPendingFiles() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        runner.gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncDetector detector = new AsyncDetector(new RawNet2Strategy(runner), executor);
+        String clip = writeClip();
+
+        CompletableFuture<List<DetectionResult>> batch = detector.detectAll(Arrays.asList(clip, clip, clip, clip), 0);
+        Assert.assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+        batch.cancel(false);
+        runner.gate.countDown();
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals("放弃的批量检测不应继续推理", 1, runner.calls.get());
+        detector.shutdown();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.test922.audio.detector;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * DetectionResultCache 测试：LRU 淘汰、持久化、模型变化失效以及内容哈希
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DetectionResultCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("result_cache").toFile();
+        dir.deleteOnExit();
+    }
+
+    @Test
+    public void getPut_evictsLeastRecentlyUsed() {
+        DetectionResultCache cache = new DetectionResultCache(dir, "model@1", "RawNet2", 2);
+        cache.put("a", 0.1f);
+        cache.put("b", 0.2f);
+        Assert.assertEquals(0.1f, cache.get("a"), 0f); // a 变为最近使用
+        cache.put("c", 0.3f);
+
+        Assert.assertEquals("超出上限时应淘汰最久未使用的 b", -1f, cache.get("b"), 0f);
+        Assert.assertEquals(0.1f, cache.get("a"), 0f);
+        Assert.assertEquals(0.3f, cache.get("c"), 0f);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void put_ignoresFailuresAndNullKeys() {
+        DetectionResultCache cache = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        cache.put("a", -1f);
+        cache.put(null, 0.5f);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(-1f, cache.get(null), 0f);
+    }
+
+    @Test
+    public void flush_persistsAcrossInstances() {
+        DetectionResultCache cache = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        cache.put("a", 0.25f);
+        cache.put("b", 0.75f);
+        cache.flush();
+
+        DetectionResultCache reloaded = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        Assert.assertEquals(2, reloaded.size());
+        Assert.assertEquals(0.25f, reloaded.get("a"), 0f);
+        Assert.assertEquals(0.75f, reloaded.get("b"), 0f);
+        Assert.assertFalse("不应残留临时文件", new File(dir, "detection_results.tsv.tmp").exists());
+    }
+
+    @Test
+    public void get_doesNotRewriteFile() {
+        DetectionResultCache cache = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        cache.put("a", 0.25f);
+        cache.flush();
+        File file = new File(dir, "detection_results.tsv");
+        Assert.assertTrue(file.setLastModified(1000L));
+
+        DetectionResultCache reloaded = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        Assert.assertEquals(0.25f, reloaded.get("a"), 0f);
+        reloaded.flush();
+        Assert.assertEquals("只有命中时不应重写缓存文件", 1000L, file.lastModified());
+    }
+
+    @Test
+    public void modelOrDetectorChange_invalidatesEntries() {
+        DetectionResultCache cache = new DetectionResultCache(dir, "model@1", "RawNet2", 10);
+        cache.put("a", 0.25f);
+        cache.flush();
+
+        Assert.assertEquals("模型版本变化后旧结果应失效",
+                0, new DetectionResultCache(dir, "model@2", "RawNet2", 10).size());
+        Assert.assertEquals("检测器变化后旧结果应失效",
+                0, new DetectionResultCache(dir, "model@1", "Other", 10).size());
+    }
+
+    @Test
+    public void hashSource_dependsOnContent() throws Exception {
+        byte[] content = new byte[200_000];
+        new Random(3).nextBytes(content);
+        File a = writeTemp(content);
+        File b = writeTemp(content);
+        content[content.length / 2] ^= 1;
+        File c = writeTemp(content);
+
+        String hashA = hash(a);
+        Assert.assertNotNull(hashA);
+        Assert.assertEquals("内容相同的文件哈希应相同", hashA, hash(b));
+        Assert.assertNotEquals("内容不同的文件哈希应不同", hashA, hash(c));
+    }
+
+    @Test
+    public void hashSource_largeFileSamplesMiddle() throws Exception {
+        // 超过完整哈希上限的稀疏文件：只读取首尾与中间采样块
+        File big = File.createTempFile("big_source", ".bin");
+        big.deleteOnExit();
+        long size = 64L * 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(big, "rw")) {
+            raf.setLength(size);
+        }
+        String before = hash(big);
+        try (RandomAccessFile raf = new RandomAccessFile(big, "rw")) {
+            // 第 32 个采样块的起点，位于文件中部
+            raf.seek(1024L * 1024 + (size - 2L * 1024 * 1024) * 32 / 64);
+            raf.write(1);
+        }
+        Assert.assertNotEquals("采样块内的修改应改变哈希", before, hash(big));
+    }
+
+    private static File writeTemp(byte[] content) throws Exception {
+        File file = File.createTempFile("hash_source", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static String hash(File file) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return DetectionResultCache.hashSource(raf.getChannel());
+        }
+    }
+}
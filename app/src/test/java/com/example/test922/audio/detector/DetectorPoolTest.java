@@ -0,0 +1,160 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DetectorPool 测试：结果与输入对应、实例不被并发使用，以及批量检测在所有实例上并行
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DetectorPoolTest {
+
+    private static final int LENGTH = 64000;
+
+    /** 以首个采样作为 Real 概率的桩推理；统计并发，可选地做固定计算量模拟 CPU 负载 */
+    static final class CountingRunner implements ModelRunner {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final int workPerRow;
+        volatile double sink;
+
+        CountingRunner(int workPerRow) {
+            this.workPerRow = workPerRow;
+        }
+
+        @Override
+        public float[] forward(Tensor input) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                float[] data = input.getDataAsFloatArray();
+                int rows = (int) input.shape()[0];
+                float[] out = new float[rows * 2];
+                double acc = 0;
+                for (int r = 0; r < rows; r++) {
+                    float real = data[r * LENGTH];
+                    out[r * 2] = 1f - real;
+                    out[r * 2 + 1] = real;
+                    for (int k = 0; k < workPerRow; k++) {
+                        acc += Math.sqrt(k + real);
+                    }
+                }
+                sink = acc;
+                return out;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /** 不需要 assets 的 RawNet2 实例 */
+    static RawNet2Strategy stubInstance(ModelRunner runner) {
+        return new RawNet2Strategy(runner) {
+            @Override
+            public boolean loadModel(Context context, String assetName) {
+                return true;
+            }
+        };
+    }
+
+    private static float[][] clips(int count) {
+        float[][] clips = new float[count][];
+        for (int i = 0; i < count; i++) {
+            clips[i] = new float[LENGTH];
+            Arrays.fill(clips[i], (i % 100) / 100f);
+        }
+        return clips;
+    }
+
+    @Test
+    public void detectBatch_resultsMatchInputOrder() {
+        DetectorPool pool = new DetectorPool(() -> stubInstance(new CountingRunner(0)), 3, 1);
+        Assert.assertTrue(pool.loadModel(null, "model.ptl"));
+
+        float[] results = pool.detectBatch(clips(20));
+        for (int i = 0; i < results.length; i++) {
+            Assert.assertEquals("第 " + i + " 个结果应与输入对应", i / 100f, results[i], 1e-6f);
+        }
+        Assert.assertEquals("RawNet2", pool.getName());
+        pool.shutdown();
+    }
+
+    @Test
+    public void concurrentCallers_neverShareAnInstance() throws Exception {
+        CountingRunner[] runners = new CountingRunner[3];
+        AtomicInteger created = new AtomicInteger();
+        DetectorPool pool = new DetectorPool(() -> {
+            CountingRunner runner = new CountingRunner(20_000);
+            runners[created.getAndIncrement()] = runner;
+            return stubInstance(runner);
+        }, 3, 1);
+        Assert.assertTrue(pool.loadModel(null, "model.ptl"));
+
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        CountDownLatch done = new CountDownLatch(6);
+        AtomicInteger wrong = new AtomicInteger();
+        for (int c = 0; c < 6; c++) {
+            callers.execute(() -> {
+                float[] results = pool.detectBatch(clips(10));
+                for (int i = 0; i < results.length; i++) {
+                    if (Math.abs(results[i] - i / 100f) > 1e-6f) wrong.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        callers.shutdown();
+        pool.shutdown();
+
+        Assert.assertEquals("并发调用的结果不应串扰", 0, wrong.get());
+        for (CountingRunner runner : runners) {
+            Assert.assertEquals("同一实例不应被多个线程同时使用", 1, runner.maxInFlight.get());
+        }
+    }
+
+    @Test
+    public void notLoaded_returnsFailure() {
+        DetectorPool pool = new DetectorPool(() -> stubInstance(new CountingRunner(0)), 2, 1);
+        Assert.assertEquals(-1f, pool.detect("/non/existent.wav"), 0f);
+        Assert.assertNull(pool.detectStream("/non/existent.wav", null, null));
+    }
+
+    @Test
+    public void detectBatch_fansOutAcrossAllInstances() {
+        // 每个实例的首次推理都要等到所有实例都进入推理才返回：只有各段真正并行时才不会超时
+        int size = 3;
+        CountDownLatch allEntered = new CountDownLatch(size);
+        AtomicInteger timedOut = new AtomicInteger();
+        DetectorPool pool = new DetectorPool(() -> {
+            CountingRunner runner = new CountingRunner(0);
+            return stubInstance(input -> {
+                allEntered.countDown();
+                try {
+                    if (!allEntered.await(5, TimeUnit.SECONDS)) timedOut.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return runner.forward(input);
+            });
+        }, size, 1);
+        Assert.assertTrue(pool.loadModel(null, "model.ptl"));
+
+        float[] results = pool.detectBatch(clips(size * 4));
+        Assert.assertEquals("一次批量检测应同时用上池中所有实例", 0, timedOut.get());
+        for (int i = 0; i < results.length; i++) {
+            Assert.assertEquals("第 " + i + " 个结果应与输入对应", i / 100f, results[i], 1e-6f);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EnsembleDetector 测试：共享一次解码、按权重融合、第一个模型足够确定时提前退出
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EnsembleDetectorTest {
+
+    /** 输出固定分数的桩推理，记录调用次数与输入长度 */
+    static final class FixedRunner implements ModelRunner {
+        final AtomicInteger calls = new AtomicInteger();
+        final float[] output;
+        volatile long inputLength;
+
+        FixedRunner(float... output) {
+            this.output = output;
+        }
+
+        @Override
+        public float[] forward(Tensor input) {
+            calls.incrementAndGet();
+            inputLength = input.shape()[input.shape().length - 1];
+            return output.clone();
+        }
+    }
+
+    private static ModelSpec spec(String name, int inputLength, int sampleRate, int realIdx,
+                                  ModelSpec.OutputType outputType, float weight) {
+        return new ModelSpec(name, name + ".ptl", inputLength, sampleRate, realIdx, outputType, weight);
+    }
+
+    private static String writeClip(int sampleRate) throws Exception {
+        short[] pcm = new short[24000];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) ((i * 97) % 16000 - 8000);
+        }
+        File f = File.createTempFile("ensemble_clip", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, pcm, sampleRate, 1, 16));
+        return f.getAbsolutePath();
+    }
+
+    @Test
+    public void detect_fusesWeightedAcrossModels() throws Exception {
+        FixedRunner a = new FixedRunner(0.2f, 0.8f);
+        // Logits 输出，Real 在下标 0：softmax(0, 0) = 0.5
+        FixedRunner b = new FixedRunner(0f, 0f);
+        List<RawNet2Strategy> members = Arrays.asList(
+                new RawNet2Strategy(spec("A", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 3f), a),
+                new RawNet2Strategy(spec("B", 32000, 16000, 0, ModelSpec.OutputType.LOGITS, 1f), b));
+        EnsembleDetector detector = EnsembleDetector.withMembers(members, 1.01f);
+
+        DetectionResult result = detector.detectDetailed(writeClip(16000), null);
+        Assert.assertTrue(result.toString(), result.isSuccess());
+        Assert.assertEquals("加权平均 (3*0.8 + 1*0.5) / 4", 0.725f, result.getRealProbability(), 1e-5f);
+        Assert.assertEquals(1, a.calls.get());
+        Assert.assertEquals(1, b.calls.get());
+        Assert.assertEquals("各模型按自己的输入长度构造张量", 64000, a.inputLength);
+        Assert.assertEquals(32000, b.inputLength);
+        Assert.assertEquals("调用方按最长的成员输入准备音频", 64000, detector.getInputLength());
+        Assert.assertEquals(32000, members.get(1).getInputLength());
+        Assert.assertEquals("Ensemble(A+B)", detector.getName());
+        Assert.assertEquals(0, detector.getEarlyExitCount());
+    }
+
+    @Test
+    public void detect_exitsEarlyWhenFirstModelIsConfident() throws Exception {
+        FixedRunner a = new FixedRunner(0.02f, 0.98f);
+        FixedRunner b = new FixedRunner(0.9f, 0.1f);
+        EnsembleDetector detector = EnsembleDetector.withMembers(Arrays.asList(
+                new RawNet2Strategy(spec("A", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 1f), a),
+                new RawNet2Strategy(spec("B", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 1f), b)),
+                0.95f);
+
+        Assert.assertEquals(0.98f, detector.detect(writeClip(16000)), 1e-6f);
+        Assert.assertEquals("第一个模型足够确定时不运行第二个模型", 0, b.calls.get());
+        Assert.assertEquals(1, detector.getEarlyExitCount());
+
+        // 内存中的片段同样提前退出
+        float[] fused = detector.detectBatch(new float[][]{new float[16000]});
+        Assert.assertEquals(0.98f, fused[0], 1e-6f);
+        Assert.assertEquals(2, a.calls.get());
+        Assert.assertEquals(0, b.calls.get());
+        Assert.assertEquals(2, detector.getEarlyExitCount());
+    }
+
+    @Test
+    public void detect_sampleRateMismatchFailsWithoutInference() throws Exception {
+        FixedRunner a = new FixedRunner(0.5f, 0.5f);
+        EnsembleDetector detector = EnsembleDetector.withMembers(Arrays.asList(
+                new RawNet2Strategy(spec("A", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 1f), a),
+                new RawNet2Strategy(spec("B", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 1f), a)),
+                1.01f);
+
+        DetectionResult result = detector.detectDetailed(writeClip(8000), null);
+        Assert.assertEquals(DetectionResult.Error.READ_FAILED, result.getError());
+        Assert.assertEquals(0, a.calls.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsMixedSampleRates() {
+        FixedRunner a = new FixedRunner(0.5f, 0.5f);
+        EnsembleDetector.withMembers(Arrays.asList(
+                new RawNet2Strategy(spec("A", 64000, 16000, 1, ModelSpec.OutputType.PROBABILITY, 1f), a),
+                new RawNet2Strategy(spec("B", 32000, 8000, 1, ModelSpec.OutputType.PROBABILITY, 1f), a)),
+                1.01f);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.test922.audio.detector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LiveScorer 测试：基于 RawNet2Strategy 与桩推理，用模拟时钟逐个节拍驱动，校验固定步长打分、
+ * 推理跟不上时丢弃节拍以及越过阈值报警；另用真实线程校验启动与停止
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LiveScorerTest {
+
+    private static final int WINDOW = 64000;
+    private static final long HOP_MILLIS = 20;
+    private static final long HOP_NANOS = TimeUnit.MILLISECONDS.toNanos(HOP_MILLIS);
+
+    /** 桩推理：以窗口首个采样的绝对值作为伪造概率，每次推理让模拟时钟前进 latencyNanos */
+    static final class FirstSampleRunner implements ModelRunner {
+        final AtomicLong clock = new AtomicLong();
+        volatile long latencyNanos;
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch firstCall = new CountDownLatch(1);
+
+        @Override
+        public float[] forward(Tensor input) {
+            calls.incrementAndGet();
+            firstCall.countDown();
+            clock.addAndGet(latencyNanos);
+            float fake = Math.abs(input.getDataAsFloatArray()[0]);
+            return new float[]{fake, 1f - fake};
+        }
+    }
+
+    /** 模拟录音：可用采样数与采样值都可在测试中修改 */
+    static final class FakeSource implements LiveScorer.WindowSource {
+        volatile int available = WINDOW;
+        volatile float level;
+
+        @Override
+        public int readLatest(float[] dst, int maxFrames) {
+            int n = Math.min(available, maxFrames);
+            Arrays.fill(dst, 0, n, level);
+            return n;
+        }
+    }
+
+    static final class Recorder implements LiveScorer.Listener {
+        final List<Float> scores = new CopyOnWriteArrayList<>();
+        final List<Integer> frames = new CopyOnWriteArrayList<>();
+        final List<Float> alerts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onScore(float fakeProbability, int windowFrames) {
+            scores.add(fakeProbability);
+            frames.add(windowFrames);
+        }
+
+        @Override
+        public void onAlert(float fakeProbability) {
+            alerts.add(fakeProbability);
+        }
+    }
+
+    /** 使用 runner 的模拟时钟构造，时间只在推理和 {@link #runUntil} 中前进 */
+    private static LiveScorer simulated(FirstSampleRunner runner, FakeSource source, Recorder listener) {
+        return new LiveScorer(new RawNet2Strategy(runner), source, WINDOW, 16000, HOP_MILLIS, 0.5f, listener,
+                runner.clock::get);
+    }
+
+    /**
+     * 模拟推理线程：时钟先走到下一个节拍再处理该节拍，直到下一个节拍晚于 endNanos
+     *
+     * @return 下一个节拍的时间
+     */
+    private static long runUntil(LiveScorer scorer, FirstSampleRunner runner, long nextTick, long endNanos) {
+        while (nextTick <= endNanos) {
+            runner.clock.accumulateAndGet(nextTick, Math::max);
+            nextTick = scorer.hop(nextTick);
+        }
+        return nextTick;
+    }
+
+    @Test
+    public void scoresOnFixedHop() {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        Recorder listener = new Recorder();
+        LiveScorer scorer = simulated(runner, new FakeSource(), listener);
+
+        long nextTick = runUntil(scorer, runner, HOP_NANOS, HOP_NANOS * 10);
+
+        Assert.assertEquals("10 个步长内每个节拍打分一次", 10, listener.scores.size());
+        Assert.assertEquals(10, scorer.getScoredHops());
+        Assert.assertEquals(0, scorer.getDroppedHops());
+        Assert.assertEquals(HOP_NANOS * 11, nextTick);
+    }
+
+    @Test
+    public void slowInference_dropsHopsInsteadOfQueueing() {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        runner.latencyNanos = HOP_NANOS * 3; // 每次推理耗时 3 个步长
+        Recorder listener = new Recorder();
+        LiveScorer scorer = simulated(runner, new FakeSource(), listener);
+
+        long nextTick = runUntil(scorer, runner, HOP_NANOS, HOP_NANOS * 20);
+
+        // 节拍 1 的推理结束于 4，跳过 2、3、4，下一次处理节拍 5，依此类推：1、5、9、13、17
+        Assert.assertEquals("打分次数受推理耗时限制，不应积压", 5, runner.calls.get());
+        Assert.assertEquals(5, scorer.getScoredHops());
+        Assert.assertEquals("推理跟不上时应跳过节拍", 15, scorer.getDroppedHops());
+        Assert.assertEquals(HOP_NANOS * 21, nextTick);
+    }
+
+    @Test
+    public void alert_firesOnlyWhenCrossingThreshold() {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        FakeSource source = new FakeSource();
+        source.level = 0.2f;
+        Recorder listener = new Recorder();
+        LiveScorer scorer = simulated(runner, source, listener);
+
+        long nextTick = runUntil(scorer, runner, HOP_NANOS, HOP_NANOS * 4);
+        Assert.assertTrue("低于阈值时不应报警", listener.alerts.isEmpty());
+
+        source.level = 0.8f;
+        nextTick = runUntil(scorer, runner, nextTick, HOP_NANOS * 9);
+        Assert.assertEquals("越过阈值应报警一次，持续高于阈值不重复报警", 1, listener.alerts.size());
+        Assert.assertEquals(0.8f, listener.alerts.get(0), 1e-6f);
+
+        source.level = 0.1f;
+        nextTick = runUntil(scorer, runner, nextTick, HOP_NANOS * 13);
+        source.level = 0.9f;
+        runUntil(scorer, runner, nextTick, HOP_NANOS * 17);
+        Assert.assertEquals("回落后再次越过阈值应再次报警", 2, listener.alerts.size());
+        Assert.assertEquals(0.9f, listener.alerts.get(1), 1e-6f);
+        Assert.assertEquals(17, listener.scores.size());
+    }
+
+    @Test
+    public void shortRecording_waitsForMinimumThenScoresPartialWindow() {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        FakeSource source = new FakeSource();
+        source.available = 8000;
+        Recorder listener = new Recorder();
+        LiveScorer scorer = simulated(runner, source, listener);
+
+        long nextTick = runUntil(scorer, runner, HOP_NANOS, HOP_NANOS * 4);
+        Assert.assertTrue("不足最小长度时不应打分", listener.scores.isEmpty());
+        Assert.assertEquals(0, runner.calls.get());
+
+        source.available = 24000;
+        runUntil(scorer, runner, nextTick, HOP_NANOS * 5);
+        Assert.assertEquals(1, listener.frames.size());
+        Assert.assertEquals("不足一个窗口时按实际长度打分", 24000, (int) listener.frames.get(0));
+    }
+
+    @Test
+    public void stop_waitsForInFlightInferenceAndEndsScoring() throws Exception {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        Recorder listener = new Recorder();
+        LiveScorer scorer = new LiveScorer(new RawNet2Strategy(runner), new FakeSource(), WINDOW, 16000,
+                HOP_MILLIS, 0.5f, listener);
+
+        scorer.start();
+        Assert.assertTrue("启动后应开始打分", runner.firstCall.await(5, TimeUnit.SECONDS));
+        scorer.stop();
+
+        int calls = runner.calls.get();
+        Assert.assertEquals("停止时应等正在进行的推理完成并计入打分", calls, scorer.getScoredHops());
+        Assert.assertEquals(calls, listener.scores.size());
+        Thread.sleep(HOP_MILLIS * 3);
+        Assert.assertEquals("停止后不应再打分", calls, runner.calls.get());
+    }
+}
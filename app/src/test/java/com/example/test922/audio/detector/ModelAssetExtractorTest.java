@@ -0,0 +1,180 @@
+package com.example.test922.audio.detector;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ModelAssetExtractor 测试：按版本目录解压、校验失败不留下文件、新版本替换旧版本，以及 transferTo 与流复制两条路径
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ModelAssetExtractorTest {
+
+    private static final String MODEL = "model.ptl";
+
+    /**
+     * 模拟 APK：所有资源依次存放在一个文件中（对应不压缩存储），可选地只支持流式读取（对应压缩存储）。
+     */
+    static final class FakeAssets implements ModelAssetExtractor.AssetSource {
+        final Map<String, byte[]> assets = new HashMap<>();
+        final boolean uncompressed;
+        final AtomicInteger regionCopies = new AtomicInteger();
+        final AtomicInteger streamOpens = new AtomicInteger();
+
+        FakeAssets(boolean uncompressed) {
+            this.uncompressed = uncompressed;
+        }
+
+        void put(String name, byte[] content) {
+            assets.put(name, content);
+        }
+
+        void putManifest(String name, byte[] content) throws Exception {
+            String line = ModelAssetExtractor.digest(new ByteArrayInputStream(content)) + "  " + name + "\n";
+            put(ModelAssetExtractor.MANIFEST_ASSET, ("# 由构建生成\n" + line).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            byte[] content = assets.get(name);
+            if (content == null) throw new FileNotFoundException(name);
+            if (!name.equals(ModelAssetExtractor.MANIFEST_ASSET)) streamOpens.incrementAndGet();
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public ModelAssetExtractor.AssetRegion openRegion(String name) throws IOException {
+            byte[] content = assets.get(name);
+            if (content == null) throw new FileNotFoundException(name);
+            if (!uncompressed) return null;
+            // 资源放在“APK”中间的某个偏移处
+            File apk = File.createTempFile("fake", ".apk");
+            apk.deleteOnExit();
+            try (RandomAccessFile raf = new RandomAccessFile(apk, "rw")) {
+                raf.write(new byte[1000]);
+                raf.write(content);
+                raf.write(new byte[500]);
+            }
+            regionCopies.incrementAndGet();
+            FileInputStream fis = new FileInputStream(apk);
+            return new ModelAssetExtractor.AssetRegion(fis.getChannel(), 1000, content.length, fis);
+        }
+    }
+
+    private File filesDir;
+
+    @Before
+    public void setUp() throws Exception {
+        ModelAssetExtractor.clearCache();
+        filesDir = Files.createTempDirectory("files").toFile();
+    }
+
+    private static byte[] model(int seed, int size) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    public void extract_copiesOnceIntoVersionedDirectory() throws Exception {
+        byte[] content = model(1, 300_000);
+        FakeAssets assets = new FakeAssets(true);
+        assets.put(MODEL, content);
+        assets.putManifest(MODEL, content);
+
+        File first = ModelAssetExtractor.extract(assets, filesDir, MODEL);
+        Assert.assertNotNull(first);
+        Assert.assertTrue(Arrays.equals(content, Files.readAllBytes(first.toPath())));
+        Assert.assertEquals(new File(filesDir, ModelAssetExtractor.MODELS_DIR), first.getParentFile().getParentFile());
+        Assert.assertEquals("有清单时应走 transferTo 路径且不读流", 1, assets.regionCopies.get());
+        Assert.assertEquals(0, assets.streamOpens.get());
+        Assert.assertEquals("解压后应能取到清单中的摘要",
+                ModelAssetExtractor.digest(new ByteArrayInputStream(content)), ModelAssetExtractor.getDigest(MODEL));
+
+        // 模拟进程重启：版本目录中已有文件，不再复制
+        ModelAssetExtractor.clearCache();
+        File second = ModelAssetExtractor.extract(assets, filesDir, MODEL);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals("同一版本只应复制一次", 1, assets.regionCopies.get());
+        Assert.assertEquals("跳过复制时摘要同样可用",
+                ModelAssetExtractor.digest(new ByteArrayInputStream(content)), ModelAssetExtractor.getDigest(MODEL));
+        Assert.assertFalse("临时文件不应残留", new File(first.getParentFile(), MODEL + ".tmp").exists());
+    }
+
+    @Test
+    public void checksumMismatch_leavesNoModel() throws Exception {
+        byte[] content = model(2, 50_000);
+        FakeAssets assets = new FakeAssets(true);
+        assets.put(MODEL, Arrays.copyOf(content, content.length / 2)); // 模拟损坏/截断的资源
+        assets.putManifest(MODEL, content);
+
+        Assert.assertNull(ModelAssetExtractor.extract(assets, filesDir, MODEL));
+        File[] versions = new File(filesDir, ModelAssetExtractor.MODELS_DIR).listFiles();
+        Assert.assertNotNull(versions);
+        for (File dir : versions) {
+            String[] left = dir.list();
+            Assert.assertEquals("校验失败后不应留下任何文件", 0, left == null ? 0 : left.length);
+        }
+    }
+
+    @Test
+    public void newModelVersion_replacesOldOne() throws Exception {
+        byte[] v1 = model(3, 80_000);
+        FakeAssets assets = new FakeAssets(true);
+        assets.put(MODEL, v1);
+        assets.putManifest(MODEL, v1);
+        File old = ModelAssetExtractor.extract(assets, filesDir, MODEL);
+        Assert.assertNotNull(old);
+        // 旧实现直接放在 files/ 下的文件
+        File legacy = new File(filesDir, MODEL);
+        Files.write(legacy.toPath(), v1);
+
+        byte[] v2 = model(4, 90_000);
+        assets.put(MODEL, v2);
+        assets.putManifest(MODEL, v2);
+        ModelAssetExtractor.clearCache();
+        File updated = ModelAssetExtractor.extract(assets, filesDir, MODEL);
+
+        Assert.assertNotNull(updated);
+        Assert.assertNotEquals("新版本应放在新的目录", old.getParentFile(), updated.getParentFile());
+        Assert.assertTrue(Arrays.equals(v2, Files.readAllBytes(updated.toPath())));
+        Assert.assertFalse("旧版本应被删除", old.exists());
+        Assert.assertFalse("旧版本目录应被删除", old.getParentFile().exists());
+        Assert.assertFalse("旧的未分版本文件应被删除", legacy.exists());
+    }
+
+    @Test
+    public void compressedAssetWithoutManifest_streamsAndVerifies() throws Exception {
+        byte[] content = model(5, 200_000);
+        FakeAssets assets = new FakeAssets(false);
+        assets.put(MODEL, content);
+
+        File extracted = ModelAssetExtractor.extract(assets, filesDir, MODEL);
+        Assert.assertNotNull(extracted);
+        Assert.assertTrue(Arrays.equals(content, Files.readAllBytes(extracted.toPath())));
+        Assert.assertEquals(ModelAssetExtractor.digest(extracted).substring(0, 16), extracted.getParentFile().getName());
+        Assert.assertEquals(0, assets.regionCopies.get());
+
+        // 同一进程中再次请求（例如检测器池的其他实例）不再读取资源
+        int opens = assets.streamOpens.get();
+        Assert.assertEquals(extracted, ModelAssetExtractor.extract(assets, filesDir, MODEL));
+        Assert.assertEquals(opens, assets.streamOpens.get());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.test922.audio.detector;
+
+import android.content.Context;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ModelHolder 测试：后台加载与预热、就绪 Future、重复启动只加载一次，以及冷启动指标
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ModelHolderTest {
+
+    /** 第一次前向推理模拟冷启动开销，之后很快 */
+    static final class ColdRunner implements ModelRunner {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public float[] forward(Tensor input) {
+            if (calls.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new float[]{0.4f, 0.6f};
+        }
+    }
+
+    private static RawNet2Strategy stubInstance(ModelRunner runner, boolean loads) {
+        return new RawNet2Strategy(runner) {
+            @Override
+            public boolean loadModel(Context context, String assetName) {
+                return loads;
+            }
+        };
+    }
+
+    @Test
+    public void start_loadsOnceAndWarmsUp() throws Exception {
+        ColdRunner runner = new ColdRunner();
+        AtomicInteger created = new AtomicInteger();
+        ModelHolder holder = new ModelHolder(registry -> {
+            created.incrementAndGet();
+            return stubInstance(runner, true);
+        });
+        Assert.assertFalse("未启动时不应就绪", holder.getReadiness().isDone());
+
+        DeepfakeDetector detector = holder.start(null, "model.ptl", 3).get(5, TimeUnit.SECONDS);
+        DeepfakeDetector again = holder.start(null, "other.ptl", 3).get(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(detector);
+        Assert.assertSame("重复启动应返回同一个检测器", detector, again);
+        Assert.assertEquals("只应加载一次", 1, created.get());
+        Assert.assertEquals("model.ptl", holder.getAssetPath());
+        Assert.assertEquals("应执行 3 次预热推理", 3, runner.calls.get());
+
+        long[] warmUp = holder.getMetrics().getWarmUpNanos();
+        Assert.assertEquals(3, warmUp.length);
+        Assert.assertTrue("首次预热应明显慢于之后的预热", warmUp[0] > warmUp[2] * 2);
+        Assert.assertTrue(holder.getMetrics().getLoadNanos() >= 0);
+    }
+
+    @Test
+    public void recordResult_reportsColdStartAndSteadyState() throws Exception {
+        ColdRunner runner = new ColdRunner();
+        ModelHolder holder = new ModelHolder(registry -> stubInstance(runner, true));
+        holder.start(null, "model.ptl", 2).get(5, TimeUnit.SECONDS);
+
+        ModelMetrics metrics = holder.getMetrics();
+        Assert.assertEquals(-1, metrics.getColdStartToFirstResultNanos());
+        holder.recordResult(DetectionResult.failure(DetectionResult.Error.READ_FAILED, null));
+        Assert.assertEquals("失败的结果不计入指标", -1, metrics.getFirstForwardNanos());
+
+        holder.recordResult(DetectionResult.success(0.6f, 1_000, 1_000, 8_000_000, 1_000));
+        holder.recordResult(DetectionResult.success(0.6f, 1_000, 1_000, 2_000_000, 1_000));
+        holder.recordResult(DetectionResult.success(0.6f, 1_000, 1_000, 4_000_000, 1_000));
+
+        Assert.assertTrue(metrics.getColdStartToFirstResultNanos() >= metrics.getLoadNanos());
+        Assert.assertEquals(8_000_000, metrics.getFirstForwardNanos());
+        Assert.assertEquals("稳态为首次之后的平均值", 3_000_000, metrics.getSteadyForwardNanos());
+    }
+
+    @Test
+    public void loadFailure_completesWithNull() throws Exception {
+        ModelHolder holder = new ModelHolder(registry -> stubInstance(new ColdRunner(), false));
+        Assert.assertNull(holder.start(null, "missing.ptl", 3).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void detectorPool_warmsEveryInstance() {
+        ColdRunner[] runners = new ColdRunner[3];
+        AtomicInteger created = new AtomicInteger();
+        DetectorPool pool = new DetectorPool(() -> {
+            ColdRunner runner = new ColdRunner();
+            runners[created.getAndIncrement()] = runner;
+            return stubInstance(runner, true);
+        }, 3, 1);
+        Assert.assertTrue(pool.loadModel(null, "model.ptl"));
+
+        long[] warmUp = pool.warmUp(2);
+        Assert.assertNotNull(warmUp);
+        Assert.assertEquals(2, warmUp.length);
+        for (ColdRunner runner : runners) {
+            Assert.assertEquals("每个实例都应预热", 2, runner.calls.get());
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.test922.audio.detector;
+
+import org.json.JSONException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * ModelRegistry 测试：清单解析、标签映射、默认值，以及无清单时退回内置模型
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ModelRegistryTest {
+
+    @Test
+    public void parse_readsSpecsAndLabelMapping() throws Exception {
+        ModelRegistry registry = ModelRegistry.parse("{\"earlyExitConfidence\": 0.9, \"models\": ["
+                + "{\"name\": \"RawNet2\", \"asset\": \"rawnet2_mobile.ptl\"},"
+                + "{\"name\": \"AASIST\", \"asset\": \"aasist.ptl\", \"inputLength\": 48000,"
+                + " \"labels\": [\"bonafide\", \"spoof\"], \"output\": \"logits\", \"weight\": 2}]}");
+
+        Assert.assertEquals(0.9f, registry.getEarlyExitConfidence(), 1e-6f);
+        Assert.assertEquals(2, registry.getSpecs().size());
+        Assert.assertEquals("rawnet2_mobile.ptl", registry.getPrimaryAssetPath());
+
+        ModelSpec first = registry.getSpecs().get(0);
+        Assert.assertEquals("未给出的字段使用 RawNet2 默认值", ModelSpec.RAWNET2_INPUT_LENGTH, first.getInputLength());
+        Assert.assertEquals(1, first.getRealClassIndex());
+        Assert.assertEquals(ModelSpec.OutputType.PROBABILITY, first.getOutputType());
+
+        ModelSpec second = registry.getSpecs().get(1);
+        Assert.assertEquals(48000, second.getInputLength());
+        Assert.assertEquals("bonafide 在第 0 位", 0, second.getRealClassIndex());
+        Assert.assertEquals(ModelSpec.OutputType.LOGITS, second.getOutputType());
+        Assert.assertEquals(2f, second.getWeight(), 0f);
+
+        Assert.assertTrue(registry.createDetector() instanceof EnsembleDetector);
+    }
+
+    @Test(expected = JSONException.class)
+    public void parse_rejectsLabelsWithoutRealClass() throws Exception {
+        ModelRegistry.parse("{\"models\": [{\"asset\": \"m.ptl\", \"labels\": [\"fake\", \"spoof\"]}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsMixedSampleRates() throws Exception {
+        ModelRegistry.parse("{\"models\": [{\"asset\": \"a.ptl\"}, {\"asset\": \"b.ptl\", \"sampleRate\": 8000}]}");
+    }
+
+    @Test
+    public void load_withoutManifestUsesBuiltInModel() {
+        ModelRegistry registry = ModelRegistry.load(null, ModelSpec.RAWNET2_ASSET_PATH);
+        Assert.assertEquals(1, registry.getSpecs().size());
+        Assert.assertEquals(ModelSpec.RAWNET2_ASSET_PATH, registry.getPrimaryAssetPath());
+        Assert.assertTrue(registry.createDetector() instanceof RawNet2Strategy);
+    }
+}
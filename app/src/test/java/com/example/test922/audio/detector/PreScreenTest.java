@@ -0,0 +1,174 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PreScreen 测试：各类输入的筛查结论，筛掉的输入不做推理，以及批量检测逐条给出筛查原因
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PreScreenTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int LENGTH = 64000;
+
+    static final class CountingRunner implements ModelRunner {
+        int rows;
+
+        @Override
+        public float[] forward(Tensor input) {
+            int n = (int) input.shape()[0];
+            rows += n;
+            float[] out = new float[n * 2];
+            for (int r = 0; r < n; r++) {
+                out[r * 2] = 0.3f;
+                out[r * 2 + 1] = 0.7f;
+            }
+            return out;
+        }
+    }
+
+    /** 类语音信号：基频在 120-220Hz 间缓慢变化的谐波，按 4Hz 音节包络起伏，叠加微弱噪声 */
+    static float[] speech(long seed) {
+        Random random = new Random(seed);
+        float[] pcm = new float[LENGTH];
+        double phase = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double f0 = 170 + 50 * Math.sin(2 * Math.PI * 0.7 * t);
+            phase += 2 * Math.PI * f0 / SAMPLE_RATE;
+            double v = 0;
+            for (int h = 1; h <= 12; h++) {
+                v += Math.sin(h * phase) / h;
+            }
+            double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+            pcm[i] = (float) (0.2 * envelope * v + 0.003 * random.nextGaussian());
+        }
+        return pcm;
+    }
+
+    static float[] silence() {
+        Random random = new Random(1);
+        float[] pcm = new float[LENGTH];
+        for (int i = 0; i < LENGTH; i++) pcm[i] = (float) (0.0005 * random.nextGaussian());
+        return pcm;
+    }
+
+    static float[] noise() {
+        Random random = new Random(2);
+        float[] pcm = new float[LENGTH];
+        for (int i = 0; i < LENGTH; i++) pcm[i] = (float) (0.1 * random.nextGaussian());
+        return pcm;
+    }
+
+    static float[] tone() {
+        float[] pcm = new float[LENGTH];
+        for (int i = 0; i < LENGTH; i++) pcm[i] = (float) (0.3 * Math.sin(2 * Math.PI * 1000.0 * i / SAMPLE_RATE));
+        return pcm;
+    }
+
+    static float[] clipped() {
+        float[] pcm = speech(3);
+        for (int i = 0; i < pcm.length; i++) pcm[i] = Math.max(-1f, Math.min(1f, pcm[i] * 20));
+        return pcm;
+    }
+
+    private static PreScreen.Reason screen(PreScreen screen, float[] pcm) {
+        return screen.screen(FloatBuffer.wrap(pcm), 0, pcm.length);
+    }
+
+    private static String writeClip(float[] pcm) throws Exception {
+        short[] samples = new short[pcm.length];
+        for (int i = 0; i < pcm.length; i++) samples[i] = (short) Math.round(pcm[i] * 32767);
+        File f = File.createTempFile("screen_clip", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, samples, SAMPLE_RATE, 1, 16));
+        return f.getAbsolutePath();
+    }
+
+    @Test
+    public void screen_classifiesInputs() {
+        PreScreen screen = PreScreen.defaults();
+        Assert.assertEquals(PreScreen.Reason.PASS, screen(screen, speech(7)));
+        Assert.assertEquals(PreScreen.Reason.SILENCE, screen(screen, silence()));
+        Assert.assertEquals(PreScreen.Reason.SILENCE, screen(screen, new float[0]));
+        Assert.assertEquals(PreScreen.Reason.NOISE, screen(screen, noise()));
+        Assert.assertEquals(PreScreen.Reason.TONAL, screen(screen, tone()));
+        Assert.assertEquals(PreScreen.Reason.CLIPPED, screen(screen, clipped()));
+
+        Assert.assertEquals(1, screen.getCount(PreScreen.Reason.PASS));
+        Assert.assertEquals(5, screen.getRejectedCount());
+    }
+
+    @Test
+    public void detectDetailed_screenedInputSkipsInference() throws Exception {
+        CountingRunner runner = new CountingRunner();
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        detector.setPreScreen(PreScreen.defaults());
+
+        DetectionResult silent = detector.detectDetailed(writeClip(silence()), null);
+        Assert.assertEquals(DetectionResult.Error.SCREENED_OUT, silent.getError());
+        Assert.assertEquals(PreScreen.Reason.SILENCE, silent.getScreenReason());
+        Assert.assertEquals(-1f, silent.getRealProbability(), 0f);
+        Assert.assertEquals("筛掉的输入不应推理", 0, runner.rows);
+
+        DetectionResult speech = detector.detectDetailed(writeClip(speech(8)), null);
+        Assert.assertTrue(speech.toString(), speech.isSuccess());
+        Assert.assertNull(speech.getScreenReason());
+        Assert.assertEquals(1, runner.rows);
+    }
+
+    @Test
+    public void detectBatchDetailed_reportsScreenReasonPerClip() throws Exception {
+        // 批量分拣的典型组成：一半是静音、噪声、单音或削波，一半是语音
+        PreScreen.Reason[] expected = {PreScreen.Reason.SILENCE, PreScreen.Reason.NOISE,
+                PreScreen.Reason.TONAL, PreScreen.Reason.CLIPPED};
+        List<String> paths = new ArrayList<>();
+        int speechCount = 0;
+        for (int i = 0; i < 32; i++) {
+            float[] clip;
+            switch (i % 8) {
+                case 0: clip = silence(); break;
+                case 1: clip = noise(); break;
+                case 2: clip = tone(); break;
+                case 3: clip = clipped(); break;
+                default: clip = speech(i); speechCount++; break;
+            }
+            paths.add(writeClip(clip));
+        }
+
+        CountingRunner offRunner = new CountingRunner();
+        float[] offResults = new RawNet2Strategy(offRunner).detectBatch(paths);
+
+        CountingRunner onRunner = new CountingRunner();
+        RawNet2Strategy on = new RawNet2Strategy(onRunner);
+        on.setPreScreen(PreScreen.defaults());
+        DetectionResult[] onResults = on.detectBatchDetailed(paths);
+
+        Assert.assertEquals(paths.size(), offRunner.rows);
+        Assert.assertEquals("只有语音应交给模型", speechCount, onRunner.rows);
+        for (int i = 0; i < paths.size(); i++) {
+            DetectionResult result = onResults[i];
+            if (i % 8 >= 4) {
+                Assert.assertTrue("第 " + i + " 条: " + result, result.isSuccess());
+                Assert.assertEquals("第 " + i + " 条", offResults[i], result.getRealProbability(), 0f);
+            } else {
+                Assert.assertEquals("第 " + i + " 条", DetectionResult.Error.SCREENED_OUT, result.getError());
+                Assert.assertEquals("第 " + i + " 条", expected[i % 8], result.getScreenReason());
+            }
+        }
+        Assert.assertArrayEquals("只返回概率的批量检测与逐条结果一致",
+                DetectionResult.realProbabilities(onResults), on.detectBatch(paths), 0f);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 推理路径分配测试：预热后每条检测不应再分配输入缓冲区/张量
+ * 使用 HotSpot 的线程分配计数器统计检测线程上的堆分配字节数（不含模型输出与结果数组）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RawNet2AllocationTest {
+
+    private static final int CLIPS = 200;
+
+    /**
+     * 按路径检测时每条允许的分配上限：只剩打开并映射 WAV 文件时 JDK 创建的对象
+     * （FileDescriptor、FileChannel、映射缓冲区及其 Cleaner、ShortBuffer 视图）与 WavInfo，约 1KB。
+     * 远小于一个输入窗口，任何按窗口大小的分配或热路径上新增的字符串都会超出。
+     */
+    private static final long MAX_BYTES_PER_CLIP = 1536;
+
+    /** 已解码输入不打开文件，每批只分配少量下标数组，摊到每条接近 0 */
+    private static final long MAX_BYTES_PER_DECODED_CLIP = 32;
+
+    /** 桩模型：不读取输入，只分配输出 */
+    static final class OutputOnlyRunner implements ModelRunner {
+        long outputBytes;
+
+        @Override
+        public float[] forward(Tensor input) {
+            int rows = (int) input.shape()[0];
+            float[] out = new float[rows * 2];
+            for (int r = 0; r < rows; r++) {
+                out[r * 2] = 0.3f;
+                out[r * 2 + 1] = 0.7f;
+            }
+            outputBytes += 16 + out.length * 4L;
+            return out;
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String writeClip(int length) throws Exception {
+        short[] pcm = new short[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (short) ((i * 131) % 20000 - 10000);
+        }
+        File f = File.createTempFile("alloc_clip", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, pcm, 16000, 1, 16));
+        return f.getAbsolutePath();
+    }
+
+    @Test
+    public void detect_steadyStateAllocatesNoInputBuffers() throws Exception {
+        // 短于 4 秒，覆盖循环填充
+        String path = writeClip(40000);
+        OutputOnlyRunner runner = new OutputOnlyRunner();
+        RawNet2Strategy strategy = new RawNet2Strategy(runner);
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(0.7f, strategy.detect(path), 1e-6f);
+        }
+
+        runner.outputBytes = 0;
+        long before = allocatedBytes();
+        for (int i = 0; i < CLIPS; i++) {
+            strategy.detect(path);
+        }
+        long perClip = (allocatedBytes() - before - runner.outputBytes) / CLIPS;
+        Assert.assertTrue("每条检测分配过多: " + perClip + " bytes", perClip < MAX_BYTES_PER_CLIP);
+    }
+
+    @Test
+    public void detectBatch_steadyStateAllocatesNoInputBuffers() throws Exception {
+        List<String> paths = new ArrayList<>(Collections.nCopies(32, writeClip(80000)));
+        OutputOnlyRunner runner = new OutputOnlyRunner();
+        RawNet2Strategy strategy = new RawNet2Strategy(runner);
+
+        // 预热：让自适应批大小稳定、池扩容到最终大小
+        for (int i = 0; i < 20; i++) {
+            strategy.detectBatch(paths);
+        }
+
+        runner.outputBytes = 0;
+        long before = allocatedBytes();
+        int rounds = 10;
+        for (int i = 0; i < rounds; i++) {
+            strategy.detectBatch(paths);
+        }
+        // 结果数组本身也属于输出
+        long resultBytes = rounds * (16 + paths.size() * 4L);
+        long perClip = (allocatedBytes() - before - runner.outputBytes - resultBytes) / (rounds * paths.size());
+        Assert.assertTrue("每条批量检测分配过多: " + perClip + " bytes", perClip < MAX_BYTES_PER_CLIP);
+    }
+
+    @Test
+    public void detectBatchClips_steadyStateAllocatesNearZero() {
+        float[][] clips = new float[32][];
+        for (int i = 0; i < clips.length; i++) {
+            clips[i] = new float[50000];
+            Arrays.fill(clips[i], 0.01f * (i % 7));
+        }
+        OutputOnlyRunner runner = new OutputOnlyRunner();
+        RawNet2Strategy strategy = new RawNet2Strategy(runner);
+
+        for (int i = 0; i < 40; i++) {
+            strategy.detectBatch(clips);
+        }
+
+        runner.outputBytes = 0;
+        long before = allocatedBytes();
+        int rounds = 20;
+        for (int i = 0; i < rounds; i++) {
+            strategy.detectBatch(clips);
+        }
+        long resultBytes = rounds * (16 + clips.length * 4L);
+        long perClip = (allocatedBytes() - before - runner.outputBytes - resultBytes) / (rounds * clips.length);
+        Assert.assertTrue("已解码输入的批量检测分配过多: " + perClip + " bytes", perClip <= MAX_BYTES_PER_DECODED_CLIP);
+    }
+}
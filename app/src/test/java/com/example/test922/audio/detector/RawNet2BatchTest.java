@@ -0,0 +1,152 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 批量推理测试（JVM 端，使用桩模型，不加载 native 库）
+ * 校验 detectBatch 与单条 detect 结果一致，且自适应批大小按确定的耗时逐步增大批次
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RawNet2BatchTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int CLIP_COUNT = 48;
+
+    /** 模拟每次 forward 的固定开销（JNI 调用、算子调度等），自适应批大小据此增大批次 */
+    private static final long FORWARD_OVERHEAD_NANOS = 2_000_000L;
+
+    /** 模拟每行的计算开销 */
+    private static final long ROW_NANOS = 100_000L;
+
+    /**
+     * 桩模型：每次调用让模拟时钟前进固定开销加每行开销（不实际等待），再对每行求均值，输出 [Fake, Real] 概率
+     */
+    static final class StubRunner implements ModelRunner {
+        int calls;
+        long nanos;
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public float[] forward(Tensor input) {
+            calls++;
+            long[] shape = input.shape();
+            int rows = (int) shape[0];
+            batchSizes.add(rows);
+            nanos += FORWARD_OVERHEAD_NANOS + ROW_NANOS * rows;
+
+            int length = (int) shape[1];
+            float[] data = input.getDataAsFloatArray();
+            float[] out = new float[rows * 2];
+            for (int r = 0; r < rows; r++) {
+                double sum = 0;
+                for (int i = 0; i < length; i++) sum += data[r * length + i];
+                float real = (float) Math.max(0, Math.min(1, 0.5 + sum / length * 10));
+                out[r * 2] = 1 - real;
+                out[r * 2 + 1] = real;
+            }
+            return out;
+        }
+    }
+
+    private static List<String> writeClips(int count) throws Exception {
+        Random random = new Random(42);
+        List<String> paths = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            // 一部分短于 4 秒以覆盖循环填充，一部分长于 4 秒以覆盖截断
+            int length = 16000 + random.nextInt(80000);
+            short bias = (short) (random.nextInt(2000) - 1000);
+            short[] pcm = new short[length];
+            for (int i = 0; i < length; i++) {
+                pcm[i] = (short) (bias + random.nextInt(4000) - 2000);
+            }
+            File f = File.createTempFile("bench_clip_" + c, ".wav");
+            f.deleteOnExit();
+            Assert.assertTrue(WavUtils.writeWavFile(f, pcm, SAMPLE_RATE, 1, 16));
+            paths.add(f.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    /** 批量推理计时使用桩模型的模拟时钟 */
+    private static RawNet2Strategy timed(StubRunner runner) {
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        detector.setNanoClock(() -> runner.nanos);
+        return detector;
+    }
+
+    @Test
+    public void detectBatch_matchesSingleWithFewerForwards() throws Exception {
+        List<String> paths = writeClips(CLIP_COUNT);
+
+        StubRunner singleRunner = new StubRunner();
+        RawNet2Strategy single = new RawNet2Strategy(singleRunner);
+        float[] singleResults = new float[CLIP_COUNT];
+        for (int i = 0; i < CLIP_COUNT; i++) {
+            singleResults[i] = single.detect(paths.get(i));
+        }
+
+        StubRunner batchRunner = new StubRunner();
+        RawNet2Strategy batched = timed(batchRunner);
+        float[] batchResults = batched.detectBatch(paths);
+
+        Assert.assertEquals(CLIP_COUNT, singleRunner.calls);
+        // 单条耗时 2.1、1.1、0.6、0.35、0.225ms 依次下降超过 10%，批大小翻倍到 32，剩余 17 条为尾批
+        Assert.assertEquals("批大小应逐步翻倍", Arrays.asList(1, 2, 4, 8, 16, 17), batchRunner.batchSizes);
+        for (int i = 0; i < CLIP_COUNT; i++) {
+            Assert.assertEquals("第 " + i + " 条结果不一致", singleResults[i], batchResults[i], 1e-5f);
+        }
+    }
+
+    @Test
+    public void detectBatch_floatClipsMatchFileInput() throws Exception {
+        List<String> paths = writeClips(6);
+        float[][] clips = new float[paths.size()][];
+        for (int i = 0; i < paths.size(); i++) {
+            clips[i] = WavUtils.readWavFile(paths.get(i));
+        }
+
+        float[] fromFiles = timed(new StubRunner()).detectBatch(paths);
+        float[] fromClips = timed(new StubRunner()).detectBatch(clips);
+        Assert.assertArrayEquals(fromFiles, fromClips, 1e-6f);
+    }
+
+    @Test
+    public void detectBatch_failedFileKeepsSlot() throws Exception {
+        List<String> paths = writeClips(3);
+        paths.add(1, "/non/existent/clip.wav");
+
+        float[] results = timed(new StubRunner()).detectBatch(paths);
+        Assert.assertEquals(4, results.length);
+        Assert.assertEquals("失败的文件应返回 -1", -1f, results[1], 0f);
+        Assert.assertTrue(results[0] >= 0 && results[2] >= 0 && results[3] >= 0);
+    }
+
+    @Test
+    public void adaptiveBatchSizer_growsThenSettles() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(64);
+        // 固定开销 1000 + 每条 100：批越大单条越便宜，直到收益低于 10%
+        for (int i = 0; i < 10 && !sizer.isSettled(); i++) {
+            int n = sizer.next();
+            sizer.record(n, 1000 + 100L * n);
+        }
+        Assert.assertTrue(sizer.isSettled());
+        Assert.assertTrue("批大小应增长", sizer.next() >= 8);
+
+        sizer.onOutOfMemory();
+        int afterOom = sizer.next();
+        sizer.record(afterOom, 1);
+        Assert.assertEquals("OOM 后批大小应固定", afterOom, sizer.next());
+    }
+}
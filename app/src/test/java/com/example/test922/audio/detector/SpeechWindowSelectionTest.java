@@ -0,0 +1,233 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.SpeechWindowSelector;
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 语音窗口选择测试：在映射数据上选出语音最密集且互不重叠的窗口，检测器只把这些窗口交给模型；
+ * 每个文件占多行时批量检测仍跨文件组批，OOM 后逐步缩小而不会无限重试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpeechWindowSelectionTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int WINDOW = 64000;
+
+    /** 每行输出 Real = 该行平均幅度（放大后截到 [0, 1]），静音窗口得 0 */
+    static final class LoudnessRunner implements ModelRunner {
+        int rows;
+
+        @Override
+        public float[] forward(Tensor input) {
+            int n = (int) input.shape()[0];
+            int length = (int) input.shape()[1];
+            rows += n;
+            float[] data = input.getDataAsFloatArray();
+            float[] out = new float[n * 2];
+            for (int r = 0; r < n; r++) {
+                double sum = 0;
+                for (int i = 0; i < length; i++) sum += Math.abs(data[r * length + i]);
+                float real = (float) Math.min(1, sum / length * 10);
+                out[r * 2] = 1 - real;
+                out[r * 2 + 1] = real;
+            }
+            return out;
+        }
+    }
+
+    /**
+     * 按行数计费的桩模型：每次 forward 让时钟前进固定开销加每行开销，行数超过 maxRows 时抛出 OOM。
+     * 自适应批大小看到的耗时由此确定，与实际运行快慢无关。
+     */
+    static final class CostedRunner implements ModelRunner {
+        private static final long FORWARD_NANOS = 10_000_000L;
+        private static final long ROW_NANOS = 100_000L;
+        private static final int MAX_CALLS = 100;
+
+        final LoudnessRunner delegate = new LoudnessRunner();
+        final int maxRows;
+        long nanos;
+        int forwards;
+        int ooms;
+
+        CostedRunner(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        @Override
+        public float[] forward(Tensor input) {
+            if (++forwards > MAX_CALLS) throw new AssertionError("OOM 后不应无限重试");
+            int n = (int) input.shape()[0];
+            nanos += FORWARD_NANOS + ROW_NANOS * n;
+            if (n > maxRows) {
+                ooms++;
+                throw new OutOfMemoryError("stub: " + n + " rows");
+            }
+            return delegate.forward(input);
+        }
+    }
+
+    private static RawNet2Strategy costed(CostedRunner runner) {
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        detector.setNanoClock(() -> runner.nanos);
+        detector.setWindowSelector(SpeechWindowSelector.defaults());
+        return detector;
+    }
+
+    /**
+     * 20 秒：0-6s 静音，6-12s 类语音，12-16s 宽带噪声，16-20s 静音
+     */
+    private static short[] introThenSpeech(int channels) {
+        Random random = new Random(5);
+        int frames = 20 * SAMPLE_RATE;
+        short[] pcm = new short[frames * channels];
+        double phase = 0;
+        for (int i = 0; i < frames; i++) {
+            double v = 0;
+            if (i >= 6 * SAMPLE_RATE && i < 12 * SAMPLE_RATE) {
+                phase += 2 * Math.PI * (150 + 30 * Math.sin(i / 4000.0)) / SAMPLE_RATE;
+                for (int h = 1; h <= 8; h++) v += Math.sin(h * phase) / h;
+                v *= 0.2;
+            } else if (i >= 12 * SAMPLE_RATE && i < 16 * SAMPLE_RATE) {
+                v = 0.2 * random.nextGaussian();
+            }
+            for (int ch = 0; ch < channels; ch++) {
+                pcm[i * channels + ch] = (short) Math.max(-32768, Math.min(32767, Math.round(v * 32767)));
+            }
+        }
+        return pcm;
+    }
+
+    private static String write(short[] pcm, int channels) throws Exception {
+        File f = File.createTempFile("speech_window", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, pcm, SAMPLE_RATE, channels, 16));
+        return f.getAbsolutePath();
+    }
+
+    private static long[] select(String path, int topK) throws Exception {
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(path)) {
+            Assert.assertNotNull(wav);
+            return new SpeechWindowSelector(topK, 8000, 0.01f, 0.35f).select(wav, WINDOW, topK);
+        }
+    }
+
+    @Test
+    public void select_picksSpeechDenseNonOverlappingWindows() throws Exception {
+        long[] starts = select(write(introThenSpeech(1), 1), 3);
+        // 6-10s 完全是语音；与之不重叠的次优窗口为 10-14s（含 2 秒语音），噪声段不计入
+        Assert.assertArrayEquals(new long[]{6 * SAMPLE_RATE, 10 * SAMPLE_RATE}, starts);
+    }
+
+    @Test
+    public void select_handlesStereoShortAndSilentInput() throws Exception {
+        Assert.assertArrayEquals(new long[]{6 * SAMPLE_RATE}, select(write(introThenSpeech(2), 2), 1));
+        Assert.assertArrayEquals("短于一个窗口时取开头", new long[]{0}, select(write(new short[32000], 1), 3));
+        Assert.assertArrayEquals("没有语音时取开头", new long[]{0}, select(write(new short[320000], 1), 3));
+    }
+
+    @Test
+    public void detectDetailed_scoresSelectedWindowsInsteadOfIntro() throws Exception {
+        String path = write(introThenSpeech(1), 1);
+
+        LoudnessRunner headRunner = new LoudnessRunner();
+        DetectionResult head = new RawNet2Strategy(headRunner).detectDetailed(path, null);
+        Assert.assertEquals("截取开头时模型只看到静音", 0f, head.getRealProbability(), 1e-6f);
+
+        LoudnessRunner runner = new LoudnessRunner();
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        detector.setWindowSelector(new SpeechWindowSelector(2, 8000, 0.01f, 0.35f));
+        DetectionResult selected = detector.detectDetailed(path, null);
+        Assert.assertTrue(selected.toString(), selected.isSuccess());
+        Assert.assertEquals("两个窗口一次推理", 2, runner.rows);
+        Assert.assertTrue("选中的窗口应包含语音: " + selected, selected.getRealProbability() > 0.2f);
+
+        LoudnessRunner batchRunner = new LoudnessRunner();
+        RawNet2Strategy batched = new RawNet2Strategy(batchRunner);
+        batched.setWindowSelector(new SpeechWindowSelector(2, 8000, 0.01f, 0.35f));
+        float[] results = batched.detectBatch(Collections.singletonList(path));
+        Assert.assertEquals("批量检测同样取两个窗口", 2, batchRunner.rows);
+        Assert.assertEquals("同一文件在单条与批量路径上得分一致",
+                selected.getRealProbability(), results[0], 1e-6f);
+    }
+
+    @Test
+    public void selectedWindows_scoreTheSameOnEveryPath() throws Exception {
+        // 不同长度的文件：多个窗口、只有一个窗口、短于一个窗口
+        short[] speech = introThenSpeech(1);
+        List<String> paths = Arrays.asList(
+                write(speech, 1),
+                write(Arrays.copyOfRange(speech, 5 * SAMPLE_RATE, 11 * SAMPLE_RATE), 1),
+                write(Arrays.copyOfRange(speech, 7 * SAMPLE_RATE, 9 * SAMPLE_RATE), 1),
+                write(introThenSpeech(2), 2));
+
+        RawNet2Strategy single = new RawNet2Strategy(new LoudnessRunner());
+        single.setWindowSelector(SpeechWindowSelector.defaults());
+        RawNet2Strategy batched = new RawNet2Strategy(new LoudnessRunner());
+        batched.setWindowSelector(SpeechWindowSelector.defaults());
+        EnsembleDetector ensemble = EnsembleDetector.withMembers(Collections.singletonList(
+                new RawNet2Strategy(ModelSpec.rawNet2("a.ptl"), new LoudnessRunner())), 1.01f);
+        ensemble.setWindowSelector(SpeechWindowSelector.defaults());
+
+        float[] batch = batched.detectBatch(paths);
+        for (int i = 0; i < paths.size(); i++) {
+            DetectionResult expected = single.detectDetailed(paths.get(i), null);
+            Assert.assertTrue(expected.toString(), expected.isSuccess());
+            Assert.assertEquals("批量检测第 " + i + " 个文件", expected.getRealProbability(), batch[i], 1e-6f);
+            Assert.assertEquals("集成检测第 " + i + " 个文件",
+                    expected.getRealProbability(), ensemble.detect(paths.get(i)), 1e-6f);
+        }
+    }
+
+    @Test
+    public void detectBatch_multiWindowFilesStillBatchAcrossFiles() throws Exception {
+        // 每个文件选出 2 个窗口（各占一行），固定开销使每文件耗时随批增大而下降
+        String path = write(introThenSpeech(1), 1);
+        List<String> paths = Collections.nCopies(8, path);
+
+        CostedRunner runner = new CostedRunner(Integer.MAX_VALUE);
+        float[] results = costed(runner).detectBatch(paths);
+
+        float expected = costed(new CostedRunner(Integer.MAX_VALUE)).detectDetailed(path, null).getRealProbability();
+        for (int i = 0; i < results.length; i++) {
+            Assert.assertEquals("第 " + i + " 个文件", expected, results[i], 1e-6f);
+        }
+        // 批大小按文件数 1、2、4 增长，最后 1 个文件为尾批
+        Assert.assertEquals("应跨文件组批: " + runner.forwards + " 次 forward", 4, runner.forwards);
+        Assert.assertEquals("每个文件 2 行", 16, runner.delegate.rows);
+    }
+
+    @Test
+    public void detectBatch_outOfMemoryShrinksToOneFileThenGivesUp() throws Exception {
+        String path = write(introThenSpeech(1), 1);
+        List<String> paths = Collections.nCopies(4, path);
+
+        // 容得下一个文件的 2 行：第二批 2 个文件时 OOM，之后逐个文件处理
+        CostedRunner oneFile = new CostedRunner(2);
+        DetectionResult[] shrunk = costed(oneFile).detectBatchDetailed(paths);
+        Assert.assertEquals(1, oneFile.ooms);
+        for (DetectionResult result : shrunk) {
+            Assert.assertTrue(result.toString(), result.isSuccess());
+        }
+
+        // 连一个文件的窗口都放不下：每个文件只尝试一次并报告推理失败
+        CostedRunner none = new CostedRunner(1);
+        DetectionResult[] failed = costed(none).detectBatchDetailed(paths);
+        Assert.assertEquals(paths.size(), none.ooms);
+        for (DetectionResult result : failed) {
+            Assert.assertEquals(DetectionResult.Error.INFERENCE_FAILED, result.getError());
+        }
+    }
+}
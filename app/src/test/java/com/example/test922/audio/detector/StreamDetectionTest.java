@@ -0,0 +1,146 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式滑窗检测测试：分段数、步长重叠、不满一个步长的尾部、分段回调与汇总，以及超过模型输入长度的窗口
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StreamDetectionTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int INPUT = ModelSpec.RAWNET2_INPUT_LENGTH;
+
+    /** 以窗口首个采样作为 Real 概率，便于从得分反推窗口位置 */
+    static final class FirstSampleRunner implements ModelRunner {
+        int forwards;
+
+        @Override
+        public float[] forward(Tensor input) {
+            forwards++;
+            int n = (int) input.shape()[0];
+            int length = (int) input.shape()[1];
+            float[] data = input.getDataAsFloatArray();
+            float[] out = new float[n * 2];
+            for (int r = 0; r < n; r++) {
+                out[r * 2] = 1f - data[r * length];
+                out[r * 2 + 1] = data[r * length];
+            }
+            return out;
+        }
+    }
+
+    /** 采样值随时间线性增长（每 16000 个采样点增加 0.01），窗口首个采样即可定位窗口起点 */
+    private static String writeRamp(int frames) throws Exception {
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (short) Math.round(valueAt(i) * 32767);
+        }
+        File f = File.createTempFile("stream_clip", ".wav");
+        f.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(f, samples, SAMPLE_RATE, 1, 16));
+        return f.getAbsolutePath();
+    }
+
+    private static float valueAt(long frame) {
+        return frame / (float) SAMPLE_RATE * 0.01f;
+    }
+
+    private static List<SegmentScore> stream(RawNet2Strategy detector, String path, StreamConfig config,
+                                             StreamResult[] result) {
+        List<SegmentScore> segments = new ArrayList<>();
+        result[0] = detector.detectStream(path, config, segments::add);
+        Assert.assertNotNull(result[0]);
+        return segments;
+    }
+
+    @Test
+    public void segmentCount_coversShortExactAndTail() {
+        StreamConfig config = StreamConfig.defaults();
+        Assert.assertEquals(0, config.segmentCount(0));
+        Assert.assertEquals("不足一个窗口时为 1 段", 1, config.segmentCount(INPUT / 2));
+        Assert.assertEquals(1, config.segmentCount(INPUT));
+        Assert.assertEquals("恰好多一个步长", 2, config.segmentCount(INPUT + INPUT / 2));
+        Assert.assertEquals("不满一个步长的尾部补一段", 3, config.segmentCount(INPUT + INPUT / 2 + 1));
+        Assert.assertEquals("尾段贴齐末尾", INPUT / 2 + 1, config.segmentStart(2, INPUT + INPUT / 2 + 1));
+    }
+
+    @Test
+    public void detectStream_hopsOverlapAndTailAlignsToEnd() throws Exception {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        int frames = 3 * INPUT + 1000;
+        StreamResult[] result = new StreamResult[1];
+        List<SegmentScore> segments = stream(detector, writeRamp(frames), StreamConfig.defaults(), result);
+
+        // 默认 4 秒窗口、2 秒步长：起点 0, 2s, 4s, 6s, 8s，再补一段贴齐末尾
+        long hop = StreamConfig.DEFAULT_HOP_LENGTH;
+        long[] expectedStarts = {0, hop, 2 * hop, 3 * hop, 4 * hop, frames - INPUT};
+        Assert.assertEquals(expectedStarts.length, segments.size());
+        Assert.assertEquals(expectedStarts.length, result[0].getSegmentCount());
+        Assert.assertEquals("每段推理一次", expectedStarts.length, runner.forwards);
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentScore segment = segments.get(i);
+            Assert.assertEquals("回调按顺序", i, segment.getIndex());
+            Assert.assertEquals("第 " + i + " 段起点", expectedStarts[i], segment.getStartFrame());
+            Assert.assertEquals("第 " + i + " 段终点", expectedStarts[i] + INPUT, segment.getEndFrame());
+            Assert.assertEquals("得分来自该段的窗口", valueAt(expectedStarts[i]), segment.getRealProbability(), 1e-4f);
+        }
+
+        double sum = 0;
+        float min = Float.MAX_VALUE;
+        for (SegmentScore segment : segments) {
+            sum += segment.getRealProbability();
+            min = Math.min(min, segment.getRealProbability());
+        }
+        Assert.assertEquals((float) (sum / segments.size()), result[0].getMeanReal(), 1e-6f);
+        Assert.assertEquals(min, result[0].getMaxFakeReal(), 0f);
+    }
+
+    @Test
+    public void detectStream_shortClipIsOneSegment() throws Exception {
+        RawNet2Strategy detector = new RawNet2Strategy(new FirstSampleRunner());
+        StreamResult[] result = new StreamResult[1];
+        List<SegmentScore> segments = stream(detector, writeRamp(INPUT / 4), StreamConfig.defaults(), result);
+
+        Assert.assertEquals(1, segments.size());
+        Assert.assertEquals(0, segments.get(0).getStartFrame());
+        Assert.assertEquals("短音频的分段只覆盖实际长度", INPUT / 4, segments.get(0).getEndFrame());
+    }
+
+    @Test
+    public void detectStream_windowLongerThanInputScoresEverySample() throws Exception {
+        FirstSampleRunner runner = new FirstSampleRunner();
+        RawNet2Strategy detector = new RawNet2Strategy(runner);
+        // 8 秒窗口、8 秒步长：按模型输入切分后应是 4 个首尾相接的 4 秒段，而不是只看每个 8 秒窗口的前 4 秒
+        StreamConfig config = new StreamConfig(2 * INPUT, 2 * INPUT, StreamConfig.Aggregation.MEAN);
+        int frames = 4 * INPUT;
+        StreamResult[] result = new StreamResult[1];
+        List<SegmentScore> segments = stream(detector, writeRamp(frames), config, result);
+
+        Assert.assertEquals(4, segments.size());
+        long covered = 0;
+        for (SegmentScore segment : segments) {
+            Assert.assertTrue("分段之间不应有空隙", segment.getStartFrame() <= covered);
+            Assert.assertEquals(INPUT, segment.getEndFrame() - segment.getStartFrame());
+            covered = segment.getEndFrame();
+        }
+        Assert.assertEquals(frames, covered);
+
+        StreamConfig clamped = config.clampWindow(INPUT);
+        Assert.assertEquals(INPUT, clamped.getWindowLength());
+        Assert.assertEquals(INPUT, clamped.getHopLength());
+        StreamConfig defaults = StreamConfig.defaults();
+        Assert.assertSame("窗口未超过上限时不变", defaults, defaults.clampWindow(INPUT));
+    }
+}
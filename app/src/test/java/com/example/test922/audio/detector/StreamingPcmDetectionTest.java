@@ -0,0 +1,168 @@
+package com.example.test922.audio.detector;
+
+import com.example.test922.audio.processor.PcmWindowSink;
+import com.example.test922.audio.processor.ProperResamplerProcessor;
+import com.example.test922.audio.processor.WavUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pytorch.Tensor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 流式解码直达模型窗口的测试：窗口在解码结束前就绪、与“写 WAV 再读回”的结果一致，以及短音频与筛查
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StreamingPcmDetectionTest {
+
+    private static final int SOURCE_RATE = 48000;
+    private static final int TARGET_RATE = 16000;
+    private static final int WINDOW = 64000;
+    private static final int CHUNK_FRAMES = 1024;
+
+    /** 输出只取决于输入能量，输入相同则结果相同 */
+    static final class EnergyRunner implements ModelRunner {
+        @Override
+        public float[] forward(Tensor input) {
+            int n = (int) input.shape()[0];
+            int length = (int) input.shape()[1];
+            float[] data = input.getDataAsFloatArray();
+            float[] out = new float[n * 2];
+            for (int r = 0; r < n; r++) {
+                double energy = 0;
+                for (int i = 0; i < length; i++) {
+                    float v = data[r * length + i];
+                    energy += v * v;
+                }
+                out[r * 2 + 1] = (float) (energy / length * 100);
+            }
+            return out;
+        }
+    }
+
+    /** 模拟解码器输出：48kHz 立体声、基频缓慢变化的谐波，按音节包络起伏，叠加微弱噪声 */
+    private static short[] decodedStereo(double seconds) {
+        Random random = new Random(7);
+        int frames = (int) (seconds * SOURCE_RATE);
+        short[] pcm = new short[frames * 2];
+        double phase = 0;
+        for (int i = 0; i < frames; i++) {
+            double t = (double) i / SOURCE_RATE;
+            phase += 2 * Math.PI * (170 + 50 * Math.sin(2 * Math.PI * 0.7 * t)) / SOURCE_RATE;
+            double v = 0;
+            for (int h = 1; h <= 12; h++) {
+                v += Math.sin(h * phase) / h;
+            }
+            v = 0.2 * (0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t)) * v + 0.003 * random.nextGaussian();
+            pcm[2 * i] = (short) Math.round(v * 32767);
+            pcm[2 * i + 1] = (short) Math.round(v * 0.8 * 32767);
+        }
+        return pcm;
+    }
+
+    /** 收集全部输出，模拟 WAV 副输出 */
+    static final class CollectingSink implements ProperResamplerProcessor.PcmSink {
+        short[] data = new short[1024];
+        int length;
+
+        @Override
+        public void write(short[] samples, int offset, int count) {
+            if (length + count > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + count, data.length * 2));
+            }
+            System.arraycopy(samples, offset, data, length, count);
+            length += count;
+        }
+    }
+
+    /**
+     * 按解码器输出缓冲区的粒度送入重采样器，窗口与 WAV 副输出同时接收
+     *
+     * @return 窗口就绪时已送入的块数；始终未就绪时返回 -1
+     */
+    private static int decode(short[] stereo, PcmWindowSink window, CollectingSink wav) throws IOException {
+        ProperResamplerProcessor resampler = new ProperResamplerProcessor(SOURCE_RATE, 2, TARGET_RATE,
+                (samples, offset, count) -> {
+                    window.write(samples, offset, count);
+                    wav.write(samples, offset, count);
+                });
+        int readyAt = -1;
+        int step = CHUNK_FRAMES * 2;
+        for (int chunk = 0, offset = 0; offset < stereo.length; chunk++, offset += step) {
+            resampler.process(stereo, offset, Math.min(step, stereo.length - offset));
+            if (readyAt < 0 && window.getWindowReady().isDone()) readyAt = chunk + 1;
+        }
+        resampler.flush();
+        window.finish();
+        return readyAt;
+    }
+
+    @Test
+    public void window_readyBeforeDecodingFinishes() throws Exception {
+        short[] stereo = decodedStereo(10);
+        PcmWindowSink window = new PcmWindowSink(WINDOW);
+        CollectingSink wav = new CollectingSink();
+        int readyAt = decode(stereo, window, wav);
+        int chunks = (stereo.length / 2 + CHUNK_FRAMES - 1) / CHUNK_FRAMES;
+
+        Assert.assertTrue("4 秒窗口应在 10 秒音频解码过半之前就绪", readyAt > 0 && readyAt < chunks / 2);
+        Assert.assertEquals(WINDOW, window.getValidLength());
+        Assert.assertEquals("总帧数应包含窗口之后的部分", wav.length, window.getTotalFrames());
+        for (int i = 0; i < WINDOW; i++) {
+            Assert.assertEquals("窗口应为归一化的重采样输出", wav.data[i] / 32768.0f, window.getWindow()[i], 0f);
+        }
+    }
+
+    @Test
+    public void detectPcm_matchesDetectionOnWrittenWav() throws Exception {
+        short[] stereo = decodedStereo(6);
+        PcmWindowSink window = new PcmWindowSink(WINDOW);
+        CollectingSink wav = new CollectingSink();
+        decode(stereo, window, wav);
+
+        File f = File.createTempFile("stream_window", ".wav");
+        try {
+            Assert.assertTrue(WavUtils.writeWavFile(f, Arrays.copyOf(wav.data, wav.length), TARGET_RATE, 1, 16));
+            RawNet2Strategy detector = new RawNet2Strategy(new EnergyRunner());
+            DetectionResult fromWav = detector.detectDetailed(f.getAbsolutePath(), null);
+            DetectionResult fromPcm = detector.detectPcm(window.getWindow(), window.getValidLength(), null);
+
+            Assert.assertTrue(fromWav.isSuccess());
+            Assert.assertTrue(fromPcm.isSuccess());
+            Assert.assertEquals("直接送入窗口与写 WAV 再读回的结果应一致",
+                    fromWav.getRealProbability(), fromPcm.getRealProbability(), 1e-6f);
+            Assert.assertEquals("流式输入没有读取阶段", 0, fromPcm.getReadNanos());
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+    }
+
+    @Test
+    public void shortAudio_completesOnFinishAndIsScreened() throws Exception {
+        PcmWindowSink window = new PcmWindowSink(WINDOW);
+        short[] oneSecond = decodedStereo(1);
+        ProperResamplerProcessor resampler = new ProperResamplerProcessor(SOURCE_RATE, 2, TARGET_RATE, window);
+        resampler.process(oneSecond, 0, oneSecond.length);
+        resampler.flush();
+        Assert.assertFalse("窗口未写满时不应就绪", window.getWindowReady().isDone());
+        window.finish();
+        Assert.assertTrue(window.getWindowReady().isDone());
+        Assert.assertEquals(TARGET_RATE, window.getValidLength(), 2);
+
+        RawNet2Strategy detector = new RawNet2Strategy(new EnergyRunner());
+        detector.setPreScreen(PreScreen.defaults());
+        Assert.assertTrue("1 秒语音应正常检测",
+                detector.detectPcm(window.getWindow(), window.getValidLength(), null).isSuccess());
+        float[] silence = new float[WINDOW];
+        DetectionResult screened = detector.detectPcm(silence, WINDOW, null);
+        Assert.assertEquals(DetectionResult.Error.SCREENED_OUT, screened.getError());
+        Assert.assertEquals(PreScreen.Reason.SILENCE, screened.getScreenReason());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.test922.audio.metrics;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 流水线指标测试：直方图分桶与分位数精度、计数与 JSON 导出，以及 WAV 头解析的计时
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PipelineMetricsTest {
+
+    @Test
+    public void histogram_bucketsCoverRangeWithBoundedError() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long lower = LatencyHistogram.bucketLowerBound(index);
+            Assert.assertTrue("值应不小于所在桶的下界: " + value, value >= lower);
+            Assert.assertTrue("值应小于下一个桶的下界: " + value,
+                    value < LatencyHistogram.bucketLowerBound(index + 1));
+        }
+        // 超出范围的值计入最后一个桶，不越界
+        Assert.assertEquals(LatencyHistogram.bucketIndex(1L << 50), LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogram_percentilesMatchSortedSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            // 1ms - 50ms 的对数均匀分布，另加 1% 的 500ms 长尾
+            samples[i] = i % 100 == 0 ? 500_000_000L
+                    : (long) (1_000_000 * Math.exp(random.nextDouble() * Math.log(50)));
+            histogram.record(samples[i]);
+        }
+        long[] sorted = samples.clone();
+        java.util.Arrays.sort(sorted);
+
+        Assert.assertEquals(samples.length, histogram.getCount());
+        Assert.assertEquals(sorted[0], histogram.getMin());
+        Assert.assertEquals(sorted[sorted.length - 1], histogram.getMax());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long expected = sorted[(int) Math.ceil(p / 100 * sorted.length) - 1];
+            long actual = histogram.getPercentile(p);
+            double error = Math.abs(actual - expected) / (double) expected;
+            Assert.assertTrue("p" + p + " 误差应在 4% 以内: " + actual + " vs " + expected, error < 0.04);
+        }
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void toJson_containsStagesCountersAndMeta() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.FORWARD, 10_000_000);
+        metrics.record(PipelineMetrics.Stage.FORWARD, 30_000_000);
+        metrics.increment(PipelineMetrics.Counter.DETECTIONS);
+        metrics.add(PipelineMetrics.Counter.BATCH_CLIPS, 8);
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("device", "Pixel \"7\"");
+        meta.put("version", "1.0");
+        File file = File.createTempFile("metrics", ".json");
+        try {
+            Assert.assertTrue(metrics.writeJson(file, meta));
+            String json = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+
+            JSONObject root = new JSONObject(json);
+            Assert.assertEquals("Pixel \"7\"", root.getJSONObject("meta").getString("device"));
+            JSONObject stages = root.getJSONObject("stages");
+            for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+                Assert.assertTrue("应输出所有阶段: " + stage, stages.has(stage.getKey()));
+            }
+            JSONObject forward = stages.getJSONObject("forward");
+            Assert.assertEquals(2, forward.optInt("count", -1));
+            Assert.assertEquals("p99 应接近最大值 30ms", 30.0, forward.optDouble("p99_ms", 0), 1.0);
+            Assert.assertEquals(0, stages.getJSONObject("wav_parse").optInt("count", -1));
+            JSONObject counters = root.getJSONObject("counters");
+            Assert.assertEquals(1, counters.optInt("detections", -1));
+            Assert.assertEquals(8, counters.optInt("batch_clips", -1));
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getHistogram(PipelineMetrics.Stage.FORWARD).getCount());
+        Assert.assertEquals(0, metrics.getCount(PipelineMetrics.Counter.DETECTIONS));
+    }
+
+    @Test
+    public void mapWavFile_recordsWavParse() throws Exception {
+        File file = File.createTempFile("metrics_clip", ".wav");
+        file.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(file, new short[1600], 16000, 1, 16));
+
+        LatencyHistogram parse = PipelineMetrics.get().getHistogram(PipelineMetrics.Stage.WAV_PARSE);
+        long before = parse.getCount();
+        try (WavUtils.MappedWav mapped = WavUtils.mapWavFile(file.getAbsolutePath())) {
+            Assert.assertNotNull(mapped);
+        }
+        Assert.assertEquals("映射读取也应计入头部解析耗时", before + 1, parse.getCount());
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.test922.audio.pipeline;
+
+import android.content.Context;
+
+import com.example.test922.audio.detector.DeepfakeDetector;
+import com.example.test922.audio.detector.DetectionDiagnostics;
+import com.example.test922.audio.detector.DetectionResult;
+import com.example.test922.audio.detector.DetectionResultCache;
+import com.example.test922.audio.detector.PreScreen;
+import com.example.test922.audio.detector.SegmentListener;
+import com.example.test922.audio.detector.StreamConfig;
+import com.example.test922.audio.detector.StreamResult;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 批量流水线测试（JVM 端，三个阶段均用固定耗时的桩实现）
+ * 校验结果与提交顺序对应、各阶段重叠执行、失败文件不影响其他文件、背压生效，以及取消时释放被背压的提交方
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BatchPipelineTest {
+
+    private static final int FILE_COUNT = 40;
+    private static final long COPY_MILLIS = 4;
+    private static final long CONVERT_MILLIS = 8;
+    private static final long FORWARD_MILLIS = 4;
+
+    /** 桩检测器：每次 detectBatch 固定耗时，Real 概率由文件名中的下标决定 */
+    static class StubDetector implements DeepfakeDetector {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inferred = new AtomicInteger();
+
+        @Override
+        public boolean loadModel(Context context, String assetPath) {
+            return true;
+        }
+
+        @Override
+        public float detect(String audioFilePath) {
+            sleep(FORWARD_MILLIS);
+            return scoreOf(audioFilePath);
+        }
+
+        @Override
+        public float[] detectBatch(List<String> audioFilePaths) {
+            calls.incrementAndGet();
+            sleep(FORWARD_MILLIS);
+            float[] out = new float[audioFilePaths.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = scoreOf(audioFilePaths.get(i));
+            }
+            inferred.addAndGet(out.length);
+            return out;
+        }
+
+        /** 流水线只按路径推理，已解码的输入一律记为失败 */
+        @Override
+        public float[] detectBatch(float[][] clips) {
+            float[] out = new float[clips.length];
+            Arrays.fill(out, -1f);
+            return out;
+        }
+
+        @Override
+        public StreamResult detectStream(String audioFilePath, StreamConfig config, SegmentListener listener) {
+            return null;
+        }
+
+        @Override
+        public void setDiagnostics(DetectionDiagnostics diagnostics) {
+        }
+
+        @Override
+        public String getName() {
+            return "Stub";
+        }
+    }
+
+    /** 收集回调结果 */
+    static final class Collector implements BatchPipeline.Listener {
+        final CountDownLatch done = new CountDownLatch(1);
+        final CountDownLatch firstResult = new CountDownLatch(1);
+        final AtomicInteger resultCount = new AtomicInteger();
+        final List<File> audioFiles = Collections.synchronizedList(new ArrayList<>());
+        /** 回调时模型输入文件已不存在的次数 */
+        final AtomicInteger missingFiles = new AtomicInteger();
+        final AtomicReference<float[]> results = new AtomicReference<>();
+        final AtomicReference<DetectionResult[]> details = new AtomicReference<>();
+
+        @Override
+        public void onResult(int index, String name, File audioFile, DetectionResult result) {
+            resultCount.incrementAndGet();
+            if (audioFile != null) {
+                if (!audioFile.exists()) missingFiles.incrementAndGet();
+                audioFiles.add(audioFile);
+            }
+            firstResult.countDown();
+        }
+
+        @Override
+        public void onComplete(DetectionResult[] results) {
+            details.set(results);
+            this.results.set(DetectionResult.realProbabilities(results));
+            done.countDown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 文件名形如 "clip_<index>_xxx.wav"，Real 概率为 index / 100 */
+    private static float scoreOf(String path) {
+        String name = new File(path).getName();
+        int index = Integer.parseInt(name.split("_")[1]);
+        return index / 100f;
+    }
+
+    private static BatchPipeline.Stage<Integer, File> copyStage(AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        return (index, name) -> {
+            sleep(COPY_MILLIS);
+            if (inFlight != null) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            }
+            File f = File.createTempFile("clip_" + index + "_", ".tmp");
+            f.deleteOnExit();
+            return f;
+        };
+    }
+
+    private static BatchPipeline.Stage<File, File> convertStage() {
+        return (staged, name) -> {
+            sleep(CONVERT_MILLIS);
+            int index = Integer.parseInt(staged.getName().split("_")[1]);
+            File f = File.createTempFile("clip_" + index + "_", ".wav");
+            f.deleteOnExit();
+            return f;
+        };
+    }
+
+    @Test
+    public void pipeline_resultsMatchSubmitOrderAndOverlapStages() throws Exception {
+        StubDetector detector = new StubDetector();
+        Collector collector = new Collector();
+        BatchPipeline.Config config = BatchPipeline.Config.defaults()
+                .setCopyWorkers(2)
+                .setConvertWorkers(4)
+                .setQueueCapacity(4);
+
+        // 最后一个文件要等到第一个结果回调后才拷贝：各阶段不重叠时这里会一直等到超时
+        AtomicBoolean overlapped = new AtomicBoolean();
+        BatchPipeline.Stage<Integer, File> copy = copyStage(null, null);
+        BatchPipeline.Stage<Integer, File> gatedCopy = (index, name) -> {
+            if (index == FILE_COUNT - 1) {
+                overlapped.set(collector.firstResult.await(10, TimeUnit.SECONDS));
+            }
+            return copy.process(index, name);
+        };
+
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(gatedCopy, convertStage(),
+                detector, config, collector);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Assert.assertEquals(i, pipeline.submit(i, "clip" + i));
+        }
+        pipeline.close();
+        Assert.assertTrue("流水线应在超时前完成", collector.done.await(20, TimeUnit.SECONDS));
+        Assert.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue("首个结果不应等待全部文件拷贝与转码完成", overlapped.get());
+
+        float[] results = collector.results.get();
+        Assert.assertEquals(FILE_COUNT, results.length);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Assert.assertEquals("第 " + i + " 个结果应与提交顺序对应", i / 100f, results[i], 0f);
+        }
+        Assert.assertEquals(FILE_COUNT, collector.resultCount.get());
+        Assert.assertEquals(FILE_COUNT, detector.inferred.get());
+        Assert.assertEquals(FILE_COUNT, collector.audioFiles.size());
+        Assert.assertEquals("回调期间模型输入文件应仍然存在", 0, collector.missingFiles.get());
+        for (File f : collector.audioFiles) {
+            Assert.assertFalse("推理完成后应删除转码文件: " + f, f.exists());
+        }
+    }
+
+    @Test
+    public void pipeline_inferenceExceptionFailsBatchAndCompletes() throws Exception {
+        StubDetector detector = new StubDetector() {
+            @Override
+            public float[] detectBatch(List<String> audioFilePaths) {
+                for (String path : audioFilePaths) {
+                    if (scoreOf(path) == 0.02f) {
+                        throw new IllegalStateException("模拟原生推理错误");
+                    }
+                }
+                return super.detectBatch(audioFilePaths);
+            }
+        };
+        Collector collector = new Collector();
+        BatchPipeline.Config config = BatchPipeline.Config.defaults().setMaxInferenceBatch(1);
+
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(null, null), convertStage(),
+                detector, config, collector);
+        for (int i = 0; i < 6; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue("推理抛出异常后流水线仍应完成", collector.done.await(10, TimeUnit.SECONDS));
+
+        float[] results = collector.results.get();
+        Assert.assertEquals(-1f, results[2], 0f);
+        Assert.assertEquals(DetectionResult.Error.INFERENCE_FAILED, collector.details.get()[2].getError());
+        Assert.assertEquals(0.05f, results[5], 0f);
+        Assert.assertEquals(6, collector.resultCount.get());
+        for (File f : collector.audioFiles) {
+            Assert.assertFalse("推理失败的文件同样应删除转码产物: " + f, f.exists());
+        }
+    }
+
+    @Test
+    public void pipeline_stageRuntimeExceptionFailsOnlyThatFile() throws Exception {
+        Collector collector = new Collector();
+        BatchPipeline.Stage<File, File> convert = convertStage();
+        BatchPipeline.Stage<File, File> crashingConvert = (staged, name) -> {
+            if (name.equals("clip4")) throw new IllegalArgumentException("模拟转码崩溃");
+            return convert.process(staged, name);
+        };
+
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(null, null), crashingConvert,
+                new StubDetector(), BatchPipeline.Config.defaults(), collector);
+        for (int i = 0; i < 6; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+
+        float[] results = collector.results.get();
+        Assert.assertEquals(-1f, results[4], 0f);
+        Assert.assertEquals(0.03f, results[3], 0f);
+        Assert.assertEquals(6, collector.resultCount.get());
+    }
+
+    @Test
+    public void pipeline_failedStageReportsMinusOne() throws Exception {
+        StubDetector detector = new StubDetector();
+        Collector collector = new Collector();
+        BatchPipeline.Stage<Integer, File> copy = copyStage(null, null);
+        BatchPipeline.Stage<Integer, File> flakyCopy = (index, name) -> {
+            if (index == 3) return null;
+            if (index == 5) throw new java.io.IOException("模拟读取失败");
+            return copy.process(index, name);
+        };
+
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(flakyCopy, convertStage(),
+                detector, BatchPipeline.Config.defaults(), collector);
+        for (int i = 0; i < 8; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+
+        float[] results = collector.results.get();
+        Assert.assertEquals(-1f, results[3], 0f);
+        Assert.assertEquals(-1f, results[5], 0f);
+        Assert.assertEquals(DetectionResult.Error.READ_FAILED, collector.details.get()[3].getError());
+        Assert.assertEquals(DetectionResult.Error.READ_FAILED, collector.details.get()[5].getError());
+        Assert.assertEquals(0.07f, results[7], 0f);
+        Assert.assertEquals("失败的文件同样应回调 onResult", 8, collector.resultCount.get());
+        Assert.assertEquals(6, detector.inferred.get());
+    }
+
+    @Test
+    public void pipeline_reportsScreenReasonPerFile() throws Exception {
+        // 检测器把下标为 2 的文件判为静音：结果应保留筛查原因，而不是与推理失败混为 -1
+        StubDetector detector = new StubDetector() {
+            @Override
+            public DetectionResult[] detectBatchDetailed(List<String> audioFilePaths) {
+                DetectionResult[] results = super.detectBatchDetailed(audioFilePaths);
+                for (int i = 0; i < results.length; i++) {
+                    if (scoreOf(audioFilePaths.get(i)) == 0.02f) {
+                        results[i] = DetectionResult.screened(PreScreen.Reason.SILENCE, 0, 0);
+                    }
+                }
+                return results;
+            }
+        };
+        Collector collector = new Collector();
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(null, null), convertStage(),
+                detector, BatchPipeline.Config.defaults(), collector);
+        for (int i = 0; i < 4; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+
+        DetectionResult[] details = collector.details.get();
+        Assert.assertEquals(DetectionResult.Error.SCREENED_OUT, details[2].getError());
+        Assert.assertEquals(PreScreen.Reason.SILENCE, details[2].getScreenReason());
+        Assert.assertTrue(details[3].isSuccess());
+        Assert.assertEquals(0.03f, details[3].getRealProbability(), 0f);
+    }
+
+    @Test
+    public void pipeline_boundedQueuesApplyBackpressure() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        // 推理最慢，上游必须被背压，已拷贝但未推理的文件数受队列容量约束
+        StubDetector detector = new StubDetector() {
+            @Override
+            public float[] detectBatch(List<String> audioFilePaths) {
+                sleep(20);
+                inFlight.addAndGet(-audioFilePaths.size());
+                return super.detectBatch(audioFilePaths);
+            }
+        };
+        Collector collector = new Collector();
+        BatchPipeline.Config config = BatchPipeline.Config.defaults()
+                .setCopyWorkers(2)
+                .setConvertWorkers(2)
+                .setQueueCapacity(2)
+                .setMaxInferenceBatch(2);
+
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(inFlight, maxInFlight), convertStage(),
+                detector, config, collector);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(collector.done.await(20, TimeUnit.SECONDS));
+
+        // 拷贝线程 + 转码队列 + 转码线程 + 推理队列 + 正在推理的一批
+        int bound = 2 + 2 + 2 + 2 + 2;
+        Assert.assertTrue("中间文件数应受有界队列约束: " + maxInFlight.get(), maxInFlight.get() <= bound);
+        Assert.assertEquals(FILE_COUNT, collector.results.get().length);
+    }
+
+    @Test
+    public void pipeline_cacheHitsSkipAllStages() throws Exception {
+        DetectionResultCache cache = new DetectionResultCache(
+                Files.createTempDirectory("pipeline_cache").toFile(), "model@1", "Stub", 100);
+        BatchPipeline.SourceKey<Integer> key = (index, name) -> "key" + index;
+
+        // 第一轮：全部推理并写入缓存
+        StubDetector first = new StubDetector();
+        Collector firstRun = new Collector();
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(null, null), convertStage(),
+                first, BatchPipeline.Config.defaults(), firstRun, key, cache);
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(firstRun.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(10, first.inferred.get());
+        Assert.assertEquals(10, cache.size());
+
+        // 第二轮：重复的文件直接命中缓存，只有新文件经过拷贝/转码/推理
+        AtomicInteger copied = new AtomicInteger();
+        BatchPipeline.Stage<Integer, File> copy = copyStage(null, null);
+        BatchPipeline.Stage<Integer, File> countingCopy = (index, name) -> {
+            copied.incrementAndGet();
+            return copy.process(index, name);
+        };
+        StubDetector second = new StubDetector();
+        Collector secondRun = new Collector();
+        pipeline = new BatchPipeline<>(countingCopy, convertStage(),
+                second, BatchPipeline.Config.defaults(), secondRun, key, cache);
+        for (int i = 5; i < 15; i++) {
+            pipeline.submit(i, "clip" + i);
+        }
+        pipeline.close();
+        Assert.assertTrue(secondRun.done.await(10, TimeUnit.SECONDS));
+
+        float[] results = secondRun.results.get();
+        for (int i = 0; i < results.length; i++) {
+            Assert.assertEquals((i + 5) / 100f, results[i], 0f);
+        }
+        Assert.assertEquals("命中缓存的文件不应再拷贝", 5, copied.get());
+        Assert.assertEquals("命中缓存的文件不应再推理", 5, second.inferred.get());
+        Assert.assertEquals(10, secondRun.resultCount.get());
+    }
+
+    @Test
+    public void pipeline_emptyInputCompletes() throws Exception {
+        Collector collector = new Collector();
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(copyStage(null, null), convertStage(),
+                new StubDetector(), BatchPipeline.Config.defaults(), collector);
+        pipeline.close();
+        Assert.assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, collector.results.get().length);
+        Assert.assertEquals(-1, pipeline.submit(0, "late"));
+    }
+
+    @Test
+    public void cancel_releasesSubmitterBlockedOnFullQueue() throws Exception {
+        CountDownLatch copying = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        BatchPipeline.Stage<Integer, File> stuckCopy = (index, name) -> {
+            copying.countDown();
+            never.await();
+            return null;
+        };
+        BatchPipeline<Integer, File> pipeline = new BatchPipeline<>(stuckCopy, convertStage(), new StubDetector(),
+                BatchPipeline.Config.defaults().setCopyWorkers(1).setQueueCapacity(1), new Collector());
+
+        // 第一个文件占住唯一的拷贝线程，第二个填满队列，第三个阻塞在 submit 中
+        Assert.assertEquals(0, pipeline.submit(0, "clip_0"));
+        Assert.assertTrue(copying.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, pipeline.submit(1, "clip_1"));
+        AtomicInteger blockedIndex = new AtomicInteger(Integer.MIN_VALUE);
+        Thread submitter = new Thread(() -> {
+            try {
+                blockedIndex.set(pipeline.submit(2, "clip_2"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (submitter.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("提交方应阻塞在已满的队列上", Thread.State.TIMED_WAITING, submitter.getState());
+
+        pipeline.cancel();
+        submitter.join(TimeUnit.SECONDS.toMillis(5));
+        Assert.assertFalse("取消后提交方应返回", submitter.isAlive());
+        Assert.assertEquals("取消时阻塞的提交返回 -1", -1, blockedIndex.get());
+        Assert.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.test922.audio.processor;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 音轨选择测试：从合成的 FFprobe 流信息读取音轨、打分与选出最佳音轨
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AudioExtractorTest {
+
+    /** 构造一条 FFprobe 输出中的流，tags 为 language/title/handler_name，传 null 表示缺失 */
+    private static JSONObject stream(int index, String type, String language, String title,
+                                     int channels, String sampleRate) throws Exception {
+        JSONObject stream = new JSONObject();
+        stream.put("index", index);
+        stream.put("codec_type", type);
+        if (channels > 0) stream.put("channels", channels);
+        if (sampleRate != null) stream.put("sample_rate", sampleRate);
+        JSONObject tags = new JSONObject();
+        if (language != null) tags.put("language", language);
+        if (title != null) tags.put("title", title);
+        stream.put("tags", tags);
+        return stream;
+    }
+
+    private static List<AudioExtractor.AudioTrack> tracks(JSONObject... streams) {
+        List<AudioExtractor.AudioTrack> tracks = new ArrayList<>();
+        for (JSONObject stream : streams) {
+            AudioExtractor.AudioTrack track = AudioExtractor.AudioTrack.fromProbe(stream);
+            if (track != null) tracks.add(track);
+        }
+        return tracks;
+    }
+
+    @Test
+    public void fromProbe_readsTagsAndFormat() throws Exception {
+        JSONObject stream = stream(2, "audio", "chi", "国语", 2, "48000");
+        stream.put("bit_rate", "128000");
+        stream.getJSONObject("tags").put("handler_name", "SoundHandler");
+
+        AudioExtractor.AudioTrack track = AudioExtractor.AudioTrack.fromProbe(stream);
+        Assert.assertNotNull(track);
+        Assert.assertEquals(2, track.index);
+        Assert.assertEquals("chi", track.language);
+        Assert.assertEquals("国语", track.title);
+        Assert.assertEquals("SoundHandler", track.handler);
+        Assert.assertEquals(2, track.channels);
+        Assert.assertEquals(48000, track.sampleRate);
+        Assert.assertEquals(128000, track.bitrate);
+    }
+
+    @Test
+    public void fromProbe_skipsNonAudioAndMissingFields() throws Exception {
+        Assert.assertNull("视频流不是候选", AudioExtractor.AudioTrack.fromProbe(stream(0, "video", null, null, 0, null)));
+        JSONObject noIndex = stream(1, "audio", null, null, 2, "44100");
+        noIndex.remove("index");
+        Assert.assertNull("缺少 index 无法生成 -map", AudioExtractor.AudioTrack.fromProbe(noIndex));
+        Assert.assertNull(AudioExtractor.AudioTrack.fromProbe(null));
+
+        JSONObject bare = new JSONObject();
+        bare.put("index", 3);
+        bare.put("codec_type", "audio");
+        bare.put("sample_rate", "n/a");
+        AudioExtractor.AudioTrack track = AudioExtractor.AudioTrack.fromProbe(bare);
+        Assert.assertNotNull(track);
+        Assert.assertNull(track.language);
+        Assert.assertEquals(-1, track.channels);
+        Assert.assertEquals("无法解析的采样率按未知处理", -1, track.sampleRate);
+        Assert.assertEquals(-1, track.bitrate);
+    }
+
+    @Test
+    public void scoreTrack_prefersChineseThenFormat() {
+        AudioExtractor.AudioTrack chinese = new AudioExtractor.AudioTrack(1, "zho", null, null, 2, 48000, -1);
+        AudioExtractor.AudioTrack english = new AudioExtractor.AudioTrack(2, "eng", null, null, 2, 16000, 128000);
+        AudioExtractor.AudioTrack surround = new AudioExtractor.AudioTrack(3, "eng", null, null, 6, 48000, -1);
+        AudioExtractor.AudioTrack stereo = new AudioExtractor.AudioTrack(4, "eng", null, null, 2, 48000, -1);
+
+        Assert.assertTrue(AudioExtractor.scoreTrack(chinese) > AudioExtractor.scoreTrack(english));
+        Assert.assertTrue("16kHz 无需重采样", AudioExtractor.scoreTrack(english) > AudioExtractor.scoreTrack(stereo));
+        Assert.assertTrue("多声道需下混", AudioExtractor.scoreTrack(stereo) > AudioExtractor.scoreTrack(surround));
+    }
+
+    @Test
+    public void selectBestTrack_picksHighestScoreFromProbe() throws Exception {
+        List<AudioExtractor.AudioTrack> tracks = tracks(
+                stream(0, "video", null, null, 0, null),
+                stream(1, "audio", "eng", "Commentary", 2, "48000"),
+                stream(2, "audio", "jpn", "原声", 2, "48000"),
+                stream(3, "audio", "chi", "国语", 6, "48000"),
+                stream(4, "subtitle", "chi", null, 0, null));
+
+        Assert.assertEquals(3, tracks.size());
+        Assert.assertEquals("中文音轨优先", 3, AudioExtractor.selectBestTrack(tracks).index);
+    }
+
+    @Test
+    public void selectBestTrack_tieKeepsFirstAndEmptyIsNull() {
+        AudioExtractor.AudioTrack first = new AudioExtractor.AudioTrack(5, null, null, null, 2, 44100, -1);
+        AudioExtractor.AudioTrack second = new AudioExtractor.AudioTrack(6, null, null, null, 2, 48000, -1);
+        Assert.assertSame(first, AudioExtractor.selectBestTrack(Arrays.asList(first, second)));
+        Assert.assertSame("得分很低的唯一音轨也应被选中",
+                first, AudioExtractor.selectBestTrack(Collections.singletonList(first)));
+        Assert.assertNull("没有音频流", AudioExtractor.selectBestTrack(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.test922.audio.processor;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * FFmpegInput 测试：用一个由本地文件支撑的 ContentProvider 模拟 SAF 文档，
+ * 验证 content:// Uri 直接以描述符交给 FFmpeg，以及无法使用描述符时的复制回退
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FFmpegInputTest {
+
+    private static final String AUTHORITY = "com.example.test922.test.files";
+
+    /** 以本地文件应答 openFile 的替身 Provider */
+    public static class FileBackedProvider extends ContentProvider {
+        static volatile File backingFile;
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+            return ParcelFileDescriptor.open(backingFile, ParcelFileDescriptor.MODE_READ_ONLY);
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            return null;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return "audio/mp4";
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            return 0;
+        }
+    }
+
+    private Context context;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        context = RuntimeEnvironment.getApplication();
+        content = new byte[300_000];
+        new Random(7).nextBytes(content);
+        File source = File.createTempFile("saf_source", ".m4a");
+        source.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(source)) {
+            out.write(content);
+        }
+        FileBackedProvider.backingFile = source;
+        Robolectric.setupContentProvider(FileBackedProvider.class, AUTHORITY);
+    }
+
+    private int cacheFileCount() {
+        String[] names = context.getCacheDir().list();
+        return names == null ? 0 : names.length;
+    }
+
+    @Test
+    public void open_contentUriReadsThroughDescriptor() throws Exception {
+        int cachedBefore = cacheFileCount();
+        Uri uri = Uri.parse("content://" + AUTHORITY + "/clip.m4a");
+
+        try (FFmpegInput input = FFmpegInput.open(context, uri)) {
+            Assert.assertNotNull("应能打开 content Uri", input);
+            Assert.assertArrayEquals("FFmpeg 读到的内容应与原文件一致",
+                    content, Files.readAllBytes(new File(input.getPath()).toPath()));
+
+            if (new File("/proc/self/fd").isDirectory()) {
+                Assert.assertFalse("支持 /proc/self/fd 时不应复制", input.isCopy());
+                Assert.assertTrue(input.getPath().startsWith("/proc/self/fd/"));
+                Assert.assertEquals("不应在缓存目录产生临时文件", cachedBefore, cacheFileCount());
+            }
+        }
+    }
+
+    @Test
+    public void fromDescriptor_fallbackCopiesAndCleansUp() throws Exception {
+        ParcelFileDescriptor pfd = context.getContentResolver()
+                .openFileDescriptor(Uri.parse("content://" + AUTHORITY + "/clip.m4a"), "r");
+        Assert.assertNotNull(pfd);
+
+        FFmpegInput input = FFmpegInput.fromDescriptor(pfd, context.getCacheDir(), false);
+        Assert.assertNotNull(input);
+        Assert.assertTrue("禁用描述符路径时应回退为复制", input.isCopy());
+        File copy = new File(input.getPath());
+        byte[] copied = Files.readAllBytes(copy.toPath());
+        Assert.assertEquals(content.length, copied.length);
+        Assert.assertTrue("复制内容应与原文件一致", Arrays.equals(content, copied));
+
+        input.close();
+        Assert.assertFalse("close 后应删除临时副本", copy.exists());
+    }
+
+    @Test
+    public void open_fileUriUsesPathDirectly() {
+        File source = FileBackedProvider.backingFile;
+        try (FFmpegInput input = FFmpegInput.open(context, Uri.fromFile(source))) {
+            Assert.assertNotNull(input);
+            Assert.assertFalse(input.isCopy());
+            Assert.assertEquals(source.getAbsolutePath(), input.getPath());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.test922.audio.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * PcmChunkQueue 测试：格式切换与数据顺序、背压与失败传递，以及解码与写盘并行执行。
+ * 相对同步循环的吞吐见 benchmark 模块的 PcmChunkQueueBenchmark
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PcmChunkQueueTest {
+
+    /** 每个输出缓冲区：1024 帧立体声 */
+    private static final int BUFFER_SAMPLES = 2048;
+
+    /**
+     * 模拟等待：解码在编解码器进程中完成、写盘等待 I/O，对应用线程而言都是阻塞而非占用 CPU
+     */
+    private static void await(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** 模拟解码器：每个缓冲区耗时 decodeNanos，内容为递增序号，与 MediaCodec 输出一样为本机字节序 */
+    private static ByteBuffer decodeBuffer(int index, long decodeNanos) {
+        await(decodeNanos);
+        ByteBuffer pcm = ByteBuffer.allocateDirect(BUFFER_SAMPLES * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < BUFFER_SAMPLES; i++) {
+            pcm.putShort((short) (index + i));
+        }
+        pcm.flip();
+        return pcm;
+    }
+
+    /** 模拟写线程：每个缓冲区耗时 writeNanos，并校验数据顺序 */
+    static class SlowConsumer implements PcmChunkQueue.Consumer {
+        final long writeNanos;
+        final List<String> formats = new ArrayList<>();
+        int buffers;
+        long samples;
+
+        SlowConsumer(long writeNanos) {
+            this.writeNanos = writeNanos;
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channels) {
+            formats.add(sampleRate + "/" + channels);
+        }
+
+        @Override
+        public void onPcm(short[] data, int count) {
+            Assert.assertEquals("数据应按顺序到达", (short) buffers, data[0]);
+            await(writeNanos);
+            buffers++;
+            samples += count;
+        }
+    }
+
+    @Test
+    public void drain_deliversInOrderWithFormatChanges() throws Exception {
+        PcmChunkQueue queue = new PcmChunkQueue(4, 16);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 100; i++) {
+                    queue.put(decodeBuffer(i, 0), i < 50 ? 44100 : 48000, 2);
+                }
+                queue.finish();
+            } catch (InterruptedException e) {
+                queue.fail("中断");
+            }
+        });
+        producer.start();
+        SlowConsumer consumer = new SlowConsumer(0);
+        Assert.assertTrue(queue.drainTo(consumer));
+        producer.join();
+
+        Assert.assertEquals(100, consumer.buffers);
+        Assert.assertEquals((long) 100 * BUFFER_SAMPLES, consumer.samples);
+        Assert.assertEquals("格式只在变化时通知", List.of("44100/2", "48000/2"), consumer.formats);
+    }
+
+    @Test
+    public void put_copiesNativeOrderSamplesBetweenPositionAndLimit() throws Exception {
+        // 解码器输出缓冲区按 BufferInfo 的 offset/size 设置 position 与 limit
+        ByteBuffer output = ByteBuffer.allocateDirect(64).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer samples = output.duplicate().order(ByteOrder.nativeOrder());
+        for (int i = 0; i < 32; i++) {
+            samples.putShort((short) (1000 + i));
+        }
+        output.position(8).limit(24);
+
+        PcmChunkQueue queue = new PcmChunkQueue(1, 4);
+        Assert.assertTrue(queue.put(output, 16000, 1));
+        Assert.assertEquals("剩余部分应被全部消耗", output.limit(), output.position());
+        queue.finish();
+
+        List<Short> received = new ArrayList<>();
+        Assert.assertTrue(queue.drainTo(new PcmChunkQueue.Consumer() {
+            @Override
+            public void onFormat(int sampleRate, int channels) {
+            }
+
+            @Override
+            public void onPcm(short[] data, int count) {
+                for (int i = 0; i < count; i++) received.add(data[i]);
+            }
+        }));
+        Assert.assertEquals(List.of((short) 1004, (short) 1005, (short) 1006, (short) 1007,
+                (short) 1008, (short) 1009, (short) 1010, (short) 1011), received);
+    }
+
+    @Test
+    public void failures_propagateBothWays() throws Exception {
+        // 解码线程失败：写线程得到 false 与原因
+        PcmChunkQueue failed = new PcmChunkQueue(2, BUFFER_SAMPLES);
+        failed.put(decodeBuffer(0, 0), 16000, 1);
+        failed.fail("解码器错误");
+        Assert.assertFalse(failed.drainTo(new SlowConsumer(0)));
+        Assert.assertEquals("解码器错误", failed.getError());
+
+        // 写线程失败：被背压阻塞的解码线程应被唤醒并停止
+        PcmChunkQueue queue = new PcmChunkQueue(2, BUFFER_SAMPLES);
+        AtomicReference<Boolean> lastPut = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                boolean ok = true;
+                for (int i = 0; i < 100 && ok; i++) {
+                    ok = queue.put(decodeBuffer(i, 0), 16000, 1);
+                }
+                lastPut.set(ok);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        try {
+            queue.drainTo(new PcmChunkQueue.Consumer() {
+                @Override
+                public void onFormat(int sampleRate, int channels) {
+                }
+
+                @Override
+                public void onPcm(short[] samples, int count) throws IOException {
+                    throw new IOException("磁盘已满");
+                }
+            });
+            Assert.fail("写入失败应抛出异常");
+        } catch (IOException expected) {
+            // 预期
+        }
+        producer.join(2000);
+        Assert.assertFalse("解码线程应已结束", producer.isAlive());
+        Assert.assertEquals(Boolean.FALSE, lastPut.get());
+    }
+
+    /**
+     * 写线程阻塞在第一块上时，解码线程仍能继续送入后续输出，两边并行而非交替执行
+     */
+    @Test
+    public void producer_keepsDecodingWhileConsumerIsBusy() throws Exception {
+        PcmChunkQueue queue = new PcmChunkQueue(4, BUFFER_SAMPLES);
+        CountDownLatch decodedAhead = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    queue.put(decodeBuffer(i, 0), 48000, 2);
+                    if (i == 3) decodedAhead.countDown();
+                }
+                queue.finish();
+            } catch (InterruptedException e) {
+                queue.fail("中断");
+            }
+        });
+        AtomicBoolean overlapped = new AtomicBoolean();
+        SlowConsumer consumer = new SlowConsumer(0) {
+            @Override
+            public void onPcm(short[] data, int count) {
+                if (buffers == 0) {
+                    try {
+                        overlapped.set(decodedAhead.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.onPcm(data, count);
+            }
+        };
+        producer.start();
+        Assert.assertTrue(queue.drainTo(consumer));
+        producer.join();
+
+        Assert.assertTrue("写线程处理第一块期间，解码线程应已送入后续三块", overlapped.get());
+        Assert.assertEquals(20, consumer.buffers);
+    }
+}
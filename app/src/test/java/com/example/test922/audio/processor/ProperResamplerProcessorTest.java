@@ -0,0 +1,180 @@
+package com.example.test922.audio.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * ProperResamplerProcessor 精度测试（吞吐见 benchmark 模块的 ResamplerBenchmark）
+ * 用已知频率的正弦波校验幅度/相位误差与抗混叠，并与一次性处理对比流式分块结果
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProperResamplerProcessorTest {
+
+    private static final int TARGET_RATE = 16000;
+
+    /** 收集全部输出的 sink */
+    static final class CollectingSink implements ProperResamplerProcessor.PcmSink {
+        short[] data = new short[1024];
+        int length;
+
+        @Override
+        public void write(short[] samples, int offset, int count) {
+            if (length + count > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + count, data.length * 2));
+            }
+            System.arraycopy(samples, offset, data, length, count);
+            length += count;
+        }
+
+        short[] toArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    /** 生成交错多声道正弦波，第 ch 个声道乘以 gains[ch] */
+    private static short[] sine(int sampleRate, double freq, double amplitude, int frames, double... gains) {
+        int channels = gains.length;
+        short[] pcm = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            double v = amplitude * Math.sin(2 * Math.PI * freq * i / sampleRate);
+            for (int ch = 0; ch < channels; ch++) {
+                pcm[i * channels + ch] = (short) Math.round(v * gains[ch] * 32767);
+            }
+        }
+        return pcm;
+    }
+
+    private static short[] resample(short[] pcm, int rate, int channels, int chunkFrames) throws IOException {
+        CollectingSink sink = new CollectingSink();
+        ProperResamplerProcessor resampler = new ProperResamplerProcessor(rate, channels, TARGET_RATE, sink);
+        int step = chunkFrames * channels;
+        for (int offset = 0; offset < pcm.length; offset += step) {
+            resampler.process(pcm, offset, Math.min(step, pcm.length - offset));
+        }
+        resampler.flush();
+        Assert.assertEquals(sink.length, resampler.getOutputFrames());
+        return sink.toArray();
+    }
+
+    /**
+     * 计算输出相对理想正弦 amplitude * sin(2πf n / 16000) 的信噪比（dB），跳过首尾各 skip 个点
+     */
+    private static double snrDb(short[] out, double freq, double amplitude, int skip) {
+        double signal = 0, noise = 0;
+        for (int n = skip; n < out.length - skip; n++) {
+            double expected = amplitude * Math.sin(2 * Math.PI * freq * n / TARGET_RATE) * 32767;
+            double err = out[n] - expected;
+            signal += expected * expected;
+            noise += err * err;
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1e-9));
+    }
+
+    private static double rms(short[] out, int skip) {
+        double sum = 0;
+        int n = 0;
+        for (int i = skip; i < out.length - skip; i++) {
+            sum += (double) out[i] * out[i];
+            n++;
+        }
+        return Math.sqrt(sum / Math.max(1, n)) / 32768.0;
+    }
+
+    @Test
+    public void resample48kStereoSine_matchesIdealOutput() throws Exception {
+        int frames = 48000;
+        short[] pcm = sine(48000, 1000, 0.5, frames, 1.0, 1.0);
+        short[] out = resample(pcm, 48000, 2, 1024);
+
+        Assert.assertEquals("48k -> 16k 输出长度应为 1/3", frames / 3, out.length);
+        double snr = snrDb(out, 1000, 0.5, 200);
+        Assert.assertTrue("1kHz 正弦的 SNR 应高于 60dB: " + snr, snr > 60);
+    }
+
+    @Test
+    public void resample44100Sine_matchesIdealOutput() throws Exception {
+        int frames = 44100;
+        short[] pcm = sine(44100, 440, 0.5, frames, 1.0);
+        short[] out = resample(pcm, 44100, 1, 4096);
+
+        Assert.assertEquals("44.1k -> 16k 输出长度应为 ceil(N * 160 / 441)", 16000, out.length);
+        double snr = snrDb(out, 440, 0.5, 200);
+        Assert.assertTrue("440Hz 正弦的 SNR 应高于 60dB: " + snr, snr > 60);
+    }
+
+    @Test
+    public void upsample8kSine_matchesIdealOutput() throws Exception {
+        short[] pcm = sine(8000, 300, 0.5, 8000, 1.0);
+        short[] out = resample(pcm, 8000, 1, 333);
+
+        Assert.assertEquals(16000, out.length);
+        double snr = snrDb(out, 300, 0.5, 200);
+        Assert.assertTrue("8k -> 16k 上采样 SNR 应高于 60dB: " + snr, snr > 60);
+    }
+
+    @Test
+    public void toneAboveTargetNyquist_isRejected() throws Exception {
+        // 10kHz 高于 16k 的 Nyquist（8kHz），不滤波会混叠到 6kHz
+        short[] pcm = sine(48000, 10000, 0.5, 48000, 1.0);
+        short[] out = resample(pcm, 48000, 1, 2048);
+
+        // 输出全部量化为 0 时按半个 LSB 计
+        double residual = Math.max(rms(out, 200), 0.5 / 32768);
+        double attenuationDb = 20 * Math.log10(residual / (0.5 / Math.sqrt(2)));
+        Assert.assertTrue("阻带衰减应超过 60dB: " + attenuationDb, attenuationDb < -60);
+    }
+
+    @Test
+    public void stereoDownmix_averagesChannels() throws Exception {
+        // 左右声道反相，平均后为静音
+        short[] opposite = resample(sine(48000, 1000, 0.5, 4800, 1.0, -1.0), 48000, 2, 512);
+        for (short v : opposite) {
+            Assert.assertTrue("反相声道下混应接近静音", Math.abs(v) <= 1);
+        }
+
+        // 只有左声道有信号时，下混后幅度减半
+        short[] leftOnly = resample(sine(48000, 1000, 0.8, 48000, 1.0, 0.0), 48000, 2, 4096);
+        double snr = snrDb(leftOnly, 1000, 0.4, 200);
+        Assert.assertTrue("单声道信号下混后应为一半幅度: " + snr, snr > 60);
+    }
+
+    @Test
+    public void streamingChunks_matchSingleShot() throws Exception {
+        short[] pcm = sine(44100, 1234, 0.7, 30000, 1.0, 0.5);
+        short[] whole = resample(pcm, 44100, 2, 30000);
+        short[] chunked = resample(pcm, 44100, 2, 97);
+        Assert.assertArrayEquals("分块流式处理结果应与一次性处理完全一致", whole, chunked);
+    }
+
+    @Test
+    public void shortBufferInput_matchesArrayInput() throws Exception {
+        short[] pcm = sine(44100, 1234, 0.7, 30000, 1.0, 0.5);
+        short[] fromArray = resample(pcm, 44100, 2, 30000);
+
+        // 直接缓冲区没有底层数组，走分块复制的路径
+        CollectingSink sink = new CollectingSink();
+        ProperResamplerProcessor resampler = new ProperResamplerProcessor(44100, 2, TARGET_RATE, sink);
+        ShortBuffer direct = ByteBuffer.allocateDirect(pcm.length * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        direct.put(pcm).flip();
+        resampler.process(direct);
+        Assert.assertEquals(0, direct.remaining());
+        resampler.flush();
+
+        Assert.assertArrayEquals("ShortBuffer 与数组输入应共用同一套下混，结果一致", fromArray, sink.toArray());
+    }
+
+    @Test
+    public void sameRate_onlyDownmixes() throws Exception {
+        short[] pcm = new short[]{1000, 3000, -2000, -4000, 32767, 32767};
+        short[] out = resample(pcm, TARGET_RATE, 2, 1);
+        Assert.assertArrayEquals(new short[]{2000, -3000, 32767}, out);
+    }
+}
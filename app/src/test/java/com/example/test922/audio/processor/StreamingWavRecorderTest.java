@@ -0,0 +1,154 @@
+package com.example.test922.audio.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StreamingWavRecorder 测试：用模拟的麦克风数据源验证边录边写、环形缓冲区回绕、头部回填与停止后完成
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StreamingWavRecorderTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    /** 按固定块大小返回预先生成的数据，数据耗尽后模拟空闲的麦克风（短暂等待后返回 0） */
+    static final class FakeMic implements StreamingWavRecorder.PcmSource {
+        private final byte[] data;
+        private final int chunk;
+        private int position;
+
+        FakeMic(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= data.length) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }
+            int n = Math.min(Math.min(length, chunk), data.length - position);
+            System.arraycopy(data, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+    }
+
+    private static byte[] randomPcm(int bytes) {
+        byte[] pcm = new byte[bytes];
+        new Random(11).nextBytes(pcm);
+        return pcm;
+    }
+
+    private static File record(byte[] pcm, int chunk, int ringBytes) throws Exception {
+        File out = File.createTempFile("recording", ".wav");
+        out.deleteOnExit();
+        StreamingWavRecorder recorder = new StreamingWavRecorder(out, SAMPLE_RATE, chunk, ringBytes);
+        recorder.start(new FakeMic(pcm, chunk));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (recorder.getCapturedBytes() < pcm.length && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return recorder.stop().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void recording_streamsAllPcmAndPatchesHeader() throws Exception {
+        byte[] pcm = randomPcm(SAMPLE_RATE * 2 * 3); // 3 秒
+        File out = record(pcm, 1280, 8192);
+
+        WavUtils.WavInfo info = WavUtils.parse(out);
+        Assert.assertNotNull("应为合法的 WAV 文件", info);
+        Assert.assertEquals(SAMPLE_RATE, info.sampleRate);
+        Assert.assertEquals(1, info.channels);
+        Assert.assertEquals("头部数据长度应回填为实际录音长度", pcm.length, info.dataSize);
+
+        byte[] file = Files.readAllBytes(out.toPath());
+        Assert.assertEquals(44 + pcm.length, file.length);
+        Assert.assertTrue("环形缓冲区多次回绕后数据应与输入一致",
+                Arrays.equals(pcm, Arrays.copyOfRange(file, 44, file.length)));
+    }
+
+    @Test
+    public void recording_unalignedChunksKeepOrder() throws Exception {
+        // 读取块大小与环形缓冲区大小互质，覆盖回绕边界上的拆分读取
+        byte[] pcm = randomPcm(50_000);
+        File out = record(pcm, 998, 3002);
+
+        byte[] file = Files.readAllBytes(out.toPath());
+        Assert.assertTrue(Arrays.equals(pcm, Arrays.copyOfRange(file, 44, file.length)));
+    }
+
+    @Test
+    public void stop_completesOnceFileIsWritten() throws Exception {
+        File out = File.createTempFile("recording", ".wav");
+        out.deleteOnExit();
+        StreamingWavRecorder recorder = new StreamingWavRecorder(out, SAMPLE_RATE, 1280, 64000);
+        recorder.start(new FakeMic(randomPcm(64000), 1280));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.getCapturedBytes() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        File result = recorder.stop().get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(out, result);
+        Assert.assertTrue(WavUtils.verifyRiffWave(out));
+        Assert.assertEquals("future 完成时文件应已包含全部采集数据",
+                44 + (recorder.getCapturedBytes() & ~1L), out.length());
+    }
+
+    @Test
+    public void readLatest_returnsMostRecentSamples() throws Exception {
+        // 递增的采样值，便于校验取到的是最近的一段
+        int frames = 20000;
+        byte[] pcm = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short v = (short) (i - 10000);
+            pcm[2 * i] = (byte) v;
+            pcm[2 * i + 1] = (byte) (v >> 8);
+        }
+        File out = File.createTempFile("recording", ".wav");
+        out.deleteOnExit();
+        StreamingWavRecorder recorder = new StreamingWavRecorder(out, SAMPLE_RATE, 640, 8000);
+        recorder.start(new FakeMic(pcm, 640));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.getCapturedBytes() < pcm.length && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        float[] window = new float[4000];
+        int n = recorder.readLatest(window, window.length);
+        Assert.assertEquals("可用长度为环形缓冲区减去一次读取", (8000 - 640) / 2, n);
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals((frames - n + i - 10000) / 32768f, window[i], 0f);
+        }
+        recorder.stop().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failingSource_finishesWithCapturedData() throws Exception {
+        File out = File.createTempFile("recording", ".wav");
+        out.deleteOnExit();
+        int[] calls = {0};
+        StreamingWavRecorder recorder = new StreamingWavRecorder(out, SAMPLE_RATE, 640, 6400);
+        // 两次正常读取后返回错误码（AudioRecord 的 ERROR_INVALID_OPERATION）
+        recorder.start((buffer, offset, length) -> calls[0]++ < 2 ? 640 : -3);
+
+        File result = recorder.getCompletion().get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("读取出错时应保留已录制的数据", 44 + 1280, result.length());
+    }
+}
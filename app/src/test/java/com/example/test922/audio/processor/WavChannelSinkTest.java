@@ -0,0 +1,99 @@
+package com.example.test922.audio.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * WavChannelSink 测试：输出与 WavUtils.writeWavFile 逐字节一致，
+ * 以及稳态下“重采样 + 写盘”每个解码缓冲区不分配堆内存
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WavChannelSinkTest {
+
+    /** 每个解码缓冲区：1024 帧立体声 */
+    private static final int BUFFER_SAMPLES = 2048;
+
+    private static final int BUFFERS = 500;
+
+    /**
+     * 整个稳态阶段允许的分配上限：FileChannel 写入路径上偶发的少量对象。
+     * 旧实现每个缓冲区至少分配一个 ByteBuffer 视图与等长的 byte[]（约 4KB），总计远超此值。
+     */
+    private static final long MAX_TOTAL_BYTES = 16 * 1024;
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static short[] pcm(int length, int seed) {
+        short[] pcm = new short[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (short) (((i + seed) * 7919) % 65536 - 32768);
+        }
+        return pcm;
+    }
+
+    @Test
+    public void output_matchesWriteWavFile() throws Exception {
+        // 大于暂存区，覆盖分段写入
+        short[] data = pcm(20000, 3);
+        File expected = File.createTempFile("wav_expected", ".wav");
+        File actual = File.createTempFile("wav_channel", ".wav");
+        expected.deleteOnExit();
+        actual.deleteOnExit();
+        Assert.assertTrue(WavUtils.writeWavFile(expected, data, 16000, 1, 16));
+
+        try (RandomAccessFile raf = new RandomAccessFile(actual, "rw")) {
+            FileChannel channel = raf.getChannel();
+            WavChannelSink sink = new WavChannelSink(channel, 16000);
+            sink.write(data, 0, 1);
+            sink.write(data, 1, 12000);
+            sink.write(data, 12001, data.length - 12001);
+            sink.finish();
+            Assert.assertEquals(data.length, sink.getFrames());
+        }
+
+        Assert.assertArrayEquals("应与 writeWavFile 的输出逐字节一致",
+                Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        Assert.assertTrue(WavUtils.verifyRiffWave(actual));
+    }
+
+    @Test
+    public void resampleAndWrite_steadyStateAllocatesNothing() throws Exception {
+        File out = File.createTempFile("wav_alloc", ".wav");
+        out.deleteOnExit();
+        short[] buffer = pcm(BUFFER_SAMPLES, 11);
+
+        try (RandomAccessFile raf = new RandomAccessFile(out, "rw")) {
+            FileChannel channel = raf.getChannel();
+            WavChannelSink sink = new WavChannelSink(channel, 16000);
+            ProperResamplerProcessor resampler = new ProperResamplerProcessor(48000, 2, 16000, sink);
+
+            // 预热：历史缓冲区扩容到稳态大小，JIT 编译热点
+            for (int i = 0; i < 200; i++) {
+                resampler.process(buffer, 0, buffer.length);
+            }
+            long before = allocatedBytes();
+            for (int i = 0; i < BUFFERS; i++) {
+                resampler.process(buffer, 0, buffer.length);
+            }
+            long allocated = allocatedBytes() - before;
+            resampler.flush();
+            sink.finish();
+
+            Assert.assertTrue("稳态下不应按缓冲区分配内存: " + allocated + " 字节",
+                    allocated < MAX_TOTAL_BYTES);
+        }
+        Assert.assertTrue(WavUtils.verifyRiffWave(out));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.test922.audio.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * WaveformPeaks 测试：分桶极值与逐点计算一致、时长估计偏短/未知时合并而不越界，
+ * 以及 10 分钟 48kHz 立体声只占用固定内存
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WaveformPeaksTest {
+
+    /** 每个解码缓冲区：1024 帧立体声 */
+    private static final int BUFFER_SAMPLES = 2048;
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** 交错立体声：左声道正弦、右声道锯齿，幅度随时间变化 */
+    private static short[] stereo(int frames) {
+        short[] pcm = new short[frames * 2];
+        for (int f = 0; f < frames; f++) {
+            double envelope = 0.2 + 0.8 * ((f / 3000) % 5) / 4.0;
+            pcm[2 * f] = (short) (envelope * 30000 * Math.sin(2 * Math.PI * 440 * f / 48000.0));
+            pcm[2 * f + 1] = (short) (envelope * (((f * 37) % 20000) - 10000));
+        }
+        return pcm;
+    }
+
+    /** 按不规则大小（整帧）分块送入，覆盖跨块的桶 */
+    private static void feed(WaveformPeaks peaks, short[] pcm) {
+        short[] buffer = new short[BUFFER_SAMPLES];
+        int pos = 0;
+        int size = 2;
+        while (pos < pcm.length) {
+            int n = Math.min(Math.min(size, BUFFER_SAMPLES), pcm.length - pos);
+            System.arraycopy(pcm, pos, buffer, 0, n);
+            peaks.onPcm(buffer, n);
+            pos += n;
+            size = (size * 3 % 1999 + 2) & ~1;
+        }
+    }
+
+    @Test
+    public void peaks_matchBruteForceMinMax() {
+        int frames = 48000;
+        short[] pcm = stereo(frames);
+        long durationUs = 1_000_000;
+        int buckets = WaveformPeaks.bucketCountFor(durationUs);
+        Assert.assertEquals("1 秒按 5ms 一桶", 200, buckets);
+
+        WaveformPeaks peaks = new WaveformPeaks(buckets, durationUs);
+        peaks.onFormat(48000, 2);
+        feed(peaks, pcm);
+
+        float[] min = new float[buckets];
+        float[] max = new float[buckets];
+        int count = peaks.copyTo(min, max);
+        Assert.assertEquals(buckets, count);
+        Assert.assertEquals(buckets, peaks.getSpan());
+
+        int framesPerBucket = frames / buckets;
+        for (int b = 0; b < buckets; b++) {
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int i = b * framesPerBucket * 2; i < (b + 1) * framesPerBucket * 2; i++) {
+                lo = Math.min(lo, pcm[i]);
+                hi = Math.max(hi, pcm[i]);
+            }
+            Assert.assertEquals("桶 " + b + " 最小值", lo / 32768f, min[b], 0f);
+            Assert.assertEquals("桶 " + b + " 最大值", hi / 32768f, max[b], 0f);
+        }
+    }
+
+    @Test
+    public void longerThanDeclared_mergesWithinCapacity() {
+        int frames = 48000;
+        short[] pcm = stereo(frames);
+        int lo = Integer.MAX_VALUE;
+        int hi = Integer.MIN_VALUE;
+        for (short s : pcm) {
+            lo = Math.min(lo, s);
+            hi = Math.max(hi, s);
+        }
+
+        // 声明时长只有实际的 1/5，以及时长未知
+        for (long durationUs : new long[]{200_000, 0}) {
+            WaveformPeaks peaks = new WaveformPeaks(64, durationUs);
+            peaks.onFormat(48000, 2);
+
+            // 解码到一半时的快照：只覆盖已解码部分
+            feed(peaks, Arrays.copyOf(pcm, pcm.length / 2));
+            float[] min = new float[64];
+            float[] max = new float[64];
+            int half = peaks.copyTo(min, max);
+            Assert.assertTrue("桶数不应超过容量", half > 0 && half <= 64);
+
+            feed(peaks, Arrays.copyOfRange(pcm, pcm.length / 2, pcm.length));
+            int count = peaks.copyTo(min, max);
+            Assert.assertTrue("桶数不应超过容量: " + count, count > 32 && count <= 64);
+            Assert.assertEquals("超出估计后横轴按实际长度", count, peaks.getSpan());
+
+            float allMin = Float.MAX_VALUE;
+            float allMax = -Float.MAX_VALUE;
+            for (int b = 0; b < count; b++) {
+                Assert.assertTrue(min[b] <= max[b]);
+                allMin = Math.min(allMin, min[b]);
+                allMax = Math.max(allMax, max[b]);
+            }
+            Assert.assertEquals("合并后整体最小值不变", lo / 32768f, allMin, 0f);
+            Assert.assertEquals("合并后整体最大值不变", hi / 32768f, allMax, 0f);
+        }
+    }
+
+    @Test
+    public void tenMinutesStereo_constantMemory() {
+        long durationUs = 10 * 60 * 1_000_000L;
+        int totalBuffers = (int) (durationUs * 48 / 1000 / (BUFFER_SAMPLES / 2));
+        short[] buffer = stereo(BUFFER_SAMPLES / 2);
+        WaveformPeaks peaks = new WaveformPeaks(WaveformPeaks.bucketCountFor(durationUs), durationUs);
+        Assert.assertEquals(WaveformPeaks.MAX_BUCKETS, peaks.getBucketCount());
+        peaks.onFormat(48000, 2);
+
+        long before = allocatedBytes();
+        for (int i = 0; i < totalBuffers; i++) {
+            peaks.onPcm(buffer, buffer.length);
+        }
+        long allocated = allocatedBytes() - before;
+
+        float[] min = new float[peaks.getBucketCount()];
+        float[] max = new float[peaks.getBucketCount()];
+        int count = peaks.copyTo(min, max);
+        Assert.assertTrue("应填满按时长估算的桶: " + count, count >= WaveformPeaks.MAX_BUCKETS - 1);
+        Assert.assertTrue("解码过程中不应分配内存: " + allocated + " 字节", allocated < 4096);
+    }
+}
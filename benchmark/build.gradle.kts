@@ -0,0 +1,46 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// 只编译 app 中不依赖 Android / PyTorch 的音频处理代码，android.util.Log 由 src/main/java 中的替身提供。
+// 新增需要测量的类时，在这里加入对应文件，并确认它不引用其他 Android API。
+// 清单外的依赖会让编译失败：:app:check 依赖本模块的 jmhClasses，CI 运行 check 即可发现清单过期。
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("src/main/java", "../app/src/main/java"))
+            include(
+                "android/util/Log.java",
+                "com/example/test922/audio/processor/AudioStatistics.java",
+                "com/example/test922/audio/processor/PcmChunkQueue.java",
+                "com/example/test922/audio/processor/ProperResamplerProcessor.java",
+                "com/example/test922/audio/processor/SpeechWindowSelector.java",
+                "com/example/test922/audio/processor/WavUtils.java",
+                "com/example/test922/audio/processor/WaveformPeaks.java",
+                "com/example/test922/audio/detector/ModelInputOps.java",
+                "com/example/test922/audio/detector/PreScreen.java",
+                "com/example/test922/audio/metrics/LatencyHistogram.java",
+                "com/example/test922/audio/metrics/PipelineMetrics.java"
+            )
+        }
+    }
+}
+
+// 运行：./gradlew :benchmark:jmh，结果写入 benchmark/build/results/jmh/results.json
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // 每次操作的分配字节数（gc.alloc.rate.norm），用于发现热路径上新增的分配
+    profilers.add("gc")
+    // 1 小时的 WAV 解码为 float[] 约 230MB
+    jvmArgs.addAll("-Xms2g", "-Xmx2g")
+    resultFormat.set("JSON")
+}
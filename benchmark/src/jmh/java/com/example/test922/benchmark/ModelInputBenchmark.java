@@ -0,0 +1,101 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.detector.ModelInputOps;
+import com.example.test922.audio.detector.PreScreen;
+import com.example.test922.audio.processor.AudioStatistics;
+import com.example.test922.audio.processor.WavUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推理前后的纯计算：循环填充、Softmax / Sigmoid、WAV 头构建、前置筛查与输入统计。
+ * 这些都在每次检测的热路径上，稳态下不应分配内存（WAV 头除外，它返回新数组）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelInputBenchmark {
+
+    private static final int WINDOW = 64000;
+
+    /** 读入的有效采样点数：1 秒需要循环填充，4 秒无需处理 */
+    @Param({"16000", "64000"})
+    public int validLength;
+
+    private float[] clip;
+    private FloatBuffer window;
+    private float[] logits;
+    private PreScreen preScreen;
+    private AudioStatistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // 取 4 秒合成语音中静音片头之后的部分
+        float[] pcm = WavUtils.readWavFile(SyntheticWav.create(8).getAbsolutePath());
+        clip = new float[WINDOW];
+        System.arraycopy(pcm, pcm.length - WINDOW, clip, 0, WINDOW);
+        window = ByteBuffer.allocateDirect(WINDOW * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        Random random = new Random(1);
+        logits = new float[64 * 2];
+        for (int i = 0; i < logits.length; i++) logits[i] = (float) random.nextGaussian() * 4;
+        preScreen = PreScreen.defaults();
+        statistics = new AudioStatistics();
+        // 循环填充只读 [0, validLength)、只写其后的部分，重复调用的工作量不变，无需每次恢复
+        window.put(clip, 0, validLength);
+    }
+
+    @Benchmark
+    public FloatBuffer loopPad() {
+        ModelInputOps.loopPad(window, 0, validLength, WINDOW);
+        return window;
+    }
+
+    @Benchmark
+    public PreScreen.Reason preScreen() {
+        return preScreen.screen(window, 0, validLength);
+    }
+
+    @Benchmark
+    public float inputStatistics() {
+        statistics.reset();
+        for (int i = 0; i < validLength; i++) {
+            statistics.accept(window.get(i));
+        }
+        return statistics.getRms();
+    }
+
+    /** 一个 64 条的批量输出逐行 Softmax */
+    @Benchmark
+    public float softmaxBatch() {
+        float sum = 0;
+        for (int row = 0; row < logits.length / 2; row++) {
+            sum += ModelInputOps.softmax(logits, row * 2, 2, 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float sigmoid() {
+        return ModelInputOps.sigmoid(logits[0]);
+    }
+
+    @Benchmark
+    public byte[] buildHeader() {
+        return WavUtils.buildHeader(validLength * 2, 16000, 1, 16);
+    }
+}
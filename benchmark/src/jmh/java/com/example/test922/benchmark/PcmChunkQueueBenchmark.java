@@ -0,0 +1,110 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.processor.PcmChunkQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 解码输出交给写线程的两种方式：同一线程里依次解码、写盘，与经 {@link PcmChunkQueue} 由两个线程并行。
+ * 解码与写盘都用阻塞等待模拟（解码在编解码器进程中完成、写盘等待 I/O），
+ * blockMicros 为 0 时只剩队列本身的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PcmChunkQueueBenchmark {
+
+    /** 200 个缓冲区，每个 1024 帧立体声，按 48kHz 约 4.3 秒音频 */
+    private static final int BUFFERS = 200;
+    private static final int BUFFER_SAMPLES = 2048;
+
+    /** 每个缓冲区解码与写盘各自阻塞的时长 */
+    @Param({"0", "500"})
+    public long blockMicros;
+
+    private short[] pcm;
+    /** 模拟 MediaCodec 的输出缓冲区：本机字节序的直接缓冲区，每次输出复用 */
+    private ByteBuffer output;
+    private long blockNanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pcm = new short[BUFFER_SAMPLES];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 31);
+        }
+        output = ByteBuffer.allocateDirect(BUFFER_SAMPLES * 2).order(ByteOrder.nativeOrder());
+        output.asShortBuffer().put(pcm);
+        blockNanos = TimeUnit.MICROSECONDS.toNanos(blockMicros);
+    }
+
+    private void block() {
+        if (blockNanos == 0) return;
+        long deadline = System.nanoTime() + blockNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** 写线程：阻塞后累加，防止消除 */
+    private final class Writer implements PcmChunkQueue.Consumer {
+        long checksum;
+
+        @Override
+        public void onFormat(int sampleRate, int channels) {
+        }
+
+        @Override
+        public void onPcm(short[] samples, int count) {
+            block();
+            checksum += samples[count - 1];
+        }
+    }
+
+    @Benchmark
+    public long synchronousLoop() {
+        Writer writer = new Writer();
+        for (int i = 0; i < BUFFERS; i++) {
+            block();
+            writer.onPcm(pcm, pcm.length);
+        }
+        return writer.checksum;
+    }
+
+    @Benchmark
+    public long queuedDecodeAndWrite() throws IOException, InterruptedException {
+        PcmChunkQueue queue = new PcmChunkQueue(32, BUFFER_SAMPLES);
+        Thread decoder = new Thread(() -> {
+            try {
+                for (int i = 0; i < BUFFERS; i++) {
+                    block();
+                    output.clear();
+                    queue.put(output, 48000, 2);
+                }
+                queue.finish();
+            } catch (InterruptedException e) {
+                queue.fail("中断");
+            }
+        });
+        decoder.start();
+        Writer writer = new Writer();
+        queue.drainTo(writer);
+        decoder.join();
+        return writer.checksum;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.processor.ProperResamplerProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码输出的下混与重采样：10 秒立体声到 16kHz 单声道，按解码器输出缓冲区大小分块送入。
+ * 44.1kHz 走分数相位的多相滤波，48kHz 是整数比，16kHz 只做下混。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResamplerBenchmark {
+
+    private static final int SECONDS = 10;
+    private static final int CHANNELS = 2;
+    /** 每次送入的帧数，与 MediaCodec 常见的输出缓冲区大小相当 */
+    private static final int CHUNK_FRAMES = 1024;
+
+    @Param({"16000", "44100", "48000"})
+    public int inputRate;
+
+    private short[] pcm;
+
+    /** 累加输出，防止消除 */
+    private static final class ChecksumSink implements ProperResamplerProcessor.PcmSink {
+        long checksum;
+
+        @Override
+        public void write(short[] samples, int offset, int count) {
+            checksum += samples[offset + count - 1];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int frames = inputRate * SECONDS;
+        pcm = new short[frames * CHANNELS];
+        for (int i = 0; i < frames; i++) {
+            double t = i / (double) inputRate;
+            pcm[i * CHANNELS] = (short) (Math.sin(2 * Math.PI * 1000 * t) * 16000);
+            pcm[i * CHANNELS + 1] = (short) (Math.sin(2 * Math.PI * 440 * t) * 12000);
+        }
+    }
+
+    @Benchmark
+    public long resampleToMono16k() throws IOException {
+        ChecksumSink sink = new ChecksumSink();
+        ProperResamplerProcessor resampler = new ProperResamplerProcessor(inputRate, CHANNELS, 16000, sink);
+        int chunk = CHUNK_FRAMES * CHANNELS;
+        for (int offset = 0; offset < pcm.length; offset += chunk) {
+            resampler.process(pcm, offset, Math.min(chunk, pcm.length - offset));
+        }
+        resampler.flush();
+        return sink.checksum + resampler.getOutputFrames();
+    }
+}
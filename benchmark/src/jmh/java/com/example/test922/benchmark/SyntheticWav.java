@@ -0,0 +1,56 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.processor.WavUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成 WAV：16kHz 16-bit 单声道，前 10% 为静音（模拟片头），
+ * 之后是按音节包络起伏的谐波信号叠加微弱噪声。分块写入，1 小时的文件也不需要整段 short[]。
+ */
+final class SyntheticWav {
+
+    static final int SAMPLE_RATE = 16000;
+
+    private static final int CHUNK_FRAMES = 16000;
+
+    private SyntheticWav() {
+    }
+
+    static File create(int seconds) throws IOException {
+        File file = File.createTempFile("bench_" + seconds + "s_", ".wav");
+        file.deleteOnExit();
+        long frames = (long) seconds * SAMPLE_RATE;
+        long silentFrames = frames / 10;
+        Random random = new Random(seconds);
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_FRAMES * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(WavUtils.buildHeader((int) (frames * 2), SAMPLE_RATE, 1, 16));
+            double phase = 0;
+            for (long start = 0; start < frames; start += CHUNK_FRAMES) {
+                int n = (int) Math.min(CHUNK_FRAMES, frames - start);
+                chunk.clear();
+                for (int i = 0; i < n; i++) {
+                    long frame = start + i;
+                    double v = 0;
+                    if (frame >= silentFrames) {
+                        double t = (double) frame / SAMPLE_RATE;
+                        phase += 2 * Math.PI * (170 + 50 * Math.sin(2 * Math.PI * 0.7 * t)) / SAMPLE_RATE;
+                        for (int h = 1; h <= 8; h++) v += Math.sin(h * phase) / h;
+                        v *= 0.2 * (0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t));
+                    }
+                    v += 0.002 * random.nextGaussian();
+                    chunk.putShort((short) Math.max(-32768, Math.min(32767, Math.round(v * 32767))));
+                }
+                out.write(chunk.array(), 0, n * 2);
+            }
+        }
+        return file;
+    }
+}
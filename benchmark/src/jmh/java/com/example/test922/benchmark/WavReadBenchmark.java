@@ -0,0 +1,85 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.processor.SpeechWindowSelector;
+import com.example.test922.audio.processor.WavUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WAV 读取路径：整段解码、头解析、内存映射后读取一个模型窗口，以及在映射数据上选择语音窗口。
+ * 分别在 4 秒、60 秒与 1 小时的合成 WAV 上测量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WavReadBenchmark {
+
+    /** 与 RawNet2 输入长度一致：4 秒 */
+    private static final int WINDOW = 64000;
+
+    @Param({"4", "60", "3600"})
+    public int seconds;
+
+    private File file;
+    private String path;
+    private FloatBuffer window;
+    private SpeechWindowSelector selector;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = SyntheticWav.create(seconds);
+        path = file.getAbsolutePath();
+        // 与 InputTensorPool 一样使用 native 字节序的直接内存
+        window = ByteBuffer.allocateDirect(WINDOW * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        selector = SpeechWindowSelector.defaults();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /** 整段读取为 float[]（旧的检测路径） */
+    @Benchmark
+    public float[] readWavFile() {
+        return WavUtils.readWavFile(path);
+    }
+
+    @Benchmark
+    public WavUtils.WavInfo parse() {
+        return WavUtils.parse(file);
+    }
+
+    /** 当前的检测路径：映射后只把开头一个窗口归一化到直接内存 */
+    @Benchmark
+    public int mapAndReadWindow() throws IOException {
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(path)) {
+            return wav.read(0, window, 0, WINDOW);
+        }
+    }
+
+    /** 在整段映射数据上做能量/过零率 VAD 并选出语音最密集的窗口 */
+    @Benchmark
+    public long[] selectSpeechWindows() throws IOException {
+        try (WavUtils.MappedWav wav = WavUtils.mapWavFile(path)) {
+            return selector.select(wav, WINDOW, selector.getTopK());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.test922.benchmark;
+
+import com.example.test922.audio.processor.WaveformPeaks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码时顺带计算波形：1 分钟 48kHz 立体声按解码器输出缓冲区送入 {@link WaveformPeaks}。
+ * 时长已知时每桶帧数一次算定；未知时从默认桶长开始，填满后两两合并。
+ * 稳态下不应分配内存（见 gc.alloc.rate.norm）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WaveformPeaksBenchmark {
+
+    private static final long DURATION_US = 60 * 1_000_000L;
+    /** 每个解码缓冲区：1024 帧立体声 */
+    private static final int BUFFER_SAMPLES = 2048;
+
+    /** 容器是否声明了时长 */
+    @Param({"true", "false"})
+    public boolean durationKnown;
+
+    private short[] buffer;
+    private int buffers;
+    private float[] min;
+    private float[] max;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buffer = new short[BUFFER_SAMPLES];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (short) (Math.sin(i * 0.05) * (i % 2 == 0 ? 20000 : 12000));
+        }
+        buffers = (int) (DURATION_US * 48 / 1000 / (BUFFER_SAMPLES / 2));
+        min = new float[WaveformPeaks.MAX_BUCKETS];
+        max = new float[WaveformPeaks.MAX_BUCKETS];
+    }
+
+    @Benchmark
+    public int peaks() {
+        long durationUs = durationKnown ? DURATION_US : 0;
+        WaveformPeaks peaks = new WaveformPeaks(WaveformPeaks.bucketCountFor(durationUs), durationUs);
+        peaks.onFormat(48000, 2);
+        for (int i = 0; i < buffers; i++) {
+            peaks.onPcm(buffer, buffer.length);
+        }
+        return peaks.copyTo(min, max);
+    }
+}
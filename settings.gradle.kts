@@ -26,5 +26,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Test9.22"
 include(":app")
+include(":benchmark")
 include(":ffmpeg-kit-android-lib")
 project(":ffmpeg-kit-android-lib").projectDir = file("ffmpeg-kit-community-main/android/ffmpeg-kit-android-lib")